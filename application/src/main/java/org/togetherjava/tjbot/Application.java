@@ -1,20 +1,44 @@
 package org.togetherjava.tjbot;
 
 import net.dv8tion.jda.api.JDA;
-import net.dv8tion.jda.api.JDABuilder;
 import net.dv8tion.jda.api.requests.GatewayIntent;
+import net.dv8tion.jda.api.sharding.DefaultShardManagerBuilder;
+import net.dv8tion.jda.api.sharding.ShardManager;
+import net.dv8tion.jda.api.utils.ChunkingFilter;
+import net.dv8tion.jda.api.utils.cache.CacheFlag;
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.OkHttpClient;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.togetherjava.tjbot.commands.Features;
 import org.togetherjava.tjbot.commands.system.BotCore;
+import org.togetherjava.tjbot.commands.system.LeanMemberCachePolicy;
 import org.togetherjava.tjbot.config.Config;
+import org.togetherjava.tjbot.config.DatabaseConfig;
+import org.togetherjava.tjbot.config.JdaCacheProfile;
+import org.togetherjava.tjbot.config.MetricsConfig;
+import org.togetherjava.tjbot.config.ShardingConfig;
 import org.togetherjava.tjbot.db.Database;
+import org.togetherjava.tjbot.db.DatabaseStatistics;
+import org.togetherjava.tjbot.db.OperationStatistics;
+import org.togetherjava.tjbot.db.WriteBatchPolicy;
+import org.togetherjava.tjbot.metrics.MetricsRegistry;
+import org.togetherjava.tjbot.metrics.MetricsServer;
+import org.togetherjava.tjbot.metrics.RateLimitInterceptor;
 
 import javax.security.auth.login.LoginException;
 import java.io.IOException;
+import java.net.InetSocketAddress;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.sql.SQLException;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 /**
  * Main class of the application. Use {@link #main(String[])} to start an instance of it.
@@ -29,6 +53,7 @@ public enum Application {
 
     private static final Logger logger = LoggerFactory.getLogger(Application.class);
     private static final String DEFAULT_CONFIG_PATH = "config.json";
+    private static final double NANOS_PER_SECOND = 1_000_000_000.0;
 
     /**
      * Starts the application.
@@ -75,16 +100,26 @@ public enum Application {
             if (parentDatabasePath != null) {
                 Files.createDirectories(parentDatabasePath);
             }
-            Database database = new Database("jdbc:sqlite:" + databasePath.toAbsolutePath());
+            DatabaseConfig databaseConfig = config.getDatabase();
+            WriteBatchPolicy writeBatchPolicy =
+                    new WriteBatchPolicy(databaseConfig.getWriteBatchMaxSize(),
+                            Duration.ofMillis(databaseConfig.getWriteBatchLingerMs()));
+            Database database = new Database("jdbc:sqlite:" + databasePath.toAbsolutePath(),
+                    databaseConfig.getReadPoolSize(), writeBatchPolicy);
 
-            JDA jda = JDABuilder.createDefault(config.getToken())
-                .enableIntents(GatewayIntent.GUILD_MEMBERS)
-                .build();
-            jda.addEventListener(new BotCore(jda, database, config));
-            jda.awaitReady();
-            logger.info("Bot is ready");
+            MetricsRegistry metrics = new MetricsRegistry();
+            registerDatabaseMetrics(database, metrics);
+            MetricsServer metricsServer = startMetricsServer(config.getMetrics(), metrics);
 
-            Runtime.getRuntime().addShutdownHook(new Thread(Application::onShutdown));
+            ShardManager shardManager = createShardManager(config, metrics);
+            BotCore botCore = new BotCore(shardManager, database, config, metrics);
+            shardManager.addEventListener(botCore);
+            awaitReady(shardManager);
+            logger.info("Bot is ready, running {} of {} shards", shardManager.getShardsRunning(),
+                    shardManager.getShardsTotal());
+
+            Runtime.getRuntime()
+                .addShutdownHook(new Thread(() -> onShutdown(botCore, database, metricsServer)));
         } catch (LoginException e) {
             logger.error("Failed to login", e);
         } catch (InterruptedException e) {
@@ -98,11 +133,144 @@ public enum Application {
         }
     }
 
-    private static void onShutdown() {
+    private static @NotNull ShardManager createShardManager(@NotNull Config config,
+            @NotNull MetricsRegistry metrics) throws LoginException {
+        ShardingConfig shardingConfig = config.getSharding();
+        DefaultShardManagerBuilder builder = DefaultShardManagerBuilder
+            .createDefault(config.getToken())
+            .enableIntents(GatewayIntent.GUILD_MEMBERS)
+            .setShardsTotal(shardingConfig.getShardsTotal())
+            .setHttpClientBuilder(createHttpClientBuilder(metrics));
+
+        if (shardingConfig.getMinShardId() != ShardingConfig.ALL_SHARDS) {
+            // Only a part of the shards, the others are run by other processes
+            builder.setShards(shardingConfig.getMinShardId(), shardingConfig.getMaxShardId());
+        }
+
+        JdaCacheProfile cacheProfile = config.getJdaCache().getProfile();
+        if (cacheProfile == JdaCacheProfile.LEAN) {
+            applyLeanCacheProfile(builder, config);
+        }
+        logger.info("Using the {} cache profile", cacheProfile);
+
+        return builder.build();
+    }
+
+    /**
+     * Limits the in-memory cache of Discord data to what the bot needs frequently, see
+     * {@link JdaCacheProfile#LEAN}.
+     */
+    private static void applyLeanCacheProfile(@NotNull DefaultShardManagerBuilder builder,
+            @NotNull Config config) {
+        LeanMemberCachePolicy memberCachePolicy = new LeanMemberCachePolicy(config);
+
+        // Voice states are needed by VcActivityCommand, emotes by SuggestionsUpDownVoter and
+        // member overrides to compute permissions in channels
+        builder.setMemberCachePolicy(memberCachePolicy)
+            .addEventListeners(memberCachePolicy)
+            .setChunkingFilter(ChunkingFilter.NONE)
+            .disableCache(CacheFlag.ACTIVITY, CacheFlag.CLIENT_STATUS, CacheFlag.ONLINE_STATUS,
+                    CacheFlag.ROLE_TAGS);
+    }
+
+    /**
+     * Creates the builder of the HTTP client JDA uses for the REST API of Discord, which counts
+     * the requests that hit a rate limit.
+     */
+    private static @NotNull OkHttpClient.Builder createHttpClientBuilder(
+            @NotNull MetricsRegistry metrics) {
+        // Same settings as the client JDA creates by default
+        Dispatcher dispatcher = new Dispatcher();
+        dispatcher.setMaxRequestsPerHost(25);
+        ConnectionPool connectionPool = new ConnectionPool(5, 10, TimeUnit.SECONDS);
+
+        return new OkHttpClient.Builder().connectionPool(connectionPool)
+            .dispatcher(dispatcher)
+            .addInterceptor(new RateLimitInterceptor(metrics));
+    }
+
+    private static void registerDatabaseMetrics(@NotNull Database database,
+            @NotNull MetricsRegistry metrics) {
+        registerDatabaseOperationMetrics("tjbot_database_read",
+                "Time reads from the database took, including waiting for a connection",
+                DatabaseStatistics::reads, database, metrics);
+        registerDatabaseOperationMetrics("tjbot_database_write",
+                "Time writes to the database held the write lock", DatabaseStatistics::writes,
+                database, metrics);
+        registerDatabaseOperationMetrics("tjbot_database_write_lock_wait",
+                "Time writes to the database waited for the write lock",
+                DatabaseStatistics::writeLockWaits, database, metrics);
+
+        if (database.getReadPoolStatistics().isPresent()) {
+            metrics.summary("tjbot_database_read_pool_wait_seconds",
+                    "Time reads from the database waited for a connection of the read pool",
+                    () -> database.getReadPoolStatistics().orElseThrow().acquisitions(),
+                    () -> database.getReadPoolStatistics().orElseThrow().totalWaitTime());
+        }
+    }
+
+    private static void registerDatabaseOperationMetrics(@NotNull String namePrefix,
+            @NotNull String help,
+            @NotNull Function<DatabaseStatistics, OperationStatistics> operation,
+            @NotNull Database database, @NotNull MetricsRegistry metrics) {
+        Supplier<OperationStatistics> statistics =
+                () -> operation.apply(database.getStatistics());
+
+        metrics.summary(namePrefix + "_seconds", help, () -> statistics.get().count(),
+                () -> statistics.get().totalTime());
+        metrics.gauge(namePrefix + "_max_seconds", help + ", the longest one",
+                () -> statistics.get().maxTime().toNanos() / NANOS_PER_SECOND);
+    }
+
+    /**
+     * Starts serving the metrics to Prometheus, if enabled. The bot also runs without metrics, if
+     * the server fails to start.
+     */
+    private static @Nullable MetricsServer startMetricsServer(@NotNull MetricsConfig config,
+            @NotNull MetricsRegistry metrics) {
+        if (!config.isEnabled()) {
+            return null;
+        }
+
+        try {
+            return MetricsServer.start(metrics,
+                    new InetSocketAddress(config.getHost(), config.getPort()));
+        } catch (IOException e) {
+            logger.error("Failed to start serving metrics on {}:{}", config.getHost(),
+                    config.getPort(), e);
+            return null;
+        }
+    }
+
+    /**
+     * Waits until all shards of this process are ready. Shards are started one after another,
+     * hence not all of them might exist yet.
+     */
+    private static void awaitReady(@NotNull ShardManager shardManager)
+            throws InterruptedException {
+        while (true) {
+            for (JDA shard : shardManager.getShards()) {
+                shard.awaitReady();
+            }
+            if (shardManager.getShardsQueued() == 0) {
+                return;
+            }
+            TimeUnit.SECONDS.sleep(1);
+        }
+    }
+
+    private static void onShutdown(@NotNull BotCore botCore, @NotNull Database database,
+            @Nullable MetricsServer metricsServer) {
         // This may be called during JVM shutdown via a hook and hence only has minimal time to
         // react.
         // There is no guarantee that this method can be executed fully - it should run as
         // fast as possible and only do the minimal necessary actions.
+        if (metricsServer != null) {
+            metricsServer.close();
+        }
+        // Features may still write buffered data to the database
+        botCore.shutdown();
+        database.close();
         logger.info("Bot has been stopped");
     }
 
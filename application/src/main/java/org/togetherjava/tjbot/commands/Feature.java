@@ -5,6 +5,9 @@ package org.togetherjava.tjbot.commands;
  * <p>
  * New features are added in {@link org.togetherjava.tjbot.commands.Features} and from there picked
  * up by {@link org.togetherjava.tjbot.commands.system.BotCore}.
+ * <p>
+ * Features that hold resources, such as buffered writes, may implement {@link AutoCloseable}. They
+ * are closed when the bot shuts down, before the database is closed.
  */
 public interface Feature {
     // Marker interface
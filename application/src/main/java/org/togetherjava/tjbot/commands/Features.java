@@ -1,6 +1,6 @@
 package org.togetherjava.tjbot.commands;
 
-import net.dv8tion.jda.api.JDA;
+import net.dv8tion.jda.api.sharding.ShardManager;
 import org.jetbrains.annotations.NotNull;
 import org.togetherjava.tjbot.commands.basic.PingCommand;
 import org.togetherjava.tjbot.commands.basic.RoleSelectCommand;
@@ -11,6 +11,7 @@ import org.togetherjava.tjbot.commands.mathcommands.TeXCommand;
 import org.togetherjava.tjbot.commands.moderation.*;
 import org.togetherjava.tjbot.commands.moderation.temp.TemporaryModerationRoutine;
 import org.togetherjava.tjbot.commands.system.BotCore;
+import org.togetherjava.tjbot.commands.system.DiagnosticsCommand;
 import org.togetherjava.tjbot.commands.tags.TagCommand;
 import org.togetherjava.tjbot.commands.tags.TagManageCommand;
 import org.togetherjava.tjbot.commands.tags.TagSystem;
@@ -18,8 +19,12 @@ import org.togetherjava.tjbot.commands.tags.TagsCommand;
 import org.togetherjava.tjbot.commands.tophelper.TopHelpersCommand;
 import org.togetherjava.tjbot.commands.tophelper.TopHelpersMessageListener;
 import org.togetherjava.tjbot.commands.tophelper.TopHelpersPurgeMessagesRoutine;
+import org.togetherjava.tjbot.commands.utils.MemberNameCache;
+import org.togetherjava.tjbot.commands.utils.UserCache;
 import org.togetherjava.tjbot.config.Config;
 import org.togetherjava.tjbot.db.Database;
+import org.togetherjava.tjbot.routines.DatabasePoolStatisticsRoutine;
+import org.togetherjava.tjbot.routines.JdaCacheRoutine;
 import org.togetherjava.tjbot.routines.ModAuditLogRoutine;
 
 import java.util.ArrayList;
@@ -31,7 +36,7 @@ import java.util.Collection;
  * it with the system.
  * <p>
  * To add a new slash command, extend the commands returned by
- * {@link #createFeatures(JDA, Database, Config)}.
+ * {@link #createFeatures(ShardManager, Database, Config)}.
  */
 public enum Features {
     ;
@@ -42,15 +47,17 @@ public enum Features {
      * Calling this method multiple times will result in multiple features being created, which
      * generally should be avoided.
      *
-     * @param jda the JDA instance commands will be registered at
+     * @param shardManager the shard manager commands will be registered at
      * @param database the database of the application, which features can use to persist data
      * @param config the configuration features should use
      * @return a collection of all features
      */
-    public static @NotNull Collection<Feature> createFeatures(@NotNull JDA jda,
+    public static @NotNull Collection<Feature> createFeatures(@NotNull ShardManager shardManager,
             @NotNull Database database, @NotNull Config config) {
         TagSystem tagSystem = new TagSystem(database);
         ModerationActionsStore actionsStore = new ModerationActionsStore(database);
+        MemberNameCache memberNames = new MemberNameCache();
+        UserCache users = new UserCache();
 
         // NOTE The system can add special system relevant commands also by itself,
         // hence this list may not necessarily represent the full list of all commands actually
@@ -59,8 +66,10 @@ public enum Features {
 
         // Routines
         features.add(new ModAuditLogRoutine(database, config));
-        features.add(new TemporaryModerationRoutine(jda, actionsStore, config));
+        features.add(new TemporaryModerationRoutine(shardManager, actionsStore, config));
         features.add(new TopHelpersPurgeMessagesRoutine(database));
+        features.add(new DatabasePoolStatisticsRoutine(database));
+        features.add(new JdaCacheRoutine(config));
 
         // Message receivers
         features.add(new TopHelpersMessageListener(database, config));
@@ -80,12 +89,13 @@ public enum Features {
         features.add(new KickCommand(actionsStore, config));
         features.add(new BanCommand(actionsStore, config));
         features.add(new UnbanCommand(actionsStore, config));
-        features.add(new AuditCommand(actionsStore, config));
+        features.add(new AuditCommand(actionsStore, users, config));
         features.add(new MuteCommand(actionsStore, config));
         features.add(new UnmuteCommand(actionsStore, config));
-        features.add(new TopHelpersCommand(database, config));
+        features.add(new TopHelpersCommand(database, memberNames, config));
         features.add(new RoleSelectCommand());
         features.add(new NoteCommand(actionsStore, config));
+        features.add(new DiagnosticsCommand());
 
         // Mixtures
         features.add(new FreeCommand(config));
@@ -1,8 +1,13 @@
 package org.togetherjava.tjbot.commands;
 
-import net.dv8tion.jda.api.JDA;
+import net.dv8tion.jda.api.sharding.ShardManager;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.togetherjava.tjbot.commands.system.CronExpression;
 
+import java.time.Duration;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -12,16 +17,21 @@ import java.util.concurrent.TimeUnit;
  * to {@link Features}.
  * <p>
  * <p>
- * After registration, the system will automatically start and execute {@link #runRoutine(JDA)} on
- * the schedule defined by {@link #createSchedule()}.
+ * After registration, the system will automatically start and execute
+ * {@link #runRoutine(ShardManager)} on the schedule defined by {@link #createSchedule()}.
+ * <p>
+ * Routines are executed once per process, not per shard. Routines that work on guilds should
+ * iterate the shards of the given shard manager, since a shard that is not connected does not know
+ * its guilds.
  */
 public interface Routine extends Feature {
     /**
      * Triggered by the core system on the schedule defined by {@link #createSchedule()}.
      *
-     * @param jda the JDA instance the bot is operating with
+     * @param shardManager the shard manager the bot is operating with, holding the shards run by
+     *        this process
      */
-    void runRoutine(@NotNull JDA jda);
+    void runRoutine(@NotNull ShardManager shardManager);
 
     /**
      * Retrieves the schedule of this routine. Called by the core system once during the startup in
@@ -36,23 +46,94 @@ public interface Routine extends Feature {
 
     /**
      * The schedule of routines.
+     * <p>
+     * Executions of a routine never overlap. If an execution is due while the previous one is still
+     * running, it is skipped. Exceptions thrown by an execution are logged and do not affect
+     * subsequent executions.
      *
-     * @param mode whether subsequent executions are executed at a fixed rate or are delayed,
-     *        influences how {@link #duration} is interpreted
-     * @param initialDuration the time which the first execution of the routine is delayed
+     * @param mode whether subsequent executions are executed at a fixed rate, are delayed or follow
+     *        a cron expression, influences how {@link #duration} is interpreted
+     * @param initialDuration the time which the first execution of the routine is delayed, unused
+     *        for {@link ScheduleMode#CRON}
      * @param duration the time all subsequent executions of the routine are delayed. Either
      *        measured before execution ({@link ScheduleMode#FIXED_RATE}) or after execution has
-     *        finished ({@link ScheduleMode#FIXED_DELAY}).
+     *        finished ({@link ScheduleMode#FIXED_DELAY}). Unused for {@link ScheduleMode#CRON}.
      * @param unit the time unit for both, {@link #initialDuration} and {@link #duration}, e.g.
      *        seconds
+     * @param cronExpression the wall-clock times to execute the routine at, only used and required
+     *        for {@link ScheduleMode#CRON}
+     * @param zone the time zone to evaluate {@link #cronExpression} in
+     * @param jitter the maximal random delay added to each execution, to avoid that routines
+     *        scheduled for the same time all run at once. Zero for no jitter.
      */
     record Schedule(@NotNull ScheduleMode mode, long initialDuration, long duration,
-            @NotNull TimeUnit unit) {
+            @NotNull TimeUnit unit, @Nullable CronExpression cronExpression, @NotNull ZoneId zone,
+            @NotNull Duration jitter) {
+
+        /**
+         * Creates a schedule for execution at a fixed rate or with a fixed delay, without jitter.
+         *
+         * @param mode either {@link ScheduleMode#FIXED_RATE} or {@link ScheduleMode#FIXED_DELAY}
+         * @param initialDuration the time which the first execution of the routine is delayed
+         * @param duration the time all subsequent executions of the routine are delayed
+         * @param unit the time unit for both, {@link #initialDuration} and {@link #duration}
+         */
+        public Schedule(@NotNull ScheduleMode mode, long initialDuration, long duration,
+                @NotNull TimeUnit unit) {
+            this(mode, initialDuration, duration, unit, null, ZoneOffset.UTC, Duration.ZERO);
+        }
+
+        /**
+         * Creates a schedule.
+         *
+         * @throws IllegalArgumentException if a cron expression is missing for
+         *         {@link ScheduleMode#CRON}, the duration of other modes is not positive or the
+         *         jitter is negative
+         */
+        public Schedule {
+            if (mode == ScheduleMode.CRON && cronExpression == null) {
+                throw new IllegalArgumentException("Cron schedules require a cron expression");
+            }
+            if (mode != ScheduleMode.CRON && duration <= 0) {
+                throw new IllegalArgumentException("Duration between executions must be positive");
+            }
+            if (jitter.isNegative()) {
+                throw new IllegalArgumentException("Jitter must not be negative");
+            }
+        }
+
+        /**
+         * Creates a schedule that executes at the wall-clock times given by a cron expression.
+         *
+         * @param cronExpression the expression, see {@link CronExpression} for the format, for
+         *        example {@code 0 4/8 * * *} for 4:00, 12:00 and 20:00 each day
+         * @param zone the time zone to evaluate the expression in, e.g. {@link ZoneOffset#UTC}
+         * @return the according schedule
+         * @throws IllegalArgumentException if the expression is not valid
+         */
+        public static @NotNull Schedule cron(@NotNull String cronExpression,
+                @NotNull ZoneId zone) {
+            return new Schedule(ScheduleMode.CRON, 0, 0, TimeUnit.MINUTES,
+                    CronExpression.parse(cronExpression), zone, Duration.ZERO);
+        }
+
+        /**
+         * Creates a copy of this schedule that delays each execution by a random duration up to
+         * the given jitter.
+         *
+         * @param jitter the maximal random delay
+         * @return the according schedule
+         */
+        public @NotNull Schedule withJitter(@NotNull Duration jitter) {
+            return new Schedule(mode, initialDuration, duration, unit, cronExpression, zone,
+                    jitter);
+        }
     }
 
 
     /**
-     * Whether subsequent executions of a routine are executed at a fixed rate or are delayed.
+     * Whether subsequent executions of a routine are executed at a fixed rate, are delayed or
+     * follow a cron expression.
      */
     enum ScheduleMode {
         /**
@@ -64,6 +145,11 @@ public interface Routine extends Feature {
          * Executions are scheduled for a fixed delay, the time duration between executions is
          * measured between after they have finished.
          */
-        FIXED_DELAY
+        FIXED_DELAY,
+        /**
+         * Executions are scheduled for the wall-clock times given by a {@link CronExpression},
+         * also across daylight saving time transitions.
+         */
+        CRON
     }
 }
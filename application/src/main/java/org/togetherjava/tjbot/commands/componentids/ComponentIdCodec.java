@@ -0,0 +1,194 @@
+package org.togetherjava.tjbot.commands.componentids;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import org.jetbrains.annotations.NotNull;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compact binary serialization of {@link ComponentId}, as used by {@link ComponentIdStore} to
+ * persist component IDs.
+ * <p>
+ * The format is versioned by its first byte. Version {@value #FORMAT_VERSION} consists of the
+ * command name, followed by the amount of elements and the elements itself. Numbers are written as
+ * unsigned variable-length integers and texts as their UTF-8 byte length followed by their bytes.
+ * <p>
+ * Component IDs that have been persisted before the introduction of this format are stored as CSV
+ * text. They are still understood by {@link #decode(byte[])}, see {@link #isLegacy(byte[])} to
+ * detect them.
+ */
+public enum ComponentIdCodec {
+    ;
+
+    /**
+     * The current version of the format, written as first byte. Legacy CSV data starts with the
+     * first character of the command name instead, which is never this byte.
+     */
+    private static final byte FORMAT_VERSION = 1;
+    private static final int VARINT_PAYLOAD_BITS = 7;
+    private static final int VARINT_PAYLOAD_MASK = 0x7F;
+    private static final int VARINT_CONTINUATION_BIT = 0x80;
+
+    private static final ObjectReader LEGACY_CSV_READER;
+
+    static {
+        CsvMapper csv = new CsvMapper();
+        LEGACY_CSV_READER =
+                csv.readerFor(ComponentId.class).with(csv.schemaFor(ComponentId.class));
+    }
+
+    /**
+     * Serializes the given component ID into the current format.
+     *
+     * @param componentId the component ID to serialize
+     * @return the serialized component ID
+     */
+    public static byte @NotNull [] encode(@NotNull ComponentId componentId) {
+        List<String> elements = componentId.elements();
+
+        byte[] commandName = componentId.commandName().getBytes(StandardCharsets.UTF_8);
+        byte[][] encodedElements = new byte[elements.size()][];
+        int size = 1 + sizeOfText(commandName) + sizeOfVarInt(elements.size());
+        for (int i = 0; i < encodedElements.length; i++) {
+            encodedElements[i] = elements.get(i).getBytes(StandardCharsets.UTF_8);
+            size += sizeOfText(encodedElements[i]);
+        }
+
+        byte[] result = new byte[size];
+        result[0] = FORMAT_VERSION;
+        int position = writeText(result, 1, commandName);
+        position = writeVarInt(result, position, encodedElements.length);
+        for (byte[] element : encodedElements) {
+            position = writeText(result, position, element);
+        }
+        return result;
+    }
+
+    /**
+     * Deserializes a component ID that was serialized by {@link #encode(ComponentId)}, or
+     * persisted in the legacy CSV format.
+     *
+     * @param data the serialized component ID
+     * @return the deserialized component ID
+     * @throws InvalidComponentIdFormatException if the data is in an unexpected format
+     */
+    public static @NotNull ComponentId decode(byte @NotNull [] data) {
+        if (isLegacy(data)) {
+            return decodeLegacy(data);
+        }
+
+        try {
+            Decoder decoder = new Decoder(data);
+            String commandName = decoder.readText();
+            int elementCount = decoder.readVarInt();
+            // Each element takes at least one byte, a corrupt count must not allocate gigabytes
+            if (elementCount < 0 || elementCount > data.length - decoder.position) {
+                throw new InvalidComponentIdFormatException();
+            }
+            List<String> elements = new ArrayList<>(elementCount);
+            for (int i = 0; i < elementCount; i++) {
+                elements.add(decoder.readText());
+            }
+
+            if (decoder.position != data.length) {
+                throw new InvalidComponentIdFormatException();
+            }
+            return new ComponentId(commandName, elements);
+        } catch (IndexOutOfBoundsException | IllegalArgumentException e) {
+            throw new InvalidComponentIdFormatException(e);
+        }
+    }
+
+    /**
+     * Whether the given data is a component ID persisted in the legacy CSV format, which should be
+     * converted to the current format.
+     *
+     * @param data the serialized component ID
+     * @return whether the data is in the legacy format
+     */
+    public static boolean isLegacy(byte @NotNull [] data) {
+        return data.length == 0 || data[0] != FORMAT_VERSION;
+    }
+
+    private static @NotNull ComponentId decodeLegacy(byte @NotNull [] data) {
+        try {
+            return LEGACY_CSV_READER.readValue(new String(data, StandardCharsets.UTF_8));
+        } catch (JsonProcessingException e) {
+            throw new InvalidComponentIdFormatException(e);
+        }
+    }
+
+    private static int sizeOfText(byte @NotNull [] text) {
+        return sizeOfVarInt(text.length) + text.length;
+    }
+
+    private static int sizeOfVarInt(int value) {
+        int size = 1;
+        int remaining = value >>> VARINT_PAYLOAD_BITS;
+        while (remaining != 0) {
+            size++;
+            remaining >>>= VARINT_PAYLOAD_BITS;
+        }
+        return size;
+    }
+
+    private static int writeText(byte @NotNull [] target, int position, byte @NotNull [] text) {
+        int textPosition = writeVarInt(target, position, text.length);
+        System.arraycopy(text, 0, target, textPosition, text.length);
+        return textPosition + text.length;
+    }
+
+    private static int writeVarInt(byte @NotNull [] target, int position, int value) {
+        int remaining = value;
+        int currentPosition = position;
+        while ((remaining & ~VARINT_PAYLOAD_MASK) != 0) {
+            target[currentPosition] =
+                    (byte) ((remaining & VARINT_PAYLOAD_MASK) | VARINT_CONTINUATION_BIT);
+            currentPosition++;
+            remaining >>>= VARINT_PAYLOAD_BITS;
+        }
+        target[currentPosition] = (byte) remaining;
+        return currentPosition + 1;
+    }
+
+    /**
+     * Reads the current format sequentially, starting right after the version byte.
+     */
+    private static final class Decoder {
+        private final byte[] data;
+        private int position = 1;
+
+        private Decoder(byte @NotNull [] data) {
+            this.data = data;
+        }
+
+        int readVarInt() {
+            int value = 0;
+            int shift = 0;
+            while (true) {
+                byte current = data[position];
+                position++;
+                value |= (current & VARINT_PAYLOAD_MASK) << shift;
+                if ((current & VARINT_CONTINUATION_BIT) == 0) {
+                    return value;
+                }
+                shift += VARINT_PAYLOAD_BITS;
+                if (shift >= Integer.SIZE) {
+                    throw new InvalidComponentIdFormatException();
+                }
+            }
+        }
+
+        @NotNull
+        String readText() {
+            int length = readVarInt();
+            String text = new String(data, position, length, StandardCharsets.UTF_8);
+            position += length;
+            return text;
+        }
+    }
+}
@@ -1,12 +1,15 @@
 package org.togetherjava.tjbot.commands.componentids;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.dataformat.csv.CsvMapper;
-import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.AsyncLoadingCache;
 import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
 import net.dv8tion.jda.api.events.interaction.SlashCommandEvent;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jooq.DSLContext;
+import org.jooq.Query;
 import org.jooq.Result;
+import org.jooq.impl.DSL;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.togetherjava.tjbot.db.Database;
@@ -18,7 +21,6 @@ import java.time.temporal.ChronoUnit;
 import java.time.temporal.TemporalUnit;
 import java.util.*;
 import java.util.concurrent.*;
-import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.function.Supplier;
@@ -38,44 +40,62 @@ import java.util.stream.Collectors;
  * Component IDs which have not been used for a long time, depending on their {@link Lifespan}
  * setting, might get evicted from the store after some time. The store implements a
  * <strong>LRU-cache</strong> and each call of {@link #get(UUID)} will update the usage-timestamp
- * for the component ID.
+ * for the component ID. Usages are aggregated in memory and flushed to the database periodically
+ * in a single batch. Eviction runs in the background and deletes old records in small chunks.
  * <p>
  * Users can react to eviction by adding a listener to
  * {@link #addComponentIdRemovedListener(Consumer)}.
  * <p>
- * The store is fully thread-safe, component IDs can be generated and parsed multithreaded.
+ * The store is fully thread-safe, component IDs can be generated and parsed multithreaded. Look-ups
+ * do not acquire any lock and are never blocked by the background tasks.
  */
 @SuppressWarnings("ClassWithTooManyFields")
 public final class ComponentIdStore implements AutoCloseable {
     private static final Logger logger = LoggerFactory.getLogger(ComponentIdStore.class);
-    private static final CsvMapper CSV = new CsvMapper();
 
     private static final long EVICT_DATABASE_EVERY_INITIAL_DELAY = 1;
     private static final long EVICT_DATABASE_EVERY_DELAY = 15;
     private static final ChronoUnit EVICT_DATABASE_EVERY_UNIT = ChronoUnit.MINUTES;
     private static final long EVICT_DATABASE_OLDER_THAN = 20;
     private static final ChronoUnit EVICT_DATABASE_OLDER_THAN_UNIT = ChronoUnit.DAYS;
+    private static final int EVICT_DATABASE_CHUNK_SIZE = 500;
+    private static final int MIGRATE_LEGACY_CHUNK_SIZE = 500;
+
+    private static final long FLUSH_HEAT_EVERY_DELAY = 1;
+    private static final ChronoUnit FLUSH_HEAT_EVERY_UNIT = ChronoUnit.MINUTES;
 
     private static final int CACHE_SIZE = 1_000;
     private static final int EVICT_CACHE_OLDER_THAN = 2;
     private static final ChronoUnit EVICT_CACHE_OLDER_THAN_UNIT = ChronoUnit.HOURS;
 
-    private final Object storeLock = new Object();
+    private static final long CLOSE_TIMEOUT = 5;
+    private static final ChronoUnit CLOSE_TIMEOUT_UNIT = ChronoUnit.SECONDS;
+
     private final Database database;
     /**
      * In-memory cache which is used as first stage before the database, to speedup look-ups. Should
      * cover the majority of all queries, as most queries (e.g. button clicks) come from messages
-     * that have been created in the past hours and not days.
+     * that have been created in the past hours and not days. Misses are loaded from the database.
      */
-    private final Cache<UUID, ComponentId> storeCache;
+    private final AsyncLoadingCache<UUID, ComponentId> storeCache;
+    /**
+     * Usages of component IDs that have not been flushed to the database yet, mapped to the time of
+     * their latest usage.
+     */
+    private final Map<UUID, Instant> pendingHeat = new ConcurrentHashMap<>();
     private final Collection<Consumer<ComponentId>> componentIdRemovedListeners =
             Collections.synchronizedCollection(new ArrayList<>());
-    private final ExecutorService heatService = Executors.newCachedThreadPool();
+    private final ExecutorService lookupService = Executors.newCachedThreadPool();
     private final ExecutorService componentIdRemovedListenerService =
             Executors.newCachedThreadPool();
-    private final ScheduledExecutorService evictionService =
+    /**
+     * Runs heat flushes and evictions, both are executed by the same single thread and hence never
+     * run concurrently to each other.
+     */
+    private final ScheduledExecutorService maintenanceService =
             Executors.newSingleThreadScheduledExecutor();
     private final ScheduledFuture<?> evictionTask;
+    private final ScheduledFuture<?> heatFlushTask;
     private final long evictDatabaseOlderThan;
     private final TemporalUnit evictDatabaseOlderThanUnit;
 
@@ -113,9 +133,20 @@ public final class ComponentIdStore implements AutoCloseable {
         storeCache = Caffeine.newBuilder()
             .maximumSize(CACHE_SIZE)
             .expireAfterAccess(EVICT_CACHE_OLDER_THAN, TimeUnit.of(EVICT_CACHE_OLDER_THAN_UNIT))
-            .build();
-        evictionTask = evictionService.scheduleWithFixedDelay(this::evictDatabase,
+            .executor(lookupService)
+            .recordStats()
+            .buildAsync(this::getFromDatabase);
+        // A failing execution would cancel all further executions, hence failures are only logged
+        evictionTask = maintenanceService.scheduleWithFixedDelay(
+                () -> runMaintenance(this::evictDatabase, "evict old component ids"),
                 evictEveryInitialDelay, evictEveryDelay, TimeUnit.of(evictEveryUnit));
+        heatFlushTask = maintenanceService.scheduleWithFixedDelay(
+                () -> runMaintenance(this::flushHeat, "flush the heat of component ids"),
+                FLUSH_HEAT_EVERY_DELAY, FLUSH_HEAT_EVERY_DELAY,
+                TimeUnit.of(FLUSH_HEAT_EVERY_UNIT));
+
+        maintenanceService.execute(() -> runMaintenance(this::migrateLegacyComponentIds,
+                "migrate legacy component ids"));
 
         logDebugSizeStatistics();
     }
@@ -149,19 +180,20 @@ public final class ComponentIdStore implements AutoCloseable {
      */
     @SuppressWarnings("WeakerAccess")
     public @NotNull Optional<ComponentId> get(@NotNull UUID uuid) {
-        synchronized (storeLock) {
-            // Get it from the cache or, if not found, the database
-            return Optional.ofNullable(storeCache.getIfPresent(uuid)).or(() -> {
-                Optional<ComponentId> databaseComponentId = getFromDatabase(uuid);
-                databaseComponentId.ifPresent(id -> {
-                    // Put it back into the cache
-                    storeCache.put(uuid, id);
-
-                    heatService.execute(() -> heatRecord(uuid));
-                });
-                return databaseComponentId;
-            });
+        // Get it from the cache or, if not found, the database
+        Optional<ComponentId> componentId;
+        try {
+            componentId = Optional.ofNullable(storeCache.get(uuid).join());
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
         }
+
+        // Heating is deferred and flushed in batches, see flushHeat()
+        componentId.ifPresent(id -> pendingHeat.put(uuid, Instant.now()));
+        return componentId;
     }
 
     /**
@@ -186,12 +218,12 @@ public final class ComponentIdStore implements AutoCloseable {
                 () -> "The UUID '%s' already exists and is associated to a component id."
                     .formatted(uuid);
 
-        synchronized (storeLock) {
-            if (storeCache.getIfPresent(uuid) != null) {
-                throw new IllegalArgumentException(alreadyExistsMessageSupplier.get());
-            }
-            storeCache.put(uuid, componentId);
+        CompletableFuture<ComponentId> cacheEntry = CompletableFuture.completedFuture(componentId);
+        if (storeCache.asMap().putIfAbsent(uuid, cacheEntry) != null) {
+            throw new IllegalArgumentException(alreadyExistsMessageSupplier.get());
+        }
 
+        try {
             database.writeTransaction(context -> {
                 String uuidText = uuid.toString();
                 if (context.fetchExists(ComponentIds.COMPONENT_IDS,
@@ -202,110 +234,219 @@ public final class ComponentIdStore implements AutoCloseable {
                 ComponentIdsRecord componentIdsRecord =
                         context.newRecord(ComponentIds.COMPONENT_IDS)
                             .setUuid(uuid.toString())
-                            .setComponentId(serializeComponentId(componentId))
+                            .setComponentId(ComponentIdCodec.encode(componentId))
                             .setLastUsed(Instant.now())
                             .setLifespan(lifespan.name());
                 componentIdsRecord.insert();
             });
+        } catch (RuntimeException e) {
+            // Not persisted, so it must not be served from the cache either
+            storeCache.asMap().remove(uuid, cacheEntry);
+            throw e;
         }
     }
 
-    private @NotNull Optional<ComponentId> getFromDatabase(@NotNull UUID uuid) {
+    /**
+     * Loads the component ID associated to the given UUID from the database.
+     *
+     * @param uuid the UUID to lookup
+     * @return the associated component ID, or {@code null} if not present, as expected by the cache
+     */
+    private @Nullable ComponentId getFromDatabase(@NotNull UUID uuid) {
         return database.read(context -> Optional
             .ofNullable(context.selectFrom(ComponentIds.COMPONENT_IDS)
                 .where(ComponentIds.COMPONENT_IDS.UUID.eq(uuid.toString()))
                 .fetchOne())
             .map(ComponentIdsRecord::getComponentId)
-            .map(ComponentIdStore::deserializeComponentId));
+            .map(ComponentIdCodec::decode)
+            .orElse(null));
     }
 
     /**
-     * Updates the <b>last_used</b> timestamp for the given UUID in the database to the current
-     * time. This effectively heats the record, so that it will not be targeted for the next
-     * evictions.
-     *
-     * @param uuid the uuid to heat
-     * @throws IllegalArgumentException if there is no, or multiple, records associated to that UUID
+     * Updates the <b>last_used</b> timestamp in the database for all component IDs that have been
+     * used since the last flush. This effectively heats the records, so that they will not be
+     * targeted for the next evictions.
+     * <p>
+     * All updates are sent as a single batch within one transaction.
      */
-    private void heatRecord(@NotNull UUID uuid) {
-        int updatedRecords;
-        synchronized (storeLock) {
-            updatedRecords =
-                    database.writeAndProvide(context -> context.update(ComponentIds.COMPONENT_IDS)
-                        .set(ComponentIds.COMPONENT_IDS.LAST_USED, Instant.now())
-                        .where(ComponentIds.COMPONENT_IDS.UUID.eq(uuid.toString()))
-                        .execute());
+    private void flushHeat() {
+        Map<UUID, Instant> heatToFlush = new HashMap<>();
+        // Only take out what is flushed, usages that arrive concurrently stay for the next flush
+        pendingHeat.forEach((uuid, lastUsed) -> {
+            if (pendingHeat.remove(uuid, lastUsed)) {
+                heatToFlush.put(uuid, lastUsed);
+            }
+        });
+        if (heatToFlush.isEmpty()) {
+            return;
+        }
+
+        // NOTE Records that are not updated, since they have been evicted in the meantime, are
+        // ignored on purpose.
+        try {
+            database.writeTransaction(context -> {
+                List<Query> updates = heatToFlush.entrySet()
+                    .stream()
+                    .<Query>map(uuidAndLastUsed -> context.update(ComponentIds.COMPONENT_IDS)
+                        .set(ComponentIds.COMPONENT_IDS.LAST_USED, uuidAndLastUsed.getValue())
+                        .where(ComponentIds.COMPONENT_IDS.UUID
+                            .eq(uuidAndLastUsed.getKey().toString())))
+                    .toList();
+                context.batch(updates).execute();
+            });
+        } catch (RuntimeException e) {
+            // Put the heat back for the next flush, unless a later usage arrived in the meantime
+            heatToFlush.forEach((uuid, lastUsed) -> pendingHeat.merge(uuid, lastUsed,
+                    (pending, failed) -> pending.isAfter(failed) ? pending : failed));
+            throw e;
         }
+        logger.debug("Flushed the heat of {} component ids to the database", heatToFlush.size());
+    }
 
-        // NOTE Case 0, where no records are updated, is ignored on purpose.
-        // This happens when the entry has been evicted before the heating was executed.
-        if (updatedRecords > 1) {
-            throw new AssertionError(
-                    "Multiple records had the UUID '%s' even though it is unique.".formatted(uuid));
+    private static void runMaintenance(@NotNull Runnable task, @NotNull String description) {
+        try {
+            task.run();
+        } catch (Exception e) {
+            logger.error("Failed to {}, trying again next time", description, e);
         }
     }
 
     private void evictDatabase() {
         logger.debug("Evicting old non-permanent component ids from the database...");
-        AtomicInteger evictedCounter = new AtomicInteger(0);
-        synchronized (storeLock) {
-            database.write(context -> {
-                Result<ComponentIdsRecord> oldRecords = context
-                    .selectFrom(ComponentIds.COMPONENT_IDS)
-                    .where(ComponentIds.COMPONENT_IDS.LIFESPAN.notEqual(Lifespan.PERMANENT.name())
-                        .and(ComponentIds.COMPONENT_IDS.LAST_USED.lessOrEqual(Instant.now()
-                            .minus(evictDatabaseOlderThan, evictDatabaseOlderThanUnit))))
-                    .fetch();
-
-                oldRecords.forEach(recordToDelete -> {
-                    UUID uuid = UUID
-                        .fromString(recordToDelete.getValue(ComponentIds.COMPONENT_IDS.UUID));
-                    ComponentId componentId = deserializeComponentId(
-                            recordToDelete.getValue(ComponentIds.COMPONENT_IDS.COMPONENT_ID));
-                    Instant lastUsed = recordToDelete.getLastUsed();
-
-                    recordToDelete.delete();
-                    evictedCounter.getAndIncrement();
-                    logger.debug(
-                            "Evicted component id with uuid '{}' from command '{}', last used '{}'",
-                            uuid, componentId.commandName(), lastUsed);
-
-                    // Remove them from the cache if still in there
-                    storeCache.invalidate(uuid);
-                    // Notify all listeners, but non-blocking to not delay eviction
-                    componentIdRemovedListeners
-                        .forEach(listener -> componentIdRemovedListenerService
-                            .execute(() -> listener.accept(componentId)));
-                });
-            });
+        // Heat first, so that recently used component IDs are not evicted
+        flushHeat();
+
+        Instant evictOlderThan =
+                Instant.now().minus(evictDatabaseOlderThan, evictDatabaseOlderThanUnit);
+        int evictedCount = 0;
+        String lastUuid = "";
+        // Delete in small chunks to not hold the write lock for too long at once
+        while (true) {
+            String chunkStartUuid = lastUuid;
+            Result<ComponentIdsRecord> evictedRecords = database.writeTransactionAndProvide(
+                    context -> evictDatabaseChunk(context, chunkStartUuid, evictOlderThan));
+            if (evictedRecords.isEmpty()) {
+                break;
+            }
+
+            evictedRecords.forEach(this::onEvicted);
+            evictedCount += evictedRecords.size();
+            lastUuid = evictedRecords.get(evictedRecords.size() - 1).getUuid();
+
+            if (evictedRecords.size() < EVICT_DATABASE_CHUNK_SIZE) {
+                break;
+            }
         }
 
-        if (evictedCounter.get() != 0) {
+        if (evictedCount != 0) {
             logger.info("Evicted {} old non-permanent component ids from the database",
-                    evictedCounter.get());
+                    evictedCount);
         }
     }
 
-    private static @NotNull String serializeComponentId(@NotNull ComponentId componentId) {
-        try {
-            return CSV.writerFor(ComponentId.class)
-                .with(CSV.schemaFor(ComponentId.class))
-                .writeValueAsString(componentId);
-        } catch (JsonProcessingException e) {
-            throw new InvalidComponentIdFormatException(e);
+    /**
+     * Deletes the next chunk of old non-permanent records from the database.
+     *
+     * @param context the context of the transaction to delete in
+     * @param chunkStartUuid only records with a UUID greater than this are considered, chunks are
+     *        formed in the order of UUIDs
+     * @param evictOlderThan records that have been used last before this are deleted
+     * @return the deleted records, at most {@value #EVICT_DATABASE_CHUNK_SIZE}
+     */
+    private @NotNull Result<ComponentIdsRecord> evictDatabaseChunk(@NotNull DSLContext context,
+            @NotNull String chunkStartUuid, @NotNull Instant evictOlderThan) {
+        Result<ComponentIdsRecord> oldRecords = context.selectFrom(ComponentIds.COMPONENT_IDS)
+            .where(ComponentIds.COMPONENT_IDS.LIFESPAN.notEqual(Lifespan.PERMANENT.name())
+                .and(ComponentIds.COMPONENT_IDS.LAST_USED.lessOrEqual(evictOlderThan))
+                .and(ComponentIds.COMPONENT_IDS.UUID.greaterThan(chunkStartUuid)))
+            .orderBy(ComponentIds.COMPONENT_IDS.UUID)
+            .limit(EVICT_DATABASE_CHUNK_SIZE)
+            .fetch();
+        if (oldRecords.isEmpty()) {
+            return oldRecords;
         }
+
+        context.deleteFrom(ComponentIds.COMPONENT_IDS)
+            .where(ComponentIds.COMPONENT_IDS.UUID
+                .in(oldRecords.getValues(ComponentIds.COMPONENT_IDS.UUID)))
+            .execute();
+        return oldRecords;
     }
 
-    private static @NotNull ComponentId deserializeComponentId(@NotNull String componentId) {
-        try {
-            return CSV.readerFor(ComponentId.class)
-                .with(CSV.schemaFor(ComponentId.class))
-                .readValue(componentId);
-        } catch (JsonProcessingException e) {
-            throw new InvalidComponentIdFormatException(e);
+    private void onEvicted(@NotNull ComponentIdsRecord evictedRecord) {
+        UUID uuid = UUID.fromString(evictedRecord.getUuid());
+        ComponentId componentId = ComponentIdCodec.decode(evictedRecord.getComponentId());
+        logger.debug("Evicted component id with uuid '{}' from command '{}', last used '{}'", uuid,
+                componentId.commandName(), evictedRecord.getLastUsed());
+
+        // Remove them from the cache if still in there
+        storeCache.synchronous().invalidate(uuid);
+        pendingHeat.remove(uuid);
+        // Notify all listeners, but non-blocking to not delay eviction
+        componentIdRemovedListeners.forEach(listener -> componentIdRemovedListenerService
+            .execute(() -> listener.accept(componentId)));
+    }
+
+    /**
+     * Converts all component IDs that are still persisted in the legacy CSV format to the current
+     * format of {@link ComponentIdCodec}, in small chunks.
+     */
+    private void migrateLegacyComponentIds() {
+        int migratedCount = 0;
+        String lastUuid = "";
+        while (true) {
+            String chunkStartUuid = lastUuid;
+            Result<ComponentIdsRecord> legacyRecords = database.writeTransactionAndProvide(
+                    context -> migrateLegacyChunk(context, chunkStartUuid));
+            if (legacyRecords.isEmpty()) {
+                break;
+            }
+
+            migratedCount += legacyRecords.size();
+            lastUuid = legacyRecords.get(legacyRecords.size() - 1).getUuid();
+
+            if (legacyRecords.size() < MIGRATE_LEGACY_CHUNK_SIZE) {
+                break;
+            }
+        }
+
+        if (migratedCount != 0) {
+            logger.info("Migrated {} component ids from the legacy CSV format", migratedCount);
         }
     }
 
+    private static @NotNull Result<ComponentIdsRecord> migrateLegacyChunk(
+            @NotNull DSLContext context, @NotNull String chunkStartUuid) {
+        // Records in the current format start with the version byte, see ComponentIdCodec
+        Result<ComponentIdsRecord> legacyRecords = context.selectFrom(ComponentIds.COMPONENT_IDS)
+            .where(ComponentIds.COMPONENT_IDS.UUID.greaterThan(chunkStartUuid)
+                .and(DSL.condition("substr({0}, 1, 1) <> x'01'",
+                        ComponentIds.COMPONENT_IDS.COMPONENT_ID)))
+            .orderBy(ComponentIds.COMPONENT_IDS.UUID)
+            .limit(MIGRATE_LEGACY_CHUNK_SIZE)
+            .fetch();
+
+        List<Query> updates = new ArrayList<>(legacyRecords.size());
+        for (ComponentIdsRecord legacyRecord : legacyRecords) {
+            ComponentId componentId;
+            try {
+                componentId = ComponentIdCodec.decode(legacyRecord.getComponentId());
+            } catch (InvalidComponentIdFormatException e) {
+                logger.warn("Unable to migrate the malformed component id with uuid '{}'",
+                        legacyRecord.getUuid(), e);
+                continue;
+            }
+
+            updates.add(context.update(ComponentIds.COMPONENT_IDS)
+                .set(ComponentIds.COMPONENT_IDS.COMPONENT_ID, ComponentIdCodec.encode(componentId))
+                .where(ComponentIds.COMPONENT_IDS.UUID.eq(legacyRecord.getUuid())));
+        }
+        if (!updates.isEmpty()) {
+            context.batch(updates).execute();
+        }
+        return legacyRecords;
+    }
+
     private void logDebugSizeStatistics() {
         if (!logger.isDebugEnabled()) {
             return;
@@ -322,13 +463,44 @@ public final class ComponentIdStore implements AutoCloseable {
                 lifespanToCount);
     }
 
+    /**
+     * Gets the statistics of the in-memory cache in front of the database, for example how often
+     * lookups could be served without accessing the database.
+     *
+     * @return the current cache statistics
+     */
+    public @NotNull CacheStats getCacheStatistics() {
+        return storeCache.synchronous().stats();
+    }
+
+    /**
+     * Stops all background tasks of the store. Usages of component IDs that have not been flushed
+     * yet are written to the database before shutting down, this waits for the write to complete.
+     * Has to be called before the database is closed.
+     */
     @Override
     public void close() {
-        heatService.shutdown();
         if (evictionTask != null) {
             evictionTask.cancel(false);
         }
-        evictionService.shutdown();
+        if (heatFlushTask != null) {
+            heatFlushTask.cancel(false);
+        }
+        maintenanceService
+            .execute(() -> runMaintenance(this::flushHeat, "flush the heat of component ids"));
+        maintenanceService.shutdown();
+        lookupService.shutdown();
         componentIdRemovedListenerService.shutdown();
+
+        try {
+            if (!maintenanceService.awaitTermination(CLOSE_TIMEOUT,
+                    TimeUnit.of(CLOSE_TIMEOUT_UNIT))) {
+                logger.warn("Gave up waiting for the heat of component ids to be flushed");
+            }
+        } catch (InterruptedException e) {
+            logger.warn("Interrupted while waiting for the heat of component ids to be flushed",
+                    e);
+            Thread.currentThread().interrupt();
+        }
     }
 }
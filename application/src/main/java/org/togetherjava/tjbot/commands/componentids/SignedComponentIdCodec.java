@@ -0,0 +1,266 @@
+package org.togetherjava.tjbot.commands.componentids;
+
+import org.jetbrains.annotations.NotNull;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * Stateless alternative to {@link ComponentIdStore}, which packs the payload of a component ID
+ * directly into the ID itself, instead of persisting it and generating a UUID as key.
+ * <p>
+ * The encoded ID carries the command name, the elements and an expiration date, signed with a HMAC
+ * based on a secret key. This prevents users from forging IDs. Decoding an ID is hence a pure CPU
+ * operation, which does not need to access the database.
+ * <p>
+ * Discord limits the length of component IDs to {@value #MAX_ID_LENGTH} characters. Payloads that
+ * are too large to be encoded within this limit are rejected by {@link #encode(ComponentId,
+ * Lifespan)}, users are supposed to fall back to {@link ComponentIdStore} for those. Encoded IDs
+ * can be told apart from UUIDs by using {@link #isEncoded(String)}.
+ * <p>
+ * Component IDs with a {@link Lifespan#REGULAR} lifespan expire after a fixed duration, since
+ * stateless IDs can not be heated on usage. {@link Lifespan#PERMANENT} IDs never expire, as long as
+ * the secret key stays the same.
+ * <p>
+ * The codec is thread-safe.
+ */
+public final class SignedComponentIdCodec {
+    /**
+     * The maximal length of component IDs, as imposed by Discord.
+     */
+    public static final int MAX_ID_LENGTH = 100;
+    /**
+     * Duration after which component IDs with a regular lifespan expire, if nothing else was
+     * configured.
+     */
+    public static final Duration DEFAULT_REGULAR_LIFESPAN = Duration.ofDays(20);
+    /**
+     * The minimal length of the secret, in bytes, so that it can not be guessed.
+     */
+    public static final int MIN_SECRET_LENGTH = 32;
+
+    /**
+     * Prefix of all encoded IDs, can not occur in UUIDs.
+     */
+    private static final char ENCODED_PREFIX = '~';
+    private static final byte FORMAT_VERSION = 1;
+    private static final String MAC_ALGORITHM = "HmacSHA256";
+    /**
+     * Amount of bytes of the MAC that are kept in the ID, truncated to save space.
+     */
+    private static final int SIGNATURE_LENGTH = 12;
+    /**
+     * Version byte followed by the expiration date, as unsigned epoch seconds.
+     */
+    private static final int HEADER_LENGTH = 1 + Integer.BYTES;
+    /**
+     * Expiration date used for IDs that never expire.
+     */
+    private static final long NEVER_EXPIRES = 0;
+    private static final int MAX_UNSIGNED_BYTE = 0xFF;
+
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    private final SecretKeySpec key;
+    private final ThreadLocal<Mac> mac;
+    private final Duration regularLifespan;
+    private final Clock clock;
+
+    /**
+     * Creates a new codec which signs IDs with the given secret and lets regular IDs expire after
+     * {@link #DEFAULT_REGULAR_LIFESPAN}.
+     *
+     * @param secret the secret to sign IDs with, should be random and must have at least
+     *        {@value #MIN_SECRET_LENGTH} bytes. Changing it invalidates all previously encoded IDs.
+     * @throws IllegalArgumentException if the secret is too short or a placeholder
+     */
+    public SignedComponentIdCodec(@NotNull String secret) {
+        this(secret, DEFAULT_REGULAR_LIFESPAN, Clock.systemUTC());
+    }
+
+    /**
+     * Creates a new codec which signs IDs with the given secret.
+     *
+     * @param secret the secret to sign IDs with, should be random and must have at least
+     *        {@value #MIN_SECRET_LENGTH} bytes. Changing it invalidates all previously encoded IDs.
+     * @param regularLifespan the duration after which IDs with a {@link Lifespan#REGULAR} lifespan
+     *        expire
+     * @param clock the clock used to determine expiration dates
+     * @throws IllegalArgumentException if the secret is too short or a placeholder
+     */
+    public SignedComponentIdCodec(@NotNull String secret, @NotNull Duration regularLifespan,
+            @NotNull Clock clock) {
+        // Placeholders, as in the config template, are public and would allow forging IDs
+        if (secret.startsWith("<") && secret.endsWith(">")) {
+            throw new IllegalArgumentException(
+                    "The secret to sign component IDs is a placeholder, replace it with a random secret");
+        }
+        byte[] secretBytes = secret.getBytes(StandardCharsets.UTF_8);
+        if (secretBytes.length < MIN_SECRET_LENGTH) {
+            throw new IllegalArgumentException(
+                    "The secret to sign component IDs must have at least %d bytes, but has %d"
+                        .formatted(MIN_SECRET_LENGTH, secretBytes.length));
+        }
+
+        key = new SecretKeySpec(secretBytes, MAC_ALGORITHM);
+        mac = ThreadLocal.withInitial(this::createMac);
+        this.regularLifespan = Objects.requireNonNull(regularLifespan);
+        this.clock = Objects.requireNonNull(clock);
+    }
+
+    /**
+     * Whether the given ID has been encoded by this codec, as opposed to, for example, an UUID
+     * generated by {@link ComponentIdStore}.
+     *
+     * @param id the ID to test
+     * @return whether the ID is in the format of this codec
+     */
+    public static boolean isEncoded(@NotNull String id) {
+        return !id.isEmpty() && id.charAt(0) == ENCODED_PREFIX;
+    }
+
+    /**
+     * Encodes the given component ID into a signed ID, which can be used as component ID for
+     * interactions, such as buttons or selection menus.
+     *
+     * @param componentId the component ID payload to encode
+     * @param lifespan the lifespan of the component ID, controls when the encoded ID expires
+     * @return the encoded ID, or empty if the payload is too large to fit into
+     *         {@value #MAX_ID_LENGTH} characters
+     */
+    public @NotNull Optional<String> encode(@NotNull ComponentId componentId,
+            @NotNull Lifespan lifespan) {
+        long expiresAt = switch (lifespan) {
+            case PERMANENT -> NEVER_EXPIRES;
+            case REGULAR -> clock.instant().plus(regularLifespan).getEpochSecond();
+        };
+
+        ByteArrayOutputStream payload = new ByteArrayOutputStream();
+        payload.write(FORMAT_VERSION);
+        payload.writeBytes(ByteBuffer.allocate(Integer.BYTES).putInt((int) expiresAt).array());
+        if (!writeString(payload, componentId.commandName())
+                || componentId.elements().size() > MAX_UNSIGNED_BYTE) {
+            return Optional.empty();
+        }
+        payload.write(componentId.elements().size());
+        for (String element : componentId.elements()) {
+            if (!writeString(payload, element)) {
+                return Optional.empty();
+            }
+        }
+
+        byte[] signature = sign(payload.toByteArray());
+        payload.write(signature, 0, SIGNATURE_LENGTH);
+
+        String id = ENCODED_PREFIX + ENCODER.encodeToString(payload.toByteArray());
+        return id.length() <= MAX_ID_LENGTH ? Optional.of(id) : Optional.empty();
+    }
+
+    /**
+     * Decodes an ID that was previously encoded by {@link #encode(ComponentId, Lifespan)}.
+     *
+     * @param id the ID to decode, see {@link #isEncoded(String)}
+     * @return the decoded component ID, or empty if it expired
+     * @throws InvalidComponentIdFormatException if the ID was not encoded by this codec, is
+     *         malformed or its signature does not match, for example because it has been forged
+     */
+    public @NotNull Optional<ComponentId> decode(@NotNull String id) {
+        if (!isEncoded(id)) {
+            throw new InvalidComponentIdFormatException();
+        }
+
+        byte[] bytes;
+        try {
+            bytes = DECODER.decode(id.substring(1));
+        } catch (IllegalArgumentException e) {
+            throw new InvalidComponentIdFormatException(e);
+        }
+        if (bytes.length < HEADER_LENGTH + SIGNATURE_LENGTH) {
+            throw new InvalidComponentIdFormatException();
+        }
+
+        int payloadLength = bytes.length - SIGNATURE_LENGTH;
+        byte[] expectedSignature = new byte[SIGNATURE_LENGTH];
+        System.arraycopy(sign(bytes, payloadLength), 0, expectedSignature, 0, SIGNATURE_LENGTH);
+        byte[] actualSignature = new byte[SIGNATURE_LENGTH];
+        System.arraycopy(bytes, payloadLength, actualSignature, 0, SIGNATURE_LENGTH);
+        if (!MessageDigest.isEqual(expectedSignature, actualSignature)) {
+            throw new InvalidComponentIdFormatException();
+        }
+
+        ByteBuffer payload = ByteBuffer.wrap(bytes, 0, payloadLength);
+        if (payload.get() != FORMAT_VERSION) {
+            throw new InvalidComponentIdFormatException();
+        }
+        long expiresAt = Integer.toUnsignedLong(payload.getInt());
+        if (expiresAt != NEVER_EXPIRES
+                && clock.instant().isAfter(Instant.ofEpochSecond(expiresAt))) {
+            return Optional.empty();
+        }
+
+        try {
+            String commandName = readString(payload);
+            int elementCount = Byte.toUnsignedInt(payload.get());
+            List<String> elements = new ArrayList<>(elementCount);
+            for (int i = 0; i < elementCount; i++) {
+                elements.add(readString(payload));
+            }
+            return Optional.of(new ComponentId(commandName, elements));
+        } catch (RuntimeException e) {
+            throw new InvalidComponentIdFormatException(e);
+        }
+    }
+
+    private static boolean writeString(@NotNull ByteArrayOutputStream payload,
+            @NotNull String text) {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > MAX_UNSIGNED_BYTE) {
+            return false;
+        }
+        payload.write(bytes.length);
+        payload.writeBytes(bytes);
+        return true;
+    }
+
+    private static @NotNull String readString(@NotNull ByteBuffer payload) {
+        int length = Byte.toUnsignedInt(payload.get());
+        byte[] bytes = new byte[length];
+        payload.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private byte[] sign(byte[] payload) {
+        return sign(payload, payload.length);
+    }
+
+    private byte[] sign(byte[] payload, int length) {
+        Mac threadMac = mac.get();
+        threadMac.update(payload, 0, length);
+        return threadMac.doFinal();
+    }
+
+    private @NotNull Mac createMac() {
+        try {
+            Mac instance = Mac.getInstance(MAC_ALGORITHM);
+            instance.init(key);
+            return instance;
+        } catch (GeneralSecurityException e) {
+            throw new AssertionError("The JVM does not support the MAC algorithm " + MAC_ALGORITHM,
+                    e);
+        }
+    }
+}
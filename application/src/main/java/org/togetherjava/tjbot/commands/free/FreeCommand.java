@@ -11,6 +11,7 @@ import net.dv8tion.jda.api.events.ReadyEvent;
 import net.dv8tion.jda.api.events.interaction.SlashCommandEvent;
 import net.dv8tion.jda.api.events.message.guild.GuildMessageReceivedEvent;
 import net.dv8tion.jda.api.requests.RestAction;
+import net.dv8tion.jda.api.sharding.ShardManager;
 import org.jetbrains.annotations.NotNull;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -91,8 +92,9 @@ public final class FreeCommand extends SlashCommandAdapter implements EventRecei
 
     /**
      * Reaction to the 'onReady' event. This method binds the configurables to the
-     * {@link net.dv8tion.jda.api.JDA} instance. Including fetching the names of the channels this
-     * command monitors.
+     * {@link ShardManager}. Including fetching the names of the channels this command monitors.
+     * Since the configured channels can belong to any shard, this only happens once all shards are
+     * ready.
      * <p>
      * It also updates the Status messages in their relevant channels, so that the message is
      * up-to-date.
@@ -102,22 +104,34 @@ public final class FreeCommand extends SlashCommandAdapter implements EventRecei
      *
      * @param event the event this method reacts to
      */
-    public void onReady(@NotNull final ReadyEvent event) {
-        final JDA jda = event.getJDA();
+    public synchronized void onReady(@NotNull final ReadyEvent event) {
+        final ShardManager shardManager = Objects.requireNonNull(event.getJDA().getShardManager(),
+                "The free command requires the bot to run on a shard manager");
+        if (isReady || !areAllShardsReady(shardManager, event.getJDA())) {
+            return;
+        }
 
         initChannelsToMonitor();
-        initStatusMessageChannels(jda);
+        initStatusMessageChannels(shardManager);
         logger.debug("Config loaded:\n{}", channelMonitor);
 
-        checkBusyStatusAllChannels(jda);
+        checkBusyStatusAllChannels(shardManager);
 
         channelMonitor.statusIds()
-            .map(id -> requiresTextChannel(jda, id))
+            .map(id -> requiresTextChannel(shardManager, id))
             .forEach(this::displayStatus);
 
         isReady = true;
     }
 
+    private static boolean areAllShardsReady(@NotNull ShardManager shardManager,
+            @NotNull JDA readyShard) {
+        // JDA fires the ready event before it marks the shard as connected
+        return shardManager.getShardsQueued() == 0 && shardManager.getShardCache()
+            .stream()
+            .allMatch(shard -> shard == readyShard || shard.getStatus() == JDA.Status.CONNECTED);
+    }
+
     /**
      * When triggered with {@code /free} this will mark a help channel as not busy (free for another
      * person to use).
@@ -229,14 +243,14 @@ public final class FreeCommand extends SlashCommandAdapter implements EventRecei
         return Optional.of(message);
     }
 
-    private void checkBusyStatusAllChannels(@NotNull JDA jda) {
+    private void checkBusyStatusAllChannels(@NotNull ShardManager shardManager) {
         channelMonitor.guildIds()
-            .map(id -> requiresGuild(jda, id))
+            .map(id -> requiresGuild(shardManager, id))
             .forEach(channelMonitor::updateStatusFor);
     }
 
-    private @NotNull Guild requiresGuild(@NotNull JDA jda, long id) {
-        Guild guild = jda.getGuildById(id);
+    private @NotNull Guild requiresGuild(@NotNull ShardManager shardManager, long id) {
+        Guild guild = shardManager.getGuildById(id);
         if (guild == null) {
             throw new IllegalStateException(
                     "The guild with id '%d' has been deleted since free command system was configured."
@@ -351,17 +365,18 @@ public final class FreeCommand extends SlashCommandAdapter implements EventRecei
             .forEach(channelMonitor::addChannelToMonitor);
     }
 
-    private void initStatusMessageChannels(@NotNull final JDA jda) {
+    private void initStatusMessageChannels(@NotNull final ShardManager shardManager) {
         config.getFreeCommandConfig()
             .stream()
             .map(FreeCommandConfig::getStatusChannel)
             // throws IllegalStateException if the id's don't match TextChannels
-            .map(id -> requiresTextChannel(jda, id))
+            .map(id -> requiresTextChannel(shardManager, id))
             .forEach(channelMonitor::addChannelForStatus);
     }
 
-    private @NotNull TextChannel requiresTextChannel(@NotNull JDA jda, long id) {
-        TextChannel channel = jda.getTextChannelById(id);
+    private @NotNull TextChannel requiresTextChannel(@NotNull ShardManager shardManager,
+            long id) {
+        TextChannel channel = shardManager.getTextChannelById(id);
         if (channel == null) {
             throw new IllegalStateException(
                     "The id '%d' supplied in the config file, is not a valid id for a TextChannel"
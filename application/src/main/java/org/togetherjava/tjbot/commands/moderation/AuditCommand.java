@@ -1,18 +1,23 @@
 package org.togetherjava.tjbot.commands.moderation;
 
 import net.dv8tion.jda.api.EmbedBuilder;
-import net.dv8tion.jda.api.JDA;
 import net.dv8tion.jda.api.entities.*;
+import net.dv8tion.jda.api.events.interaction.ButtonClickEvent;
 import net.dv8tion.jda.api.events.interaction.SlashCommandEvent;
 import net.dv8tion.jda.api.interactions.Interaction;
+import net.dv8tion.jda.api.interactions.InteractionHook;
 import net.dv8tion.jda.api.interactions.commands.OptionMapping;
 import net.dv8tion.jda.api.interactions.commands.OptionType;
-import net.dv8tion.jda.api.requests.RestAction;
+import net.dv8tion.jda.api.interactions.components.ActionRow;
+import net.dv8tion.jda.api.interactions.components.Button;
 import net.dv8tion.jda.api.utils.TimeUtil;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.togetherjava.tjbot.commands.SlashCommandAdapter;
 import org.togetherjava.tjbot.commands.SlashCommandVisibility;
+import org.togetherjava.tjbot.commands.utils.UserCache;
 import org.togetherjava.tjbot.config.Config;
 
 import java.time.ZoneOffset;
@@ -27,21 +32,36 @@ import java.util.stream.Collectors;
  * <p>
  * The command fails if the user triggering it is lacking permissions to either audit other users or
  * to audit the specific given user (for example a moderator attempting to audit an admin).
+ * <p>
+ * The actions are shown in pages of {@link #ACTIONS_PER_PAGE}, which can be flipped through with
+ * buttons by the user who triggered the command. Only the authors of the actions on the shown page
+ * are retrieved, using a {@link UserCache}, so that auditing a user with a long history does not
+ * exhaust the rate limits of the Discord API.
  */
 public final class AuditCommand extends SlashCommandAdapter {
+    private static final Logger logger = LoggerFactory.getLogger(AuditCommand.class);
     private static final String TARGET_OPTION = "user";
     private static final String COMMAND_NAME = "audit";
     private static final String ACTION_VERB = "audit";
+    /**
+     * Discord allows up to 10 embeds per message, with up to 6000 characters in total. Together
+     * with the summary, a page of actions stays within both, even if the reasons have their
+     * maximal length.
+     */
+    private static final int ACTIONS_PER_PAGE = 8;
     private final Predicate<String> hasRequiredRole;
     private final ModerationActionsStore actionsStore;
+    private final UserCache userCache;
 
     /**
      * Constructs an instance.
      *
      * @param actionsStore used to store actions issued by this command
+     * @param userCache used to retrieve the authors of the actions
      * @param config the config to use for this
      */
-    public AuditCommand(@NotNull ModerationActionsStore actionsStore, @NotNull Config config) {
+    public AuditCommand(@NotNull ModerationActionsStore actionsStore,
+            @NotNull UserCache userCache, @NotNull Config config) {
         super(COMMAND_NAME, "Lists all moderation actions that have been taken against a user",
                 SlashCommandVisibility.GUILD);
 
@@ -51,13 +71,21 @@ public final class AuditCommand extends SlashCommandAdapter {
         hasRequiredRole =
                 Pattern.compile(config.getHeavyModerationRolePattern()).asMatchPredicate();
         this.actionsStore = Objects.requireNonNull(actionsStore);
+        this.userCache = Objects.requireNonNull(userCache);
     }
 
-    private static @NotNull MessageEmbed createSummaryMessage(@NotNull User user,
-            @NotNull Collection<ActionRecord> actions) {
-        return new EmbedBuilder().setTitle("Audit log of **%s**".formatted(user.getAsTag()))
-            .setAuthor(user.getName(), null, user.getAvatarUrl())
+    private static @NotNull MessageEmbed createSummaryMessage(long userId, @Nullable User user,
+            @NotNull Collection<ActionRecord> actions, int page, int pageCount) {
+        String pageFooter =
+                pageCount <= 1 ? null : "Page %d of %d".formatted(page + 1, pageCount);
+
+        return new EmbedBuilder()
+            .setTitle("Audit log of **%s**"
+                .formatted(user == null ? "(unknown user %d)".formatted(userId) : user.getAsTag()))
+            .setAuthor(user == null ? null : user.getName(), null,
+                    user == null ? null : user.getAvatarUrl())
             .setDescription(createSummaryMessageDescription(actions))
+            .setFooter(pageFooter)
             .setColor(ModerationUtils.AMBIENT_COLOR)
             .build();
     }
@@ -85,21 +113,20 @@ public final class AuditCommand extends SlashCommandAdapter {
         return shortSummary + "\n" + typeCountSummary;
     }
 
-    private static @NotNull RestAction<MessageEmbed> actionToMessage(@NotNull ActionRecord action,
-            @NotNull JDA jda) {
+    private static @NotNull MessageEmbed actionToMessage(@NotNull ActionRecord action,
+            @Nullable User author) {
         String footer = action.actionExpiresAt() == null ? null
                 : "Temporary action, expires at %s".formatted(TimeUtil
                     .getDateTimeString(action.actionExpiresAt().atOffset(ZoneOffset.UTC)));
 
-        return jda.retrieveUserById(action.authorId())
-            .map(author -> new EmbedBuilder().setTitle(action.actionType().name())
-                .setAuthor(author == null ? "(unknown user)" : author.getAsTag(), null,
-                        author == null ? null : author.getAvatarUrl())
-                .setDescription(action.reason())
-                .setTimestamp(action.issuedAt())
-                .setFooter(footer)
-                .setColor(ModerationUtils.AMBIENT_COLOR)
-                .build());
+        return new EmbedBuilder().setTitle(action.actionType().name())
+            .setAuthor(author == null ? "(unknown user)" : author.getAsTag(), null,
+                    author == null ? null : author.getAvatarUrl())
+            .setDescription(action.reason())
+            .setTimestamp(action.issuedAt())
+            .setFooter(footer)
+            .setColor(ModerationUtils.AMBIENT_COLOR)
+            .build();
     }
 
     private static <E> @NotNull List<E> prependElement(@NotNull E element,
@@ -124,9 +151,30 @@ public final class AuditCommand extends SlashCommandAdapter {
             return;
         }
 
+        userCache.put(target);
         auditUser(target, guild, event);
     }
 
+    @Override
+    public void onButtonClick(@NotNull ButtonClickEvent event, @NotNull List<String> args) {
+        // Ignore if another user clicked the button
+        String userId = args.get(0);
+        if (!userId.equals(event.getUser().getId())) {
+            event.reply("Sorry, but only the user who triggered the command can use these buttons.")
+                .setEphemeral(true)
+                .queue();
+            return;
+        }
+
+        long targetId = Long.parseLong(args.get(1));
+        int page = Integer.parseInt(args.get(2));
+        List<ActionRecord> actions = actionsStore.getActionsByTargetAscending(
+                Objects.requireNonNull(event.getGuild()).getIdLong(), targetId);
+
+        event.deferEdit().queue();
+        showPage(userId, targetId, actions, page, event.getHook());
+    }
+
     @SuppressWarnings("BooleanMethodNameMustStartWithQuestion")
     private boolean handleChecks(@NotNull Member bot, @NotNull Member author,
             @Nullable Member target, @NotNull Guild guild, @NotNull Interaction event) {
@@ -143,21 +191,62 @@ public final class AuditCommand extends SlashCommandAdapter {
         List<ActionRecord> actions =
                 actionsStore.getActionsByTargetAscending(guild.getIdLong(), user.getIdLong());
 
-        MessageEmbed summary = createSummaryMessage(user, actions);
         if (actions.isEmpty()) {
-            event.replyEmbeds(summary).queue();
+            event.replyEmbeds(createSummaryMessage(user.getIdLong(), user, actions, 0, 1)).queue();
             return;
         }
 
         // Computing messages for actual actions is done deferred and might require asking the
         // Discord API
         event.deferReply().queue();
-        JDA jda = event.getJDA();
+        showPage(event.getUser().getId(), user.getIdLong(), actions, 0, event.getHook());
+    }
+
+    /**
+     * Edits the original message of the given interaction to show the given page of actions,
+     * together with the summary and buttons to flip pages.
+     */
+    private void showPage(@NotNull String userId, long targetId,
+            @NotNull List<ActionRecord> actions, int requestedPage, @NotNull InteractionHook hook) {
+        int pageCount = Math.max(1, (actions.size() + ACTIONS_PER_PAGE - 1) / ACTIONS_PER_PAGE);
+        int page = Math.max(0, Math.min(requestedPage, pageCount - 1));
+        List<ActionRecord> pageActions = actions.subList(page * ACTIONS_PER_PAGE,
+                Math.min(actions.size(), (page + 1) * ACTIONS_PER_PAGE));
+
+        // Only the users shown on the page are retrieved, each of them once
+        Set<Long> userIds = new HashSet<>();
+        userIds.add(targetId);
+        pageActions.stream().map(ActionRecord::authorId).forEach(userIds::add);
+
+        userCache.retrieveUsers(hook.getJDA(), userIds).thenAccept(idToUser -> {
+            MessageEmbed summary = createSummaryMessage(targetId, idToUser.get(targetId), actions,
+                    page, pageCount);
+            List<MessageEmbed> messages = prependElement(summary, pageActions.stream()
+                .map(action -> actionToMessage(action, idToUser.get(action.authorId())))
+                .toList());
+
+            hook.editOriginalEmbeds(messages)
+                .setActionRows(createPageButtons(userId, targetId, page, pageCount))
+                .queue();
+        }).exceptionally(failure -> {
+            // Also failures while building the page, the reply would be stuck deferred otherwise
+            logger.warn("Failed to show the audit of user '{}'", targetId, failure);
+            hook.editOriginal("Sorry, something went wrong.").queue();
+            return null;
+        });
+    }
+
+    private @NotNull List<ActionRow> createPageButtons(@NotNull String userId, long targetId,
+            int page, int pageCount) {
+        if (pageCount <= 1) {
+            return List.of();
+        }
 
-        RestAction<List<MessageEmbed>> messagesTask = RestAction
-            .allOf(actions.stream().map(action -> actionToMessage(action, jda)).toList());
-        messagesTask.map(messages -> prependElement(summary, messages))
-            .flatMap(messages -> event.getHook().sendMessageEmbeds(messages))
-            .queue();
+        String target = String.valueOf(targetId);
+        return List.of(ActionRow.of(
+                Button.secondary(generateComponentId(userId, target, String.valueOf(page - 1)),
+                        "Previous").withDisabled(page == 0),
+                Button.secondary(generateComponentId(userId, target, String.valueOf(page + 1)),
+                        "Next").withDisabled(page == pageCount - 1)));
     }
 }
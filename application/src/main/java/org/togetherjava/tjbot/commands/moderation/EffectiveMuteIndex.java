@@ -0,0 +1,135 @@
+package org.togetherjava.tjbot.commands.moderation;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory index of the mutes that are currently in effect, per guild.
+ * <p>
+ * The index is loaded from the {@link ModerationActionsStore} once and kept up to date by listening
+ * to the actions added to the store, see
+ * {@link ModerationActionsStore#addActionAddedListener(java.util.function.Consumer)}. Checking
+ * whether a user is muted hence does not query the database. Temporary mutes are dropped once they
+ * are revoked, or once they are found to be expired by a lookup.
+ * <p>
+ * The index is thread-safe.
+ */
+final class EffectiveMuteIndex {
+    private final Map<Long, Map<Long, Mute>> guildToTargetToMute = new ConcurrentHashMap<>();
+    /**
+     * Lock guarding changes to the index, so that actions added while the index is loaded are
+     * applied after the loaded actions.
+     */
+    private final Object changeLock = new Object();
+    private final Clock clock;
+
+    /**
+     * Creates an index of the mutes in the given store.
+     *
+     * @param actionsStore the store to load the mutes from and to keep the index in sync with
+     */
+    EffectiveMuteIndex(@NotNull ModerationActionsStore actionsStore) {
+        this(actionsStore, Clock.systemUTC());
+    }
+
+    /**
+     * Creates an index of the mutes in the given store.
+     *
+     * @param actionsStore the store to load the mutes from and to keep the index in sync with
+     * @param clock the clock to determine whether temporary mutes expired with
+     */
+    EffectiveMuteIndex(@NotNull ModerationActionsStore actionsStore, @NotNull Clock clock) {
+        this.clock = clock;
+
+        synchronized (changeLock) {
+            // Listening before loading, so that no action added during the load is missed. Such
+            // actions wait for the lock and are hence applied after the loaded actions.
+            actionsStore.addActionAddedListener(this::onActionAdded);
+            actionsStore
+                .getUnrevokedActionsAscending(ModerationAction.MUTE, ModerationAction.UNMUTE)
+                .forEach(this::applyAction);
+        }
+    }
+
+    /**
+     * Whether the given user is currently muted in the given guild, i.e. the last mute or unmute
+     * action against the user is a mute that has not expired yet.
+     *
+     * @param guildId the id of the guild
+     * @param userId the id of the user
+     * @return whether the user is muted
+     */
+    boolean isMuted(long guildId, long userId) {
+        Map<Long, Mute> targetToMute = guildToTargetToMute.get(guildId);
+        if (targetToMute == null) {
+            return false;
+        }
+
+        Mute mute = targetToMute.get(userId);
+        if (mute == null) {
+            return false;
+        }
+        if (mute.isExpired(clock)) {
+            targetToMute.remove(userId, mute);
+            return false;
+        }
+        return true;
+    }
+
+    private void onActionAdded(@NotNull ActionRecord action) {
+        synchronized (changeLock) {
+            applyAction(action);
+        }
+    }
+
+    private void applyAction(@NotNull ActionRecord action) {
+        switch (action.actionType()) {
+            case MUTE -> onMute(action);
+            case UNMUTE -> onUnmute(action);
+            default -> {
+                // Other actions do not affect mutes
+            }
+        }
+    }
+
+    private void onMute(@NotNull ActionRecord action) {
+        Mute mute = new Mute(action.issuedAt(), action.actionExpiresAt());
+        if (mute.isExpired(clock)) {
+            return;
+        }
+
+        // The last issued mute takes priority
+        guildToTargetToMute.computeIfAbsent(action.guildId(), any -> new ConcurrentHashMap<>())
+            .merge(action.targetId(), mute, (oldMute, newMute) -> newMute.issuedAt()
+                .isBefore(oldMute.issuedAt()) ? oldMute : newMute);
+    }
+
+    private void onUnmute(@NotNull ActionRecord action) {
+        Map<Long, Mute> targetToMute = guildToTargetToMute.get(action.guildId());
+        if (targetToMute == null) {
+            return;
+        }
+
+        // Only lifts mutes issued before the unmute
+        targetToMute.computeIfPresent(action.targetId(),
+                (targetId, mute) -> mute.issuedAt().isAfter(action.issuedAt()) ? mute : null);
+    }
+
+    /**
+     * A mute in effect.
+     *
+     * @param issuedAt the instant at which the mute was issued
+     * @param expiresAt the instant at which the mute expires, for temporary mutes; otherwise
+     *        {@code null}
+     */
+    private record Mute(@NotNull Instant issuedAt, @Nullable Instant expiresAt) {
+        boolean isExpired(@NotNull Clock clock) {
+            return expiresAt != null && !expiresAt.isAfter(clock.instant());
+        }
+    }
+}
@@ -3,14 +3,21 @@ package org.togetherjava.tjbot.commands.moderation;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import org.jooq.Condition;
+import org.jooq.DSLContext;
+import org.jooq.ResultQuery;
+import org.jooq.impl.DSL;
 import org.togetherjava.tjbot.db.Database;
 import org.togetherjava.tjbot.db.generated.tables.ModerationActions;
 import org.togetherjava.tjbot.db.generated.tables.records.ModerationActionsRecord;
 
 import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 /**
  * Store for moderation actions, e.g. as banning users. Can be used to retrieve information about
@@ -20,15 +27,17 @@ import java.util.Optional;
  * {@link #addAction(long, long, long, ModerationAction, Instant, String)} at the time they are
  * executed and can then be retrieved by methods such as
  * {@link #getActionsByTypeAscending(long, ModerationAction)} or {@link #findActionByCaseId(int)}.
+ * Use {@link #addActionAddedListener(Consumer)} to react to added actions.
  * <p>
  * Be aware that timestamps associated with actions, such as {@link ActionRecord#issuedAt()} are
  * slightly off the timestamps used by Discord.
  * <p>
  * The store persists the actions and is thread safe.
  */
-@SuppressWarnings("ClassCanBeRecord")
 public final class ModerationActionsStore {
     private final Database database;
+    private final Collection<Consumer<ActionRecord>> actionAddedListeners =
+            new CopyOnWriteArrayList<>();
 
     /**
      * Creates a new instance which writes and retrieves actions from a given database.
@@ -40,16 +49,61 @@ public final class ModerationActionsStore {
     }
 
     /**
-     * Gets all already expired actions, measured by the current time, which have been written to
-     * the store, chronologically ascending with the action issued the earliest first.
-     * 
-     * @return a list of all expired actions, chronologically ascending
+     * Adds a listener that is triggered for each action added to the store, after it has been
+     * written.
+     * <p>
+     * The listener is triggered by the thread that added the action and should hence return
+     * quickly.
+     *
+     * @param listener the listener to add
+     */
+    public void addActionAddedListener(@NotNull Consumer<ActionRecord> listener) {
+        actionAddedListeners.add(Objects.requireNonNull(listener));
+    }
+
+    /**
+     * Gets all temporary actions of the given type that are still pending, chronologically
+     * ascending with the action issued the earliest first.
+     * <p>
+     * An action is pending if neither a later action of the same type, nor a later action of the
+     * revoke type has been issued against its target. Pending actions might already be expired,
+     * for example if they could not be revoked in time.
+     *
+     * @param applyType the type of the temporary actions, such as {@link ModerationAction#BAN}
+     * @param revokeType the type of the actions revoking them, such as
+     *        {@link ModerationAction#UNBAN}
+     * @return a list of all pending temporary actions of the given type, chronologically ascending
      */
-    public @NotNull List<ActionRecord> getExpiredActionsAscending() {
-        return getActionsAscendingWhere(
-                ModerationActions.MODERATION_ACTIONS.ACTION_EXPIRES_AT.isNotNull()
-                    .and(ModerationActions.MODERATION_ACTIONS.ACTION_EXPIRES_AT
-                        .lessOrEqual(Instant.now())));
+    public @NotNull List<ActionRecord> getPendingTemporaryActionsAscending(
+            @NotNull ModerationAction applyType, @NotNull ModerationAction revokeType) {
+        Objects.requireNonNull(applyType);
+        Objects.requireNonNull(revokeType);
+
+        return fetchActions(
+                context -> selectPendingTemporaryActionsAscending(context, applyType, revokeType));
+    }
+
+    /**
+     * Gets all actions of the given type that are still in place, permanent and temporary ones,
+     * chronologically ascending with the action issued the earliest first.
+     * <p>
+     * Like with {@link #getPendingTemporaryActionsAscending(ModerationAction, ModerationAction)},
+     * an action is in place if no later action of the same or the revoke type has been issued
+     * against its target. Temporary actions might already be expired.
+     *
+     * @param applyType the type of the actions, such as {@link ModerationAction#MUTE}
+     * @param revokeType the type of the actions revoking them, such as
+     *        {@link ModerationAction#UNMUTE}
+     * @return a list of all actions of the given type that are still in place, chronologically
+     *         ascending
+     */
+    public @NotNull List<ActionRecord> getUnrevokedActionsAscending(
+            @NotNull ModerationAction applyType, @NotNull ModerationAction revokeType) {
+        Objects.requireNonNull(applyType);
+        Objects.requireNonNull(revokeType);
+
+        return fetchActions(context -> selectActionsAscendingWhere(context,
+                isUnrevoked(applyType, revokeType)));
     }
 
     /**
@@ -65,8 +119,7 @@ public final class ModerationActionsStore {
             @NotNull ModerationAction actionType) {
         Objects.requireNonNull(actionType);
 
-        return getActionsFromGuildAscending(guildId,
-                ModerationActions.MODERATION_ACTIONS.ACTION_TYPE.eq(actionType.name()));
+        return fetchActions(context -> selectActionsByTypeAscending(context, guildId, actionType));
     }
 
     /**
@@ -79,8 +132,7 @@ public final class ModerationActionsStore {
      * @return a list of all actions executed against the target, chronologically ascending
      */
     public @NotNull List<ActionRecord> getActionsByTargetAscending(long guildId, long targetId) {
-        return getActionsFromGuildAscending(guildId,
-                ModerationActions.MODERATION_ACTIONS.TARGET_ID.eq(targetId));
+        return fetchActions(context -> selectActionsByTargetAscending(context, guildId, targetId));
     }
 
     /**
@@ -93,8 +145,7 @@ public final class ModerationActionsStore {
      * @return a list of all actions executed by the author, chronologically ascending
      */
     public @NotNull List<ActionRecord> getActionsByAuthorAscending(long guildId, long authorId) {
-        return getActionsFromGuildAscending(guildId,
-                ModerationActions.MODERATION_ACTIONS.AUTHOR_ID.eq(authorId));
+        return fetchActions(context -> selectActionsByAuthorAscending(context, guildId, authorId));
     }
 
     /**
@@ -110,13 +161,8 @@ public final class ModerationActionsStore {
     public @NotNull Optional<ActionRecord> findLastActionAgainstTargetByType(long guildId,
             long targetId, @NotNull ModerationAction actionType) {
         return database
-            .read(context -> context.selectFrom(ModerationActions.MODERATION_ACTIONS)
-                .where(ModerationActions.MODERATION_ACTIONS.GUILD_ID.eq(guildId)
-                    .and(ModerationActions.MODERATION_ACTIONS.TARGET_ID.eq(targetId))
-                    .and(ModerationActions.MODERATION_ACTIONS.ACTION_TYPE.eq(actionType.name())))
-                .orderBy(ModerationActions.MODERATION_ACTIONS.ISSUED_AT.desc())
-                .limit(1)
-                .fetchOptional())
+            .read(context -> selectLastActionAgainstTargetByType(context, guildId, targetId,
+                    actionType).fetchOptional())
             .map(ActionRecord::of);
     }
 
@@ -159,7 +205,7 @@ public final class ModerationActionsStore {
         Objects.requireNonNull(actionType);
         Objects.requireNonNull(reason);
 
-        return database.writeAndProvide(context -> {
+        ActionRecord action = database.writeAndProvide(context -> {
             ModerationActionsRecord actionRecord =
                     context.newRecord(ModerationActions.MODERATION_ACTIONS)
                         .setIssuedAt(Instant.now())
@@ -170,26 +216,82 @@ public final class ModerationActionsStore {
                         .setActionExpiresAt(actionExpiresAt)
                         .setReason(reason);
             actionRecord.insert();
-            return actionRecord.getCaseId();
+            return ActionRecord.of(actionRecord);
         });
+
+        actionAddedListeners.forEach(listener -> listener.accept(action));
+        return action.caseId();
     }
 
-    private @NotNull List<ActionRecord> getActionsFromGuildAscending(long guildId,
-            @NotNull Condition condition) {
-        Objects.requireNonNull(condition);
+    private @NotNull List<ActionRecord> fetchActions(
+            @NotNull Function<DSLContext, ResultQuery<ModerationActionsRecord>> query) {
+        return database.read(
+                context -> query.apply(context).stream().map(ActionRecord::of).toList());
+    }
 
-        return getActionsAscendingWhere(
-                ModerationActions.MODERATION_ACTIONS.GUILD_ID.eq(guildId).and(condition));
+    // The queries are exposed to verify that they are served by the indices of the table
+
+    static @NotNull ResultQuery<ModerationActionsRecord> selectActionsByTypeAscending(
+            @NotNull DSLContext context, long guildId, @NotNull ModerationAction actionType) {
+        return selectActionsAscendingWhere(context,
+                ModerationActions.MODERATION_ACTIONS.GUILD_ID.eq(guildId)
+                    .and(ModerationActions.MODERATION_ACTIONS.ACTION_TYPE.eq(actionType.name())));
     }
 
-    private @NotNull List<ActionRecord> getActionsAscendingWhere(@NotNull Condition condition) {
-        Objects.requireNonNull(condition);
+    static @NotNull ResultQuery<ModerationActionsRecord> selectActionsByAuthorAscending(
+            @NotNull DSLContext context, long guildId, long authorId) {
+        return selectActionsAscendingWhere(context,
+                ModerationActions.MODERATION_ACTIONS.GUILD_ID.eq(guildId)
+                    .and(ModerationActions.MODERATION_ACTIONS.AUTHOR_ID.eq(authorId)));
+    }
 
-        return database.read(context -> context.selectFrom(ModerationActions.MODERATION_ACTIONS)
+    static @NotNull ResultQuery<ModerationActionsRecord> selectActionsByTargetAscending(
+            @NotNull DSLContext context, long guildId, long targetId) {
+        return selectActionsAscendingWhere(context,
+                ModerationActions.MODERATION_ACTIONS.GUILD_ID.eq(guildId)
+                    .and(ModerationActions.MODERATION_ACTIONS.TARGET_ID.eq(targetId)));
+    }
+
+    private static @NotNull ResultQuery<ModerationActionsRecord> selectActionsAscendingWhere(
+            @NotNull DSLContext context, @NotNull Condition condition) {
+        return context.selectFrom(ModerationActions.MODERATION_ACTIONS)
             .where(condition)
-            .orderBy(ModerationActions.MODERATION_ACTIONS.ISSUED_AT.asc())
-            .stream()
-            .map(ActionRecord::of)
-            .toList());
+            .orderBy(ModerationActions.MODERATION_ACTIONS.ISSUED_AT.asc());
+    }
+
+    static @NotNull ResultQuery<ModerationActionsRecord> selectLastActionAgainstTargetByType(
+            @NotNull DSLContext context, long guildId, long targetId,
+            @NotNull ModerationAction actionType) {
+        return context.selectFrom(ModerationActions.MODERATION_ACTIONS)
+            .where(ModerationActions.MODERATION_ACTIONS.GUILD_ID.eq(guildId)
+                .and(ModerationActions.MODERATION_ACTIONS.TARGET_ID.eq(targetId))
+                .and(ModerationActions.MODERATION_ACTIONS.ACTION_TYPE.eq(actionType.name())))
+            .orderBy(ModerationActions.MODERATION_ACTIONS.ISSUED_AT.desc())
+            .limit(1);
+    }
+
+    static @NotNull ResultQuery<ModerationActionsRecord> selectPendingTemporaryActionsAscending(
+            @NotNull DSLContext context, @NotNull ModerationAction applyType,
+            @NotNull ModerationAction revokeType) {
+        return selectActionsAscendingWhere(context, isUnrevoked(applyType, revokeType)
+            .and(ModerationActions.MODERATION_ACTIONS.ACTION_EXPIRES_AT.isNotNull()));
+    }
+
+    /**
+     * Actions of the given type without a later action of the same or the revoke type against
+     * their target.
+     */
+    private static @NotNull Condition isUnrevoked(@NotNull ModerationAction applyType,
+            @NotNull ModerationAction revokeType) {
+        ModerationActions actions = ModerationActions.MODERATION_ACTIONS;
+        ModerationActions laterActions = actions.as("later_actions");
+        Condition isOverwritten = DSL.exists(DSL.selectOne()
+            .from(laterActions)
+            .where(laterActions.GUILD_ID.eq(actions.GUILD_ID)
+                .and(laterActions.TARGET_ID.eq(actions.TARGET_ID))
+                .and(laterActions.ACTION_TYPE.in(applyType.name(), revokeType.name()))
+                .and(laterActions.ISSUED_AT.greaterThan(actions.ISSUED_AT))));
+
+        return actions.ACTION_TYPE.eq(applyType.name()).andNot(isOverwritten);
     }
 }
@@ -1,7 +1,6 @@
 package org.togetherjava.tjbot.commands.moderation;
 
 import net.dv8tion.jda.api.entities.Guild;
-import net.dv8tion.jda.api.entities.IPermissionHolder;
 import net.dv8tion.jda.api.entities.Member;
 import net.dv8tion.jda.api.events.GenericEvent;
 import net.dv8tion.jda.api.events.guild.member.GuildMemberJoinEvent;
@@ -11,9 +10,6 @@ import org.slf4j.LoggerFactory;
 import org.togetherjava.tjbot.commands.EventReceiver;
 import org.togetherjava.tjbot.config.Config;
 
-import java.time.Instant;
-import java.util.Optional;
-
 /**
  * Reapplies existing mutes to users who have left and rejoined a guild.
  * <p>
@@ -21,23 +17,25 @@ import java.util.Optional;
  * users to otherwise bypass a mute by simply leaving and rejoining a guild. This class listens for
  * join events and reapplies the mute role in case the user is supposed to be muted still (according
  * to the {@link ModerationActionsStore}).
+ * <p>
+ * Since members might join in large numbers, for example during a raid, the mutes in effect are
+ * kept in memory, see {@link EffectiveMuteIndex}, instead of querying the store on each join.
  */
 public final class RejoinMuteListener implements EventReceiver {
     private static final Logger logger = LoggerFactory.getLogger(RejoinMuteListener.class);
 
-    private final ModerationActionsStore actionsStore;
+    private final EffectiveMuteIndex muteIndex;
     private final Config config;
 
     /**
      * Constructs an instance.
      *
-     * @param actionsStore used to store actions issued by this command and to retrieve whether a
-     *        user should be muted
+     * @param actionsStore used to retrieve whether a user should be muted
      * @param config the config to use for this
      */
     public RejoinMuteListener(@NotNull ModerationActionsStore actionsStore,
             @NotNull Config config) {
-        this.actionsStore = actionsStore;
+        muteIndex = new EffectiveMuteIndex(actionsStore);
         this.config = config;
     }
 
@@ -51,11 +49,6 @@ public final class RejoinMuteListener implements EventReceiver {
             .queue();
     }
 
-    private static boolean isActionEffective(@NotNull ActionRecord action) {
-        // Effective if permanent or expires in the future
-        return action.actionExpiresAt() == null || action.actionExpiresAt().isAfter(Instant.now());
-    }
-
     @Override
     public void onEvent(@NotNull GenericEvent event) {
         if (event instanceof GuildMemberJoinEvent joinEvent) {
@@ -71,25 +64,7 @@ public final class RejoinMuteListener implements EventReceiver {
         muteMember(member);
     }
 
-    private boolean shouldMemberBeMuted(@NotNull IPermissionHolder member) {
-        Optional<ActionRecord> lastMute = actionsStore.findLastActionAgainstTargetByType(
-                member.getGuild().getIdLong(), member.getIdLong(), ModerationAction.MUTE);
-        if (lastMute.isEmpty()) {
-            // User was never muted
-            return false;
-        }
-
-        Optional<ActionRecord> lastUnmute = actionsStore.findLastActionAgainstTargetByType(
-                member.getGuild().getIdLong(), member.getIdLong(), ModerationAction.UNMUTE);
-        if (lastUnmute.isEmpty()) {
-            // User was never unmuted
-            return isActionEffective(lastMute.orElseThrow());
-        }
-
-        // The last issued action takes priority
-        if (lastMute.orElseThrow().issuedAt().isAfter(lastUnmute.orElseThrow().issuedAt())) {
-            return isActionEffective(lastMute.orElseThrow());
-        }
-        return false;
+    private boolean shouldMemberBeMuted(@NotNull Member member) {
+        return muteIndex.isMuted(member.getGuild().getIdLong(), member.getIdLong());
     }
 }
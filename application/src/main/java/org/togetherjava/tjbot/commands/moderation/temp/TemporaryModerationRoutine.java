@@ -4,6 +4,8 @@ import net.dv8tion.jda.api.JDA;
 import net.dv8tion.jda.api.entities.Guild;
 import net.dv8tion.jda.api.entities.User;
 import net.dv8tion.jda.api.requests.RestAction;
+import net.dv8tion.jda.api.sharding.ShardManager;
+import net.dv8tion.jda.api.utils.MiscUtil;
 import org.jetbrains.annotations.NotNull;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -12,11 +14,18 @@ import org.togetherjava.tjbot.commands.moderation.ActionRecord;
 import org.togetherjava.tjbot.commands.moderation.ModerationAction;
 import org.togetherjava.tjbot.commands.moderation.ModerationActionsStore;
 import org.togetherjava.tjbot.config.Config;
+import org.togetherjava.tjbot.config.ShardingConfig;
+import org.togetherjava.tjbot.db.DatabaseException;
 
+import java.time.Duration;
 import java.time.Instant;
+import java.util.HashSet;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
 import java.util.stream.Collectors;
@@ -26,55 +35,113 @@ import java.util.stream.Stream;
  * Routine that revokes temporary moderation actions, such as temporary bans, as listed by
  * {@link ModerationActionsStore}.
  * <p>
+ * Pending actions are held in memory, ordered by their expiration. They are loaded from the store
+ * once at startup and added whenever a temporary action is added to the store. The routine checks
+ * every second for expired actions, which is cheap if none expired, so that actions are revoked
+ * in time, regardless of how many actions the store holds. Only actions of guilds served by the
+ * shards of this process are handled, the other processes handle the rest.
+ * <p>
  * Revoked actions are compatible with {@link ModerationActionsStore} and commands such as
  * {@link org.togetherjava.tjbot.commands.moderation.UnbanCommand} and
  * {@link org.togetherjava.tjbot.commands.moderation.AuditCommand}.
  */
 public final class TemporaryModerationRoutine implements Routine {
     private static final Logger logger = LoggerFactory.getLogger(TemporaryModerationRoutine.class);
+    /**
+     * Delay after which revoking an action is attempted again, if it failed.
+     */
+    private static final Duration RETRY_DELAY = Duration.ofMinutes(5);
 
     private final ModerationActionsStore actionsStore;
-    private final JDA jda;
+    private final ShardManager shardManager;
+    private final ShardingConfig shardingConfig;
     private final Map<ModerationAction, RevocableModerationAction> typeToRevocableAction;
+    private final DelayQueue<ScheduledRevocation> scheduledRevocations = new DelayQueue<>();
 
     /**
      * Creates a new instance.
      *
-     * @param jda the JDA instance to use to send messages and retrieve information
+     * @param shardManager the shard manager to use to send messages and retrieve information
      * @param actionsStore the store used to retrieve temporary moderation actions
      * @param config the config to use for this
      */
-    public TemporaryModerationRoutine(@NotNull JDA jda,
+    public TemporaryModerationRoutine(@NotNull ShardManager shardManager,
             @NotNull ModerationActionsStore actionsStore, @NotNull Config config) {
         this.actionsStore = actionsStore;
-        this.jda = jda;
+        this.shardManager = shardManager;
+        shardingConfig = config.getSharding();
 
         typeToRevocableAction = Stream.of(new TemporaryBanAction(), new TemporaryMuteAction(config))
             .collect(
                     Collectors.toMap(RevocableModerationAction::getApplyType, Function.identity()));
+
+        actionsStore.addActionAddedListener(this::onActionAdded);
+        scheduleStoredActions();
     }
 
     @Override
-    public void runRoutine(@NotNull JDA jda) {
-        checkExpiredActions();
+    public void runRoutine(@NotNull ShardManager shardManager) {
+        revokeExpiredActions();
     }
 
     @Override
     public @NotNull Schedule createSchedule() {
-        return new Schedule(ScheduleMode.FIXED_DELAY, 5, 5, TimeUnit.MINUTES);
+        return new Schedule(ScheduleMode.FIXED_DELAY, 1, 1, TimeUnit.SECONDS);
+    }
+
+    private void scheduleStoredActions() {
+        typeToRevocableAction.values()
+            .forEach(revocableAction -> actionsStore
+                .getPendingTemporaryActionsAscending(revocableAction.getApplyType(),
+                        revocableAction.getRevokeType())
+                .forEach(this::scheduleRevocation));
+
+        logger.debug("Scheduled {} pending temporary moderation actions for revocation.",
+                scheduledRevocations.size());
+    }
+
+    private void onActionAdded(@NotNull ActionRecord action) {
+        if (action.actionExpiresAt() == null
+                || !typeToRevocableAction.containsKey(action.actionType())) {
+            return;
+        }
+
+        scheduleRevocation(action);
+    }
+
+    private void scheduleRevocation(@NotNull ActionRecord action) {
+        if (!shardingConfig.isServedByThisProcess(action.guildId())) {
+            return;
+        }
+
+        scheduledRevocations.add(new ScheduledRevocation(RevocationGroupIdentifier.of(action),
+                Objects.requireNonNull(action.actionExpiresAt())));
     }
 
-    private void checkExpiredActions() {
-        logger.debug("Checking expired temporary moderation actions to revoke...");
+    private void revokeExpiredActions() {
+        // Grouped, since revoking is asynchronous and must not be triggered twice for a group
+        Set<RevocationGroupIdentifier> expiredGroups = new HashSet<>();
+        ScheduledRevocation revocation = scheduledRevocations.poll();
+        while (revocation != null) {
+            expiredGroups.add(revocation.groupIdentifier());
+            revocation = scheduledRevocations.poll();
+        }
 
-        actionsStore.getExpiredActionsAscending()
-            .stream()
-            .filter(action -> typeToRevocableAction.containsKey(action.actionType()))
-            .map(RevocationGroupIdentifier::of)
-            .collect(Collectors.toSet())
-            .forEach(this::processGroupedActions);
+        for (RevocationGroupIdentifier groupIdentifier : expiredGroups) {
+            try {
+                processGroupedActions(groupIdentifier);
+            } catch (DatabaseException e) {
+                logger.error(
+                        "Failed to check whether the temporary action {} against user '{}' has to be revoked, trying again later.",
+                        groupIdentifier.type, groupIdentifier.targetId, e);
+                retryLater(groupIdentifier);
+            }
+        }
+    }
 
-        logger.debug("Finished checking expired temporary moderation actions to revoke.");
+    private void retryLater(@NotNull RevocationGroupIdentifier groupIdentifier) {
+        scheduledRevocations
+            .add(new ScheduledRevocation(groupIdentifier, Instant.now().plus(RETRY_DELAY)));
     }
 
     private void processGroupedActions(@NotNull RevocationGroupIdentifier groupIdentifier) {
@@ -88,6 +155,11 @@ public final class TemporaryModerationRoutine implements Routine {
         if (lastApplyAction.actionExpiresAt() == null) {
             return;
         }
+        // Do not revoke an action which was extended by a temporary action issued afterwards,
+        // that action is revoked once it expires itself
+        if (lastApplyAction.actionExpiresAt().isAfter(Instant.now())) {
+            return;
+        }
 
         // Do not revoke an action which was already revoked by another action issued afterwards
         // For example if a user was unbanned manually after being temp-banned,
@@ -109,20 +181,35 @@ public final class TemporaryModerationRoutine implements Routine {
     }
 
     private void revokeAction(@NotNull RevocationGroupIdentifier groupIdentifier) {
-        Guild guild = jda.getGuildById(groupIdentifier.guildId);
+        Guild guild = shardManager.getGuildById(groupIdentifier.guildId);
         if (guild == null) {
-            logger.debug(
-                    "Attempted to revoke a temporary moderation action but the bot is not connected to the guild '{}' anymore, skipping revoking.",
-                    groupIdentifier.guildId);
+            handleMissingGuild(groupIdentifier);
             return;
         }
 
-        jda.retrieveUserById(groupIdentifier.targetId)
+        guild.getJDA()
+            .retrieveUserById(groupIdentifier.targetId)
             .flatMap(target -> executeRevocation(guild, target, groupIdentifier.type))
             .queue(result -> {
             }, failure -> handleFailure(failure, groupIdentifier));
     }
 
+    private void handleMissingGuild(@NotNull RevocationGroupIdentifier groupIdentifier) {
+        JDA shard = shardManager.getShardById(
+                MiscUtil.getShardForGuild(groupIdentifier.guildId, shardManager.getShardsTotal()));
+        if (shard == null || shard.getStatus() != JDA.Status.CONNECTED) {
+            logger.debug(
+                    "Attempted to revoke a temporary moderation action but the shard of the guild '{}' is not connected yet, trying again later.",
+                    groupIdentifier.guildId);
+            retryLater(groupIdentifier);
+            return;
+        }
+
+        logger.debug(
+                "Attempted to revoke a temporary moderation action but the bot is not connected to the guild '{}' anymore, skipping revoking.",
+                groupIdentifier.guildId);
+    }
+
     private @NotNull RestAction<Void> executeRevocation(@NotNull Guild guild, @NotNull User target,
             @NotNull ModerationAction actionType) {
         logger.info("Revoked temporary action {} against user '{}' ({}).", actionType,
@@ -130,8 +217,8 @@ public final class TemporaryModerationRoutine implements Routine {
         RevocableModerationAction action = getRevocableActionByType(actionType);
 
         String reason = "Automatic revocation of temporary action.";
-        actionsStore.addAction(guild.getIdLong(), jda.getSelfUser().getIdLong(), target.getIdLong(),
-                action.getRevokeType(), null, reason);
+        actionsStore.addAction(guild.getIdLong(), guild.getJDA().getSelfUser().getIdLong(),
+                target.getIdLong(), action.getRevokeType(), null, reason);
 
         return action.revokeAction(guild, target, reason);
     }
@@ -143,9 +230,11 @@ public final class TemporaryModerationRoutine implements Routine {
             return;
         }
 
+        // The revocation was already taken off the queue, it would be lost otherwise
         logger.warn(
-                "Attempted to revoke a temporary moderation action for user '{}' but something unexpected went wrong.",
+                "Attempted to revoke a temporary moderation action for user '{}' but something unexpected went wrong, trying again later.",
                 groupIdentifier.targetId, failure);
+        retryLater(groupIdentifier);
     }
 
     private @NotNull RevocableModerationAction getRevocableActionByType(
@@ -154,6 +243,27 @@ public final class TemporaryModerationRoutine implements Routine {
                 "Action type is not revocable: " + type);
     }
 
+    /**
+     * The time at which an action expires, ordered by that time.
+     */
+    private record ScheduledRevocation(@NotNull RevocationGroupIdentifier groupIdentifier,
+            @NotNull Instant expiresAt) implements Delayed {
+        @Override
+        public long getDelay(@NotNull TimeUnit unit) {
+            return unit.convert(Duration.between(Instant.now(), expiresAt));
+        }
+
+        @Override
+        public int compareTo(@NotNull Delayed other) {
+            // Comparing the instants directly, the delays are based on different "now"s
+            if (other instanceof ScheduledRevocation otherRevocation) {
+                return expiresAt.compareTo(otherRevocation.expiresAt);
+            }
+            return Long.compare(getDelay(TimeUnit.NANOSECONDS),
+                    other.getDelay(TimeUnit.NANOSECONDS));
+        }
+    }
+
     private record RevocationGroupIdentifier(long guildId, long targetId,
             @NotNull ModerationAction type) {
         static RevocationGroupIdentifier of(@NotNull ActionRecord actionRecord) {
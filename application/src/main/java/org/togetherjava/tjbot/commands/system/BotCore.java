@@ -1,11 +1,13 @@
 package org.togetherjava.tjbot.commands.system;
 
-import net.dv8tion.jda.api.JDA;
 import net.dv8tion.jda.api.Permission;
 import net.dv8tion.jda.api.entities.AbstractChannel;
 import net.dv8tion.jda.api.entities.Guild;
 import net.dv8tion.jda.api.entities.TextChannel;
 import net.dv8tion.jda.api.events.ReadyEvent;
+import net.dv8tion.jda.api.events.channel.text.TextChannelCreateEvent;
+import net.dv8tion.jda.api.events.channel.text.TextChannelDeleteEvent;
+import net.dv8tion.jda.api.events.channel.text.update.TextChannelUpdateNameEvent;
 import net.dv8tion.jda.api.events.interaction.ButtonClickEvent;
 import net.dv8tion.jda.api.events.interaction.SelectionMenuEvent;
 import net.dv8tion.jda.api.events.interaction.SlashCommandEvent;
@@ -13,9 +15,11 @@ import net.dv8tion.jda.api.events.message.guild.GuildMessageReceivedEvent;
 import net.dv8tion.jda.api.events.message.guild.GuildMessageUpdateEvent;
 import net.dv8tion.jda.api.exceptions.ErrorHandler;
 import net.dv8tion.jda.api.hooks.ListenerAdapter;
+import net.dv8tion.jda.api.interactions.Interaction;
 import net.dv8tion.jda.api.interactions.commands.Command;
 import net.dv8tion.jda.api.interactions.components.ComponentInteraction;
 import net.dv8tion.jda.api.requests.ErrorResponse;
+import net.dv8tion.jda.api.sharding.ShardManager;
 import org.jetbrains.annotations.NotNull;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -24,17 +28,19 @@ import org.togetherjava.tjbot.commands.componentids.ComponentId;
 import org.togetherjava.tjbot.commands.componentids.ComponentIdParser;
 import org.togetherjava.tjbot.commands.componentids.ComponentIdStore;
 import org.togetherjava.tjbot.commands.componentids.InvalidComponentIdFormatException;
+import org.togetherjava.tjbot.commands.componentids.Lifespan;
+import org.togetherjava.tjbot.commands.componentids.SignedComponentIdCodec;
+import org.togetherjava.tjbot.commands.system.InteractionMetrics.InteractionType;
+import org.togetherjava.tjbot.commands.system.InteractionMetrics.UnhandledReason;
 import org.togetherjava.tjbot.config.Config;
 import org.togetherjava.tjbot.db.Database;
+import org.togetherjava.tjbot.metrics.MetricsRegistry;
 
+import java.time.Duration;
 import java.util.*;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
 import java.util.function.Function;
-import java.util.regex.Pattern;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
 /**
  * The bot core is the core of command handling in this application.
@@ -44,66 +50,89 @@ import java.util.stream.Stream;
  * of event parsing.
  * <p>
  * <p>
- * Commands are made available via {@link Features}, then the system has to be added to JDA as an
- * event listener, using {@link net.dv8tion.jda.api.JDA#addEventListener(Object...)}. Afterwards,
- * the system is ready and will correctly forward events to all commands.
+ * Commands are made available via {@link Features}, then the system has to be added to the shard
+ * manager as an event listener, using
+ * {@link net.dv8tion.jda.api.sharding.ShardManager#addEventListener(Object...)}. Afterwards, the
+ * system is ready and will correctly forward events of all shards to all commands.
  */
 public final class BotCore extends ListenerAdapter implements SlashCommandProvider {
     private static final Logger logger = LoggerFactory.getLogger(BotCore.class);
     private static final String RELOAD_COMMAND = "reload";
-    private static final ExecutorService COMMAND_SERVICE = Executors.newCachedThreadPool();
-    private static final ScheduledExecutorService ROUTINE_SERVICE =
-            Executors.newScheduledThreadPool(5);
+    private static final int ROUTINE_POOL_SIZE = 5;
+    /**
+     * Limits how long shutting down waits for queued events to be handled, shutdown hooks only
+     * have little time.
+     */
+    private static final Duration SHUTDOWN_TIMEOUT = Duration.ofSeconds(5);
     private final Config config;
     private final Map<String, SlashCommand> nameToSlashCommands;
     private final ComponentIdParser componentIdParser;
     private final ComponentIdStore componentIdStore;
-    private final Map<Pattern, MessageReceiver> channelNameToMessageReceiver = new HashMap<>();
+    /**
+     * Codec for stateless component IDs, {@code null} if no signing key is configured and all
+     * component IDs are persisted in the store.
+     */
+    private final SignedComponentIdCodec signedComponentIdCodec;
+    private final MessageReceiverRouter messageReceiverRouter;
+    private final CommandDispatcher commandDispatcher;
+    private final MessageReceiverDispatcher messageReceiverDispatcher;
+    private final RoutineScheduler routineScheduler;
+    private final List<AutoCloseable> closeableFeatures;
+    private final InteractionMetrics interactionMetrics;
+    private volatile boolean isShutdown;
 
     /**
      * Creates a new command system which uses the given database to allow commands to persist data.
      * <p>
      * Commands are fetched from {@link Features}.
      *
-     * @param jda the JDA instance that this command system will be used with
+     * @param shardManager the shard manager that this command system will be used with
      * @param database the database that commands may use to persist data
      * @param config the configuration to use for this system
+     * @param metrics the registry to record the metrics of commands and routines in
      */
     @SuppressWarnings("ThisEscapedInObjectConstruction")
-    public BotCore(@NotNull JDA jda, @NotNull Database database, @NotNull Config config) {
+    public BotCore(@NotNull ShardManager shardManager, @NotNull Database database,
+            @NotNull Config config, @NotNull MetricsRegistry metrics) {
         this.config = config;
-        Collection<Feature> features = Features.createFeatures(jda, database, config);
+        interactionMetrics = new InteractionMetrics(metrics);
+        commandDispatcher = new CommandDispatcher(config.getCommandDispatch());
+        messageReceiverDispatcher = new MessageReceiverDispatcher(config.getMessageDispatch());
+        routineScheduler = new RoutineScheduler(ROUTINE_POOL_SIZE);
+
+        Collection<Feature> features =
+                new ArrayList<>(Features.createFeatures(shardManager, database, config));
+        features.add(new CommandDispatchStatisticsRoutine(commandDispatcher));
+        features.add(new MessageDispatchStatisticsRoutine(messageReceiverDispatcher));
 
         // Message receivers
-        features.stream()
+        messageReceiverRouter = new MessageReceiverRouter(features.stream()
             .filter(MessageReceiver.class::isInstance)
             .map(MessageReceiver.class::cast)
-            .forEach(messageReceiver -> channelNameToMessageReceiver
-                .put(messageReceiver.getChannelNamePattern(), messageReceiver));
+            .toList());
 
         // Event receivers
         features.stream()
             .filter(EventReceiver.class::isInstance)
             .map(EventReceiver.class::cast)
-            .forEach(jda::addEventListener);
+            .forEach(shardManager::addEventListener);
 
         // Routines
         features.stream()
             .filter(Routine.class::isInstance)
             .map(Routine.class::cast)
             .forEach(routine -> {
-                Routine.Schedule schedule = routine.createSchedule();
-                switch (schedule.mode()) {
-                    case FIXED_RATE -> ROUTINE_SERVICE.scheduleAtFixedRate(
-                            () -> routine.runRoutine(jda), schedule.initialDuration(),
-                            schedule.duration(), schedule.unit());
-                    case FIXED_DELAY -> ROUTINE_SERVICE.scheduleWithFixedDelay(
-                            () -> routine.runRoutine(jda), schedule.initialDuration(),
-                            schedule.duration(), schedule.unit());
-                    default -> throw new AssertionError("Unsupported schedule mode");
-                }
+                String routineName = routine.getClass().getSimpleName();
+                routineScheduler.schedule(routineName, routine.createSchedule(),
+                        () -> routine.runRoutine(shardManager));
+                registerRoutineMetrics(routineName, metrics);
             });
 
+        closeableFeatures = features.stream()
+            .filter(AutoCloseable.class::isInstance)
+            .map(AutoCloseable.class::cast)
+            .toList();
+
         // Slash commands
         nameToSlashCommands = features.stream()
             .filter(SlashCommand.class::isInstance)
@@ -118,20 +147,48 @@ public final class BotCore extends ListenerAdapter implements SlashCommandProvid
 
         componentIdStore = new ComponentIdStore(database);
         componentIdStore.addComponentIdRemovedListener(BotCore::onComponentIdRemoved);
-        componentIdParser = uuid -> componentIdStore.get(UUID.fromString(uuid));
+        registerComponentIdStoreMetrics(metrics);
+        String signingKey = config.getComponentIdSigningKey();
+        signedComponentIdCodec = signingKey == null || signingKey.isBlank() ? null
+                : new SignedComponentIdCodec(signingKey);
+        componentIdParser = this::parseComponentId;
         nameToSlashCommands.values()
             .forEach(slashCommand -> slashCommand
-                .acceptComponentIdGenerator(((componentId, lifespan) -> {
-                    UUID uuid = UUID.randomUUID();
-                    componentIdStore.putOrThrow(uuid, componentId, lifespan);
-                    return uuid.toString();
-                })));
+                .acceptComponentIdGenerator(this::generateComponentId));
 
         if (logger.isInfoEnabled()) {
             logger.info("Available commands: {}", nameToSlashCommands.keySet());
         }
     }
 
+    private void registerRoutineMetrics(@NotNull String routineName,
+            @NotNull MetricsRegistry metrics) {
+        Supplier<RoutineStatistics> statistics =
+                () -> routineScheduler.getStatistics(routineName).orElseThrow();
+
+        metrics.timer("tjbot_routine_duration_seconds", "Time the executions of routines took",
+                () -> statistics.get().durations(), "routine", routineName);
+        metrics.timer("tjbot_routine_lag_seconds",
+                "Time the executions of routines started later than planned",
+                () -> statistics.get().lags(), "routine", routineName);
+        metrics.counter("tjbot_routine_failures_total", "Executions of routines that failed",
+                () -> statistics.get().failedRuns(), "routine", routineName);
+        metrics.counter("tjbot_routine_skips_total",
+                "Executions of routines that were skipped since the previous one was still running",
+                () -> statistics.get().skippedRuns(), "routine", routineName);
+    }
+
+    private void registerComponentIdStoreMetrics(@NotNull MetricsRegistry metrics) {
+        String lookupsHelp = "Lookups of component IDs in the in-memory cache of the store";
+        metrics.counter("tjbot_component_id_cache_lookups_total", lookupsHelp,
+                () -> componentIdStore.getCacheStatistics().hitCount(), "result", "hit");
+        metrics.counter("tjbot_component_id_cache_lookups_total", lookupsHelp,
+                () -> componentIdStore.getCacheStatistics().missCount(), "result", "miss");
+        metrics.gauge("tjbot_component_id_cache_hit_ratio",
+                "Ratio of component ID lookups served by the in-memory cache of the store",
+                () -> componentIdStore.getCacheStatistics().hitRate());
+    }
+
     @Override
     public @NotNull Collection<SlashCommand> getSlashCommands() {
         return Collections.unmodifiableCollection(nameToSlashCommands.values());
@@ -142,13 +199,65 @@ public final class BotCore extends ListenerAdapter implements SlashCommandProvid
         return Optional.ofNullable(nameToSlashCommands.get(name));
     }
 
+    /**
+     * Gets a snapshot of the statistics of all routines, such as how long their executions took.
+     *
+     * @return the current statistics, one per routine
+     */
+    public @NotNull List<RoutineStatistics> getRoutineStatistics() {
+        return routineScheduler.getStatistics();
+    }
+
+    /**
+     * Stops accepting commands and message events and executing routines, handles the queued ones
+     * and closes all features that hold resources, such as buffered writes, as well as the store of
+     * component IDs. Has to be called before the database is closed.
+     * <p>
+     * The features are closed only after the queued events have been handled, so that receivers
+     * such as {@link org.togetherjava.tjbot.commands.tophelper.TopHelpersMessageListener} do not
+     * lose events that arrived before the shutdown.
+     */
+    public void shutdown() {
+        isShutdown = true;
+        routineScheduler.shutdown();
+
+        // Commands and receivers may still write to the database or to the features closed
+        // afterwards
+        commandDispatcher.shutdown();
+        messageReceiverDispatcher.shutdown();
+        try {
+            if (!commandDispatcher.awaitTermination(SHUTDOWN_TIMEOUT)) {
+                logger.warn("Gave up waiting for the queued commands to be executed");
+            }
+            if (!messageReceiverDispatcher.awaitTermination(SHUTDOWN_TIMEOUT)) {
+                logger.warn("Gave up waiting for the message receivers to handle queued events");
+            }
+        } catch (InterruptedException e) {
+            logger.warn("Interrupted while waiting for the commands and message receivers", e);
+            Thread.currentThread().interrupt();
+        }
+
+        for (AutoCloseable feature : closeableFeatures) {
+            try {
+                feature.close();
+            } catch (Exception e) {
+                logger.error("Failed to close the feature '{}'",
+                        feature.getClass().getSimpleName(), e);
+            }
+        }
+        // Last, once no more component IDs are used
+        componentIdStore.close();
+    }
+
     @Override
     public void onReady(@NotNull ReadyEvent event) {
-        // Register reload on all guilds
-        logger.debug("JDA is ready, registering reload command");
+        // Register reload on all guilds of the shard, this is fired once per shard
+        logger.debug("Shard {} is ready, registering reload command",
+                event.getJDA().getShardInfo().getShardId());
         event.getJDA()
             .getGuildCache()
-            .forEach(guild -> COMMAND_SERVICE.execute(() -> registerReloadCommand(guild)));
+            .forEach(guild -> commandDispatcher.dispatch(guild.getIdLong(),
+                    () -> registerReloadCommand(guild)));
         // NOTE We do not have to wait for reload to complete for the command system to be ready
         // itself
         logger.debug("Bot core is now ready");
@@ -156,47 +265,91 @@ public final class BotCore extends ListenerAdapter implements SlashCommandProvid
 
     @Override
     public void onGuildMessageReceived(@NotNull GuildMessageReceivedEvent event) {
+        if (isShutdown) {
+            return;
+        }
         getMessageReceiversSubscribedTo(event.getChannel())
-            .forEach(messageReceiver -> messageReceiver.onMessageReceived(event));
+            .forEach(messageReceiver -> messageReceiverDispatcher.dispatch(messageReceiver,
+                    () -> messageReceiver.onMessageReceived(event)));
     }
 
     @Override
     public void onGuildMessageUpdate(@NotNull GuildMessageUpdateEvent event) {
+        if (isShutdown) {
+            return;
+        }
         getMessageReceiversSubscribedTo(event.getChannel())
-            .forEach(messageReceiver -> messageReceiver.onMessageUpdated(event));
+            .forEach(messageReceiver -> messageReceiverDispatcher.dispatch(messageReceiver,
+                    () -> messageReceiver.onMessageUpdated(event)));
     }
 
-    private @NotNull Stream<MessageReceiver> getMessageReceiversSubscribedTo(
+    private @NotNull List<MessageReceiver> getMessageReceiversSubscribedTo(
             @NotNull AbstractChannel channel) {
-        String channelName = channel.getName();
-        return channelNameToMessageReceiver.entrySet()
-            .stream()
-            .filter(patternAndReceiver -> patternAndReceiver.getKey()
-                .matcher(channelName)
-                .matches())
-            .map(Map.Entry::getValue);
+        return messageReceiverRouter.getReceiversSubscribedTo(channel.getIdLong(),
+                channel.getName());
+    }
+
+    @Override
+    public void onTextChannelCreate(@NotNull TextChannelCreateEvent event) {
+        messageReceiverRouter.invalidate(event.getChannel().getIdLong());
+    }
+
+    @Override
+    public void onTextChannelDelete(@NotNull TextChannelDeleteEvent event) {
+        messageReceiverRouter.invalidate(event.getChannel().getIdLong());
+    }
+
+    @Override
+    public void onTextChannelUpdateName(@NotNull TextChannelUpdateNameEvent event) {
+        messageReceiverRouter.invalidate(event.getChannel().getIdLong());
     }
 
     @Override
     public void onSlashCommand(@NotNull SlashCommandEvent event) {
         logger.debug("Received slash command '{}' (#{}) on guild '{}'", event.getName(),
                 event.getId(), event.getGuild());
-        COMMAND_SERVICE.execute(() -> requireSlashCommand(event.getName()).onSlashCommand(event));
+        dispatch(event, InteractionType.SLASH_COMMAND,
+                () -> interactionMetrics.measure(InteractionType.SLASH_COMMAND, event.getName(),
+                        getGuildId(event),
+                        () -> requireSlashCommand(event.getName()).onSlashCommand(event)));
     }
 
     @Override
     public void onButtonClick(@NotNull ButtonClickEvent event) {
         logger.debug("Received button click '{}' (#{}) on guild '{}'", event.getComponentId(),
                 event.getId(), event.getGuild());
-        COMMAND_SERVICE.execute(() -> forwardComponentCommand(event, SlashCommand::onButtonClick));
+        dispatch(event, InteractionType.BUTTON, () -> forwardComponentCommand(event,
+                InteractionType.BUTTON, SlashCommand::onButtonClick));
     }
 
     @Override
     public void onSelectionMenu(@NotNull SelectionMenuEvent event) {
         logger.debug("Received selection menu event '{}' (#{}) on guild '{}'",
                 event.getComponentId(), event.getId(), event.getGuild());
-        COMMAND_SERVICE
-            .execute(() -> forwardComponentCommand(event, SlashCommand::onSelectionMenu));
+        dispatch(event, InteractionType.SELECTION_MENU, () -> forwardComponentCommand(event,
+                InteractionType.SELECTION_MENU, SlashCommand::onSelectionMenu));
+    }
+
+    /**
+     * Dispatches the command handling the given interaction, see {@link CommandDispatcher}. If the
+     * dispatcher is at its capacity, the user is told to try again later instead.
+     *
+     * @param interaction the interaction the command handles
+     * @param type the type of the interaction
+     * @param command the command to dispatch
+     */
+    private void dispatch(@NotNull Interaction interaction, @NotNull InteractionType type,
+            @NotNull Runnable command) {
+        Guild guild = interaction.getGuild();
+        boolean isAccepted = guild == null ? commandDispatcher.dispatch(command)
+                : commandDispatcher.dispatch(guild.getIdLong(), command);
+
+        if (!isAccepted) {
+            interactionMetrics.recordUnhandled(type, UnhandledReason.REJECTED);
+            interaction.reply("Sorry, I am too busy right now. Please try again in a moment.")
+                .setEphemeral(true)
+                .queue();
+        }
     }
 
     private void registerReloadCommand(@NotNull Guild guild) {
@@ -224,16 +377,18 @@ public final class BotCore extends ListenerAdapter implements SlashCommandProvid
      *
      * <pre>
      * {@code
-     * forwardComponentCommand(event, SlashCommand::onSelectionMenu);
+     * forwardComponentCommand(event, InteractionType.BUTTON, SlashCommand::onButtonClick);
      * }
      * </pre>
      *
      * @param event the component event that should be forwarded
+     * @param type the type of the component event
      * @param commandArgumentConsumer the action to trigger on the associated slash command,
      *        providing the event and list of arguments for consumption
      * @param <T> the type of the component interaction that should be forwarded
      */
     private <T extends ComponentInteraction> void forwardComponentCommand(@NotNull T event,
+            @NotNull InteractionType type,
             @NotNull TriConsumer<? super SlashCommand, ? super T, ? super List<String>> commandArgumentConsumer) {
         Optional<ComponentId> componentIdOpt;
         try {
@@ -244,12 +399,14 @@ public final class BotCore extends ListenerAdapter implements SlashCommandProvid
                         + " All button and menu events have to use a component ID created in a specific format"
                         + " (refer to the documentation of SlashCommand). Component ID was: {}",
                         event.getId(), event.getComponentId(), e);
+            interactionMetrics.recordUnhandled(type, UnhandledReason.INVALID_ID);
             // Unable to forward, simply fade out the event
             return;
         }
         if (componentIdOpt.isEmpty()) {
             logger.warn("The event (#{}) has an expired component ID, which was: {}.",
                     event.getId(), event.getComponentId());
+            interactionMetrics.recordUnhandled(type, UnhandledReason.EXPIRED);
             event.reply("Sorry, but this event has expired. You can not use it anymore.")
                 .setEphemeral(true)
                 .queue();
@@ -260,7 +417,13 @@ public final class BotCore extends ListenerAdapter implements SlashCommandProvid
         SlashCommand command = requireSlashCommand(componentId.commandName());
         logger.trace("Routing a component event with id '{}' back to command '{}'",
                 event.getComponentId(), command.getName());
-        commandArgumentConsumer.accept(command, event, componentId.elements());
+        interactionMetrics.measure(type, command.getName(), getGuildId(event),
+                () -> commandArgumentConsumer.accept(command, event, componentId.elements()));
+    }
+
+    private static long getGuildId(@NotNull Interaction interaction) {
+        Guild guild = interaction.getGuild();
+        return guild == null ? 0 : guild.getIdLong();
     }
 
     /**
@@ -302,6 +465,40 @@ public final class BotCore extends ListenerAdapter implements SlashCommandProvid
         }).accept(ex);
     }
 
+    /**
+     * Generates a component ID for the given payload. Payloads are encoded into a stateless signed
+     * ID if possible, so that parsing it later does not need to access the database. Otherwise, for
+     * example if the payload is too large, they are persisted in the store.
+     *
+     * @param componentId the component ID payload to generate an ID for
+     * @param lifespan the lifespan of the generated ID
+     * @return the generated ID
+     */
+    private @NotNull String generateComponentId(@NotNull ComponentId componentId,
+            @NotNull Lifespan lifespan) {
+        if (signedComponentIdCodec != null) {
+            Optional<String> signedId = signedComponentIdCodec.encode(componentId, lifespan);
+            if (signedId.isPresent()) {
+                return signedId.orElseThrow();
+            }
+        }
+
+        UUID uuid = UUID.randomUUID();
+        componentIdStore.putOrThrow(uuid, componentId, lifespan);
+        return uuid.toString();
+    }
+
+    private @NotNull Optional<ComponentId> parseComponentId(@NotNull String id) {
+        if (SignedComponentIdCodec.isEncoded(id)) {
+            if (signedComponentIdCodec == null) {
+                // The signing key has been removed from the config since the ID was generated
+                return Optional.empty();
+            }
+            return signedComponentIdCodec.decode(id);
+        }
+        return componentIdStore.get(UUID.fromString(id));
+    }
+
     @SuppressWarnings("EmptyMethod")
     private static void onComponentIdRemoved(ComponentId componentId) {
         // NOTE As of now, we do not act on this event, but we could use it
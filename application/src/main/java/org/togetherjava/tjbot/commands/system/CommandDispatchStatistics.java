@@ -0,0 +1,20 @@
+package org.togetherjava.tjbot.commands.system;
+
+import org.togetherjava.tjbot.config.CommandDispatchMode;
+
+/**
+ * Snapshot of the usage statistics of a {@link CommandDispatcher}. Can be used to detect
+ * overload, for example when commands pile up in the queue or get rejected.
+ *
+ * @param mode the strategy actually used to execute commands, which may differ from the
+ *        configured one if it is not supported
+ * @param queuedCommands the amount of commands waiting for execution at the time the snapshot was
+ *        taken
+ * @param activeCommands the amount of commands being executed at the time the snapshot was taken
+ * @param completedCommands the total amount of commands that have been executed
+ * @param rejectedCommands the total amount of commands that have been rejected, since the capacity
+ *        was exhausted
+ */
+public record CommandDispatchStatistics(CommandDispatchMode mode, int queuedCommands,
+        int activeCommands, long completedCommands, long rejectedCommands) {
+}
@@ -0,0 +1,54 @@
+package org.togetherjava.tjbot.commands.system;
+
+import net.dv8tion.jda.api.sharding.ShardManager;
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.togetherjava.tjbot.commands.Routine;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Routine that periodically logs the usage statistics of the {@link CommandDispatcher}.
+ * <p>
+ * Rejected commands since the last run are logged as warning. They indicate that the pool size or
+ * queue capacity, as configured by {@link org.togetherjava.tjbot.config.CommandDispatchConfig},
+ * should be increased.
+ */
+final class CommandDispatchStatisticsRoutine implements Routine {
+    private static final Logger logger =
+            LoggerFactory.getLogger(CommandDispatchStatisticsRoutine.class);
+
+    private final CommandDispatcher commandDispatcher;
+    private long lastRejectedCommands;
+
+    /**
+     * Creates a new instance.
+     *
+     * @param commandDispatcher the dispatcher to log the statistics of
+     */
+    CommandDispatchStatisticsRoutine(@NotNull CommandDispatcher commandDispatcher) {
+        this.commandDispatcher = commandDispatcher;
+    }
+
+    @Override
+    public @NotNull Schedule createSchedule() {
+        return new Schedule(ScheduleMode.FIXED_RATE, 1, 1, TimeUnit.HOURS);
+    }
+
+    @Override
+    public void runRoutine(@NotNull ShardManager shardManager) {
+        CommandDispatchStatistics statistics = commandDispatcher.getStatistics();
+
+        long newRejectedCommands = statistics.rejectedCommands() - lastRejectedCommands;
+        lastRejectedCommands = statistics.rejectedCommands();
+
+        if (newRejectedCommands > 0) {
+            logger.warn(
+                    "{} commands were rejected by the command dispatcher during the last hour, consider increasing its capacity ({})",
+                    newRejectedCommands, statistics);
+            return;
+        }
+        logger.debug("Command dispatcher statistics: {}", statistics);
+    }
+}
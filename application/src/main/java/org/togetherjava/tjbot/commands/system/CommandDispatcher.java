@@ -0,0 +1,307 @@
+package org.togetherjava.tjbot.commands.system;
+
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.togetherjava.tjbot.config.CommandDispatchConfig;
+import org.togetherjava.tjbot.config.CommandDispatchMode;
+
+import java.lang.reflect.InvocationTargetException;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Executes commands off the event thread of JDA, using the strategy given by
+ * {@link CommandDispatchMode}.
+ * <p>
+ * The amount of waiting commands is bounded, commands that exceed the capacity are rejected
+ * instead of piling up. Exceptions thrown by commands are logged and do not affect other commands.
+ * Usage statistics are available via {@link #getStatistics()}.
+ * <p>
+ * On shutdown, see {@link #shutdown()}, commands that are already queued are still executed, while
+ * further commands are rejected.
+ */
+public final class CommandDispatcher {
+    private static final Logger logger = LoggerFactory.getLogger(CommandDispatcher.class);
+    /**
+     * Maximal amount of commands a guild lane executes in a row, before giving other guilds the
+     * chance to use the thread.
+     */
+    private static final int MAX_COMMANDS_PER_LANE_TURN = 16;
+    private static final long IDLE_THREAD_KEEP_ALIVE_SECONDS = 60;
+
+    private final CommandDispatchMode mode;
+    private final ExecutorService executor;
+    private final int queueCapacity;
+    /**
+     * Lanes of {@link CommandDispatchMode#GUILD_LANES} by guild ID. Lanes are never removed, their
+     * amount is bounded by the amount of guilds the bot is in.
+     */
+    private final Map<Long, Lane> guildIdToLane = new ConcurrentHashMap<>();
+
+    private final AtomicInteger queuedCommands = new AtomicInteger();
+    private final AtomicInteger activeCommands = new AtomicInteger();
+    private final LongAdder completedCommands = new LongAdder();
+    private final LongAdder rejectedCommands = new LongAdder();
+    private volatile boolean isShutdown;
+
+    /**
+     * Creates a new dispatcher.
+     *
+     * @param config the configuration of the dispatcher
+     */
+    public CommandDispatcher(@NotNull CommandDispatchConfig config) {
+        queueCapacity = config.getQueueCapacity();
+
+        CommandDispatchMode requestedMode = config.getMode();
+        ExecutorService virtualThreadExecutor = null;
+        if (requestedMode == CommandDispatchMode.VIRTUAL_THREADS) {
+            virtualThreadExecutor = createVirtualThreadExecutor().orElse(null);
+            if (virtualThreadExecutor == null) {
+                logger.warn(
+                        "Virtual threads are not supported by this Java version ({}), dispatching commands to a bounded pool instead",
+                        Runtime.version());
+            }
+        }
+
+        if (virtualThreadExecutor != null) {
+            mode = CommandDispatchMode.VIRTUAL_THREADS;
+            executor = virtualThreadExecutor;
+        } else if (requestedMode == CommandDispatchMode.GUILD_LANES) {
+            mode = CommandDispatchMode.GUILD_LANES;
+            // Lanes bound their queues themselves, the pool only holds lanes waiting for a thread
+            executor = createPool(config.getPoolSize(), new LinkedBlockingQueue<>());
+        } else {
+            mode = CommandDispatchMode.BOUNDED_POOL;
+            executor = createPool(config.getPoolSize(), new ArrayBlockingQueue<>(queueCapacity));
+        }
+        logger.debug("Dispatching commands using mode {}", mode);
+    }
+
+    /**
+     * Dispatches a command that does not belong to a guild. It is executed without any ordering
+     * guarantees.
+     *
+     * @param command the command to execute
+     * @return whether the command was accepted, {@code false} if it was rejected since the capacity
+     *         is exhausted
+     */
+    public boolean dispatch(@NotNull Runnable command) {
+        if (isShutdown) {
+            return rejectOnShutdown();
+        }
+        Runnable trackedCommand = track(command);
+
+        if (mode == CommandDispatchMode.VIRTUAL_THREADS
+                && queuedCommands.get() + activeCommands.get() > queueCapacity) {
+            return reject();
+        }
+
+        try {
+            executor.execute(trackedCommand);
+            return true;
+        } catch (RejectedExecutionException e) {
+            return reject();
+        }
+    }
+
+    /**
+     * Dispatches a command that belongs to the given guild. In
+     * {@link CommandDispatchMode#GUILD_LANES} commands of the same guild are executed in the order
+     * they were dispatched, one after another. Other modes do not guarantee any ordering.
+     *
+     * @param guildId the ID of the guild the command belongs to
+     * @param command the command to execute
+     * @return whether the command was accepted, {@code false} if it was rejected since the capacity
+     *         is exhausted
+     */
+    public boolean dispatch(long guildId, @NotNull Runnable command) {
+        if (mode != CommandDispatchMode.GUILD_LANES) {
+            return dispatch(command);
+        }
+        if (isShutdown) {
+            return rejectOnShutdown();
+        }
+
+        Runnable trackedCommand = track(command);
+        if (!guildIdToLane.computeIfAbsent(guildId, any -> new Lane()).offer(trackedCommand)) {
+            return reject();
+        }
+        return true;
+    }
+
+    /**
+     * Stops accepting commands. Commands that are already queued are still executed, see
+     * {@link #awaitTermination(Duration)} to wait for them.
+     */
+    public void shutdown() {
+        isShutdown = true;
+        executor.shutdown();
+    }
+
+    /**
+     * Waits for all queued commands to be executed after {@link #shutdown()}.
+     *
+     * @param timeout the maximal time to wait for
+     * @return whether all commands have been executed, {@code false} if the timeout elapsed first
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public boolean awaitTermination(@NotNull Duration timeout) throws InterruptedException {
+        return executor.awaitTermination(timeout.toNanos(), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Gets a snapshot of the usage statistics of this dispatcher.
+     *
+     * @return the current statistics
+     */
+    public @NotNull CommandDispatchStatistics getStatistics() {
+        return new CommandDispatchStatistics(mode, queuedCommands.get(), activeCommands.get(),
+                completedCommands.sum(), rejectedCommands.sum());
+    }
+
+    /**
+     * Wraps the given command to maintain the statistics and to isolate its exceptions. Counts it
+     * as queued right away.
+     */
+    private @NotNull Runnable track(@NotNull Runnable command) {
+        queuedCommands.incrementAndGet();
+
+        return () -> {
+            queuedCommands.decrementAndGet();
+            activeCommands.incrementAndGet();
+            try {
+                command.run();
+            } catch (Exception e) {
+                logger.error("Unknown error during the execution of a command", e);
+            } finally {
+                activeCommands.decrementAndGet();
+                completedCommands.increment();
+            }
+        };
+    }
+
+    private boolean reject() {
+        queuedCommands.decrementAndGet();
+        rejectedCommands.increment();
+        // Not logged as warning to not flood the log under load, see
+        // CommandDispatchStatisticsRoutine instead
+        logger.debug("Rejected a command since the dispatcher is at its capacity ({})",
+                getStatistics());
+        return false;
+    }
+
+    private boolean rejectOnShutdown() {
+        rejectedCommands.increment();
+        logger.debug("Rejected a command since the dispatcher has been shut down");
+        return false;
+    }
+
+    private static @NotNull ExecutorService createPool(int poolSize,
+            @NotNull BlockingQueue<Runnable> queue) {
+        AtomicInteger threadCount = new AtomicInteger();
+        ThreadFactory threadFactory = runnable -> {
+            Thread thread =
+                    new Thread(runnable, "command-dispatcher-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(poolSize, poolSize,
+                IDLE_THREAD_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS, queue, threadFactory);
+        pool.allowCoreThreadTimeOut(true);
+        return pool;
+    }
+
+    /**
+     * Creates an executor that starts a new virtual thread for each task, if supported by the
+     * running Java version. Looked up reflectively, since the code base targets a version without
+     * virtual threads.
+     */
+    private static @NotNull Optional<ExecutorService> createVirtualThreadExecutor() {
+        try {
+            return Optional.of((ExecutorService) Executors.class
+                .getMethod("newVirtualThreadPerTaskExecutor")
+                .invoke(null));
+        } catch (NoSuchMethodException e) {
+            return Optional.empty();
+        } catch (IllegalAccessException | InvocationTargetException e) {
+            // For example if virtual threads are still a preview feature that is not enabled
+            logger.debug("Virtual threads are available but could not be used", e);
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Queue of commands of a single guild, executed one after another by the pool.
+     */
+    private final class Lane {
+        private final Queue<Runnable> commands = new ArrayDeque<>();
+        private boolean isScheduled;
+
+        boolean offer(@NotNull Runnable command) {
+            synchronized (this) {
+                if (commands.size() >= queueCapacity) {
+                    return false;
+                }
+                commands.add(command);
+
+                if (isScheduled) {
+                    return true;
+                }
+                isScheduled = true;
+            }
+
+            scheduleTurn();
+            return true;
+        }
+
+        private void runTurn() {
+            boolean isEmpty = false;
+            try {
+                // Once shut down, the pool does not take new turns, so the lane is emptied instead
+                for (int i = 0; i < MAX_COMMANDS_PER_LANE_TURN || executor.isShutdown(); i++) {
+                    Runnable command;
+                    synchronized (this) {
+                        command = commands.poll();
+                        if (command == null) {
+                            isScheduled = false;
+                            isEmpty = true;
+                            return;
+                        }
+                    }
+                    command.run();
+                }
+            } finally {
+                // Line up again, behind the lanes of other guilds. Also if a command failed with
+                // an error, since the remaining commands of the guild would wait forever otherwise.
+                if (!isEmpty) {
+                    scheduleTurn();
+                }
+            }
+        }
+
+        private void scheduleTurn() {
+            try {
+                executor.execute(this::runTurn);
+            } catch (RejectedExecutionException e) {
+                int droppedCommands;
+                synchronized (this) {
+                    droppedCommands = commands.size();
+                    commands.clear();
+                    isScheduled = false;
+                }
+                queuedCommands.addAndGet(-droppedCommands);
+                logger.warn(
+                        "Dropped {} commands of a guild since the dispatcher has been shut down",
+                        droppedCommands);
+            }
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package org.togetherjava.tjbot.commands.system;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * JDK Flight Recorder event of a command handling an interaction, such as a slash command or a
+ * button click. The duration of the event covers the handling by the command.
+ * <p>
+ * The event is only committed while a recording is running, otherwise it is nearly free. See
+ * {@link DiagnosticsCommand} to start a recording.
+ */
+@Name("org.togetherjava.tjbot.Command")
+@Label("Command")
+@Category({"TJ-Bot", "Commands"})
+@Description("A command handling a slash command, button click or selection menu")
+final class CommandEvent extends Event {
+    @Label("Interaction Type")
+    private String interactionType;
+
+    @Label("Command Name")
+    private String commandName;
+
+    @Label("Guild ID")
+    @Description("The ID of the guild the interaction was triggered in, 0 if none")
+    private long guildId;
+
+    @Label("Successful")
+    @Description("Whether the command completed without throwing an exception")
+    private boolean successful;
+
+    /**
+     * Ends the event and commits it, if it is recorded.
+     *
+     * @param type the type of the interaction
+     * @param name the name of the command handling the interaction
+     * @param guild the ID of the guild the interaction was triggered in, {@code 0} if none
+     * @param isSuccessful whether the command completed without throwing an exception
+     */
+    void finish(@NotNull InteractionMetrics.InteractionType type, @NotNull String name,
+            long guild, boolean isSuccessful) {
+        end();
+        if (!shouldCommit()) {
+            return;
+        }
+
+        interactionType = type.label();
+        commandName = name;
+        guildId = guild;
+        successful = isSuccessful;
+        commit();
+    }
+}
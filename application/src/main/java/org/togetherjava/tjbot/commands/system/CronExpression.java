@@ -0,0 +1,205 @@
+package org.togetherjava.tjbot.commands.system;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.time.*;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * A wall-clock schedule in the classic cron format, consisting of the five fields
+ * {@code minute hour day-of-month month day-of-week}, for example {@code 0 4/8 * * *} for 4:00,
+ * 12:00 and 20:00 each day.
+ * <p>
+ * Each field is either {@code *} or a comma separated list of values ({@code 5}), ranges
+ * ({@code 1-5}) and steps ({@code *}{@code /15}, {@code 1-30/2} or {@code 4/8}, latter meaning
+ * from 4 to the end of the field). Days of the week are given as {@code 0-7}, both {@code 0} and
+ * {@code 7} being sunday. As in most cron implementations, if both day fields are restricted, a
+ * day matches if either of them matches.
+ * <p>
+ * Times are evaluated in the local time of a zone, also across daylight saving time transitions.
+ * A time that is skipped by a transition is shifted by the length of the transition, for example
+ * 2:30 becomes 3:30. A time that occurs twice only matches once, with the earlier offset.
+ */
+public final class CronExpression {
+    private static final int FIELD_COUNT = 5;
+    /**
+     * Limit for searching the next matching time, so that expressions that never match, such as the
+     * 30th of february, do not search forever. Four years cover all leap year combinations.
+     */
+    private static final int MAX_SEARCH_YEARS = 4;
+
+    private final String expression;
+    private final long minutes;
+    private final long hours;
+    private final long daysOfMonth;
+    private final long months;
+    private final long daysOfWeek;
+    private final boolean isDayOfMonthRestricted;
+    private final boolean isDayOfWeekRestricted;
+
+    private CronExpression(@NotNull String expression, @NotNull String[] fields) {
+        this.expression = expression;
+        minutes = parseField(fields[0], 0, 59);
+        hours = parseField(fields[1], 0, 23);
+        daysOfMonth = parseField(fields[2], 1, 31);
+        months = parseField(fields[3], 1, 12);
+        long parsedDaysOfWeek = parseField(fields[4], 0, 7);
+        // Sunday can be given as 0 or 7, normalize to 0
+        daysOfWeek = (parsedDaysOfWeek | (parsedDaysOfWeek >>> 7)) & 0b111_1111;
+
+        isDayOfMonthRestricted = !"*".equals(fields[2]);
+        isDayOfWeekRestricted = !"*".equals(fields[4]);
+    }
+
+    /**
+     * Parses the given cron expression.
+     *
+     * @param expression the expression to parse, for example {@code 0 4/8 * * *}
+     * @return the parsed expression
+     * @throws IllegalArgumentException if the expression is not valid
+     */
+    public static @NotNull CronExpression parse(@NotNull String expression) {
+        String[] fields = expression.trim().split("\\s+");
+        if (fields.length != FIELD_COUNT) {
+            throw new IllegalArgumentException(
+                    "Cron expression must consist of %d fields, but was '%s'"
+                        .formatted(FIELD_COUNT, expression));
+        }
+        return new CronExpression(expression, fields);
+    }
+
+    /**
+     * Computes the next time matching this expression, strictly after the given time.
+     *
+     * @param time the time to start searching from, its zone is used to evaluate the expression
+     * @return the next matching time, in the zone of the given time
+     * @throws IllegalStateException if the expression never matches, for example
+     *         {@code 0 0 30 2 *}
+     */
+    public @NotNull ZonedDateTime nextAfter(@NotNull ZonedDateTime time) {
+        ZoneId zone = time.getZone();
+        LocalDateTime candidate = time.toLocalDateTime().truncatedTo(ChronoUnit.MINUTES);
+        LocalDateTime searchEnd = candidate.plusYears(MAX_SEARCH_YEARS);
+
+        while (true) {
+            candidate = nextMatchFrom(candidate.plusMinutes(1), searchEnd);
+            if (candidate == null) {
+                throw new IllegalStateException(
+                        "Cron expression '%s' does not match any time".formatted(expression));
+            }
+
+            // Times in a DST gap are shifted behind the gap, times in an overlap take the earlier
+            // offset. Either way, the result might not be after the given time anymore.
+            ZonedDateTime next = ZonedDateTime.ofLocal(candidate, zone, null);
+            if (next.isAfter(time)) {
+                return next;
+            }
+        }
+    }
+
+    /**
+     * Gets the next local time matching this expression, starting at the given time (inclusive).
+     * Skips whole months, days and hours that do not match instead of trying every minute. Returns
+     * {@code null} if there is no match before the given end.
+     */
+    private @Nullable LocalDateTime nextMatchFrom(@NotNull LocalDateTime from,
+            @NotNull LocalDateTime searchEnd) {
+        LocalDateTime candidate = from;
+
+        while (candidate.isBefore(searchEnd)) {
+            if (!contains(months, candidate.getMonthValue())) {
+                candidate = candidate.toLocalDate().withDayOfMonth(1).plusMonths(1).atStartOfDay();
+            } else if (!matchesDay(candidate.toLocalDate())) {
+                candidate = candidate.toLocalDate().plusDays(1).atStartOfDay();
+            } else if (!contains(hours, candidate.getHour())) {
+                candidate = candidate.truncatedTo(ChronoUnit.HOURS).plusHours(1);
+            } else if (!contains(minutes, candidate.getMinute())) {
+                candidate = candidate.plusMinutes(1);
+            } else {
+                return candidate;
+            }
+        }
+
+        return null;
+    }
+
+    private boolean matchesDay(@NotNull LocalDate date) {
+        boolean matchesDayOfMonth = contains(daysOfMonth, date.getDayOfMonth());
+        // DayOfWeek counts from monday (1) to sunday (7), cron from sunday (0) to saturday (6)
+        boolean matchesDayOfWeek = contains(daysOfWeek, date.getDayOfWeek().getValue() % 7);
+
+        if (isDayOfMonthRestricted && isDayOfWeekRestricted) {
+            return matchesDayOfMonth || matchesDayOfWeek;
+        }
+        return matchesDayOfMonth && matchesDayOfWeek;
+    }
+
+    private static boolean contains(long values, int value) {
+        return (values & (1L << value)) != 0;
+    }
+
+    /**
+     * Parses a single field into a bit mask of the values it contains.
+     */
+    private static long parseField(@NotNull String field, int min, int max) {
+        long values = 0;
+
+        for (String part : field.split(",", -1)) {
+            String range = part;
+            int step = 1;
+
+            int stepStart = part.indexOf('/');
+            if (stepStart != -1) {
+                range = part.substring(0, stepStart);
+                step = parseValue(part.substring(stepStart + 1), 1, max - min + 1, field);
+            }
+
+            int from;
+            int to;
+            if ("*".equals(range)) {
+                from = min;
+                to = max;
+            } else {
+                int rangeSeparator = range.indexOf('-');
+                if (rangeSeparator == -1) {
+                    from = parseValue(range, min, max, field);
+                    // A single value with a step runs until the end of the field, e.g. 4/8
+                    to = stepStart == -1 ? from : max;
+                } else {
+                    from = parseValue(range.substring(0, rangeSeparator), min, max, field);
+                    to = parseValue(range.substring(rangeSeparator + 1), from, max, field);
+                }
+            }
+
+            for (int value = from; value <= to; value += step) {
+                values |= 1L << value;
+            }
+        }
+
+        return values;
+    }
+
+    private static int parseValue(@NotNull String value, int min, int max,
+            @NotNull String field) {
+        int parsed;
+        try {
+            parsed = Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(
+                    "Cron field '%s' contains the invalid value '%s'".formatted(field, value), e);
+        }
+
+        if (parsed < min || parsed > max) {
+            throw new IllegalArgumentException(
+                    "Cron field '%s' contains the value %d, which is not between %d and %d"
+                        .formatted(field, parsed, min, max));
+        }
+        return parsed;
+    }
+
+    @Override
+    public String toString() {
+        return expression;
+    }
+}
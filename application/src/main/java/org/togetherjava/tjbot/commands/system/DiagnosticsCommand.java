@@ -0,0 +1,190 @@
+package org.togetherjava.tjbot.commands.system;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+import net.dv8tion.jda.api.Permission;
+import net.dv8tion.jda.api.entities.Member;
+import net.dv8tion.jda.api.events.interaction.SlashCommandEvent;
+import net.dv8tion.jda.api.interactions.commands.build.SubcommandData;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.togetherjava.tjbot.commands.SlashCommandAdapter;
+import org.togetherjava.tjbot.commands.SlashCommandVisibility;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.Locale;
+import java.util.Objects;
+
+/**
+ * Implements the {@code /diagnostics} command, which records the bot with JDK Flight Recorder.
+ * <p>
+ * The recording uses the {@code profile} settings of the JDK and includes the events of the bot,
+ * such as {@link CommandEvent} and {@link RoutineEvent}. Once stopped, it is dumped to a file in
+ * the {@code diagnostics} directory, which can be opened with JDK Mission Control.
+ * <p>
+ * The command can only be used by members with the {@link Permission#MANAGE_SERVER} permission.
+ * Only one recording runs at a time, it stops on its own after {@link #MAX_DURATION}.
+ */
+public final class DiagnosticsCommand extends SlashCommandAdapter {
+    private static final Logger logger = LoggerFactory.getLogger(DiagnosticsCommand.class);
+    private static final String CONFIGURATION_NAME = "profile";
+    private static final Path RECORDINGS_DIRECTORY = Path.of("diagnostics");
+    private static final DateTimeFormatter FILE_NAME_FORMATTER =
+            DateTimeFormatter.ofPattern("yyyy-MM-dd_HH-mm-ss").withZone(ZoneOffset.UTC);
+    /**
+     * Limits the duration of a recording, in case it is not stopped.
+     */
+    private static final Duration MAX_DURATION = Duration.ofHours(1);
+
+    @Nullable
+    private Recording recording;
+
+    /**
+     * Creates a new instance.
+     */
+    public DiagnosticsCommand() {
+        super("diagnostics", "Records the bot with JDK Flight Recorder to analyze its performance",
+                SlashCommandVisibility.GUILD);
+
+        getData().addSubcommands(
+                new SubcommandData(Subcommand.START.name, "Starts a recording"),
+                new SubcommandData(Subcommand.STOP.name,
+                        "Stops the recording and dumps it to disk"),
+                new SubcommandData(Subcommand.STATUS.name, "Shows the state of the recording"));
+    }
+
+    @Override
+    public void onSlashCommand(@NotNull SlashCommandEvent event) {
+        Member member = Objects.requireNonNull(event.getMember());
+
+        if (!member.hasPermission(Permission.MANAGE_SERVER)) {
+            logger.debug(
+                    "Attempted diagnostics but is missing permissions, triggered by user '{}' in guild '{}'",
+                    member.getId(), event.getGuild());
+            reply(event, "You need the 'MANAGE_SERVER' permission to use this command.");
+            return;
+        }
+
+        Subcommand subcommand =
+                Subcommand.fromName(Objects.requireNonNull(event.getSubcommandName()));
+        String message = switch (subcommand) {
+            case START -> startRecording();
+            case STOP -> stopRecording();
+            case STATUS -> describeRecording();
+        };
+        reply(event, message);
+    }
+
+    private synchronized @NotNull String startRecording() {
+        if (isRecording()) {
+            return "A recording is already running, stop it first.";
+        }
+
+        Path destination = RECORDINGS_DIRECTORY
+            .resolve("tjbot-%s.jfr".formatted(FILE_NAME_FORMATTER.format(Instant.now())));
+        Recording newRecording = null;
+        try {
+            Files.createDirectories(RECORDINGS_DIRECTORY);
+            newRecording =
+                    new Recording(Configuration.getConfiguration(CONFIGURATION_NAME).getSettings());
+            newRecording.setName("tjbot-diagnostics");
+            newRecording.setToDisk(true);
+            newRecording.setDestination(destination);
+            newRecording.setDuration(MAX_DURATION);
+            newRecording.start();
+        } catch (IOException | ParseException | IllegalStateException | SecurityException e) {
+            logger.error("Failed to start a recording to '{}'", destination.toAbsolutePath(), e);
+            if (newRecording != null) {
+                newRecording.close();
+            }
+            return "Failed to start the recording: " + e.getMessage();
+        }
+
+        closeRecording();
+        recording = newRecording;
+        logger.info("Started a recording to '{}'", destination.toAbsolutePath());
+        return "Started the recording to `%s`, it stops on its own after %d minutes."
+            .formatted(destination.getFileName(), MAX_DURATION.toMinutes());
+    }
+
+    private synchronized @NotNull String stopRecording() {
+        if (recording == null) {
+            return "There is no recording, start one first.";
+        }
+
+        Path destination = Objects.requireNonNull(recording.getDestination()).toAbsolutePath();
+        try {
+            // Stopping writes the recording to its destination, a recording that reached its
+            // maximal duration was already written
+            if (recording.getState() == RecordingState.RUNNING) {
+                recording.stop();
+            }
+        } catch (IllegalStateException e) {
+            logger.error("Failed to stop the recording to '{}'", destination, e);
+            return "Failed to stop the recording: " + e.getMessage();
+        } finally {
+            closeRecording();
+        }
+
+        logger.info("Stopped the recording, dumped to '{}'", destination);
+        // Only the file name, the directory of the bot is none of the business of the guild
+        return "Stopped the recording, dumped to `%s`.".formatted(destination.getFileName());
+    }
+
+    private synchronized @NotNull String describeRecording() {
+        if (recording == null) {
+            return "There is no recording.";
+        }
+
+        return "The recording is %s, started at %s and dumped to `%s`.".formatted(
+                recording.getState().name().toLowerCase(Locale.ROOT), recording.getStartTime(),
+                Objects.requireNonNull(recording.getDestination()).getFileName());
+    }
+
+    private boolean isRecording() {
+        return recording != null && recording.getState() == RecordingState.RUNNING;
+    }
+
+    private void closeRecording() {
+        if (recording != null) {
+            recording.close();
+            recording = null;
+        }
+    }
+
+    private static void reply(@NotNull SlashCommandEvent event, @NotNull String message) {
+        event.reply(message).setEphemeral(true).queue();
+    }
+
+    enum Subcommand {
+        START("start"),
+        STOP("stop"),
+        STATUS("status");
+
+        private final String name;
+
+        Subcommand(@NotNull String name) {
+            this.name = name;
+        }
+
+        static Subcommand fromName(@NotNull String name) {
+            for (Subcommand subcommand : Subcommand.values()) {
+                if (subcommand.name.equals(name)) {
+                    return subcommand;
+                }
+            }
+            throw new IllegalArgumentException(
+                    "Subcommand with name '%s' is unknown".formatted(name));
+        }
+    }
+}
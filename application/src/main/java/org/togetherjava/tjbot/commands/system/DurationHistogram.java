@@ -0,0 +1,127 @@
+package org.togetherjava.tjbot.commands.system;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histogram of durations, for example how long the executions of a routine took.
+ * <p>
+ * Durations are counted in buckets of exponentially growing size, bucket {@code i} holding
+ * durations below {@code 2^i} milliseconds. Hence, recording is cheap and the memory is fixed,
+ * while percentiles are only known up to a factor of two, which is enough to tell a routine that
+ * takes seconds apart from one that takes minutes. The histogram is thread-safe.
+ */
+public final class DurationHistogram {
+    private static final int BUCKET_COUNT = 32;
+
+    private final LongAdder[] buckets = new LongAdder[BUCKET_COUNT];
+    private final LongAdder totalNanos = new LongAdder();
+    private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+
+    /**
+     * Creates a new empty histogram.
+     */
+    public DurationHistogram() {
+        Arrays.setAll(buckets, i -> new LongAdder());
+    }
+
+    /**
+     * Records the given duration.
+     *
+     * @param duration the duration to record, negative durations are recorded as zero
+     */
+    public void record(@NotNull Duration duration) {
+        long nanos = Math.max(0, duration.toNanos());
+        long millis = nanos / 1_000_000;
+
+        // Amount of bits needed for the millis, i.e. the first bucket whose bound is above them
+        int bucket = Math.min(Long.SIZE - Long.numberOfLeadingZeros(millis), BUCKET_COUNT - 1);
+        buckets[bucket].increment();
+        totalNanos.add(nanos);
+        maxNanos.accumulate(nanos);
+    }
+
+    /**
+     * Gets a snapshot of the durations recorded so far.
+     *
+     * @return the current snapshot
+     */
+    public @NotNull Snapshot snapshot() {
+        long[] bucketCounts = Arrays.stream(buckets).mapToLong(LongAdder::sum).toArray();
+        return new Snapshot(Arrays.stream(bucketCounts).sum(), Duration.ofNanos(totalNanos.sum()),
+                Duration.ofNanos(maxNanos.get()), bucketCounts);
+    }
+
+    /**
+     * Snapshot of the durations recorded by a histogram.
+     *
+     * @param count the amount of recorded durations
+     * @param total the sum of all recorded durations
+     * @param max the longest recorded duration
+     * @param bucketCounts the amount of durations per bucket, bucket {@code i} holding durations
+     *        below {@code 2^i} milliseconds
+     */
+    public record Snapshot(long count, @NotNull Duration total, @NotNull Duration max,
+            long @NotNull [] bucketCounts) {
+
+        /**
+         * Gets the average of the recorded durations.
+         *
+         * @return the average duration, zero if nothing has been recorded yet
+         */
+        public @NotNull Duration average() {
+            if (count == 0) {
+                return Duration.ZERO;
+            }
+            return total.dividedBy(count);
+        }
+
+        /**
+         * Estimates the given percentile of the recorded durations, as the upper bound of the
+         * bucket it falls into. The estimate never exceeds {@link #max()}.
+         *
+         * @param percentile the percentile to estimate, between 0 and 1, for example 0.95
+         * @return the estimated percentile, zero if nothing has been recorded yet
+         */
+        public @NotNull Duration percentile(double percentile) {
+            if (percentile < 0 || percentile > 1) {
+                throw new IllegalArgumentException(
+                        "Percentile must be between 0 and 1, but was " + percentile);
+            }
+
+            long rank = (long) Math.ceil(percentile * count);
+            long seen = 0;
+            for (int i = 0; i < bucketCounts.length; i++) {
+                seen += bucketCounts[i];
+                if (seen >= rank && seen > 0) {
+                    Duration bucketBound = Duration.ofMillis(1L << i);
+                    return bucketBound.compareTo(max) < 0 ? bucketBound : max;
+                }
+            }
+            return Duration.ZERO;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof Snapshot snapshot && count == snapshot.count
+                    && total.equals(snapshot.total) && max.equals(snapshot.max)
+                    && Arrays.equals(bucketCounts, snapshot.bucketCounts);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * Objects.hash(count, total, max) + Arrays.hashCode(bucketCounts);
+        }
+
+        @Override
+        public String toString() {
+            return "Snapshot[count=%d, average=%s, p50=%s, p95=%s, max=%s]".formatted(count,
+                    average(), percentile(0.5), percentile(0.95), max);
+        }
+    }
+}
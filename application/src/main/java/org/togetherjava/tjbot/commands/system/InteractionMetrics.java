@@ -0,0 +1,107 @@
+package org.togetherjava.tjbot.commands.system;
+
+import org.jetbrains.annotations.NotNull;
+import org.togetherjava.tjbot.metrics.MetricsRegistry;
+
+import java.time.Duration;
+import java.util.Locale;
+
+/**
+ * Records the metrics of interactions handled by {@link BotCore}, i.e. how often and how long
+ * commands handle slash commands, button clicks and selection menus, and how often interactions
+ * could not be handled at all.
+ * <p>
+ * Handled interactions are also emitted as {@link CommandEvent} to JDK Flight Recorder.
+ */
+final class InteractionMetrics {
+    private final MetricsRegistry metrics;
+
+    /**
+     * Creates a new instance.
+     *
+     * @param metrics the registry to record the metrics in
+     */
+    InteractionMetrics(@NotNull MetricsRegistry metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Runs the given handler of an interaction and records its outcome and duration.
+     *
+     * @param type the type of the interaction
+     * @param commandName the name of the command handling the interaction
+     * @param guildId the ID of the guild the interaction was triggered in, {@code 0} if none
+     * @param handler the handler to run, exceptions are recorded as failure and rethrown
+     */
+    void measure(@NotNull InteractionType type, @NotNull String commandName, long guildId,
+            @NotNull Runnable handler) {
+        CommandEvent event = new CommandEvent();
+        event.begin();
+        long start = System.nanoTime();
+        boolean isSuccessful = false;
+        try {
+            handler.run();
+            isSuccessful = true;
+        } finally {
+            Duration duration = Duration.ofNanos(System.nanoTime() - start);
+            event.finish(type, commandName, guildId, isSuccessful);
+
+            metrics
+                .counter("tjbot_interactions_total", "Interactions handled by commands", "type",
+                        type.label(), "command", commandName, "outcome",
+                        isSuccessful ? "success" : "failure")
+                .increment();
+            metrics
+                .timer("tjbot_interaction_duration_seconds",
+                        "Time commands took to handle interactions", "type", type.label(),
+                        "command", commandName)
+                .record(duration);
+        }
+    }
+
+    /**
+     * Records an interaction that could not be forwarded to a command.
+     *
+     * @param type the type of the interaction
+     * @param reason why it could not be forwarded
+     */
+    void recordUnhandled(@NotNull InteractionType type, @NotNull UnhandledReason reason) {
+        metrics
+            .counter("tjbot_interactions_unhandled_total",
+                    "Interactions that could not be forwarded to a command", "type", type.label(),
+                    "reason", reason.name().toLowerCase(Locale.ROOT))
+            .increment();
+    }
+
+    /**
+     * The types of interactions.
+     */
+    enum InteractionType {
+        SLASH_COMMAND,
+        BUTTON,
+        SELECTION_MENU;
+
+        @NotNull
+        String label() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    /**
+     * Reasons why an interaction could not be forwarded to a command.
+     */
+    enum UnhandledReason {
+        /**
+         * The command dispatcher was at its capacity.
+         */
+        REJECTED,
+        /**
+         * The component ID of the interaction has expired.
+         */
+        EXPIRED,
+        /**
+         * The component ID of the interaction was in an unexpected format.
+         */
+        INVALID_ID
+    }
+}
@@ -0,0 +1,90 @@
+package org.togetherjava.tjbot.commands.system;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import net.dv8tion.jda.api.entities.Member;
+import net.dv8tion.jda.api.entities.Role;
+import net.dv8tion.jda.api.events.message.guild.GuildMessageReceivedEvent;
+import net.dv8tion.jda.api.hooks.ListenerAdapter;
+import net.dv8tion.jda.api.utils.MemberCachePolicy;
+import org.jetbrains.annotations.NotNull;
+import org.togetherjava.tjbot.config.Config;
+import org.togetherjava.tjbot.config.JdaCacheProfile;
+
+import java.time.Duration;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+
+/**
+ * Member cache policy of {@link JdaCacheProfile#LEAN}, which only caches the members that the bot
+ * needs frequently.
+ * <p>
+ * Cached are the owner of a guild, members with a moderation role, members connected to a voice
+ * channel and members who recently wrote in a help channel. For the latter, this class has to be
+ * registered as event listener as well. A member is cached starting with the first event after
+ * their message, for example their next message.
+ * <p>
+ * Members that do not match the policy anymore, for example since their last help channel message
+ * is too old, stay cached until the member cache of their guild is pruned, see
+ * {@link net.dv8tion.jda.api.entities.Guild#pruneMemberCache()}.
+ */
+public final class LeanMemberCachePolicy extends ListenerAdapter implements MemberCachePolicy {
+    private final Predicate<String> isModerationRole;
+    private final Predicate<String> isHelpChannel;
+    private final MemberCachePolicy basePolicy;
+    /**
+     * Members who recently wrote in a help channel, expiring after the configured retention.
+     */
+    private final Cache<GuildMember, Boolean> recentParticipants;
+
+    /**
+     * Creates a new instance.
+     *
+     * @param config the config to use for this
+     */
+    public LeanMemberCachePolicy(@NotNull Config config) {
+        isModerationRole = Pattern.compile(config.getHeavyModerationRolePattern())
+            .asMatchPredicate()
+            .or(Pattern.compile(config.getSoftModerationRolePattern()).asMatchPredicate());
+        isHelpChannel = Pattern.compile(config.getHelpChannelPattern()).asMatchPredicate();
+        basePolicy = MemberCachePolicy.OWNER.or(MemberCachePolicy.VOICE);
+
+        recentParticipants = Caffeine.newBuilder()
+            .expireAfterWrite(
+                    Duration.ofMinutes(config.getJdaCache().getParticipantRetentionMinutes()))
+            .build();
+    }
+
+    @Override
+    public boolean cacheMember(@NotNull Member member) {
+        if (basePolicy.cacheMember(member)) {
+            return true;
+        }
+
+        if (recentParticipants.getIfPresent(GuildMember.of(member)) != null) {
+            return true;
+        }
+
+        return member.getRoles().stream().map(Role::getName).anyMatch(isModerationRole);
+    }
+
+    @Override
+    public void onGuildMessageReceived(@NotNull GuildMessageReceivedEvent event) {
+        if (event.getAuthor().isBot() || event.isWebhookMessage()) {
+            return;
+        }
+        if (!isHelpChannel.test(event.getChannel().getName())) {
+            return;
+        }
+
+        recentParticipants.put(
+                new GuildMember(event.getGuild().getIdLong(), event.getAuthor().getIdLong()),
+                Boolean.TRUE);
+    }
+
+    private record GuildMember(long guildId, long userId) {
+        static @NotNull GuildMember of(@NotNull Member member) {
+            return new GuildMember(member.getGuild().getIdLong(), member.getIdLong());
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package org.togetherjava.tjbot.commands.system;
+
+import net.dv8tion.jda.api.sharding.ShardManager;
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.togetherjava.tjbot.commands.Routine;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Routine that periodically logs the usage statistics of the message receivers, as maintained by
+ * the {@link MessageReceiverDispatcher}.
+ * <p>
+ * Events dropped since the last run are logged as warning. They indicate that a receiver can not
+ * keep up and that the queue capacity, as configured by
+ * {@link org.togetherjava.tjbot.config.MessageDispatchConfig}, should be increased.
+ */
+final class MessageDispatchStatisticsRoutine implements Routine {
+    private static final Logger logger =
+            LoggerFactory.getLogger(MessageDispatchStatisticsRoutine.class);
+
+    private final MessageReceiverDispatcher messageReceiverDispatcher;
+    private final Map<String, Long> receiverNameToLastDroppedEvents = new HashMap<>();
+
+    /**
+     * Creates a new instance.
+     *
+     * @param messageReceiverDispatcher the dispatcher to log the statistics of
+     */
+    MessageDispatchStatisticsRoutine(
+            @NotNull MessageReceiverDispatcher messageReceiverDispatcher) {
+        this.messageReceiverDispatcher = messageReceiverDispatcher;
+    }
+
+    @Override
+    public @NotNull Schedule createSchedule() {
+        return new Schedule(ScheduleMode.FIXED_RATE, 1, 1, TimeUnit.HOURS);
+    }
+
+    @Override
+    public void runRoutine(@NotNull ShardManager shardManager) {
+        for (MessageReceiverStatistics statistics : messageReceiverDispatcher.getStatistics()) {
+            long lastDroppedEvents = receiverNameToLastDroppedEvents
+                .getOrDefault(statistics.receiverName(), 0L);
+            long newDroppedEvents = statistics.droppedEvents() - lastDroppedEvents;
+            receiverNameToLastDroppedEvents.put(statistics.receiverName(),
+                    statistics.droppedEvents());
+
+            if (newDroppedEvents > 0) {
+                logger.warn(
+                        "{} events for message receiver '{}' were dropped during the last hour, consider increasing the queue capacity ({})",
+                        newDroppedEvents, statistics.receiverName(), statistics);
+                continue;
+            }
+            logger.debug("Message receiver statistics: {} (average lag {})", statistics,
+                    statistics.averageLag());
+        }
+    }
+}
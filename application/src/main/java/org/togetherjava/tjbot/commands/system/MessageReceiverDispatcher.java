@@ -0,0 +1,199 @@
+package org.togetherjava.tjbot.commands.system;
+
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.togetherjava.tjbot.commands.MessageReceiver;
+import org.togetherjava.tjbot.config.MessageDispatchConfig;
+import org.togetherjava.tjbot.config.MessageOverflowPolicy;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Forwards message events to {@link MessageReceiver}s off the event thread of JDA, so that slow
+ * receivers, for example ones writing to the database, do not stall the handling of other events.
+ * <p>
+ * Each receiver has its own thread and a bounded queue, hence it sees events in the order they
+ * arrived while receivers do not delay each other. If the queue of a receiver is full, the
+ * {@link MessageOverflowPolicy} decides whether the event thread waits or an event is dropped.
+ * <p>
+ * The lag between an event arriving and a receiver starting to handle it is measured, together
+ * with other usage statistics, see {@link #getStatistics()}.
+ * <p>
+ * On shutdown, see {@link #shutdown()}, events that are already queued are still handled, while
+ * further events are dropped.
+ */
+public final class MessageReceiverDispatcher {
+    private static final Logger logger = LoggerFactory.getLogger(MessageReceiverDispatcher.class);
+
+    private final int queueCapacity;
+    private final MessageOverflowPolicy overflowPolicy;
+    private final Map<MessageReceiver, Lane> receiverToLane = new ConcurrentHashMap<>();
+    private volatile boolean isShutdown;
+
+    /**
+     * Creates a new dispatcher.
+     *
+     * @param config the configuration of the dispatcher
+     */
+    public MessageReceiverDispatcher(@NotNull MessageDispatchConfig config) {
+        queueCapacity = config.getQueueCapacity();
+        overflowPolicy = config.getOverflowPolicy();
+    }
+
+    /**
+     * Dispatches the handling of an event to the given receiver. Returns once the event has been
+     * queued or dropped, depending on the {@link MessageOverflowPolicy}.
+     *
+     * @param receiver the receiver to handle the event
+     * @param handler the action handling the event, for example
+     *        {@code () -> receiver.onMessageReceived(event)}
+     */
+    public void dispatch(@NotNull MessageReceiver receiver, @NotNull Runnable handler) {
+        if (isShutdown) {
+            logger.debug("Dropped an event for message receiver '{}' since it has been shut down",
+                    nameOf(receiver));
+            return;
+        }
+        receiverToLane.computeIfAbsent(receiver, Lane::new).dispatch(handler);
+    }
+
+    /**
+     * Stops accepting events. Events that are already queued are still handled, see
+     * {@link #awaitTermination(Duration)} to wait for them.
+     */
+    public void shutdown() {
+        isShutdown = true;
+        receiverToLane.values().forEach(lane -> lane.executor.shutdown());
+    }
+
+    /**
+     * Waits for all queued events to be handled after {@link #shutdown()}.
+     *
+     * @param timeout the maximal time to wait for, in total
+     * @return whether all events have been handled, {@code false} if the timeout elapsed first
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public boolean awaitTermination(@NotNull Duration timeout) throws InterruptedException {
+        long deadlineNanos = System.nanoTime() + timeout.toNanos();
+        for (Lane lane : receiverToLane.values()) {
+            if (!lane.executor.awaitTermination(deadlineNanos - System.nanoTime(),
+                    TimeUnit.NANOSECONDS)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Gets a snapshot of the usage statistics of all receivers that events have been dispatched to.
+     *
+     * @return the current statistics, one per receiver
+     */
+    public @NotNull List<MessageReceiverStatistics> getStatistics() {
+        return receiverToLane.values().stream().map(Lane::getStatistics).toList();
+    }
+
+    private static @NotNull String nameOf(@NotNull MessageReceiver receiver) {
+        String name = receiver.getClass().getSimpleName();
+        return name.isEmpty() ? receiver.getClass().getName() : name;
+    }
+
+    /**
+     * The queue and thread of a single receiver.
+     */
+    private final class Lane {
+        private final String receiverName;
+        private final ThreadPoolExecutor executor;
+
+        private final LongAdder handledEvents = new LongAdder();
+        private final LongAdder droppedEvents = new LongAdder();
+        private final LongAdder totalLagNanos = new LongAdder();
+        private final LongAccumulator maxLagNanos = new LongAccumulator(Math::max, 0);
+        private final LongAdder blockedNanos = new LongAdder();
+
+        Lane(@NotNull MessageReceiver receiver) {
+            receiverName = nameOf(receiver);
+
+            ThreadFactory threadFactory = runnable -> {
+                Thread thread = new Thread(runnable, "message-receiver-" + receiverName);
+                thread.setDaemon(true);
+                return thread;
+            };
+            executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(queueCapacity), threadFactory, this::onOverflow);
+        }
+
+        void dispatch(@NotNull Runnable handler) {
+            long arrivedAt = System.nanoTime();
+
+            executor.execute(() -> {
+                long lagNanos = System.nanoTime() - arrivedAt;
+                totalLagNanos.add(lagNanos);
+                maxLagNanos.accumulate(lagNanos);
+
+                try {
+                    handler.run();
+                } catch (Exception e) {
+                    logger.error("Unknown error in message receiver '{}' while handling an event",
+                            receiverName, e);
+                } finally {
+                    handledEvents.increment();
+                }
+            });
+        }
+
+        private void onOverflow(@NotNull Runnable event, @NotNull ThreadPoolExecutor full) {
+            if (full.isShutdown()) {
+                // Dispatched while shutting down, the queue does not accept events anymore
+                droppedEvents.increment();
+                logger.debug(
+                        "Dropped an event for message receiver '{}' since it has been shut down",
+                        receiverName);
+                return;
+            }
+
+            switch (overflowPolicy) {
+                case BLOCK -> {
+                    long blockedSince = System.nanoTime();
+                    try {
+                        full.getQueue().put(event);
+                    } catch (InterruptedException e) {
+                        drop();
+                        Thread.currentThread().interrupt();
+                    } finally {
+                        blockedNanos.add(System.nanoTime() - blockedSince);
+                    }
+                }
+                case DROP_NEWEST -> drop();
+                case DROP_OLDEST -> {
+                    if (full.getQueue().poll() != null) {
+                        drop();
+                    }
+                    full.execute(event);
+                }
+                default -> throw new AssertionError("Unsupported overflow policy");
+            }
+        }
+
+        private void drop() {
+            droppedEvents.increment();
+            // Not logged as warning to not flood the log under load, see
+            // MessageDispatchStatisticsRoutine instead
+            logger.debug("Dropped an event for message receiver '{}' since its queue is full",
+                    receiverName);
+        }
+
+        @NotNull
+        MessageReceiverStatistics getStatistics() {
+            return new MessageReceiverStatistics(receiverName, executor.getQueue().size(),
+                    handledEvents.sum(), droppedEvents.sum(), Duration.ofNanos(totalLagNanos.sum()),
+                    Duration.ofNanos(maxLagNanos.get()), Duration.ofNanos(blockedNanos.sum()));
+        }
+    }
+}
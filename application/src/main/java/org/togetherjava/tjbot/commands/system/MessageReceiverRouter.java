@@ -0,0 +1,88 @@
+package org.togetherjava.tjbot.commands.system;
+
+import org.jetbrains.annotations.NotNull;
+import org.togetherjava.tjbot.commands.MessageReceiver;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Routes messages to the {@link MessageReceiver}s that are subscribed to the channel they have
+ * been sent in, based on {@link MessageReceiver#getChannelNamePattern()}.
+ * <p>
+ * The receivers of a channel are computed once and then cached by the ID of the channel, so that
+ * routing a message is a single look-up. Entries remember the channel name they were computed for
+ * and are recomputed if it changed, callers should additionally {@link #invalidate(long)} channels
+ * that are renamed, created or deleted to free their entries.
+ * <p>
+ * Used by {@link BotCore} to forward message events. The router is thread-safe.
+ */
+public final class MessageReceiverRouter {
+    private final List<MessageReceiver> messageReceivers;
+    private final Map<Long, Route> channelIdToRoute = new ConcurrentHashMap<>();
+
+    /**
+     * Creates a new router.
+     *
+     * @param messageReceivers the receivers to route messages to
+     */
+    public MessageReceiverRouter(@NotNull Collection<? extends MessageReceiver> messageReceivers) {
+        this.messageReceivers = List.copyOf(messageReceivers);
+    }
+
+    /**
+     * Gets all receivers that are subscribed to the given channel, using the cache.
+     *
+     * @param channelId the ID of the channel
+     * @param channelName the current name of the channel
+     * @return all receivers whose channel name pattern matches the name of the channel
+     */
+    public @NotNull List<MessageReceiver> getReceiversSubscribedTo(long channelId,
+            @NotNull String channelName) {
+        Route route = channelIdToRoute.get(channelId);
+        if (route != null && route.channelName().equals(channelName)) {
+            return route.messageReceivers();
+        }
+
+        route = new Route(channelName, getReceiversSubscribedTo(channelName));
+        channelIdToRoute.put(channelId, route);
+        return route.messageReceivers();
+    }
+
+    /**
+     * Gets all receivers that are subscribed to the channel with the given name, matching the
+     * patterns of all receivers without using the cache.
+     *
+     * @param channelName the name of the channel
+     * @return all receivers whose channel name pattern matches the given name
+     */
+    public @NotNull List<MessageReceiver> getReceiversSubscribedTo(@NotNull String channelName) {
+        return messageReceivers.stream()
+            .filter(messageReceiver -> messageReceiver.getChannelNamePattern()
+                .matcher(channelName)
+                .matches())
+            .toList();
+    }
+
+    /**
+     * Removes the cached receivers of the given channel, for example because it was renamed or
+     * deleted.
+     *
+     * @param channelId the ID of the channel
+     */
+    public void invalidate(long channelId) {
+        channelIdToRoute.remove(channelId);
+    }
+
+    /**
+     * The receivers subscribed to a channel, computed for the given channel name.
+     *
+     * @param channelName the name of the channel the receivers have been computed for
+     * @param messageReceivers the receivers subscribed to the channel
+     */
+    private record Route(@NotNull String channelName,
+            @NotNull List<MessageReceiver> messageReceivers) {
+    }
+}
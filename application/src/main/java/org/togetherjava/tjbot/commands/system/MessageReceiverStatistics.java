@@ -0,0 +1,36 @@
+package org.togetherjava.tjbot.commands.system;
+
+import java.time.Duration;
+
+/**
+ * Snapshot of the usage statistics of a single message receiver, as maintained by
+ * {@link MessageReceiverDispatcher}. Can be used to detect receivers that can not keep up with the
+ * incoming events.
+ *
+ * @param receiverName the name of the receiver
+ * @param queuedEvents the amount of events waiting for the receiver at the time the snapshot was
+ *        taken
+ * @param handledEvents the total amount of events the receiver has handled
+ * @param droppedEvents the total amount of events that have been dropped, since the queue of the
+ *        receiver was full
+ * @param totalLag the accumulated time events waited between arriving and being handled by the
+ *        receiver, over all handled events
+ * @param maxLag the longest time a single event waited before being handled
+ * @param blockedTime the accumulated time the event thread had to wait for the receiver to make
+ *        space in its queue
+ */
+public record MessageReceiverStatistics(String receiverName, int queuedEvents, long handledEvents,
+        long droppedEvents, Duration totalLag, Duration maxLag, Duration blockedTime) {
+
+    /**
+     * Gets the average time an event waited between arriving and being handled by the receiver.
+     *
+     * @return the average lag, zero if no events have been handled yet
+     */
+    public Duration averageLag() {
+        if (handledEvents == 0) {
+            return Duration.ZERO;
+        }
+        return totalLag.dividedBy(handledEvents);
+    }
+}
@@ -10,6 +10,8 @@ import net.dv8tion.jda.api.interactions.components.Button;
 import net.dv8tion.jda.api.interactions.components.ButtonStyle;
 import net.dv8tion.jda.api.requests.RestAction;
 import net.dv8tion.jda.api.requests.restaction.CommandListUpdateAction;
+import net.dv8tion.jda.api.sharding.ShardManager;
+import net.dv8tion.jda.api.utils.cache.SnowflakeCacheView;
 import org.jetbrains.annotations.NotNull;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -150,6 +152,10 @@ public final class ReloadCommand extends SlashCommandAdapter {
 
     private static @NotNull Stream<CommandListUpdateAction> getGuildUpdateActions(
             @NotNull JDA jda) {
-        return jda.getGuildCache().stream().map(Guild::updateCommands);
+        // The guilds of all shards of this process, not only of the shard the command was used in
+        ShardManager shardManager = jda.getShardManager();
+        SnowflakeCacheView<Guild> guilds =
+                shardManager == null ? jda.getGuildCache() : shardManager.getGuildCache();
+        return guilds.stream().map(Guild::updateCommands);
     }
 }
@@ -0,0 +1,53 @@
+package org.togetherjava.tjbot.commands.system;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * JDK Flight Recorder event of an execution of a routine, as scheduled by
+ * {@link RoutineScheduler}. The duration of the event covers the execution.
+ * <p>
+ * The event is only committed while a recording is running, otherwise it is nearly free. See
+ * {@link DiagnosticsCommand} to start a recording.
+ */
+@Name("org.togetherjava.tjbot.Routine")
+@Label("Routine")
+@Category({"TJ-Bot", "Routines"})
+@Description("An execution of a routine")
+final class RoutineEvent extends Event {
+    @Label("Routine Name")
+    private String routineName;
+
+    @Label("Lag")
+    @Description("Time the execution started later than planned")
+    @Timespan
+    private long lag;
+
+    @Label("Successful")
+    @Description("Whether the execution completed without throwing an exception")
+    private boolean successful;
+
+    /**
+     * Ends the event and commits it, if it is recorded.
+     *
+     * @param name the name of the routine
+     * @param lagNanos the time the execution started later than planned, in nanoseconds
+     * @param isSuccessful whether the execution completed without throwing an exception
+     */
+    void finish(@NotNull String name, long lagNanos, boolean isSuccessful) {
+        end();
+        if (!shouldCommit()) {
+            return;
+        }
+
+        routineName = name;
+        lag = lagNanos;
+        successful = isSuccessful;
+        commit();
+    }
+}
@@ -0,0 +1,233 @@
+package org.togetherjava.tjbot.commands.system;
+
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.togetherjava.tjbot.commands.Routine;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Executes routines on their {@link Routine.Schedule}.
+ * <p>
+ * Each execution is scheduled individually once the time of the next one is known, so that
+ * fixed-rate, fixed-delay and wall-clock (cron) schedules, as well as jitter, are all handled the
+ * same way. Executions of a routine never overlap, an execution that is due while the previous one
+ * is still running is skipped. Exceptions thrown by a routine are logged and do not cancel its
+ * schedule.
+ * <p>
+ * For each routine, the durations of its executions and their lag, i.e. how much later than
+ * planned they started, are recorded and can be queried via {@link #getStatistics()}. Each
+ * execution is also emitted as {@link RoutineEvent} to JDK Flight Recorder.
+ */
+public final class RoutineScheduler {
+    private static final Logger logger = LoggerFactory.getLogger(RoutineScheduler.class);
+
+    private final ScheduledExecutorService service;
+    private final Clock clock;
+    private final Map<String, ScheduledRoutine> nameToScheduledRoutine =
+            new ConcurrentSkipListMap<>();
+
+    /**
+     * Creates a new scheduler.
+     *
+     * @param poolSize the amount of threads executing routines, i.e. the maximal amount of
+     *        routines running at the same time
+     */
+    public RoutineScheduler(int poolSize) {
+        this(poolSize, Clock.systemUTC());
+    }
+
+    /**
+     * Creates a new scheduler that uses the given clock for wall-clock schedules.
+     *
+     * @param poolSize the amount of threads executing routines
+     * @param clock the clock to compute the times of {@link Routine.ScheduleMode#CRON} schedules
+     *        with
+     */
+    RoutineScheduler(int poolSize, @NotNull Clock clock) {
+        this.clock = clock;
+
+        AtomicInteger threadCount = new AtomicInteger();
+        ThreadFactory threadFactory = runnable -> new Thread(runnable,
+                "routine-scheduler-" + threadCount.incrementAndGet());
+        service = Executors.newScheduledThreadPool(poolSize, threadFactory);
+    }
+
+    /**
+     * Schedules the given action for reoccurring execution.
+     *
+     * @param name the name of the routine, used for logging and statistics, must be unique
+     * @param schedule the schedule to execute the action on
+     * @param action the action to execute, for example
+     *        {@code () -> routine.runRoutine(shardManager)}
+     * @throws IllegalArgumentException if a routine with the given name is already scheduled
+     */
+    public void schedule(@NotNull String name, @NotNull Routine.Schedule schedule,
+            @NotNull Runnable action) {
+        ScheduledRoutine scheduledRoutine = new ScheduledRoutine(name, schedule, action);
+        if (nameToScheduledRoutine.putIfAbsent(name, scheduledRoutine) != null) {
+            throw new IllegalArgumentException(
+                    "A routine with the name '%s' is already scheduled".formatted(name));
+        }
+        scheduledRoutine.scheduleFirst();
+    }
+
+    /**
+     * Gets a snapshot of the statistics of all scheduled routines.
+     *
+     * @return the current statistics, one per routine, ordered by the name of the routine
+     */
+    public @NotNull List<RoutineStatistics> getStatistics() {
+        return nameToScheduledRoutine.values()
+            .stream()
+            .map(ScheduledRoutine::getStatistics)
+            .toList();
+    }
+
+    /**
+     * Gets a snapshot of the statistics of the given routine.
+     *
+     * @param name the name of the routine
+     * @return the current statistics of the routine, empty if no routine with the given name is
+     *         scheduled
+     */
+    public @NotNull Optional<RoutineStatistics> getStatistics(@NotNull String name) {
+        return Optional.ofNullable(nameToScheduledRoutine.get(name))
+            .map(ScheduledRoutine::getStatistics);
+    }
+
+    /**
+     * Stops scheduling routines. Routines that are currently running are not interrupted.
+     */
+    public void shutdown() {
+        service.shutdown();
+    }
+
+    /**
+     * A routine and the state of its schedule.
+     */
+    private final class ScheduledRoutine {
+        private final String name;
+        private final Routine.Schedule schedule;
+        private final Runnable action;
+        private final long periodNanos;
+
+        private final AtomicBoolean isRunning = new AtomicBoolean();
+        private final LongAdder failedRuns = new LongAdder();
+        private final LongAdder skippedRuns = new LongAdder();
+        private final DurationHistogram durations = new DurationHistogram();
+        private final DurationHistogram lags = new DurationHistogram();
+        /**
+         * The time of the last scheduled execution of a {@link Routine.ScheduleMode#CRON}
+         * schedule, so that an execution starting slightly early by the clock is not scheduled
+         * for the same time again.
+         */
+        private ZonedDateTime lastCronTime;
+
+        ScheduledRoutine(@NotNull String name, @NotNull Routine.Schedule schedule,
+                @NotNull Runnable action) {
+            this.name = name;
+            this.schedule = schedule;
+            this.action = action;
+            periodNanos = schedule.unit().toNanos(schedule.duration());
+        }
+
+        void scheduleFirst() {
+            switch (schedule.mode()) {
+                case FIXED_RATE, FIXED_DELAY -> scheduleAt(
+                        System.nanoTime() + schedule.unit().toNanos(schedule.initialDuration()));
+                case CRON -> scheduleAtNextCronTime();
+                default -> throw new AssertionError("Unsupported schedule mode");
+            }
+        }
+
+        /**
+         * Schedules the next execution for the given planned time, as given by
+         * {@link System#nanoTime()}, plus jitter.
+         */
+        private void scheduleAt(long plannedNanos) {
+            long jitterNanos = schedule.jitter().isZero() ? 0
+                    : ThreadLocalRandom.current().nextLong(schedule.jitter().toNanos() + 1);
+            long dueNanos = plannedNanos + jitterNanos;
+
+            try {
+                service.schedule(() -> run(plannedNanos, dueNanos), dueNanos - System.nanoTime(),
+                        TimeUnit.NANOSECONDS);
+            } catch (RejectedExecutionException e) {
+                logger.debug("Routine '{}' is not scheduled anymore, the scheduler was shut down",
+                        name);
+            }
+        }
+
+        private void scheduleAtNextCronTime() {
+            ZonedDateTime now = ZonedDateTime.now(clock.withZone(schedule.zone()));
+            ZonedDateTime searchFrom =
+                    lastCronTime != null && lastCronTime.isAfter(now) ? lastCronTime : now;
+            ZonedDateTime next =
+                    Objects.requireNonNull(schedule.cronExpression()).nextAfter(searchFrom);
+            lastCronTime = next;
+
+            scheduleAt(System.nanoTime() + Duration.between(now, next).toNanos());
+        }
+
+        private void run(long plannedNanos, long dueNanos) {
+            // Schedule the next execution right away, so that a long execution does not shift
+            // the schedule. Skipped below in case it catches up with this execution.
+            switch (schedule.mode()) {
+                case FIXED_RATE -> scheduleAt(plannedNanos + periodNanos);
+                case CRON -> scheduleAtNextCronTime();
+                case FIXED_DELAY -> {
+                    // Scheduled after the execution
+                }
+                default -> throw new AssertionError("Unsupported schedule mode");
+            }
+
+            if (!isRunning.compareAndSet(false, true)) {
+                skippedRuns.increment();
+                logger.warn("Skipped an execution of routine '{}' since it is still running",
+                        name);
+                return;
+            }
+
+            RoutineEvent event = new RoutineEvent();
+            event.begin();
+            long startNanos = System.nanoTime();
+            long lagNanos = startNanos - dueNanos;
+            lags.record(Duration.ofNanos(lagNanos));
+            boolean isSuccessful = false;
+            try {
+                action.run();
+                isSuccessful = true;
+            } catch (Exception e) {
+                failedRuns.increment();
+                logger.error("Unknown error during the execution of routine '{}'", name, e);
+            } finally {
+                event.finish(name, lagNanos, isSuccessful);
+                long endNanos = System.nanoTime();
+                durations.record(Duration.ofNanos(endNanos - startNanos));
+                isRunning.set(false);
+
+                if (schedule.mode() == Routine.ScheduleMode.FIXED_DELAY) {
+                    scheduleAt(endNanos + periodNanos);
+                }
+            }
+        }
+
+        @NotNull
+        RoutineStatistics getStatistics() {
+            return new RoutineStatistics(name, schedule.mode(), isRunning.get(),
+                    failedRuns.sum(), skippedRuns.sum(), durations.snapshot(), lags.snapshot());
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package org.togetherjava.tjbot.commands.system;
+
+import org.togetherjava.tjbot.commands.Routine;
+
+/**
+ * Snapshot of the statistics of a single routine, as maintained by {@link RoutineScheduler}.
+ *
+ * @param routineName the name of the routine
+ * @param mode the mode of the schedule of the routine
+ * @param isRunning whether the routine was running at the time the snapshot was taken
+ * @param failedRuns the total amount of executions that threw an exception
+ * @param skippedRuns the total amount of executions that were skipped, since the previous
+ *        execution was still running
+ * @param durations how long the executions took, the count of this histogram is the total amount
+ *        of executions
+ * @param lags how much later than planned the executions started, not counting jitter
+ */
+public record RoutineStatistics(String routineName, Routine.ScheduleMode mode, boolean isRunning,
+        long failedRuns, long skippedRuns, DurationHistogram.Snapshot durations,
+        DurationHistogram.Snapshot lags) {
+}
@@ -0,0 +1,251 @@
+package org.togetherjava.tjbot.commands.tophelper;
+
+import org.jetbrains.annotations.NotNull;
+import org.jooq.DSLContext;
+import org.jooq.InsertValuesStep5;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.togetherjava.tjbot.db.Database;
+import org.togetherjava.tjbot.db.generated.tables.records.HelpChannelMessagesRecord;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+import static org.togetherjava.tjbot.db.generated.tables.HelpChannelMessages.HELP_CHANNEL_MESSAGES;
+import static org.togetherjava.tjbot.db.generated.tables.HelpMessageDailyCounts.HELP_MESSAGE_DAILY_COUNTS;
+
+/**
+ * Write-behind buffer for the help messages recorded by {@link TopHelpersMessageListener}.
+ * <p>
+ * Instead of inserting each message on its own, messages are buffered in memory and written to the
+ * database in multi-row inserts, all within a single asynchronous write, see
+ * {@link Database#writeAsync(org.togetherjava.tjbot.db.util.CheckedConsumer)}. The buffer is
+ * flushed once it holds a batch worth of messages, or whenever {@link #flush()} is called.
+ * <p>
+ * Together with the messages, their daily counts per author are incremented in the same
+ * transaction. Messages that are already recorded are skipped, so that they are not counted twice.
+ * <p>
+ * The buffer is bounded. At most one flush is written at a time, messages arriving in the meantime
+ * stay in the buffer. If the database can not keep up and the buffer is full, further messages are
+ * dropped rather than exhausting the memory. They only affect the top-helper statistics.
+ * <p>
+ * The buffer is thread-safe.
+ */
+final class HelpMessageBuffer {
+    private static final Logger logger = LoggerFactory.getLogger(HelpMessageBuffer.class);
+
+    private final Database database;
+    private final int batchSize;
+    private final BlockingQueue<HelpMessage> messages;
+    private final AtomicBoolean isFlushing = new AtomicBoolean();
+    private final AtomicLong droppedMessages = new AtomicLong();
+    private final AtomicLong unreportedDroppedMessages = new AtomicLong();
+    private volatile boolean isClosed;
+
+    /**
+     * Creates a new, empty buffer.
+     *
+     * @param database the database to write the messages to
+     * @param capacity the maximal amount of messages held in memory, further messages are dropped
+     * @param batchSize the amount of messages that triggers a flush, also the maximal amount of
+     *        rows inserted by a single statement
+     */
+    HelpMessageBuffer(@NotNull Database database, int capacity, int batchSize) {
+        if (batchSize <= 0 || capacity < batchSize) {
+            throw new IllegalArgumentException(
+                    "The batch size must be positive and must not exceed the capacity, but was %d with a capacity of %d"
+                        .formatted(batchSize, capacity));
+        }
+
+        this.database = database;
+        this.batchSize = batchSize;
+        messages = new ArrayBlockingQueue<>(capacity);
+    }
+
+    /**
+     * Adds the given message to the buffer, flushing it if it holds a batch worth of messages.
+     *
+     * @param messageId the id of the message
+     * @param guildId the id of the guild the message was sent in
+     * @param channelId the id of the channel the message was sent in
+     * @param authorId the id of the author of the message
+     * @param sentAt the time the message was sent at
+     */
+    void add(long messageId, long guildId, long channelId, long authorId,
+            @NotNull Instant sentAt) {
+        if (isClosed) {
+            logger.debug("Dropped help message '{}' since recording has been stopped", messageId);
+            return;
+        }
+
+        if (!messages.offer(new HelpMessage(messageId, guildId, channelId, authorId, sentAt))) {
+            droppedMessages.incrementAndGet();
+            unreportedDroppedMessages.incrementAndGet();
+            return;
+        }
+
+        if (messages.size() >= batchSize) {
+            flush();
+        }
+    }
+
+    /**
+     * Writes all buffered messages to the database, asynchronously. Does nothing if the previous
+     * flush has not been written yet, the messages are picked up by a later flush instead.
+     */
+    void flush() {
+        reportDroppedMessages();
+
+        if (!isFlushing.compareAndSet(false, true)) {
+            return;
+        }
+
+        List<HelpMessage> batch = drain();
+        if (batch.isEmpty()) {
+            isFlushing.set(false);
+            return;
+        }
+
+        write(batch).whenComplete((result, failure) -> isFlushing.set(false));
+    }
+
+    /**
+     * Stops buffering messages and writes all buffered messages to the database, asynchronously.
+     * Closing the database afterwards waits for the write to complete.
+     */
+    void close() {
+        isClosed = true;
+        reportDroppedMessages();
+
+        List<HelpMessage> batch = drain();
+        if (!batch.isEmpty()) {
+            write(batch);
+        }
+    }
+
+    /**
+     * Gets the total amount of messages that were dropped since the buffer was full.
+     *
+     * @return the amount of dropped messages
+     */
+    long getDroppedMessages() {
+        return droppedMessages.get();
+    }
+
+    private @NotNull List<HelpMessage> drain() {
+        List<HelpMessage> batch = new ArrayList<>(messages.size());
+        messages.drainTo(batch);
+        return batch;
+    }
+
+    private @NotNull CompletableFuture<Void> write(@NotNull List<HelpMessage> batch) {
+        try {
+            return database.writeAsync(context -> insertMessages(context, batch))
+                .whenComplete((result, failure) -> {
+                    if (failure != null) {
+                        logger.error("Failed to write {} help messages", batch.size(), failure);
+                    }
+                });
+        } catch (IllegalStateException e) {
+            logger.warn("Unable to write {} help messages, the database has been closed",
+                    batch.size(), e);
+            return CompletableFuture.completedFuture(null);
+        }
+    }
+
+    private void insertMessages(@NotNull DSLContext context, @NotNull List<HelpMessage> batch) {
+        for (int from = 0; from < batch.size(); from += batchSize) {
+            List<HelpMessage> chunk = batch.subList(from, Math.min(from + batchSize, batch.size()));
+
+            List<HelpMessage> newMessages = withoutRecordedMessages(context, chunk);
+            if (newMessages.isEmpty()) {
+                continue;
+            }
+
+            InsertValuesStep5<HelpChannelMessagesRecord, Long, Long, Long, Long, Instant> insert =
+                    context.insertInto(HELP_CHANNEL_MESSAGES, HELP_CHANNEL_MESSAGES.MESSAGE_ID,
+                            HELP_CHANNEL_MESSAGES.GUILD_ID, HELP_CHANNEL_MESSAGES.CHANNEL_ID,
+                            HELP_CHANNEL_MESSAGES.AUTHOR_ID, HELP_CHANNEL_MESSAGES.SENT_AT);
+            for (HelpMessage message : newMessages) {
+                insert = insert.values(message.messageId(), message.guildId(),
+                        message.channelId(), message.authorId(), message.sentAt());
+            }
+            insert.execute();
+
+            incrementDailyCounts(context, newMessages);
+        }
+    }
+
+    /**
+     * Filters out messages that are already recorded or appear multiple times, so that they are
+     * not counted twice.
+     */
+    private static @NotNull List<HelpMessage> withoutRecordedMessages(@NotNull DSLContext context,
+            @NotNull List<HelpMessage> messages) {
+        Set<Long> messageIds = messages.stream()
+            .map(HelpMessage::messageId)
+            .collect(Collectors.toCollection(HashSet::new));
+        Set<Long> seenMessageIds = new HashSet<>(context.select(HELP_CHANNEL_MESSAGES.MESSAGE_ID)
+            .from(HELP_CHANNEL_MESSAGES)
+            .where(HELP_CHANNEL_MESSAGES.MESSAGE_ID.in(messageIds))
+            .fetch(HELP_CHANNEL_MESSAGES.MESSAGE_ID));
+
+        return messages.stream()
+            .filter(message -> seenMessageIds.add(message.messageId()))
+            .toList();
+    }
+
+    private static void incrementDailyCounts(@NotNull DSLContext context,
+            @NotNull Collection<HelpMessage> messages) {
+        Map<DailyCountKey, Integer> keyToCount = messages.stream()
+            .collect(Collectors.toMap(DailyCountKey::of, message -> 1, Integer::sum));
+
+        keyToCount.forEach((key, count) -> context
+            .insertInto(HELP_MESSAGE_DAILY_COUNTS, HELP_MESSAGE_DAILY_COUNTS.GUILD_ID,
+                    HELP_MESSAGE_DAILY_COUNTS.DAY, HELP_MESSAGE_DAILY_COUNTS.AUTHOR_ID,
+                    HELP_MESSAGE_DAILY_COUNTS.MESSAGE_COUNT)
+            .values(key.guildId(), key.day(), key.authorId(), count)
+            .onConflict(HELP_MESSAGE_DAILY_COUNTS.GUILD_ID, HELP_MESSAGE_DAILY_COUNTS.DAY,
+                    HELP_MESSAGE_DAILY_COUNTS.AUTHOR_ID)
+            .doUpdate()
+            .set(HELP_MESSAGE_DAILY_COUNTS.MESSAGE_COUNT,
+                    HELP_MESSAGE_DAILY_COUNTS.MESSAGE_COUNT.plus(count))
+            .execute());
+    }
+
+    private void reportDroppedMessages() {
+        long dropped = unreportedDroppedMessages.getAndSet(0);
+        if (dropped > 0) {
+            logger.warn(
+                    "Dropped {} help messages since the buffer was full, the database does not keep up",
+                    dropped);
+        }
+    }
+
+    private record HelpMessage(long messageId, long guildId, long channelId, long authorId,
+            @NotNull Instant sentAt) {
+    }
+
+    /**
+     * Identifies a row of the daily message counts, days are in UTC.
+     */
+    private record DailyCountKey(long guildId, @NotNull LocalDate day, long authorId) {
+        static @NotNull DailyCountKey of(@NotNull HelpMessage message) {
+            return new DailyCountKey(message.guildId(),
+                    LocalDate.ofInstant(message.sentAt(), ZoneOffset.UTC), message.authorId());
+        }
+    }
+}
@@ -1,5 +1,7 @@
 package org.togetherjava.tjbot.commands.tophelper;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import com.github.freva.asciitable.AsciiTable;
 import com.github.freva.asciitable.Column;
 import com.github.freva.asciitable.ColumnData;
@@ -10,58 +12,80 @@ import net.dv8tion.jda.api.events.interaction.SlashCommandEvent;
 import net.dv8tion.jda.api.interactions.Interaction;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
+import org.jooq.Field;
 import org.jooq.Records;
 import org.jooq.impl.DSL;
+import org.jooq.impl.SQLDataType;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.togetherjava.tjbot.commands.SlashCommandAdapter;
 import org.togetherjava.tjbot.commands.SlashCommandVisibility;
+import org.togetherjava.tjbot.commands.utils.MemberNameCache;
 import org.togetherjava.tjbot.config.Config;
 import org.togetherjava.tjbot.db.Database;
 
-import java.time.Instant;
+import java.time.Duration;
+import java.time.LocalDate;
 import java.time.ZoneOffset;
-import java.time.ZonedDateTime;
 import java.time.format.TextStyle;
 import java.time.temporal.TemporalAdjusters;
 import java.util.Collection;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
-import java.util.function.Function;
+import java.util.concurrent.CompletableFuture;
 import java.util.function.IntFunction;
 import java.util.function.Predicate;
 import java.util.regex.Pattern;
-import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
-import static org.togetherjava.tjbot.db.generated.tables.HelpChannelMessages.HELP_CHANNEL_MESSAGES;
+import static org.togetherjava.tjbot.db.generated.tables.HelpMessageDailyCounts.HELP_MESSAGE_DAILY_COUNTS;
 
 /**
  * Command that displays the top helpers of a given time range.
  * <p>
  * Top helpers are measured by their message count in help channels, as set by
- * {@link TopHelpersMessageListener}.
+ * {@link TopHelpersMessageListener}. The counts are read from daily aggregates, which are
+ * incremented whenever a message is recorded, so a time range only sums up one row per author and
+ * day.
  */
 public final class TopHelpersCommand extends SlashCommandAdapter {
     private static final Logger logger = LoggerFactory.getLogger(TopHelpersCommand.class);
     private static final String COMMAND_NAME = "top-helpers";
     private static final int TOP_HELPER_LIMIT = 20;
+    /**
+     * Time ranges that ended are not supposed to change anymore, the expiration only picks up
+     * messages that were recorded late.
+     */
+    private static final Duration LEADERBOARD_RETENTION = Duration.ofHours(1);
+    private static final int MAX_CACHED_LEADERBOARDS = 1_000;
 
     private final Database database;
+    private final MemberNameCache memberNames;
     private final Predicate<String> hasRequiredRole;
+    /**
+     * Computed top helpers by guild and time range. A new time range, for example once a new month
+     * started, is a new entry.
+     */
+    private final Cache<LeaderboardKey, List<TopHelperResult>> leaderboards = Caffeine.newBuilder()
+        .expireAfterWrite(LEADERBOARD_RETENTION)
+        .maximumSize(MAX_CACHED_LEADERBOARDS)
+        .build();
 
     /**
      * Creates a new instance.
      *
      * @param database the database containing the message counts of top helpers
+     * @param memberNames the cache to resolve the names of top helpers with
      * @param config the config to use for this
      */
-    public TopHelpersCommand(@NotNull Database database, @NotNull Config config) {
+    public TopHelpersCommand(@NotNull Database database, @NotNull MemberNameCache memberNames,
+            @NotNull Config config) {
         super(COMMAND_NAME, "Lists top helpers for the last month", SlashCommandVisibility.GUILD);
         // TODO Add options to optionally pick a time range once JDA/Discord offers a date-picker
         hasRequiredRole = Pattern.compile(config.getSoftModerationRolePattern()).asMatchPredicate();
         this.database = database;
+        this.memberNames = memberNames;
     }
 
     @Override
@@ -71,8 +95,9 @@ public final class TopHelpersCommand extends SlashCommandAdapter {
         }
 
         TimeRange timeRange = computeDefaultTimeRange();
-        List<TopHelperResult> topHelpers =
-                computeTopHelpersDescending(event.getGuild().getIdLong(), timeRange);
+        long guildId = event.getGuild().getIdLong();
+        List<TopHelperResult> topHelpers = leaderboards.get(new LeaderboardKey(guildId, timeRange),
+                key -> computeTopHelpersDescending(guildId, timeRange));
 
         if (topHelpers.isEmpty()) {
             event
@@ -81,13 +106,28 @@ public final class TopHelpersCommand extends SlashCommandAdapter {
                 .queue();
             return;
         }
-        event.deferReply().queue();
 
         List<Long> topHelperIds = topHelpers.stream().map(TopHelperResult::authorId).toList();
-        event.getGuild()
-            .retrieveMembersByIds(topHelperIds)
-            .onError(error -> handleError(error, event))
-            .onSuccess(members -> handleTopHelpers(topHelpers, members, timeRange, event));
+        CompletableFuture<Map<Long, String>> names =
+                memberNames.retrieveNames(event.getGuild(), topHelperIds);
+
+        Map<Long, String> cachedNames = names.getNow(null);
+        if (cachedNames != null) {
+            // Answer right away, without a round trip to Discord
+            event.reply(createMessage(topHelpers, cachedNames, timeRange)).queue();
+            return;
+        }
+
+        event.deferReply().queue();
+        names.whenComplete((userIdToName, error) -> {
+            if (error != null) {
+                handleError(error, event);
+                return;
+            }
+            event.getHook()
+                .editOriginal(createMessage(topHelpers, userIdToName, timeRange))
+                .queue();
+        });
     }
 
     @SuppressWarnings("BooleanMethodNameMustStartWithQuestion")
@@ -103,24 +143,27 @@ public final class TopHelpersCommand extends SlashCommandAdapter {
 
     private static @NotNull TimeRange computeDefaultTimeRange() {
         // Last month
-        ZonedDateTime start = Instant.now()
-            .atZone(ZoneOffset.UTC)
+        LocalDate start = LocalDate.now(ZoneOffset.UTC)
             .minusMonths(1)
             .with(TemporalAdjusters.firstDayOfMonth());
-        ZonedDateTime end = start.with(TemporalAdjusters.lastDayOfMonth());
+        LocalDate end = start.with(TemporalAdjusters.lastDayOfMonth());
         String description = start.getMonth().getDisplayName(TextStyle.FULL_STANDALONE, Locale.US);
 
-        return new TimeRange(start.toInstant(), end.toInstant(), description);
+        return new TimeRange(start, end, description);
     }
 
     private @NotNull List<TopHelperResult> computeTopHelpersDescending(long guildId,
             @NotNull TimeRange timeRange) {
-        return database.read(context -> context.select(HELP_CHANNEL_MESSAGES.AUTHOR_ID, DSL.count())
-            .from(HELP_CHANNEL_MESSAGES)
-            .where(HELP_CHANNEL_MESSAGES.GUILD_ID.eq(guildId)
-                .and(HELP_CHANNEL_MESSAGES.SENT_AT.between(timeRange.start(), timeRange.end())))
-            .groupBy(HELP_CHANNEL_MESSAGES.AUTHOR_ID)
-            .orderBy(DSL.count().desc())
+        Field<Integer> messageCount =
+                DSL.sum(HELP_MESSAGE_DAILY_COUNTS.MESSAGE_COUNT).cast(SQLDataType.INTEGER);
+
+        return database.read(context -> context
+            .select(HELP_MESSAGE_DAILY_COUNTS.AUTHOR_ID, messageCount)
+            .from(HELP_MESSAGE_DAILY_COUNTS)
+            .where(HELP_MESSAGE_DAILY_COUNTS.GUILD_ID.eq(guildId)
+                .and(HELP_MESSAGE_DAILY_COUNTS.DAY.between(timeRange.start(), timeRange.end())))
+            .groupBy(HELP_MESSAGE_DAILY_COUNTS.AUTHOR_ID)
+            .orderBy(messageCount.desc())
             .limit(TOP_HELPER_LIMIT)
             .fetch(Records.mapping(TopHelperResult::new)));
     }
@@ -130,27 +173,20 @@ public final class TopHelpersCommand extends SlashCommandAdapter {
         event.getHook().editOriginal("Sorry, something went wrong.").queue();
     }
 
-    private static void handleTopHelpers(@NotNull Collection<TopHelperResult> topHelpers,
-            @NotNull Collection<? extends Member> members, @NotNull TimeRange timeRange,
-            @NotNull Interaction event) {
-        Map<Long, Member> userIdToMember =
-                members.stream().collect(Collectors.toMap(Member::getIdLong, Function.identity()));
-
+    private static @NotNull String createMessage(@NotNull Collection<TopHelperResult> topHelpers,
+            @NotNull Map<Long, String> userIdToName, @NotNull TimeRange timeRange) {
         List<List<String>> topHelpersDataTable = topHelpers.stream()
             .map(topHelper -> topHelperToDataRow(topHelper,
-                    userIdToMember.get(topHelper.authorId())))
+                    userIdToName.get(topHelper.authorId())))
             .toList();
 
-        String message =
-                "```java%n%s%n```".formatted(dataTableToString(topHelpersDataTable, timeRange));
-
-        event.getHook().editOriginal(message).queue();
+        return "```java%n%s%n```".formatted(dataTableToString(topHelpersDataTable, timeRange));
     }
 
     private static @NotNull List<String> topHelperToDataRow(@NotNull TopHelperResult topHelper,
-            @Nullable Member member) {
+            @Nullable String memberName) {
         String id = Long.toString(topHelper.authorId());
-        String name = member == null ? "UNKNOWN_USER" : member.getEffectiveName();
+        String name = memberName == null ? "UNKNOWN_USER" : memberName;
         String messageCount = Integer.toString(topHelper.messageCount());
 
         return List.of(id, name, messageCount);
@@ -183,12 +219,18 @@ public final class TopHelpersCommand extends SlashCommandAdapter {
         return AsciiTable.getTable(AsciiTable.BASIC_ASCII_NO_DATA_SEPARATORS, dataTable, columns);
     }
 
-    private record TimeRange(Instant start, Instant end, String description) {
+    /**
+     * A range of days, both inclusive.
+     */
+    private record TimeRange(LocalDate start, LocalDate end, String description) {
     }
 
     private record TopHelperResult(long authorId, int messageCount) {
     }
 
+    private record LeaderboardKey(long guildId, TimeRange timeRange) {
+    }
+
     private record ColumnSetting(String headerName, HorizontalAlign alignment) {
     }
 }
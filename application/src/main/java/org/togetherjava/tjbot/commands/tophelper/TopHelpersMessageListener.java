@@ -1,21 +1,35 @@
 package org.togetherjava.tjbot.commands.tophelper;
 
 import net.dv8tion.jda.api.events.message.guild.GuildMessageReceivedEvent;
+import net.dv8tion.jda.api.sharding.ShardManager;
 import org.jetbrains.annotations.NotNull;
 import org.togetherjava.tjbot.commands.MessageReceiverAdapter;
+import org.togetherjava.tjbot.commands.Routine;
 import org.togetherjava.tjbot.config.Config;
 import org.togetherjava.tjbot.db.Database;
 
+import java.util.concurrent.TimeUnit;
 import java.util.regex.Pattern;
 
-import static org.togetherjava.tjbot.db.generated.tables.HelpChannelMessages.HELP_CHANNEL_MESSAGES;
-
 /**
  * Listener that receives all sent help messages and puts them into the database for
  * {@link TopHelpersCommand} to pick them up.
+ * <p>
+ * Messages are not written one by one, but buffered and written in batches, see
+ * {@link HelpMessageBuffer}. The buffer is flushed once it holds {@value #BATCH_SIZE} messages and
+ * at least every {@value #FLUSH_INTERVAL_MS} milliseconds by the routine of this listener. It is
+ * flushed a last time when the listener is closed on shutdown.
  */
-public final class TopHelpersMessageListener extends MessageReceiverAdapter {
-    private final Database database;
+public final class TopHelpersMessageListener extends MessageReceiverAdapter
+        implements Routine, AutoCloseable {
+    private static final int BATCH_SIZE = 100;
+    /**
+     * Bounds the memory used by the buffer, in case the database does not keep up.
+     */
+    private static final int BUFFER_CAPACITY = 10_000;
+    private static final long FLUSH_INTERVAL_MS = 1_000;
+
+    private final HelpMessageBuffer buffer;
 
     /**
      * Creates a new listener to receive all message sent in help channels.
@@ -25,7 +39,7 @@ public final class TopHelpersMessageListener extends MessageReceiverAdapter {
      */
     public TopHelpersMessageListener(@NotNull Database database, @NotNull Config config) {
         super(Pattern.compile(config.getHelpChannelPattern()));
-        this.database = database;
+        buffer = new HelpMessageBuffer(database, BUFFER_CAPACITY, BATCH_SIZE);
     }
 
     @Override
@@ -38,12 +52,29 @@ public final class TopHelpersMessageListener extends MessageReceiverAdapter {
     }
 
     private void addMessageRecord(@NotNull GuildMessageReceivedEvent event) {
-        database.write(context -> context.newRecord(HELP_CHANNEL_MESSAGES)
-            .setMessageId(event.getMessage().getIdLong())
-            .setGuildId(event.getGuild().getIdLong())
-            .setChannelId(event.getChannel().getIdLong())
-            .setAuthorId(event.getAuthor().getIdLong())
-            .setSentAt(event.getMessage().getTimeCreated().toInstant())
-            .insert());
+        buffer.add(event.getMessage().getIdLong(), event.getGuild().getIdLong(),
+                event.getChannel().getIdLong(), event.getAuthor().getIdLong(),
+                event.getMessage().getTimeCreated().toInstant());
+    }
+
+    @Override
+    public @NotNull Schedule createSchedule() {
+        return new Schedule(ScheduleMode.FIXED_RATE, FLUSH_INTERVAL_MS, FLUSH_INTERVAL_MS,
+                TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void runRoutine(@NotNull ShardManager shardManager) {
+        buffer.flush();
+    }
+
+    /**
+     * Stops recording help messages and writes the buffered ones to the database. Messages
+     * received afterwards are lost, hence this is called once message events are not dispatched
+     * anymore, see {@link org.togetherjava.tjbot.commands.system.BotCore#shutdown()}.
+     */
+    @Override
+    public void close() {
+        buffer.close();
     }
 }
@@ -1,6 +1,6 @@
 package org.togetherjava.tjbot.commands.tophelper;
 
-import net.dv8tion.jda.api.JDA;
+import net.dv8tion.jda.api.sharding.ShardManager;
 import org.jetbrains.annotations.NotNull;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -15,11 +15,15 @@ import static org.togetherjava.tjbot.db.generated.tables.HelpChannelMessages.HEL
 
 /**
  * Cleanup routine to get rid of old database top-helper message entries.
+ * <p>
+ * Only the raw messages are purged, the daily message counts used by {@link TopHelpersCommand}
+ * survive. The raw messages are kept for a few days, so that messages that are recorded again are
+ * not counted twice.
  */
 public final class TopHelpersPurgeMessagesRoutine implements Routine {
     private static final Logger logger =
             LoggerFactory.getLogger(TopHelpersPurgeMessagesRoutine.class);
-    private static final Period DELETE_MESSAGE_RECORDS_AFTER = Period.ofDays(90);
+    private static final Period DELETE_MESSAGE_RECORDS_AFTER = Period.ofDays(7);
 
     private final Database database;
 
@@ -38,7 +42,7 @@ public final class TopHelpersPurgeMessagesRoutine implements Routine {
     }
 
     @Override
-    public void runRoutine(@NotNull JDA jda) {
+    public void runRoutine(@NotNull ShardManager shardManager) {
         int recordsDeleted =
                 database.writeAndProvide(context -> context.deleteFrom(HELP_CHANNEL_MESSAGES)
                     .where(HELP_CHANNEL_MESSAGES.SENT_AT
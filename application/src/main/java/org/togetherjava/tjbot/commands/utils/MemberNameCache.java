@@ -0,0 +1,88 @@
+package org.togetherjava.tjbot.commands.utils;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import net.dv8tion.jda.api.entities.Guild;
+import net.dv8tion.jda.api.entities.Member;
+import org.jetbrains.annotations.NotNull;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Cache of the display names of guild members, shared by commands that list many members at once,
+ * such as leaderboards.
+ * <p>
+ * Names that are not cached are retrieved from Discord in a single request per call, members that
+ * could not be retrieved, for example since they left the guild, are not cached. Cached names
+ * expire after 15 minutes, so that changed nicknames are picked up eventually.
+ * <p>
+ * The cache is thread-safe.
+ */
+public final class MemberNameCache {
+    private static final Duration NAME_RETENTION = Duration.ofMinutes(15);
+    private static final int MAX_CACHED_NAMES = 10_000;
+
+    private final Cache<GuildMember, String> memberToName = Caffeine.newBuilder()
+        .expireAfterWrite(NAME_RETENTION)
+        .maximumSize(MAX_CACHED_NAMES)
+        .build();
+
+    /**
+     * Retrieves the display names of the given members of a guild, see
+     * {@link Member#getEffectiveName()}.
+     * <p>
+     * If all names are cached, the returned future is already completed. Otherwise, the missing
+     * names are retrieved from Discord.
+     *
+     * @param guild the guild the members belong to
+     * @param userIds the IDs of the members
+     * @return a future that completes with the names by the ID of their member. Members that could
+     *         not be retrieved are missing. It completes exceptionally if the members could not be
+     *         retrieved from Discord.
+     */
+    public @NotNull CompletableFuture<Map<Long, String>> retrieveNames(@NotNull Guild guild,
+            @NotNull Collection<Long> userIds) {
+        long guildId = guild.getIdLong();
+        Map<Long, String> userIdToName = new HashMap<>();
+        List<Long> missingUserIds = userIds.stream().filter(userId -> {
+            String name = memberToName.getIfPresent(new GuildMember(guildId, userId));
+            if (name == null) {
+                return true;
+            }
+            userIdToName.put(userId, name);
+            return false;
+        }).toList();
+
+        if (missingUserIds.isEmpty()) {
+            return CompletableFuture.completedFuture(userIdToName);
+        }
+
+        CompletableFuture<Map<Long, String>> future = new CompletableFuture<>();
+        guild.retrieveMembersByIds(missingUserIds).onSuccess(members -> {
+            members.forEach(member -> {
+                put(member);
+                userIdToName.put(member.getIdLong(), member.getEffectiveName());
+            });
+            future.complete(userIdToName);
+        }).onError(future::completeExceptionally);
+        return future;
+    }
+
+    /**
+     * Caches the display name of the given member, for example if it is known already anyway.
+     *
+     * @param member the member to cache the name of
+     */
+    public void put(@NotNull Member member) {
+        memberToName.put(new GuildMember(member.getGuild().getIdLong(), member.getIdLong()),
+                member.getEffectiveName());
+    }
+
+    private record GuildMember(long guildId, long userId) {
+    }
+}
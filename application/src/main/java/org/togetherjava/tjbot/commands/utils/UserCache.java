@@ -0,0 +1,90 @@
+package org.togetherjava.tjbot.commands.utils;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import net.dv8tion.jda.api.JDA;
+import net.dv8tion.jda.api.entities.User;
+import net.dv8tion.jda.api.requests.RestAction;
+import net.dv8tion.jda.api.utils.Result;
+import org.jetbrains.annotations.NotNull;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Cache of users, shared by commands that display many users at once, such as the authors of
+ * moderation actions.
+ * <p>
+ * Users that are not cached are retrieved from Discord, each of them only once per call. Users that
+ * could not be retrieved, for example since their account was deleted, are not cached. Cached users
+ * expire after 15 minutes, so that changed names and avatars are picked up eventually.
+ * <p>
+ * The cache is thread-safe.
+ */
+public final class UserCache {
+    private static final Duration USER_RETENTION = Duration.ofMinutes(15);
+    private static final int MAX_CACHED_USERS = 10_000;
+
+    private final Cache<Long, User> idToUser = Caffeine.newBuilder()
+        .expireAfterWrite(USER_RETENTION)
+        .maximumSize(MAX_CACHED_USERS)
+        .build();
+
+    /**
+     * Retrieves the given users.
+     * <p>
+     * If all users are cached, the returned future is already completed. Otherwise, the missing
+     * users are retrieved from Discord.
+     *
+     * @param jda the JDA instance to retrieve missing users with
+     * @param userIds the IDs of the users, may contain duplicates
+     * @return a future that completes with the users by their ID. Users that could not be
+     *         retrieved are missing. It completes exceptionally if the users could not be retrieved
+     *         from Discord.
+     */
+    public @NotNull CompletableFuture<Map<Long, User>> retrieveUsers(@NotNull JDA jda,
+            @NotNull Collection<Long> userIds) {
+        Map<Long, User> userIdToUser = new HashMap<>();
+        List<Long> missingUserIds = userIds.stream().distinct().filter(userId -> {
+            User user = idToUser.getIfPresent(userId);
+            if (user == null) {
+                return true;
+            }
+            userIdToUser.put(userId, user);
+            return false;
+        }).toList();
+
+        if (missingUserIds.isEmpty()) {
+            return CompletableFuture.completedFuture(userIdToUser);
+        }
+
+        // Unknown users fail individually, without failing the other retrievals
+        List<RestAction<Result<User>>> userTasks = missingUserIds.stream()
+            .map(jda::retrieveUserById)
+            .map(RestAction::mapToResult)
+            .toList();
+
+        CompletableFuture<Map<Long, User>> future = new CompletableFuture<>();
+        RestAction.allOf(userTasks).queue(results -> {
+            results.stream().filter(Result::isSuccess).map(Result::get).forEach(user -> {
+                put(user);
+                userIdToUser.put(user.getIdLong(), user);
+            });
+            future.complete(userIdToUser);
+        }, future::completeExceptionally);
+        return future;
+    }
+
+    /**
+     * Caches the given user, for example if it is known already anyway.
+     *
+     * @param user the user to cache
+     */
+    public void put(@NotNull User user) {
+        idToUser.put(user.getIdLong(), user);
+    }
+}
@@ -0,0 +1,56 @@
+package org.togetherjava.tjbot.config;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonRootName;
+
+/**
+ * Configuration for executing commands, see
+ * {@link org.togetherjava.tjbot.commands.system.CommandDispatcher}.
+ */
+@SuppressWarnings("ClassCanBeRecord")
+@JsonRootName("commandDispatch")
+public final class CommandDispatchConfig {
+    private final CommandDispatchMode mode;
+    private final int poolSize;
+    private final int queueCapacity;
+
+    @JsonCreator(mode = JsonCreator.Mode.PROPERTIES)
+    private CommandDispatchConfig(@JsonProperty("mode") CommandDispatchMode mode,
+            @JsonProperty("poolSize") int poolSize,
+            @JsonProperty("queueCapacity") int queueCapacity) {
+        this.mode = mode;
+        this.poolSize = poolSize;
+        this.queueCapacity = queueCapacity;
+    }
+
+    /**
+     * Gets the strategy used to execute commands.
+     *
+     * @return the dispatch mode
+     */
+    public CommandDispatchMode getMode() {
+        return mode;
+    }
+
+    /**
+     * Gets the amount of threads executing commands. Not used by
+     * {@link CommandDispatchMode#VIRTUAL_THREADS}.
+     *
+     * @return the size of the thread pool
+     */
+    public int getPoolSize() {
+        return poolSize;
+    }
+
+    /**
+     * Gets the maximal amount of commands that may wait for execution, further commands are
+     * rejected. For {@link CommandDispatchMode#GUILD_LANES} this applies per guild, for
+     * {@link CommandDispatchMode#VIRTUAL_THREADS} to the amount of commands running concurrently.
+     *
+     * @return the capacity of the queue of waiting commands
+     */
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+}
@@ -0,0 +1,23 @@
+package org.togetherjava.tjbot.config;
+
+/**
+ * The strategy used to execute commands off the event thread of JDA, see
+ * {@link CommandDispatchConfig}.
+ */
+public enum CommandDispatchMode {
+    /**
+     * Commands are executed by a fixed amount of threads. Commands that arrive while all threads
+     * are busy wait in a bounded queue.
+     */
+    BOUNDED_POOL,
+    /**
+     * Each command is executed by its own virtual thread. Requires a Java version that supports
+     * virtual threads, otherwise {@link #BOUNDED_POOL} is used instead.
+     */
+    VIRTUAL_THREADS,
+    /**
+     * Commands of the same guild are executed one after another, in the order they arrived, while
+     * commands of different guilds are executed in parallel by a fixed amount of threads.
+     */
+    GUILD_LANES
+}
@@ -17,6 +17,7 @@ import java.util.List;
 public final class Config {
     private final String token;
     private final String databasePath;
+    private final DatabaseConfig database;
     private final String projectWebsite;
     private final String discordGuildInvite;
     private final String modAuditLogChannelPattern;
@@ -27,11 +28,18 @@ public final class Config {
     private final List<FreeCommandConfig> freeCommand;
     private final String helpChannelPattern;
     private final SuggestionsConfig suggestions;
+    private final String componentIdSigningKey;
+    private final CommandDispatchConfig commandDispatch;
+    private final MessageDispatchConfig messageDispatch;
+    private final ShardingConfig sharding;
+    private final JdaCacheConfig jdaCache;
+    private final MetricsConfig metrics;
 
     @SuppressWarnings("ConstructorWithTooManyParameters")
     @JsonCreator(mode = JsonCreator.Mode.PROPERTIES)
     private Config(@JsonProperty("token") String token,
             @JsonProperty("databasePath") String databasePath,
+            @JsonProperty("database") DatabaseConfig database,
             @JsonProperty("projectWebsite") String projectWebsite,
             @JsonProperty("discordGuildInvite") String discordGuildInvite,
             @JsonProperty("modAuditLogChannelPattern") String modAuditLogChannelPattern,
@@ -41,9 +49,16 @@ public final class Config {
             @JsonProperty("tagManageRolePattern") String tagManageRolePattern,
             @JsonProperty("freeCommand") List<FreeCommandConfig> freeCommand,
             @JsonProperty("helpChannelPattern") String helpChannelPattern,
-            @JsonProperty("suggestions") SuggestionsConfig suggestions) {
+            @JsonProperty("suggestions") SuggestionsConfig suggestions,
+            @JsonProperty("componentIdSigningKey") String componentIdSigningKey,
+            @JsonProperty("commandDispatch") CommandDispatchConfig commandDispatch,
+            @JsonProperty("messageDispatch") MessageDispatchConfig messageDispatch,
+            @JsonProperty("sharding") ShardingConfig sharding,
+            @JsonProperty("jdaCache") JdaCacheConfig jdaCache,
+            @JsonProperty("metrics") MetricsConfig metrics) {
         this.token = token;
         this.databasePath = databasePath;
+        this.database = database;
         this.projectWebsite = projectWebsite;
         this.discordGuildInvite = discordGuildInvite;
         this.modAuditLogChannelPattern = modAuditLogChannelPattern;
@@ -54,6 +69,12 @@ public final class Config {
         this.freeCommand = Collections.unmodifiableList(freeCommand);
         this.helpChannelPattern = helpChannelPattern;
         this.suggestions = suggestions;
+        this.componentIdSigningKey = componentIdSigningKey;
+        this.commandDispatch = commandDispatch;
+        this.messageDispatch = messageDispatch;
+        this.sharding = sharding;
+        this.jdaCache = jdaCache;
+        this.metrics = metrics;
     }
 
     /**
@@ -104,6 +125,15 @@ public final class Config {
         return databasePath;
     }
 
+    /**
+     * Gets the config for the connections to the database.
+     *
+     * @return the database config
+     */
+    public DatabaseConfig getDatabase() {
+        return database;
+    }
+
     /**
      * Gets a URL of the project's website, for example to tell the user where he can contribute.
      *
@@ -181,4 +211,61 @@ public final class Config {
     public SuggestionsConfig getSuggestions() {
         return suggestions;
     }
+
+    /**
+     * Gets the secret key used to sign stateless component IDs, which carry their payload directly
+     * instead of persisting it in the database. Has to be random and at least 32 bytes long,
+     * otherwise the bot refuses to start. Changing it invalidates all previously generated
+     * stateless IDs.
+     *
+     * @return the signing key, blank or {@code null} to persist all component IDs in the database
+     */
+    public String getComponentIdSigningKey() {
+        return componentIdSigningKey;
+    }
+
+    /**
+     * Gets the config for executing commands.
+     *
+     * @return the command dispatch config
+     */
+    public CommandDispatchConfig getCommandDispatch() {
+        return commandDispatch;
+    }
+
+    /**
+     * Gets the config for forwarding message events to message receivers.
+     *
+     * @return the message dispatch config
+     */
+    public MessageDispatchConfig getMessageDispatch() {
+        return messageDispatch;
+    }
+
+    /**
+     * Gets the config for splitting the connection to Discord into shards.
+     *
+     * @return the sharding config
+     */
+    public ShardingConfig getSharding() {
+        return sharding;
+    }
+
+    /**
+     * Gets the config for the in-memory cache of Discord data.
+     *
+     * @return the cache config
+     */
+    public JdaCacheConfig getJdaCache() {
+        return jdaCache;
+    }
+
+    /**
+     * Gets the config for serving the metrics of the bot to Prometheus.
+     *
+     * @return the metrics config
+     */
+    public MetricsConfig getMetrics() {
+        return metrics;
+    }
 }
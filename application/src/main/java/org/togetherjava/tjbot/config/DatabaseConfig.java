@@ -0,0 +1,56 @@
+package org.togetherjava.tjbot.config;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonRootName;
+
+/**
+ * Configuration for the connections to the database, see {@link org.togetherjava.tjbot.db.Database}.
+ */
+@SuppressWarnings("ClassCanBeRecord")
+@JsonRootName("database")
+public final class DatabaseConfig {
+    private final int readPoolSize;
+    private final int writeBatchMaxSize;
+    private final long writeBatchLingerMs;
+
+    @JsonCreator(mode = JsonCreator.Mode.PROPERTIES)
+    private DatabaseConfig(@JsonProperty("readPoolSize") int readPoolSize,
+            @JsonProperty("writeBatchMaxSize") int writeBatchMaxSize,
+            @JsonProperty("writeBatchLingerMs") long writeBatchLingerMs) {
+        this.readPoolSize = readPoolSize;
+        this.writeBatchMaxSize = writeBatchMaxSize;
+        this.writeBatchLingerMs = writeBatchLingerMs;
+    }
+
+    /**
+     * Gets the amount of read-only connections used to serve reads concurrently, in addition to the
+     * single connection used for writing. If {@code 0}, reads share the connection used for
+     * writing.
+     *
+     * @return the size of the pool of read-only connections
+     */
+    public int getReadPoolSize() {
+        return readPoolSize;
+    }
+
+    /**
+     * Gets the maximal amount of asynchronous writes that are committed together in a single
+     * transaction.
+     *
+     * @return the maximal size of a write batch
+     */
+    public int getWriteBatchMaxSize() {
+        return writeBatchMaxSize;
+    }
+
+    /**
+     * Gets the maximal time in milliseconds to wait for further asynchronous writes to join a
+     * batch, before it is committed.
+     *
+     * @return the linger time of a write batch, in milliseconds
+     */
+    public long getWriteBatchLingerMs() {
+        return writeBatchLingerMs;
+    }
+}
@@ -0,0 +1,42 @@
+package org.togetherjava.tjbot.config;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonRootName;
+
+/**
+ * Configuration for the in-memory cache of Discord data, i.e. the trade-off between the memory
+ * used by the bot and the amount of requests it sends to Discord.
+ */
+@SuppressWarnings("ClassCanBeRecord")
+@JsonRootName("jdaCache")
+public final class JdaCacheConfig {
+    private final JdaCacheProfile profile;
+    private final int participantRetentionMinutes;
+
+    @JsonCreator(mode = JsonCreator.Mode.PROPERTIES)
+    private JdaCacheConfig(@JsonProperty("profile") JdaCacheProfile profile,
+            @JsonProperty("participantRetentionMinutes") int participantRetentionMinutes) {
+        this.profile = profile;
+        this.participantRetentionMinutes = participantRetentionMinutes;
+    }
+
+    /**
+     * Gets the profile that decides which entities are cached.
+     *
+     * @return the cache profile
+     */
+    public JdaCacheProfile getProfile() {
+        return profile;
+    }
+
+    /**
+     * Gets how long members who wrote in a help channel are kept in the cache after their last
+     * message, only used by {@link JdaCacheProfile#LEAN}.
+     *
+     * @return the retention of recent help channel participants, in minutes
+     */
+    public int getParticipantRetentionMinutes() {
+        return participantRetentionMinutes;
+    }
+}
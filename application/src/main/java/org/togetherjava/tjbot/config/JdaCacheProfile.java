@@ -0,0 +1,20 @@
+package org.togetherjava.tjbot.config;
+
+/**
+ * Which entities the bot keeps in its in-memory cache of Discord data, see
+ * {@link JdaCacheConfig}.
+ */
+public enum JdaCacheProfile {
+    /**
+     * The default caching of JDA. Members are cached as they are seen, entities are looked up
+     * in the cache first.
+     */
+    FULL,
+    /**
+     * Caches only the members needed by the bot, i.e. the owner, moderators, members connected to
+     * a voice channel and members who recently wrote in a help channel. Members are not requested
+     * in bulk on startup and caches of unused entities are disabled. Features retrieve everything
+     * else from Discord on demand, trading memory for requests.
+     */
+    LEAN
+}
@@ -0,0 +1,41 @@
+package org.togetherjava.tjbot.config;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonRootName;
+
+/**
+ * Configuration for forwarding message events to message receivers, see
+ * {@link org.togetherjava.tjbot.commands.system.MessageReceiverDispatcher}.
+ */
+@SuppressWarnings("ClassCanBeRecord")
+@JsonRootName("messageDispatch")
+public final class MessageDispatchConfig {
+    private final int queueCapacity;
+    private final MessageOverflowPolicy overflowPolicy;
+
+    @JsonCreator(mode = JsonCreator.Mode.PROPERTIES)
+    private MessageDispatchConfig(@JsonProperty("queueCapacity") int queueCapacity,
+            @JsonProperty("overflowPolicy") MessageOverflowPolicy overflowPolicy) {
+        this.queueCapacity = queueCapacity;
+        this.overflowPolicy = overflowPolicy;
+    }
+
+    /**
+     * Gets the maximal amount of message events that may wait for a single message receiver.
+     *
+     * @return the capacity of the queue of each receiver
+     */
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    /**
+     * Gets what to do with a message event if the queue of a receiver is full.
+     *
+     * @return the overflow policy
+     */
+    public MessageOverflowPolicy getOverflowPolicy() {
+        return overflowPolicy;
+    }
+}
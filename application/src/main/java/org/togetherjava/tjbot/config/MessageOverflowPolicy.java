@@ -0,0 +1,21 @@
+package org.togetherjava.tjbot.config;
+
+/**
+ * What to do with a message event if the queue of a message receiver is full, see
+ * {@link MessageDispatchConfig}.
+ */
+public enum MessageOverflowPolicy {
+    /**
+     * The event thread waits until the receiver made space in its queue. Slows down the handling
+     * of all other events, but never loses an event.
+     */
+    BLOCK,
+    /**
+     * The new event is dropped, the receiver does not see it.
+     */
+    DROP_NEWEST,
+    /**
+     * The oldest event waiting in the queue is dropped to make space for the new event.
+     */
+    DROP_OLDEST
+}
@@ -0,0 +1,52 @@
+package org.togetherjava.tjbot.config;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonRootName;
+
+/**
+ * Configuration for the HTTP endpoint that serves the metrics of the bot to Prometheus.
+ */
+@SuppressWarnings("ClassCanBeRecord")
+@JsonRootName("metrics")
+public final class MetricsConfig {
+    private final boolean enabled;
+    private final String host;
+    private final int port;
+
+    @JsonCreator(mode = JsonCreator.Mode.PROPERTIES)
+    private MetricsConfig(@JsonProperty("enabled") boolean enabled,
+            @JsonProperty("host") String host, @JsonProperty("port") int port) {
+        this.enabled = enabled;
+        this.host = host;
+        this.port = port;
+    }
+
+    /**
+     * Gets whether the metrics are served at all.
+     *
+     * @return whether the endpoint is enabled
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Gets the host name or address the endpoint listens on, for example {@code 127.0.0.1} to only
+     * serve the metrics to the local machine.
+     *
+     * @return the host to listen on
+     */
+    public String getHost() {
+        return host;
+    }
+
+    /**
+     * Gets the port the endpoint listens on.
+     *
+     * @return the port to listen on
+     */
+    public int getPort() {
+        return port;
+    }
+}
@@ -0,0 +1,108 @@
+package org.togetherjava.tjbot.config;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonRootName;
+
+/**
+ * Configuration for splitting the connection to Discord into shards, each serving a part of the
+ * guilds of the bot.
+ * <p>
+ * A single process can run all shards, or several processes can split them by each running a
+ * different range of shard IDs, all using the same total amount of shards.
+ */
+@SuppressWarnings("ClassCanBeRecord")
+@JsonRootName("sharding")
+public final class ShardingConfig {
+    /**
+     * Value of {@link #getShardsTotal()} to use the amount of shards recommended by Discord.
+     */
+    public static final int RECOMMENDED_SHARDS_TOTAL = -1;
+    /**
+     * Value of {@link #getMinShardId()} and {@link #getMaxShardId()} to run all shards.
+     */
+    public static final int ALL_SHARDS = -1;
+
+    private final int shardsTotal;
+    private final int minShardId;
+    private final int maxShardId;
+
+    @JsonCreator(mode = JsonCreator.Mode.PROPERTIES)
+    private ShardingConfig(@JsonProperty("shardsTotal") int shardsTotal,
+            @JsonProperty("minShardId") int minShardId,
+            @JsonProperty("maxShardId") int maxShardId) {
+        if (shardsTotal != RECOMMENDED_SHARDS_TOTAL && shardsTotal <= 0) {
+            throw new IllegalArgumentException(
+                    ("The total amount of shards must be positive, or %d to use the amount"
+                            + " recommended by Discord, but was %d")
+                                .formatted(RECOMMENDED_SHARDS_TOTAL, shardsTotal));
+        }
+        if (minShardId != ALL_SHARDS || maxShardId != ALL_SHARDS) {
+            validateShardRange(shardsTotal, minShardId, maxShardId);
+        }
+
+        this.shardsTotal = shardsTotal;
+        this.minShardId = minShardId;
+        this.maxShardId = maxShardId;
+    }
+
+    private static void validateShardRange(int shardsTotal, int minShardId, int maxShardId) {
+        // JDA only accepts a shard range together with an explicit total
+        if (shardsTotal == RECOMMENDED_SHARDS_TOTAL) {
+            throw new IllegalArgumentException(
+                    ("Running the shards %d to %d requires an explicit total amount of shards,"
+                            + " but shardsTotal is %d")
+                                .formatted(minShardId, maxShardId, shardsTotal));
+        }
+        if (minShardId < 0 || minShardId > maxShardId || maxShardId >= shardsTotal) {
+            throw new IllegalArgumentException(
+                    ("The shards %d to %d are not a valid range of the %d shards in total,"
+                            + " shard IDs count from 0")
+                                .formatted(minShardId, maxShardId, shardsTotal));
+        }
+    }
+
+    /**
+     * Whether the given guild is served by a shard run by this process.
+     *
+     * @param guildId the id of the guild
+     * @return whether this process serves the guild, always {@code true} if it runs all shards
+     */
+    public boolean isServedByThisProcess(long guildId) {
+        if (minShardId == ALL_SHARDS) {
+            return true;
+        }
+
+        // As Discord assigns guilds to shards, a shard range always comes with an explicit total
+        int shardId = (int) ((guildId >> 22) % shardsTotal);
+        return minShardId <= shardId && shardId <= maxShardId;
+    }
+
+    /**
+     * Gets the total amount of shards over all processes.
+     *
+     * @return the total amount of shards, {@link #RECOMMENDED_SHARDS_TOTAL} to use the amount
+     *         recommended by Discord
+     */
+    public int getShardsTotal() {
+        return shardsTotal;
+    }
+
+    /**
+     * Gets the ID of the first shard run by this process, counting from 0.
+     *
+     * @return the first shard ID, inclusive, {@link #ALL_SHARDS} to run all shards
+     */
+    public int getMinShardId() {
+        return minShardId;
+    }
+
+    /**
+     * Gets the ID of the last shard run by this process.
+     *
+     * @return the last shard ID, inclusive, {@link #ALL_SHARDS} to run all shards
+     */
+    public int getMaxShardId() {
+        return maxShardId;
+    }
+}
@@ -0,0 +1,33 @@
+package org.togetherjava.tjbot.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A metric that counts events, for example executed commands. Created by
+ * {@link MetricsRegistry#counter(String, String, String...)}.
+ * <p>
+ * The counter is thread-safe.
+ */
+public final class Counter {
+    private final LongAdder count = new LongAdder();
+
+    Counter() {
+        // Created by the registry
+    }
+
+    /**
+     * Counts one event.
+     */
+    public void increment() {
+        count.increment();
+    }
+
+    /**
+     * Gets the amount of counted events.
+     *
+     * @return the current count
+     */
+    public long count() {
+        return count.sum();
+    }
+}
@@ -0,0 +1,17 @@
+package org.togetherjava.tjbot.metrics;
+
+/**
+ * A single time series of a metric, i.e. the metric for one combination of label values.
+ */
+@FunctionalInterface
+interface Meter {
+    /**
+     * Writes the current samples of this meter in the Prometheus text format.
+     *
+     * @param out the output to write to
+     * @param name the name of the metric
+     * @param labels the labels of this meter, already formatted as {@code key="value"} pairs,
+     *        empty if there are none
+     */
+    void writeSamples(StringBuilder out, String name, String labels);
+}
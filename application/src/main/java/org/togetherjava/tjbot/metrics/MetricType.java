@@ -0,0 +1,23 @@
+package org.togetherjava.tjbot.metrics;
+
+/**
+ * The types of metrics, as understood by Prometheus.
+ */
+enum MetricType {
+    /**
+     * A value that only ever increases, for example the amount of executed commands.
+     */
+    COUNTER,
+    /**
+     * A value that can go up and down, for example the size of a cache.
+     */
+    GAUGE,
+    /**
+     * A distribution of observations in buckets, for example how long commands took.
+     */
+    HISTOGRAM,
+    /**
+     * The count and sum of observations, without buckets.
+     */
+    SUMMARY
+}
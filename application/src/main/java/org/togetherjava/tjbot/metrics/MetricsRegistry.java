@@ -0,0 +1,267 @@
+package org.togetherjava.tjbot.metrics;
+
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.togetherjava.tjbot.commands.system.DurationHistogram;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.DoubleSupplier;
+import java.util.function.LongSupplier;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+
+/**
+ * Registry of all metrics of the bot, for example how often and how long commands are executed.
+ * The metrics can be exported in the text format of Prometheus using {@link #scrape()}, see
+ * {@link MetricsServer}.
+ * <p>
+ * A metric is identified by its name and can be split into several time series by labels, given
+ * as alternating keys and values, for example
+ * {@code registry.counter("tjbot_commands_total", "Executed commands", "command", "ping")}. Metrics
+ * are either maintained by the registry, such as {@link Counter} and {@link Timer}, or are
+ * functions that are evaluated on each scrape, for example to expose statistics that a component
+ * maintains itself.
+ * <p>
+ * Requesting a counter or timer that already exists returns the existing one, so callers do not
+ * have to hold on to them. Function metrics can only be registered once.
+ * <p>
+ * The registry is thread-safe.
+ */
+public final class MetricsRegistry {
+    private static final Logger logger = LoggerFactory.getLogger(MetricsRegistry.class);
+    private static final Predicate<String> IS_VALID_NAME =
+            Pattern.compile("[a-zA-Z_:][a-zA-Z0-9_:]*").asMatchPredicate();
+    private static final Predicate<String> IS_VALID_LABEL_NAME =
+            Pattern.compile("[a-zA-Z_][a-zA-Z0-9_]*").asMatchPredicate();
+
+    private final Map<String, MetricFamily> nameToFamily = new ConcurrentSkipListMap<>();
+
+    /**
+     * Gets the counter with the given name and labels, creating it if it does not exist yet.
+     *
+     * @param name the name of the metric, by convention ending with {@code _total}
+     * @param help the description of the metric
+     * @param labels the labels of the counter, alternating between key and value
+     * @return the counter
+     * @throws IllegalArgumentException if the name or labels are invalid, or the metric already
+     *         exists with a different type
+     */
+    public @NotNull Counter counter(@NotNull String name, @NotNull String help,
+            @NotNull String... labels) {
+        return getOrCreate(name, help, MetricType.COUNTER, labels, Counter.class, () -> {
+            Counter counter = new Counter();
+            return new Series(counter,
+                    (out, metricName, formattedLabels) -> PrometheusFormat.writeSample(out,
+                            metricName, formattedLabels, counter.count()));
+        });
+    }
+
+    /**
+     * Registers a counter whose count is maintained elsewhere and queried on each scrape.
+     *
+     * @param name the name of the metric, by convention ending with {@code _total}
+     * @param help the description of the metric
+     * @param count supplies the current count, must never decrease
+     * @param labels the labels of the counter, alternating between key and value
+     * @throws IllegalArgumentException if the name or labels are invalid, the metric already exists
+     *         with a different type or the counter is already registered
+     */
+    public void counter(@NotNull String name, @NotNull String help, @NotNull LongSupplier count,
+            @NotNull String... labels) {
+        register(name, help, MetricType.COUNTER, labels,
+                (out, metricName, formattedLabels) -> PrometheusFormat.writeSample(out,
+                        metricName, formattedLabels, count.getAsLong()));
+    }
+
+    /**
+     * Registers a gauge, i.e. a value that can go up and down, which is queried on each scrape.
+     *
+     * @param name the name of the metric
+     * @param help the description of the metric
+     * @param value supplies the current value
+     * @param labels the labels of the gauge, alternating between key and value
+     * @throws IllegalArgumentException if the name or labels are invalid, the metric already exists
+     *         with a different type or the gauge is already registered
+     */
+    public void gauge(@NotNull String name, @NotNull String help, @NotNull DoubleSupplier value,
+            @NotNull String... labels) {
+        register(name, help, MetricType.GAUGE, labels,
+                (out, metricName, formattedLabels) -> PrometheusFormat.writeSample(out,
+                        metricName, formattedLabels, value.getAsDouble()));
+    }
+
+    /**
+     * Gets the timer with the given name and labels, creating it if it does not exist yet.
+     *
+     * @param name the name of the metric, by convention ending with {@code _seconds}
+     * @param help the description of the metric
+     * @param labels the labels of the timer, alternating between key and value
+     * @return the timer
+     * @throws IllegalArgumentException if the name or labels are invalid, or the metric already
+     *         exists with a different type
+     */
+    public @NotNull Timer timer(@NotNull String name, @NotNull String help,
+            @NotNull String... labels) {
+        return getOrCreate(name, help, MetricType.HISTOGRAM, labels, Timer.class, () -> {
+            Timer timer = new Timer();
+            return new Series(timer,
+                    (out, metricName, formattedLabels) -> PrometheusFormat.writeHistogram(out,
+                            metricName, formattedLabels, timer.snapshot()));
+        });
+    }
+
+    /**
+     * Registers a timer whose durations are recorded elsewhere and queried on each scrape.
+     *
+     * @param name the name of the metric, by convention ending with {@code _seconds}
+     * @param help the description of the metric
+     * @param durations supplies the current snapshot of the recorded durations
+     * @param labels the labels of the timer, alternating between key and value
+     * @throws IllegalArgumentException if the name or labels are invalid, the metric already exists
+     *         with a different type or the timer is already registered
+     */
+    public void timer(@NotNull String name, @NotNull String help,
+            @NotNull Supplier<DurationHistogram.Snapshot> durations, @NotNull String... labels) {
+        register(name, help, MetricType.HISTOGRAM, labels,
+                (out, metricName, formattedLabels) -> PrometheusFormat.writeHistogram(out,
+                        metricName, formattedLabels, durations.get()));
+    }
+
+    /**
+     * Registers a summary of durations, i.e. their count and sum without a distribution, which are
+     * recorded elsewhere and queried on each scrape.
+     *
+     * @param name the name of the metric, by convention ending with {@code _seconds}
+     * @param help the description of the metric
+     * @param count supplies the current amount of recorded durations
+     * @param sum supplies the current sum of the recorded durations
+     * @param labels the labels of the summary, alternating between key and value
+     * @throws IllegalArgumentException if the name or labels are invalid, the metric already exists
+     *         with a different type or the summary is already registered
+     */
+    public void summary(@NotNull String name, @NotNull String help, @NotNull LongSupplier count,
+            @NotNull Supplier<Duration> sum, @NotNull String... labels) {
+        register(name, help, MetricType.SUMMARY, labels,
+                (out, metricName, formattedLabels) -> PrometheusFormat.writeSummary(out,
+                        metricName, formattedLabels, count.getAsLong(), sum.get()));
+    }
+
+    /**
+     * Writes all metrics in the text-based exposition format of Prometheus. Metrics are ordered by
+     * their name.
+     * <p>
+     * A function metric that fails to be queried is left out and logged, it does not fail the
+     * scrape.
+     *
+     * @return the metrics in the Prometheus format
+     */
+    public @NotNull String scrape() {
+        StringBuilder out = new StringBuilder();
+        nameToFamily.values().forEach(family -> family.writeTo(out));
+        return out.toString();
+    }
+
+    private <T> @NotNull T getOrCreate(@NotNull String name, @NotNull String help,
+            @NotNull MetricType type, @NotNull String[] labels, @NotNull Class<T> instrumentType,
+            @NotNull Supplier<Series> seriesFactory) {
+        MetricFamily family = getOrCreateFamily(name, help, type);
+        Series series = family.labelsToSeries.computeIfAbsent(formatLabels(labels),
+                any -> seriesFactory.get());
+
+        if (!instrumentType.isInstance(series.instrument())) {
+            throw new IllegalArgumentException(
+                    "The metric '%s' with labels %s is already registered as function"
+                        .formatted(name, String.join(", ", labels)));
+        }
+        return instrumentType.cast(series.instrument());
+    }
+
+    private void register(@NotNull String name, @NotNull String help, @NotNull MetricType type,
+            @NotNull String[] labels, @NotNull Meter meter) {
+        MetricFamily family = getOrCreateFamily(name, help, type);
+        Series series = new Series(meter, meter);
+
+        if (family.labelsToSeries.putIfAbsent(formatLabels(labels), series) != null) {
+            throw new IllegalArgumentException(
+                    "The metric '%s' with labels %s is already registered".formatted(name,
+                            String.join(", ", labels)));
+        }
+    }
+
+    private @NotNull MetricFamily getOrCreateFamily(@NotNull String name, @NotNull String help,
+            @NotNull MetricType type) {
+        if (!IS_VALID_NAME.test(name)) {
+            throw new IllegalArgumentException("The metric name '%s' is invalid".formatted(name));
+        }
+
+        MetricFamily family =
+                nameToFamily.computeIfAbsent(name, any -> new MetricFamily(name, help, type));
+        if (family.type != type) {
+            throw new IllegalArgumentException(
+                    "The metric '%s' is already registered as %s".formatted(name, family.type));
+        }
+        return family;
+    }
+
+    private static @NotNull String formatLabels(@NotNull String[] labels) {
+        if (labels.length % 2 != 0) {
+            throw new IllegalArgumentException(
+                    "Labels must be given as pairs of key and value, but got %d elements"
+                        .formatted(labels.length));
+        }
+        for (int i = 0; i < labels.length; i += 2) {
+            if (!IS_VALID_LABEL_NAME.test(labels[i])) {
+                throw new IllegalArgumentException(
+                        "The label name '%s' is invalid".formatted(labels[i]));
+            }
+        }
+        return PrometheusFormat.formatLabels(labels);
+    }
+
+    /**
+     * A time series of a metric.
+     *
+     * @param instrument the object the series has been created for, for example a {@link Counter}
+     * @param meter writes the samples of the series
+     */
+    private record Series(@NotNull Object instrument, @NotNull Meter meter) {
+    }
+
+    /**
+     * All time series of a metric, by their formatted labels.
+     */
+    private static final class MetricFamily {
+        private final String name;
+        private final String help;
+        private final MetricType type;
+        private final Map<String, Series> labelsToSeries = new ConcurrentSkipListMap<>();
+
+        MetricFamily(@NotNull String name, @NotNull String help, @NotNull MetricType type) {
+            this.name = name;
+            this.help = help;
+            this.type = type;
+        }
+
+        void writeTo(@NotNull StringBuilder out) {
+            StringBuilder samples = new StringBuilder();
+            labelsToSeries.forEach((labels, series) -> {
+                // Write to a buffer first, so that a failing series leaves no partial samples
+                StringBuilder seriesSamples = new StringBuilder();
+                try {
+                    series.meter().writeSamples(seriesSamples, name, labels);
+                } catch (RuntimeException e) {
+                    logger.warn("Unable to query the metric '{}' with labels {}", name, labels, e);
+                    return;
+                }
+                samples.append(seriesSamples);
+            });
+
+            PrometheusFormat.writeHeader(out, name, help, type);
+            out.append(samples);
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package org.togetherjava.tjbot.metrics;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Lightweight embedded HTTP server that serves the metrics of a {@link MetricsRegistry} to
+ * Prometheus.
+ * <p>
+ * The metrics are served at {@value #METRICS_PATH} in the text-based exposition format of
+ * Prometheus. Requests are handled one after another by a single daemon thread, which is enough for
+ * a few scrapes per minute.
+ */
+public final class MetricsServer implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(MetricsServer.class);
+    /**
+     * The path the metrics are served at.
+     */
+    public static final String METRICS_PATH = "/metrics";
+
+    private final MetricsRegistry registry;
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    private MetricsServer(@NotNull MetricsRegistry registry, @NotNull HttpServer server) {
+        this.registry = registry;
+        this.server = server;
+
+        executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "metrics-server");
+            thread.setDaemon(true);
+            return thread;
+        });
+        server.setExecutor(executor);
+        server.createContext(METRICS_PATH, this::handle);
+    }
+
+    /**
+     * Starts a server that serves the metrics of the given registry.
+     *
+     * @param registry the registry to serve the metrics of
+     * @param address the address to listen on, a port of {@code 0} picks a free port
+     * @return the started server
+     * @throws IOException if the server could not be bound to the address, for example since the
+     *         port is already in use
+     */
+    public static @NotNull MetricsServer start(@NotNull MetricsRegistry registry,
+            @NotNull InetSocketAddress address) throws IOException {
+        MetricsServer metricsServer = new MetricsServer(registry, HttpServer.create(address, 0));
+        metricsServer.server.start();
+
+        logger.info("Serving metrics at http://{}:{}{}", address.getHostString(),
+                metricsServer.getPort(), METRICS_PATH);
+        return metricsServer;
+    }
+
+    /**
+     * Gets the port the server is listening on.
+     *
+     * @return the port
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Stops the server, requests that are currently handled are aborted.
+     */
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void handle(@NotNull HttpExchange exchange) throws IOException {
+        try (exchange) {
+            // The context also matches sub-paths, such as "/metrics/foo"
+            if (!METRICS_PATH.equals(exchange.getRequestURI().getPath())) {
+                exchange.sendResponseHeaders(HttpURLConnection.HTTP_NOT_FOUND, -1);
+                return;
+            }
+
+            String method = exchange.getRequestMethod();
+            boolean isHead = "HEAD".equals(method);
+            if (!isHead && !"GET".equals(method)) {
+                exchange.getResponseHeaders().set("Allow", "GET, HEAD");
+                exchange.sendResponseHeaders(HttpURLConnection.HTTP_BAD_METHOD, -1);
+                return;
+            }
+
+            exchange.getResponseHeaders().set("Content-Type", PrometheusFormat.CONTENT_TYPE);
+            if (isHead) {
+                exchange.sendResponseHeaders(HttpURLConnection.HTTP_OK, -1);
+                return;
+            }
+
+            byte[] body = registry.scrape().getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(HttpURLConnection.HTTP_OK, body.length);
+            try (OutputStream responseBody = exchange.getResponseBody()) {
+                responseBody.write(body);
+            }
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package org.togetherjava.tjbot.metrics;
+
+import org.togetherjava.tjbot.commands.system.DurationHistogram;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.StringJoiner;
+
+/**
+ * Utility to write metrics in the text-based exposition format of Prometheus, version 0.0.4.
+ * <p>
+ * Durations are written in seconds, as recommended by Prometheus.
+ */
+enum PrometheusFormat {
+    ;
+
+    /**
+     * The content type of the format, to be used for HTTP responses.
+     */
+    static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+    private static final double NANOS_PER_SECOND = 1_000_000_000.0;
+    private static final double MILLIS_PER_SECOND = 1_000.0;
+
+    /**
+     * Writes the {@code HELP} and {@code TYPE} lines that precede the samples of a metric.
+     */
+    static void writeHeader(StringBuilder out, String name, String help, MetricType type) {
+        out.append("# HELP ").append(name).append(' ').append(escapeHelp(help)).append('\n');
+        out.append("# TYPE ")
+            .append(name)
+            .append(' ')
+            .append(type.name().toLowerCase(Locale.ROOT))
+            .append('\n');
+    }
+
+    static void writeSample(StringBuilder out, String name, String labels, long value) {
+        writeSampleName(out, name, labels);
+        out.append(value).append('\n');
+    }
+
+    static void writeSample(StringBuilder out, String name, String labels, double value) {
+        writeSampleName(out, name, labels);
+        out.append(formatDouble(value)).append('\n');
+    }
+
+    /**
+     * Writes the samples of a histogram. The buckets are the ones of {@link DurationHistogram},
+     * the last one is written as {@code +Inf}, since it holds all longer durations.
+     */
+    static void writeHistogram(StringBuilder out, String name, String labels,
+            DurationHistogram.Snapshot snapshot) {
+        String bucketName = name + "_bucket";
+        String labelsPrefix = labels.isEmpty() ? "" : labels + ",";
+
+        long[] bucketCounts = snapshot.bucketCounts();
+        long cumulativeCount = 0;
+        for (int i = 0; i < bucketCounts.length - 1; i++) {
+            cumulativeCount += bucketCounts[i];
+            String upperBound = formatDouble((1L << i) / MILLIS_PER_SECOND);
+            writeSample(out, bucketName, labelsPrefix + "le=\"" + upperBound + "\"",
+                    cumulativeCount);
+        }
+        writeSample(out, bucketName, labelsPrefix + "le=\"+Inf\"", snapshot.count());
+
+        writeSample(out, name + "_sum", labels, toSeconds(snapshot.total()));
+        writeSample(out, name + "_count", labels, snapshot.count());
+    }
+
+    static void writeSummary(StringBuilder out, String name, String labels, long count,
+            Duration sum) {
+        writeSample(out, name + "_sum", labels, toSeconds(sum));
+        writeSample(out, name + "_count", labels, count);
+    }
+
+    /**
+     * Formats the given labels as comma separated {@code key="value"} pairs, with the values
+     * escaped.
+     *
+     * @param keyValues the labels, alternating between key and value
+     * @return the formatted labels, empty if there are none
+     */
+    static String formatLabels(String... keyValues) {
+        StringJoiner labels = new StringJoiner(",");
+        for (int i = 0; i < keyValues.length; i += 2) {
+            labels.add(keyValues[i] + "=\"" + escapeLabelValue(keyValues[i + 1]) + "\"");
+        }
+        return labels.toString();
+    }
+
+    static double toSeconds(Duration duration) {
+        return duration.toNanos() / NANOS_PER_SECOND;
+    }
+
+    private static void writeSampleName(StringBuilder out, String name, String labels) {
+        out.append(name);
+        if (!labels.isEmpty()) {
+            out.append('{').append(labels).append('}');
+        }
+        out.append(' ');
+    }
+
+    private static String formatDouble(double value) {
+        if (value == Double.POSITIVE_INFINITY) {
+            return "+Inf";
+        }
+        if (value == Double.NEGATIVE_INFINITY) {
+            return "-Inf";
+        }
+        // Also covers NaN, which is written as "NaN"
+        return Double.toString(value);
+    }
+
+    private static String escapeHelp(String help) {
+        return help.replace("\\", "\\\\").replace("\n", "\\n");
+    }
+
+    private static String escapeLabelValue(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+}
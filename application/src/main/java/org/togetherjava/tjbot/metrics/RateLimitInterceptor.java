@@ -0,0 +1,74 @@
+package org.togetherjava.tjbot.metrics;
+
+import okhttp3.Interceptor;
+import okhttp3.Response;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.util.Locale;
+
+/**
+ * Interceptor for the HTTP client of JDA that counts the requests sent to the REST API of Discord
+ * and how often they hit a rate limit.
+ * <p>
+ * JDA handles rate limits itself, by delaying requests once a bucket is exhausted and by retrying
+ * requests that were rejected with {@code 429 Too Many Requests}. It does not offer a way to
+ * observe this, hence the responses are inspected directly. Register the interceptor at the HTTP
+ * client builder given to JDA, see
+ * {@link net.dv8tion.jda.api.sharding.DefaultShardManagerBuilder#setHttpClientBuilder}.
+ */
+public final class RateLimitInterceptor implements Interceptor {
+    private static final int TOO_MANY_REQUESTS = 429;
+    private static final String SCOPE_HEADER = "X-RateLimit-Scope";
+    private static final String GLOBAL_HEADER = "X-RateLimit-Global";
+    private static final String REMAINING_HEADER = "X-RateLimit-Remaining";
+    /**
+     * Scope of rate limits without any rate limit headers, for example if Cloudflare rejected the
+     * request.
+     */
+    private static final String UNKNOWN_SCOPE = "unknown";
+
+    private final MetricsRegistry registry;
+    private final Counter requests;
+    private final Counter exhaustedBuckets;
+
+    /**
+     * Creates a new interceptor.
+     *
+     * @param registry the registry to record the metrics in
+     */
+    public RateLimitInterceptor(@NotNull MetricsRegistry registry) {
+        this.registry = registry;
+
+        requests = registry.counter("tjbot_rest_requests_total",
+                "Requests sent to the REST API of Discord, including retries");
+        exhaustedBuckets = registry.counter("tjbot_rest_rate_limit_exhausted_total",
+                "Responses that exhausted their rate limit bucket, delaying further requests of the bucket");
+    }
+
+    @Override
+    public @NotNull Response intercept(@NotNull Chain chain) throws IOException {
+        Response response = chain.proceed(chain.request());
+        requests.increment();
+
+        if (response.code() == TOO_MANY_REQUESTS) {
+            registry
+                .counter("tjbot_rest_rate_limit_hits_total",
+                        "Requests rejected by Discord since they exceeded a rate limit", "scope",
+                        getScope(response))
+                .increment();
+        } else if ("0".equals(response.header(REMAINING_HEADER))) {
+            exhaustedBuckets.increment();
+        }
+
+        return response;
+    }
+
+    private static @NotNull String getScope(@NotNull Response response) {
+        String scope = response.header(SCOPE_HEADER);
+        if (scope != null) {
+            return scope.toLowerCase(Locale.ROOT);
+        }
+        return Boolean.parseBoolean(response.header(GLOBAL_HEADER)) ? "global" : UNKNOWN_SCOPE;
+    }
+}
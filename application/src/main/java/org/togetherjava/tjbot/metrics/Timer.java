@@ -0,0 +1,38 @@
+package org.togetherjava.tjbot.metrics;
+
+import org.jetbrains.annotations.NotNull;
+import org.togetherjava.tjbot.commands.system.DurationHistogram;
+
+import java.time.Duration;
+
+/**
+ * A metric that records durations, for example how long commands take, in a
+ * {@link DurationHistogram}. Created by {@link MetricsRegistry#timer(String, String, String...)}.
+ * <p>
+ * The timer is thread-safe.
+ */
+public final class Timer {
+    private final DurationHistogram histogram = new DurationHistogram();
+
+    Timer() {
+        // Created by the registry
+    }
+
+    /**
+     * Records the given duration.
+     *
+     * @param duration the duration to record
+     */
+    public void record(@NotNull Duration duration) {
+        histogram.record(duration);
+    }
+
+    /**
+     * Gets a snapshot of the durations recorded so far.
+     *
+     * @return the current snapshot
+     */
+    public @NotNull DurationHistogram.Snapshot snapshot() {
+        return histogram.snapshot();
+    }
+}
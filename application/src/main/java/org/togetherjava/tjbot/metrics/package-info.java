@@ -0,0 +1,5 @@
+/**
+ * This package contains the metrics of the bot, such as how long commands take, and serves them
+ * to Prometheus. The entry point is {@link org.togetherjava.tjbot.metrics.MetricsRegistry}.
+ */
+package org.togetherjava.tjbot.metrics;
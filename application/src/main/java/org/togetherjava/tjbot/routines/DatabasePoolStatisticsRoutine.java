@@ -0,0 +1,65 @@
+package org.togetherjava.tjbot.routines;
+
+import net.dv8tion.jda.api.sharding.ShardManager;
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.togetherjava.tjbot.commands.Routine;
+import org.togetherjava.tjbot.db.ConnectionPoolStatistics;
+import org.togetherjava.tjbot.db.Database;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Routine that periodically logs the usage statistics of the database's pool of read-only
+ * connections, see {@link Database#getReadPoolStatistics()}.
+ * <p>
+ * Contention, i.e. reads that had to wait for a connection since the last run, is logged as
+ * warning. It indicates that the pool size, as configured by
+ * {@link org.togetherjava.tjbot.config.DatabaseConfig#getReadPoolSize()}, should be increased.
+ */
+public final class DatabasePoolStatisticsRoutine implements Routine {
+    private static final Logger logger =
+            LoggerFactory.getLogger(DatabasePoolStatisticsRoutine.class);
+
+    private final Database database;
+    private long lastContendedAcquisitions;
+
+    /**
+     * Creates a new instance.
+     *
+     * @param database the database to log the pool statistics of
+     */
+    public DatabasePoolStatisticsRoutine(@NotNull Database database) {
+        this.database = database;
+    }
+
+    @Override
+    public @NotNull Schedule createSchedule() {
+        return new Schedule(ScheduleMode.FIXED_RATE, 1, 1, TimeUnit.HOURS);
+    }
+
+    @Override
+    public void runRoutine(@NotNull ShardManager shardManager) {
+        Optional<ConnectionPoolStatistics> maybeStatistics = database.getReadPoolStatistics();
+        if (maybeStatistics.isEmpty()) {
+            // Database does not use a pool
+            return;
+        }
+        ConnectionPoolStatistics statistics = maybeStatistics.orElseThrow();
+
+        long newContendedAcquisitions =
+                statistics.contendedAcquisitions() - lastContendedAcquisitions;
+        lastContendedAcquisitions = statistics.contendedAcquisitions();
+
+        if (newContendedAcquisitions > 0) {
+            logger.warn(
+                    "{} reads had to wait for a connection of the database read pool during the last hour, consider increasing the pool size ({})",
+                    newContendedAcquisitions, statistics);
+            return;
+        }
+        logger.debug("Database read pool statistics: {} (average wait time {})", statistics,
+                statistics.averageWaitTime());
+    }
+}
@@ -0,0 +1,65 @@
+package org.togetherjava.tjbot.routines;
+
+import net.dv8tion.jda.api.entities.Guild;
+import net.dv8tion.jda.api.sharding.ShardManager;
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.togetherjava.tjbot.commands.Routine;
+import org.togetherjava.tjbot.config.Config;
+import org.togetherjava.tjbot.config.JdaCacheProfile;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryUsage;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Routine that periodically reports the heap usage of the bot together with the sizes of the
+ * in-memory cache of Discord data, so that the cache profiles (see
+ * {@link org.togetherjava.tjbot.config.JdaCacheConfig}) can be compared in production.
+ * <p>
+ * With the {@link JdaCacheProfile#LEAN} profile, the member caches are pruned beforehand, removing
+ * members that do not match the member cache policy anymore.
+ */
+public final class JdaCacheRoutine implements Routine {
+    private static final Logger logger = LoggerFactory.getLogger(JdaCacheRoutine.class);
+    private static final long BYTES_PER_MEGABYTE = 1024 * 1024;
+
+    private final JdaCacheProfile cacheProfile;
+
+    /**
+     * Creates a new instance.
+     *
+     * @param config the config to use for this
+     */
+    public JdaCacheRoutine(@NotNull Config config) {
+        cacheProfile = config.getJdaCache().getProfile();
+    }
+
+    @Override
+    public @NotNull Schedule createSchedule() {
+        return new Schedule(ScheduleMode.FIXED_RATE, 1, 1, TimeUnit.HOURS);
+    }
+
+    @Override
+    public void runRoutine(@NotNull ShardManager shardManager) {
+        if (cacheProfile == JdaCacheProfile.LEAN) {
+            shardManager.getGuildCache().forEach(Guild::pruneMemberCache);
+        }
+
+        long members = shardManager.getGuildCache()
+            .stream()
+            .mapToLong(guild -> guild.getMemberCache().size())
+            .sum();
+        MemoryUsage heap = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage();
+
+        logger.info(
+                "Heap report ({} cache profile): {} MB used, {} MB committed, {} MB max; cached {} guilds, {} users, {} members, {} text channels, {} voice channels, {} roles, {} emotes",
+                cacheProfile, heap.getUsed() / BYTES_PER_MEGABYTE,
+                heap.getCommitted() / BYTES_PER_MEGABYTE, heap.getMax() / BYTES_PER_MEGABYTE,
+                shardManager.getGuildCache().size(), shardManager.getUserCache().size(), members,
+                shardManager.getTextChannelCache().size(),
+                shardManager.getVoiceChannelCache().size(), shardManager.getRoleCache().size(),
+                shardManager.getEmoteCache().size());
+    }
+}
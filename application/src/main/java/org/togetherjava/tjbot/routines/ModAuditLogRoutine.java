@@ -10,6 +10,7 @@ import net.dv8tion.jda.api.entities.*;
 import net.dv8tion.jda.api.requests.RestAction;
 import net.dv8tion.jda.api.requests.restaction.pagination.AuditLogPaginationAction;
 import net.dv8tion.jda.api.requests.restaction.pagination.PaginationAction;
+import net.dv8tion.jda.api.sharding.ShardManager;
 import net.dv8tion.jda.api.utils.TimeUtil;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
@@ -23,16 +24,11 @@ import org.togetherjava.tjbot.db.generated.tables.ModAuditLogGuildProcess;
 
 import java.awt.*;
 import java.time.*;
-import java.time.temporal.ChronoUnit;
 import java.time.temporal.TemporalAccessor;
 import java.util.*;
 import java.util.List;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.TimeUnit;
-import java.util.function.BiFunction;
 import java.util.function.Predicate;
 import java.util.regex.Pattern;
-import java.util.stream.Collectors;
 
 /**
  * Routine that automatically checks moderator actions on a schedule and logs them to dedicated
@@ -44,9 +40,11 @@ import java.util.stream.Collectors;
  */
 public final class ModAuditLogRoutine implements Routine {
     private static final Logger logger = LoggerFactory.getLogger(ModAuditLogRoutine.class);
-    private static final int CHECK_AUDIT_LOG_START_HOUR = 4;
-    private static final int CHECK_AUDIT_LOG_EVERY_HOURS = 8;
-    private static final int HOURS_OF_DAY = 24;
+    /**
+     * Checks the audit logs at 4:00, 12:00 and 20:00 UTC each day.
+     */
+    private static final Schedule CHECK_AUDIT_LOG_SCHEDULE =
+            Schedule.cron("0 4/8 * * *", ZoneOffset.UTC).withJitter(Duration.ofMinutes(5));
     private static final Color AMBIENT_COLOR = Color.decode("#4FC3F7");
 
     private final String modAuditLogChannelPattern;
@@ -103,76 +101,6 @@ public final class ModAuditLogRoutine implements Routine {
         return TimeUtil.getTimeCreated(snowflake.getIdLong()).toInstant().isAfter(timestamp);
     }
 
-    /**
-     * Creates a schedule for execution at a fixed rate (see
-     * {@link ScheduledExecutorService#scheduleAtFixedRate(Runnable, long, long, TimeUnit)}). The
-     * initial first execution will be delayed to the next fixed time that matches the given period,
-     * effectively making execution stable at fixed times of a day - regardless of when this method
-     * was originally triggered.
-     * <p>
-     * For example, if the given period is 8 hours with a start hour of 4 o'clock, this leads to the
-     * fixed execution times of 4:00, 12:00 and 20:00 each day. The first execution is then delayed
-     * to the closest time in that schedule. For example, if triggered at 7:00, execution will
-     * happen at 12:00 and then follow the schedule.
-     * <p>
-     * Execution will also correctly roll over to the next day, for example if the method is
-     * triggered at 21:30, the next execution will be at 4:00 the following day.
-     *
-     * @param periodStartHour the hour of the day that marks the start of this period
-     * @param periodHours the scheduling period in hours
-     * @return the according schedule representing the planned execution
-     */
-    private static @NotNull Schedule scheduleAtFixedRateFromNextFixedTime(
-            @SuppressWarnings("SameParameterValue") int periodStartHour,
-            @SuppressWarnings("SameParameterValue") int periodHours) {
-        // NOTE This scheduler could be improved, for example supporting arbitrary periods (not just
-        // hour-based). Also, it probably does not correctly handle all date/time-quirks, for
-        // example if a schedule would hit a time that does not exist for a specific date due to DST
-        // or similar issues. Those are minor though and can be ignored for now.
-        if (periodHours <= 0 || periodHours >= HOURS_OF_DAY) {
-            throw new IllegalArgumentException(
-                    "Schedule period must not be zero and must fit into a single day");
-        }
-        if (periodStartHour <= 0 || periodStartHour >= HOURS_OF_DAY) {
-            throw new IllegalArgumentException(
-                    "Schedule period start hour must be a valid hour of a day (0-23)");
-        }
-
-        // Compute fixed schedule hours
-        List<Integer> fixedScheduleHours = new ArrayList<>();
-
-        for (int hour = periodStartHour; hour < HOURS_OF_DAY; hour += periodHours) {
-            fixedScheduleHours.add(hour);
-        }
-
-        Instant now = Instant.now();
-        Instant nextFixedTime =
-                computeClosestNextScheduleDate(now, fixedScheduleHours, periodHours);
-        return new Schedule(ScheduleMode.FIXED_RATE, ChronoUnit.SECONDS.between(now, nextFixedTime),
-                TimeUnit.HOURS.toSeconds(periodHours), TimeUnit.SECONDS);
-    }
-
-    private static @NotNull Instant computeClosestNextScheduleDate(@NotNull Instant instant,
-            @NotNull List<Integer> scheduleHours, int periodHours) {
-        OffsetDateTime offsetDateTime = instant.atOffset(ZoneOffset.UTC);
-        BiFunction<OffsetDateTime, Integer, Instant> dateAtTime =
-                (date, hour) -> date.with(LocalTime.of(hour, 0)).toInstant();
-
-        // The instant is either before the given hours, in between, or after.
-        // For latter, we roll the schedule over once to the next day
-        List<Instant> scheduleDates = scheduleHours.stream()
-            .map(hour -> dateAtTime.apply(offsetDateTime, hour))
-            .collect(Collectors.toCollection(ArrayList::new));
-        int rolloverHour =
-                (scheduleHours.get(scheduleHours.size() - 1) + periodHours) % HOURS_OF_DAY;
-        scheduleDates.add(dateAtTime.apply(offsetDateTime.plusDays(1), rolloverHour));
-
-        return scheduleDates.stream()
-            .filter(instant::isBefore)
-            .min(Comparator.comparing(scheduleDate -> Duration.between(instant, scheduleDate)))
-            .orElseThrow();
-    }
-
     private static @NotNull Optional<RestAction<MessageEmbed>> handleBanEntry(
             @NotNull AuditLogEntry entry) {
         // NOTE Temporary bans are realized as permanent bans with automated unban,
@@ -208,23 +136,38 @@ public final class ModAuditLogRoutine implements Routine {
     }
 
     @Override
-    public void runRoutine(@NotNull JDA jda) {
-        checkAuditLogsRoutine(jda);
+    public void runRoutine(@NotNull ShardManager shardManager) {
+        logger.info("Checking audit logs of all guilds...");
+
+        // Each shard knows only its own guilds, the progress is memorized per guild, so guilds of
+        // a shard that is currently not connected are simply caught up on the next check
+        shardManager.getShardCache().forEach(shard -> {
+            if (shard.getStatus() != JDA.Status.CONNECTED) {
+                logger.warn("Skipped checking the audit logs of shard {} since it is {}",
+                        shard.getShardInfo().getShardId(), shard.getStatus());
+                return;
+            }
+            checkAuditLogsRoutine(shard);
+        });
+
+        logger.info(
+                "Finished checking audit logs of all guilds. The next check is scheduled for {}.",
+                getNextCheckTime());
     }
 
     @Override
     public @NotNull Schedule createSchedule() {
-        Schedule schedule = scheduleAtFixedRateFromNextFixedTime(CHECK_AUDIT_LOG_START_HOUR,
-                CHECK_AUDIT_LOG_EVERY_HOURS);
-        logger.info("Checking audit logs is scheduled for {}.",
-                Instant.now().plus(schedule.initialDuration(), schedule.unit().toChronoUnit()));
-        return schedule;
+        logger.info("Checking audit logs is scheduled for {}.", getNextCheckTime());
+        return CHECK_AUDIT_LOG_SCHEDULE;
     }
 
-    private void checkAuditLogsRoutine(@NotNull JDA jda) {
-        logger.info("Checking audit logs of all guilds...");
+    private static @NotNull ZonedDateTime getNextCheckTime() {
+        return Objects.requireNonNull(CHECK_AUDIT_LOG_SCHEDULE.cronExpression())
+            .nextAfter(ZonedDateTime.now(CHECK_AUDIT_LOG_SCHEDULE.zone()));
+    }
 
-        jda.getGuildCache().forEach(guild -> {
+    private void checkAuditLogsRoutine(@NotNull JDA shard) {
+        shard.getGuildCache().forEach(guild -> {
             if (!guild.getSelfMember().hasPermission(Permission.VIEW_AUDIT_LOGS)) {
                 logger.error(
                         "The bot does not have 'VIEW_AUDIT_LOGS' permissions in guild '{}' which are required to log mod actions.",
@@ -244,10 +187,6 @@ public final class ModAuditLogRoutine implements Routine {
             handleAuditLogs(auditLogChannel.orElseThrow(), guild.retrieveAuditLogs(),
                     guild.getIdLong());
         });
-
-        logger.info(
-                "Finished checking audit logs of all guilds. The next check is scheduled to be executed in {} hours.",
-                CHECK_AUDIT_LOG_EVERY_HOURS);
     }
 
     private void handleAuditLogs(@NotNull MessageChannel auditLogChannel,
@@ -0,0 +1,20 @@
+-- Indexes for the access paths of the moderation actions, all of them are scoped to a guild and
+-- ordered by the time the action was issued at.
+
+-- The last action of a type against a user, queried whenever a member joins, and all actions
+-- against a user, as listed by audit
+CREATE INDEX moderation_actions_by_target
+    ON moderation_actions (guild_id, target_id, action_type, issued_at);
+
+-- All actions issued by a moderator
+CREATE INDEX moderation_actions_by_author
+    ON moderation_actions (guild_id, author_id, issued_at);
+
+-- All actions of a type
+CREATE INDEX moderation_actions_by_type
+    ON moderation_actions (guild_id, action_type, issued_at);
+
+-- Temporary actions that still have to be revoked, only a small part of all actions
+CREATE INDEX moderation_actions_temporary
+    ON moderation_actions (action_type, issued_at)
+    WHERE action_expires_at IS NOT NULL;
@@ -0,0 +1,17 @@
+-- Component IDs are stored in a compact binary format from now on. Existing rows keep their
+-- legacy CSV text as bytes and are converted by the application on startup.
+ALTER TABLE component_ids RENAME TO component_ids_legacy;
+
+CREATE TABLE component_ids
+(
+    uuid         TEXT      NOT NULL UNIQUE PRIMARY KEY,
+    component_id BLOB      NOT NULL,
+    last_used    TIMESTAMP NOT NULL,
+    lifespan     TEXT      NOT NULL
+);
+
+INSERT INTO component_ids (uuid, component_id, last_used, lifespan)
+SELECT uuid, CAST(component_id AS BLOB), last_used, lifespan
+FROM component_ids_legacy;
+
+DROP TABLE component_ids_legacy;
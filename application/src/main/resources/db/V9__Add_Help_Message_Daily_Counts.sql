@@ -0,0 +1,19 @@
+-- Daily message counts per author, so that top-helpers does not have to aggregate the raw
+-- messages. Maintained by the application together with the raw messages, which can then be
+-- purged while the counts survive.
+CREATE TABLE help_message_daily_counts
+(
+    guild_id      BIGINT  NOT NULL,
+    day           DATE    NOT NULL,
+    author_id     BIGINT  NOT NULL,
+    message_count INTEGER NOT NULL,
+    PRIMARY KEY (guild_id, day, author_id)
+) WITHOUT ROWID;
+
+INSERT INTO help_message_daily_counts (guild_id, day, author_id, message_count)
+SELECT guild_id, date(sent_at), author_id, COUNT(*)
+FROM help_channel_messages
+GROUP BY guild_id, date(sent_at), author_id;
+
+-- Used to purge old messages
+CREATE INDEX help_channel_messages_sent_at ON help_channel_messages (sent_at);
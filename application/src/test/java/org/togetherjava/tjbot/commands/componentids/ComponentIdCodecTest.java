@@ -0,0 +1,64 @@
+package org.togetherjava.tjbot.commands.componentids;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+final class ComponentIdCodecTest {
+    @Test
+    void roundTrip() {
+        List<ComponentId> componentIds = List.of(new ComponentId("foo", List.of()),
+                new ComponentId("", List.of("")), new ComponentId("foo", List.of("bar", "baz")),
+                new ComponentId("foo", List.of("a;b,c\"d", "\u00fcml\u00e4ut\uD83E\uDD86")),
+                new ComponentId("foo", Collections.nCopies(300, "x".repeat(200))));
+
+        for (ComponentId componentId : componentIds) {
+            byte[] data = ComponentIdCodec.encode(componentId);
+
+            assertFalse(ComponentIdCodec.isLegacy(data));
+            assertEquals(componentId, ComponentIdCodec.decode(data));
+        }
+    }
+
+    @Test
+    void decodeLegacyCsv() {
+        byte[] data = "foo,\"bar;x\"\"y,z\"\n".getBytes(StandardCharsets.UTF_8);
+
+        assertTrue(ComponentIdCodec.isLegacy(data));
+        assertEquals(new ComponentId("foo", List.of("bar", "x\"y,z")),
+                ComponentIdCodec.decode(data));
+    }
+
+    @Test
+    void decodeMalformed() {
+        byte[] data = ComponentIdCodec.encode(new ComponentId("foo", List.of("bar")));
+
+        byte[] truncated = new byte[data.length - 1];
+        System.arraycopy(data, 0, truncated, 0, truncated.length);
+        assertThrows(InvalidComponentIdFormatException.class,
+                () -> ComponentIdCodec.decode(truncated));
+
+        byte[] trailing = new byte[data.length + 1];
+        System.arraycopy(data, 0, trailing, 0, data.length);
+        assertThrows(InvalidComponentIdFormatException.class,
+                () -> ComponentIdCodec.decode(trailing));
+    }
+
+    @Test
+    void decodeHugeElementCount() {
+        byte[] data = ComponentIdCodec.encode(new ComponentId("foo", List.of()));
+
+        // Replaces the element count of 0 by the maximal count
+        byte[] corrupt = new byte[data.length + 4];
+        System.arraycopy(data, 0, corrupt, 0, data.length - 1);
+        byte[] maxCount = {(byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x07};
+        System.arraycopy(maxCount, 0, corrupt, data.length - 1, maxCount.length);
+
+        assertThrows(InvalidComponentIdFormatException.class,
+                () -> ComponentIdCodec.decode(corrupt));
+    }
+}
@@ -0,0 +1,50 @@
+package org.togetherjava.tjbot.commands.componentids;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.togetherjava.tjbot.db.Database;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.togetherjava.tjbot.db.generated.tables.ComponentIds.COMPONENT_IDS;
+
+final class ComponentIdStoreTest {
+    private Database database;
+
+    @BeforeEach
+    void setUp() {
+        database = Database.createMemoryDatabase(COMPONENT_IDS);
+    }
+
+    @AfterEach
+    void tearDown() {
+        database.close();
+    }
+
+    private Instant getLastUsed(UUID uuid) {
+        return database.read(context -> context.select(COMPONENT_IDS.LAST_USED)
+            .from(COMPONENT_IDS)
+            .where(COMPONENT_IDS.UUID.eq(uuid.toString()))
+            .fetchOne(COMPONENT_IDS.LAST_USED));
+    }
+
+    @Test
+    void heatIsFlushedOnClose() {
+        ComponentIdStore store = new ComponentIdStore(database);
+        UUID uuid = UUID.randomUUID();
+        store.putOrThrow(uuid, new ComponentId("command", List.of("argument")), Lifespan.REGULAR);
+        database.write(context -> context.update(COMPONENT_IDS)
+            .set(COMPONENT_IDS.LAST_USED, Instant.EPOCH)
+            .execute());
+
+        store.get(uuid);
+        store.close();
+
+        // Closing waits for the flush
+        assertTrue(getLastUsed(uuid).isAfter(Instant.EPOCH));
+    }
+}
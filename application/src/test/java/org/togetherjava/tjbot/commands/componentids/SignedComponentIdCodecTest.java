@@ -0,0 +1,111 @@
+package org.togetherjava.tjbot.commands.componentids;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+final class SignedComponentIdCodecTest {
+    private static final String SECRET = "some-secret-that-is-long-enough-to-be-used";
+    private static final String OTHER_SECRET = "other-secret-that-is-long-enough-to-be-used";
+    private static final Duration REGULAR_LIFESPAN = Duration.ofDays(1);
+    private static final Instant NOW = Instant.parse("2021-12-01T10:15:30Z");
+
+    private SignedComponentIdCodec codec;
+
+    @BeforeEach
+    void setUp() {
+        codec = createCodec(SECRET, NOW);
+    }
+
+    private static SignedComponentIdCodec createCodec(String secret, Instant now) {
+        return new SignedComponentIdCodec(secret, REGULAR_LIFESPAN,
+                Clock.fixed(now, ZoneOffset.UTC));
+    }
+
+    @Test
+    void roundTrip() {
+        List<ComponentId> componentIds = List.of(new ComponentId("foo", List.of()),
+                new ComponentId("foo", List.of("bar", "baz")),
+                new ComponentId("audit", List.of("123456789012345678", "")),
+                new ComponentId("\u00fcml\u00e4ut", List.of("\uD83E\uDD86")));
+
+        for (ComponentId componentId : componentIds) {
+            for (Lifespan lifespan : Lifespan.values()) {
+                String id = codec.encode(componentId, lifespan).orElseThrow();
+
+                assertTrue(SignedComponentIdCodec.isEncoded(id));
+                assertTrue(id.length() <= SignedComponentIdCodec.MAX_ID_LENGTH);
+                assertEquals(Optional.of(componentId), codec.decode(id));
+            }
+        }
+    }
+
+    @Test
+    void uuidIsNotEncoded() {
+        assertFalse(SignedComponentIdCodec.isEncoded(UUID.randomUUID().toString()));
+        assertFalse(SignedComponentIdCodec.isEncoded(""));
+    }
+
+    @Test
+    void tooLargePayloadIsRejected() {
+        ComponentId componentId = new ComponentId("foo", Collections.nCopies(10, "0123456789"));
+
+        assertTrue(codec.encode(componentId, Lifespan.REGULAR).isEmpty());
+    }
+
+    @Test
+    void regularIdExpires() {
+        String id = codec.encode(new ComponentId("foo", List.of("bar")), Lifespan.REGULAR)
+            .orElseThrow();
+
+        SignedComponentIdCodec beforeExpiration =
+                createCodec(SECRET, NOW.plus(REGULAR_LIFESPAN).minusSeconds(1));
+        assertTrue(beforeExpiration.decode(id).isPresent());
+
+        SignedComponentIdCodec afterExpiration =
+                createCodec(SECRET, NOW.plus(REGULAR_LIFESPAN).plusSeconds(1));
+        assertTrue(afterExpiration.decode(id).isEmpty());
+    }
+
+    @Test
+    void permanentIdDoesNotExpire() {
+        String id = codec.encode(new ComponentId("foo", List.of("bar")), Lifespan.PERMANENT)
+            .orElseThrow();
+
+        SignedComponentIdCodec farFuture = createCodec(SECRET, NOW.plus(Duration.ofDays(10_000)));
+        assertTrue(farFuture.decode(id).isPresent());
+    }
+
+    @Test
+    void forgedIdIsRejected() {
+        String id = codec.encode(new ComponentId("foo", List.of("bar")), Lifespan.REGULAR)
+            .orElseThrow();
+
+        SignedComponentIdCodec otherSecret = createCodec(OTHER_SECRET, NOW);
+        assertThrows(InvalidComponentIdFormatException.class, () -> otherSecret.decode(id));
+
+        char lastChar = id.charAt(id.length() - 1);
+        String tampered = id.substring(0, id.length() - 1) + (lastChar == 'A' ? 'B' : 'A');
+        assertThrows(InvalidComponentIdFormatException.class, () -> codec.decode(tampered));
+
+        assertThrows(InvalidComponentIdFormatException.class, () -> codec.decode("~abc"));
+        assertThrows(InvalidComponentIdFormatException.class, () -> codec.decode("~!!!"));
+    }
+
+    @Test
+    void weakSecretsAreRejected() {
+        assertThrows(IllegalArgumentException.class, () -> createCodec("short-secret", NOW));
+        assertThrows(IllegalArgumentException.class,
+                () -> createCodec("<put_a_long_random_secret_here>", NOW));
+    }
+}
@@ -0,0 +1,81 @@
+package org.togetherjava.tjbot.commands.free;
+
+import net.dv8tion.jda.api.JDA;
+import net.dv8tion.jda.api.events.ReadyEvent;
+import net.dv8tion.jda.api.sharding.ShardManager;
+import net.dv8tion.jda.api.utils.cache.ShardCacheView;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.togetherjava.tjbot.config.Config;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.mockito.Mockito.*;
+
+final class FreeCommandTest {
+    private Config config;
+    private ShardManager shardManager;
+    private FreeCommand command;
+
+    @BeforeEach
+    void setUp() {
+        config = mock(Config.class);
+        when(config.getFreeCommandConfig()).thenReturn(List.of());
+
+        shardManager = mock(ShardManager.class);
+        command = new FreeCommand(config);
+    }
+
+    private JDA createShard(JDA.Status status) {
+        JDA shard = mock(JDA.class);
+        when(shard.getStatus()).thenReturn(status);
+        when(shard.getShardManager()).thenReturn(shardManager);
+        return shard;
+    }
+
+    private void setShards(JDA... shards) {
+        ShardCacheView shardCache = mock(ShardCacheView.class);
+        when(shardCache.stream()).thenAnswer(invocation -> Stream.of(shards));
+        when(shardManager.getShardCache()).thenReturn(shardCache);
+    }
+
+    private static ReadyEvent createReadyEvent(JDA shard) {
+        ReadyEvent event = mock(ReadyEvent.class);
+        when(event.getJDA()).thenReturn(shard);
+        return event;
+    }
+
+    @Test
+    void initializesOnceTheOnlyShardIsReady() {
+        // JDA fires the event before the shard is marked as connected
+        JDA shard = createShard(JDA.Status.LOADING_SUBSYSTEMS);
+        setShards(shard);
+
+        command.onReady(createReadyEvent(shard));
+
+        verify(config, atLeastOnce()).getFreeCommandConfig();
+    }
+
+    @Test
+    void initializesOnceTheLastShardIsReady() {
+        JDA connectedShard = createShard(JDA.Status.CONNECTED);
+        JDA readyShard = createShard(JDA.Status.LOADING_SUBSYSTEMS);
+        setShards(connectedShard, readyShard);
+
+        command.onReady(createReadyEvent(readyShard));
+
+        verify(config, atLeastOnce()).getFreeCommandConfig();
+    }
+
+    @Test
+    void waitsForShardsThatAreNotReady() {
+        JDA loadingShard = createShard(JDA.Status.LOADING_SUBSYSTEMS);
+        JDA readyShard = createShard(JDA.Status.LOADING_SUBSYSTEMS);
+        setShards(loadingShard, readyShard);
+
+        command.onReady(createReadyEvent(readyShard));
+
+        verify(config, never()).getFreeCommandConfig();
+    }
+}
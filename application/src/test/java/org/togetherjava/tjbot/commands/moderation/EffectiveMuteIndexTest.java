@@ -0,0 +1,111 @@
+package org.togetherjava.tjbot.commands.moderation;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.togetherjava.tjbot.db.Database;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.togetherjava.tjbot.db.generated.tables.ModerationActions.MODERATION_ACTIONS;
+
+final class EffectiveMuteIndexTest {
+    private static final long GUILD_ID = 1;
+    private static final long AUTHOR_ID = 2;
+    private static final long TARGET_ID = 3;
+
+    private Database database;
+    private ModerationActionsStore actionsStore;
+
+    @BeforeEach
+    void setUp() {
+        database = Database.createMemoryDatabase(MODERATION_ACTIONS);
+        actionsStore = new ModerationActionsStore(database);
+    }
+
+    @AfterEach
+    void tearDown() {
+        database.close();
+    }
+
+    private void addAction(long targetId, ModerationAction actionType, Instant expiresAt) {
+        actionsStore.addAction(GUILD_ID, AUTHOR_ID, targetId, actionType, expiresAt, "reason");
+    }
+
+    @Test
+    void existingMutesAreLoaded() {
+        addAction(TARGET_ID, ModerationAction.MUTE, null);
+        addAction(TARGET_ID + 1, ModerationAction.MUTE, null);
+        addAction(TARGET_ID + 1, ModerationAction.UNMUTE, null);
+
+        EffectiveMuteIndex muteIndex = new EffectiveMuteIndex(actionsStore);
+
+        assertTrue(muteIndex.isMuted(GUILD_ID, TARGET_ID));
+        assertFalse(muteIndex.isMuted(GUILD_ID, TARGET_ID + 1));
+        assertFalse(muteIndex.isMuted(GUILD_ID + 1, TARGET_ID));
+    }
+
+    @Test
+    void addedActionsAreApplied() {
+        EffectiveMuteIndex muteIndex = new EffectiveMuteIndex(actionsStore);
+        assertFalse(muteIndex.isMuted(GUILD_ID, TARGET_ID));
+
+        addAction(TARGET_ID, ModerationAction.MUTE, Instant.now().plus(1, ChronoUnit.DAYS));
+        assertTrue(muteIndex.isMuted(GUILD_ID, TARGET_ID));
+
+        addAction(TARGET_ID, ModerationAction.WARN, null);
+        assertTrue(muteIndex.isMuted(GUILD_ID, TARGET_ID));
+
+        addAction(TARGET_ID, ModerationAction.UNMUTE, null);
+        assertFalse(muteIndex.isMuted(GUILD_ID, TARGET_ID));
+    }
+
+    @Test
+    void expiredMutesAreNotEffective() {
+        Instant now = Instant.now();
+        MutableClock clock = new MutableClock(now);
+        addAction(TARGET_ID, ModerationAction.MUTE, now.minus(1, ChronoUnit.MINUTES));
+        EffectiveMuteIndex muteIndex = new EffectiveMuteIndex(actionsStore, clock);
+
+        addAction(TARGET_ID + 1, ModerationAction.MUTE, now.plus(1, ChronoUnit.HOURS));
+        assertTrue(muteIndex.isMuted(GUILD_ID, TARGET_ID + 1));
+
+        clock.setInstant(now.plus(1, ChronoUnit.HOURS));
+
+        assertFalse(muteIndex.isMuted(GUILD_ID, TARGET_ID));
+        assertFalse(muteIndex.isMuted(GUILD_ID, TARGET_ID + 1));
+    }
+
+    private static final class MutableClock extends Clock {
+        private Instant instant;
+
+        MutableClock(Instant instant) {
+            this.instant = instant;
+        }
+
+        void setInstant(Instant instant) {
+            this.instant = instant;
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Instant instant() {
+            return instant;
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package org.togetherjava.tjbot.commands.moderation;
+
+import org.jooq.DSLContext;
+import org.jooq.ResultQuery;
+import org.jooq.conf.ParamType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.togetherjava.tjbot.db.Database;
+
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+final class ModerationActionsStoreTest {
+    private static final long GUILD_ID = 1;
+    private static final long AUTHOR_ID = 2;
+    private static final long TARGET_ID = 3;
+
+    private Database database;
+    private ModerationActionsStore actionsStore;
+
+    @BeforeEach
+    void setUp(@TempDir Path directory) throws SQLException {
+        // A file database, so that the migrations, including the indices, are applied
+        database = new Database("jdbc:sqlite:" + directory.resolve("database.db"));
+        actionsStore = new ModerationActionsStore(database);
+    }
+
+    @AfterEach
+    void tearDown() {
+        database.close();
+    }
+
+    private String explain(Function<DSLContext, ResultQuery<?>> query) {
+        List<String> steps = database.read(context -> context
+            .fetch("EXPLAIN QUERY PLAN " + query.apply(context).getSQL(ParamType.INLINED))
+            .getValues("detail", String.class));
+        return String.join("\n", steps);
+    }
+
+    private static void assertUsesIndex(String index, String plan) {
+        assertTrue(plan.contains("INDEX " + index), () -> "Unexpected plan:\n" + plan);
+        assertTrue(
+                plan.lines().noneMatch(step -> step.matches("SCAN (TABLE )?moderation_actions")),
+                () -> "Unexpected full table scan:\n" + plan);
+    }
+
+    @Test
+    void lastActionAgainstTargetUsesIndex() {
+        String plan = explain(context -> ModerationActionsStore
+            .selectLastActionAgainstTargetByType(context, GUILD_ID, TARGET_ID,
+                    ModerationAction.MUTE));
+
+        assertUsesIndex("moderation_actions_by_target", plan);
+        // Ordered by the index, no sorting needed
+        assertFalse(plan.contains("TEMP B-TREE"), () -> "Unexpected sorting:\n" + plan);
+    }
+
+    @Test
+    void actionsByTargetUseIndex() {
+        assertUsesIndex("moderation_actions_by_target", explain(context -> ModerationActionsStore
+            .selectActionsByTargetAscending(context, GUILD_ID, TARGET_ID)));
+    }
+
+    @Test
+    void actionsByAuthorUseIndex() {
+        String plan = explain(context -> ModerationActionsStore
+            .selectActionsByAuthorAscending(context, GUILD_ID, AUTHOR_ID));
+
+        assertUsesIndex("moderation_actions_by_author", plan);
+        assertFalse(plan.contains("TEMP B-TREE"), () -> "Unexpected sorting:\n" + plan);
+    }
+
+    @Test
+    void actionsByTypeUseIndex() {
+        String plan = explain(context -> ModerationActionsStore
+            .selectActionsByTypeAscending(context, GUILD_ID, ModerationAction.BAN));
+
+        assertUsesIndex("moderation_actions_by_type", plan);
+        assertFalse(plan.contains("TEMP B-TREE"), () -> "Unexpected sorting:\n" + plan);
+    }
+
+    @Test
+    void pendingTemporaryActionsUseIndices() {
+        String plan = explain(context -> ModerationActionsStore
+            .selectPendingTemporaryActionsAscending(context, ModerationAction.MUTE,
+                    ModerationAction.UNMUTE));
+
+        assertUsesIndex("moderation_actions_temporary", plan);
+        // The check for later actions
+        assertUsesIndex("moderation_actions_by_target", plan);
+    }
+
+    @Test
+    void lastActionAgainstTargetIsFound() {
+        Instant expiresAt = Instant.now().plus(1, ChronoUnit.DAYS);
+        actionsStore.addAction(GUILD_ID, AUTHOR_ID, TARGET_ID, ModerationAction.MUTE, null,
+                "first");
+        actionsStore.addAction(GUILD_ID, AUTHOR_ID, TARGET_ID, ModerationAction.MUTE, expiresAt,
+                "second");
+        actionsStore.addAction(GUILD_ID, AUTHOR_ID, TARGET_ID + 1, ModerationAction.MUTE, null,
+                "other target");
+
+        Optional<ActionRecord> lastMute = actionsStore
+            .findLastActionAgainstTargetByType(GUILD_ID, TARGET_ID, ModerationAction.MUTE);
+
+        assertEquals(Optional.of("second"), lastMute.map(ActionRecord::reason));
+        assertTrue(actionsStore
+            .findLastActionAgainstTargetByType(GUILD_ID, TARGET_ID, ModerationAction.UNMUTE)
+            .isEmpty());
+    }
+
+    @Test
+    void revokedTemporaryActionsAreNotPending() {
+        Instant expiresAt = Instant.now().plus(1, ChronoUnit.DAYS);
+        actionsStore.addAction(GUILD_ID, AUTHOR_ID, TARGET_ID, ModerationAction.MUTE, expiresAt,
+                "revoked");
+        actionsStore.addAction(GUILD_ID, AUTHOR_ID, TARGET_ID, ModerationAction.UNMUTE, null,
+                "revoke");
+        actionsStore.addAction(GUILD_ID, AUTHOR_ID, TARGET_ID + 1, ModerationAction.MUTE,
+                expiresAt, "pending");
+
+        List<String> pendingReasons = actionsStore
+            .getPendingTemporaryActionsAscending(ModerationAction.MUTE, ModerationAction.UNMUTE)
+            .stream()
+            .map(ActionRecord::reason)
+            .toList();
+
+        assertEquals(List.of("pending"), pendingReasons);
+    }
+}
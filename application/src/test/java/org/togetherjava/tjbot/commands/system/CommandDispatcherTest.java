@@ -0,0 +1,132 @@
+package org.togetherjava.tjbot.commands.system;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.togetherjava.tjbot.config.CommandDispatchConfig;
+import org.togetherjava.tjbot.config.CommandDispatchMode;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+final class CommandDispatcherTest {
+    private static CommandDispatcher createDispatcher(CommandDispatchMode mode, int poolSize,
+            int queueCapacity) throws IOException {
+        String json = """
+                {"mode": "%s", "poolSize": %d, "queueCapacity": %d}"""
+            .formatted(mode, poolSize, queueCapacity);
+
+        return new CommandDispatcher(
+                new ObjectMapper().readValue(json, CommandDispatchConfig.class));
+    }
+
+    @Test
+    void guildLanesKeepOrderDespiteFailures() throws Exception {
+        CommandDispatcher dispatcher = createDispatcher(CommandDispatchMode.GUILD_LANES, 4, 100);
+        List<Integer> executed = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch done = new CountDownLatch(50);
+
+        for (int i = 0; i < 50; i++) {
+            int command = i;
+            assertTrue(dispatcher.dispatch(1, () -> {
+                executed.add(command);
+                done.countDown();
+                if (command % 10 == 0) {
+                    throw new IllegalStateException("Failing command");
+                }
+            }));
+        }
+
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        assertEquals(IntStream.range(0, 50).boxed().toList(), executed);
+    }
+
+    @Test
+    void commandsExceedingCapacityAreRejected() throws Exception {
+        CommandDispatcher dispatcher = createDispatcher(CommandDispatchMode.BOUNDED_POOL, 1, 2);
+        CountDownLatch blocker = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(1);
+
+        assertTrue(dispatcher.dispatch(() -> {
+            started.countDown();
+            awaitUninterruptibly(blocker);
+        }));
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+        assertTrue(dispatcher.dispatch(CommandDispatcherTest::doNothing));
+        assertTrue(dispatcher.dispatch(CommandDispatcherTest::doNothing));
+        assertFalse(dispatcher.dispatch(CommandDispatcherTest::doNothing));
+
+        CommandDispatchStatistics statistics = dispatcher.getStatistics();
+        assertEquals(2, statistics.queuedCommands());
+        assertEquals(1, statistics.activeCommands());
+        assertEquals(1, statistics.rejectedCommands());
+        blocker.countDown();
+    }
+
+    @Test
+    void guildLanesContinueAfterErrors() throws Exception {
+        CommandDispatcher dispatcher = createDispatcher(CommandDispatchMode.GUILD_LANES, 1, 100);
+        List<Integer> executed = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch done = new CountDownLatch(3);
+
+        for (int i = 0; i < 3; i++) {
+            int command = i;
+            assertTrue(dispatcher.dispatch(1, () -> {
+                executed.add(command);
+                done.countDown();
+                if (command == 0) {
+                    throw new AssertionError("Command failing with an error");
+                }
+            }));
+        }
+
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        assertEquals(List.of(0, 1, 2), executed);
+    }
+
+    @Test
+    void queuedCommandsAreExecutedOnShutdown() throws Exception {
+        CommandDispatcher dispatcher = createDispatcher(CommandDispatchMode.GUILD_LANES, 1, 100);
+        List<Integer> executed = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch blocker = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(1);
+
+        assertTrue(dispatcher.dispatch(1, () -> {
+            started.countDown();
+            awaitUninterruptibly(blocker);
+        }));
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+        // More than a single turn of the lane
+        for (int i = 0; i < 40; i++) {
+            int command = i;
+            assertTrue(dispatcher.dispatch(1, () -> executed.add(command)));
+        }
+
+        dispatcher.shutdown();
+        assertFalse(dispatcher.dispatch(1, CommandDispatcherTest::doNothing));
+
+        blocker.countDown();
+        assertTrue(dispatcher.awaitTermination(Duration.ofSeconds(10)));
+        assertEquals(IntStream.range(0, 40).boxed().toList(), executed);
+    }
+
+    @SuppressWarnings("EmptyMethod")
+    private static void doNothing() {
+        // Placeholder for a command that finishes right away
+    }
+
+    private static void awaitUninterruptibly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
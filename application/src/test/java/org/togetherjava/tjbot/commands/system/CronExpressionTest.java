@@ -0,0 +1,62 @@
+package org.togetherjava.tjbot.commands.system;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+final class CronExpressionTest {
+    private static final ZoneId BERLIN = ZoneId.of("Europe/Berlin");
+
+    private static ZonedDateTime nextAfter(String expression, LocalDateTime time, ZoneId zone) {
+        return CronExpression.parse(expression).nextAfter(ZonedDateTime.of(time, zone));
+    }
+
+    @Test
+    void stepsFromValueRunUntilEndOfField() {
+        assertEquals(ZonedDateTime.of(2022, 3, 1, 12, 0, 0, 0, ZoneOffset.UTC),
+                nextAfter("0 4/8 * * *", LocalDateTime.of(2022, 3, 1, 7, 0), ZoneOffset.UTC));
+        assertEquals(ZonedDateTime.of(2022, 3, 2, 4, 0, 0, 0, ZoneOffset.UTC),
+                nextAfter("0 4/8 * * *", LocalDateTime.of(2022, 3, 1, 21, 30), ZoneOffset.UTC));
+        // Strictly after the given time
+        assertEquals(ZonedDateTime.of(2022, 3, 1, 20, 0, 0, 0, ZoneOffset.UTC),
+                nextAfter("0 4/8 * * *", LocalDateTime.of(2022, 3, 1, 12, 0), ZoneOffset.UTC));
+    }
+
+    @Test
+    void dayFieldsMatchEitherIfBothAreRestricted() {
+        // 2022-03-04 is a friday (5)
+        assertEquals(ZonedDateTime.of(2022, 3, 4, 0, 0, 0, 0, ZoneOffset.UTC),
+                nextAfter("0 0 15 * 5", LocalDateTime.of(2022, 3, 1, 0, 0), ZoneOffset.UTC));
+        // Sunday as 7
+        assertEquals(ZonedDateTime.of(2022, 3, 6, 9, 30, 0, 0, ZoneOffset.UTC),
+                nextAfter("30 9 * * 7", LocalDateTime.of(2022, 3, 1, 0, 0), ZoneOffset.UTC));
+    }
+
+    @Test
+    void daylightSavingTimeTransitions() {
+        // Clocks jump from 2:00 to 3:00, 2:30 does not exist that day
+        assertEquals(ZonedDateTime.of(LocalDateTime.of(2022, 3, 27, 3, 30), BERLIN),
+                nextAfter("30 2 * * *", LocalDateTime.of(2022, 3, 27, 1, 0), BERLIN));
+        // Clocks go back from 3:00 to 2:00, 2:30 occurs twice but only matches once
+        ZonedDateTime firstOccurrence =
+                nextAfter("30 2 * * *", LocalDateTime.of(2022, 10, 30, 1, 0), BERLIN);
+        assertEquals(ZoneOffset.ofHours(2), firstOccurrence.getOffset());
+        assertEquals(ZonedDateTime.of(LocalDateTime.of(2022, 10, 31, 2, 30), BERLIN),
+                CronExpression.parse("30 2 * * *").nextAfter(firstOccurrence));
+    }
+
+    @Test
+    void invalidExpressionsAreRejected() {
+        assertThrows(IllegalArgumentException.class, () -> CronExpression.parse("0 4 * *"));
+        assertThrows(IllegalArgumentException.class, () -> CronExpression.parse("60 * * * *"));
+        assertThrows(IllegalArgumentException.class, () -> CronExpression.parse("* 5-2 * * *"));
+        assertThrows(IllegalStateException.class, () -> nextAfter("0 0 30 2 *",
+                LocalDateTime.of(2022, 3, 1, 0, 0), ZoneOffset.UTC));
+    }
+}
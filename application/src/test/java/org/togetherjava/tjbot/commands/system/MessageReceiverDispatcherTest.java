@@ -0,0 +1,121 @@
+package org.togetherjava.tjbot.commands.system;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.togetherjava.tjbot.commands.MessageReceiver;
+import org.togetherjava.tjbot.commands.MessageReceiverAdapter;
+import org.togetherjava.tjbot.config.MessageDispatchConfig;
+import org.togetherjava.tjbot.config.MessageOverflowPolicy;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+final class MessageReceiverDispatcherTest {
+    private static final MessageReceiver RECEIVER =
+            new MessageReceiverAdapter(Pattern.compile(".*")) {};
+
+    private static MessageReceiverDispatcher createDispatcher(int queueCapacity,
+            MessageOverflowPolicy overflowPolicy) throws IOException {
+        String json = """
+                {"queueCapacity": %d, "overflowPolicy": "%s"}"""
+            .formatted(queueCapacity, overflowPolicy);
+
+        return new MessageReceiverDispatcher(
+                new ObjectMapper().readValue(json, MessageDispatchConfig.class));
+    }
+
+    @Test
+    void eventsAreHandledInOrderDespiteFailures() throws Exception {
+        MessageReceiverDispatcher dispatcher = createDispatcher(4, MessageOverflowPolicy.BLOCK);
+        List<Integer> handled = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch done = new CountDownLatch(50);
+
+        for (int i = 0; i < 50; i++) {
+            int event = i;
+            dispatcher.dispatch(RECEIVER, () -> {
+                handled.add(event);
+                done.countDown();
+                if (event % 10 == 0) {
+                    throw new IllegalStateException("Failing receiver");
+                }
+            });
+        }
+
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        assertEquals(IntStream.range(0, 50).boxed().toList(), handled);
+        assertEquals(0, dispatcher.getStatistics().get(0).droppedEvents());
+    }
+
+    @Test
+    void oldestEventsAreDroppedIfQueueIsFull() throws Exception {
+        MessageReceiverDispatcher dispatcher =
+                createDispatcher(2, MessageOverflowPolicy.DROP_OLDEST);
+        List<Integer> handled = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch blocker = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(2);
+
+        dispatcher.dispatch(RECEIVER, () -> {
+            started.countDown();
+            awaitUninterruptibly(blocker);
+        });
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+        for (int i = 0; i < 5; i++) {
+            int event = i;
+            dispatcher.dispatch(RECEIVER, () -> {
+                handled.add(event);
+                done.countDown();
+            });
+        }
+        blocker.countDown();
+
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        assertEquals(List.of(3, 4), handled);
+        assertEquals(3, dispatcher.getStatistics().get(0).droppedEvents());
+    }
+
+    @Test
+    void queuedEventsAreHandledOnShutdown() throws Exception {
+        MessageReceiverDispatcher dispatcher = createDispatcher(4, MessageOverflowPolicy.BLOCK);
+        List<Integer> handled = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch blocker = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(1);
+
+        dispatcher.dispatch(RECEIVER, () -> {
+            started.countDown();
+            awaitUninterruptibly(blocker);
+        });
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+        for (int i = 0; i < 3; i++) {
+            int event = i;
+            dispatcher.dispatch(RECEIVER, () -> handled.add(event));
+        }
+
+        dispatcher.shutdown();
+        dispatcher.dispatch(RECEIVER, () -> handled.add(-1));
+        assertFalse(dispatcher.awaitTermination(Duration.ofMillis(10)));
+
+        blocker.countDown();
+        assertTrue(dispatcher.awaitTermination(Duration.ofSeconds(10)));
+        assertEquals(List.of(0, 1, 2), handled);
+    }
+
+    private static void awaitUninterruptibly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
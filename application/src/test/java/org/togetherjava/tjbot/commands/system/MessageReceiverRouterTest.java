@@ -0,0 +1,44 @@
+package org.togetherjava.tjbot.commands.system;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.togetherjava.tjbot.commands.MessageReceiver;
+import org.togetherjava.tjbot.commands.MessageReceiverAdapter;
+
+import java.util.List;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+final class MessageReceiverRouterTest {
+    private static final long CHANNEL_ID = 1;
+
+    private MessageReceiver helpReceiver;
+    private MessageReceiver allReceiver;
+    private MessageReceiverRouter router;
+
+    @BeforeEach
+    void setUp() {
+        helpReceiver = new MessageReceiverAdapter(Pattern.compile("help_\\d+")) {};
+        allReceiver = new MessageReceiverAdapter(Pattern.compile(".*")) {};
+        router = new MessageReceiverRouter(List.of(helpReceiver, allReceiver));
+    }
+
+    @Test
+    void routesToMatchingReceivers() {
+        assertEquals(List.of(helpReceiver, allReceiver),
+                router.getReceiversSubscribedTo(CHANNEL_ID, "help_1"));
+        assertEquals(List.of(allReceiver), router.getReceiversSubscribedTo(2, "general"));
+    }
+
+    @Test
+    void renamedChannelIsRoutedByItsNewName() {
+        router.getReceiversSubscribedTo(CHANNEL_ID, "help_1");
+
+        assertEquals(List.of(allReceiver), router.getReceiversSubscribedTo(CHANNEL_ID, "general"));
+
+        router.invalidate(CHANNEL_ID);
+        assertEquals(List.of(helpReceiver, allReceiver),
+                router.getReceiversSubscribedTo(CHANNEL_ID, "help_2"));
+    }
+}
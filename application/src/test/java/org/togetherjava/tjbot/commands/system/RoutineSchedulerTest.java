@@ -0,0 +1,108 @@
+package org.togetherjava.tjbot.commands.system;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.togetherjava.tjbot.commands.Routine;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+final class RoutineSchedulerTest {
+    private RoutineScheduler scheduler;
+
+    @BeforeEach
+    void setUp() {
+        scheduler = new RoutineScheduler(2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        scheduler.shutdown();
+    }
+
+    @Test
+    void failingRoutineKeepsRunning() throws InterruptedException {
+        CountDownLatch runs = new CountDownLatch(3);
+
+        scheduler.schedule("failing",
+                new Routine.Schedule(Routine.ScheduleMode.FIXED_RATE, 0, 10, TimeUnit.MILLISECONDS),
+                () -> {
+                    runs.countDown();
+                    throw new IllegalStateException("Failing routine");
+                });
+
+        assertTrue(runs.await(10, TimeUnit.SECONDS));
+        RoutineStatistics statistics = scheduler.getStatistics().get(0);
+        assertEquals("failing", statistics.routineName());
+        assertTrue(statistics.failedRuns() >= 2);
+    }
+
+    @Test
+    void executionsDoNotOverlap() throws InterruptedException {
+        AtomicInteger concurrentRuns = new AtomicInteger();
+        AtomicInteger maxConcurrentRuns = new AtomicInteger();
+        CountDownLatch runs = new CountDownLatch(2);
+
+        scheduler.schedule("slow",
+                new Routine.Schedule(Routine.ScheduleMode.FIXED_RATE, 0, 5, TimeUnit.MILLISECONDS),
+                () -> {
+                    maxConcurrentRuns.accumulateAndGet(concurrentRuns.incrementAndGet(),
+                            Math::max);
+                    sleepUninterruptibly(50);
+                    concurrentRuns.decrementAndGet();
+                    runs.countDown();
+                });
+
+        assertTrue(runs.await(10, TimeUnit.SECONDS));
+        assertEquals(1, maxConcurrentRuns.get());
+        assertTrue(scheduler.getStatistics().get(0).skippedRuns() > 0);
+    }
+
+    @Test
+    void executionsAreRecorded(@TempDir Path directory)
+            throws InterruptedException, IOException {
+        Path recordingPath = directory.resolve("routines.jfr");
+
+        try (Recording recording = new Recording()) {
+            recording.enable("org.togetherjava.tjbot.Routine");
+            recording.start();
+
+            scheduler.schedule("recorded",
+                    new Routine.Schedule(Routine.ScheduleMode.FIXED_DELAY, 0, 1, TimeUnit.HOURS),
+                    () -> {
+                    });
+            // The event is committed before the execution is counted
+            while (scheduler.getStatistics("recorded").orElseThrow().durations().count() == 0) {
+                TimeUnit.MILLISECONDS.sleep(5);
+            }
+
+            recording.stop();
+            recording.dump(recordingPath);
+        }
+
+        List<RecordedEvent> events = RecordingFile.readAllEvents(recordingPath);
+        assertEquals(1, events.size());
+        assertEquals("recorded", events.get(0).getString("routineName"));
+        assertTrue(events.get(0).getBoolean("successful"));
+    }
+
+    private static void sleepUninterruptibly(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package org.togetherjava.tjbot.commands.tophelper;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.jooq.impl.DSL;
+import org.togetherjava.tjbot.db.Database;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.togetherjava.tjbot.db.generated.tables.HelpChannelMessages.HELP_CHANNEL_MESSAGES;
+import static org.togetherjava.tjbot.db.generated.tables.HelpMessageDailyCounts.HELP_MESSAGE_DAILY_COUNTS;
+
+final class HelpMessageBufferTest {
+    private static final Instant SENT_AT = Instant.parse("2021-12-24T12:00:00Z");
+
+    private Database database;
+
+    @BeforeEach
+    void setUp() {
+        database = Database.createMemoryDatabase(HELP_CHANNEL_MESSAGES,
+                HELP_MESSAGE_DAILY_COUNTS);
+    }
+
+    @AfterEach
+    void tearDown() {
+        database.close();
+    }
+
+    private int getAmountOfRecords() {
+        // Waits for all asynchronous writes queued before
+        database.writeAsync(context -> {
+        }).join();
+        return database.read(context -> context.fetchCount(HELP_CHANNEL_MESSAGES));
+    }
+
+    private static void addMessages(HelpMessageBuffer buffer, int from, int to) {
+        for (int messageId = from; messageId < to; messageId++) {
+            buffer.add(messageId, 1, 2, 3, SENT_AT);
+        }
+    }
+
+    @Test
+    void messagesAreOnlyWrittenOnFlush() {
+        HelpMessageBuffer buffer = new HelpMessageBuffer(database, 100, 10);
+
+        addMessages(buffer, 0, 5);
+        assertEquals(0, getAmountOfRecords());
+
+        buffer.flush();
+        assertEquals(5, getAmountOfRecords());
+    }
+
+    @Test
+    void fullBatchIsWrittenRightAway() {
+        HelpMessageBuffer buffer = new HelpMessageBuffer(database, 100, 10);
+
+        addMessages(buffer, 0, 10);
+        assertEquals(10, getAmountOfRecords());
+    }
+
+    @Test
+    void closeWritesRemainingMessages() {
+        HelpMessageBuffer buffer = new HelpMessageBuffer(database, 100, 10);
+
+        addMessages(buffer, 0, 25);
+        buffer.close();
+        addMessages(buffer, 25, 30);
+
+        assertEquals(25, getAmountOfRecords());
+    }
+
+    @Test
+    void duplicateMessagesAreIgnored() {
+        HelpMessageBuffer buffer = new HelpMessageBuffer(database, 100, 10);
+
+        addMessages(buffer, 0, 5);
+        buffer.flush();
+        assertEquals(5, getAmountOfRecords());
+        addMessages(buffer, 3, 8);
+        buffer.flush();
+
+        assertEquals(8, getAmountOfRecords());
+    }
+
+    @Test
+    void messagesAreDroppedWhenFull() {
+        HelpMessageBuffer buffer = new HelpMessageBuffer(database, 10, 5);
+        CountDownLatch blockWriter = new CountDownLatch(1);
+        database.writeAsync(context -> awaitUninterruptibly(blockWriter));
+
+        // The first batch is stuck behind the blocked writer, further messages stay buffered
+        addMessages(buffer, 0, 5);
+        addMessages(buffer, 5, 18);
+        assertEquals(3, buffer.getDroppedMessages());
+
+        blockWriter.countDown();
+        assertEquals(5, getAmountOfRecords());
+        buffer.flush();
+        assertEquals(15, getAmountOfRecords());
+    }
+
+    @Test
+    void dailyCountsSurvivePurgedMessages() {
+        HelpMessageBuffer buffer = new HelpMessageBuffer(database, 100, 10);
+
+        addMessages(buffer, 0, 3);
+        buffer.add(3, 1, 2, 3, SENT_AT.plus(1, ChronoUnit.DAYS));
+        buffer.add(4, 1, 2, 4, SENT_AT);
+        buffer.flush();
+        assertEquals(5, getAmountOfRecords());
+        // Recorded again, must not be counted twice
+        addMessages(buffer, 0, 1);
+        buffer.flush();
+        assertEquals(5, getAmountOfRecords());
+
+        database.write(context -> context.deleteFrom(HELP_CHANNEL_MESSAGES).execute());
+
+        assertEquals(List.of(3, 1, 1), database.read(context -> context
+            .select(HELP_MESSAGE_DAILY_COUNTS.MESSAGE_COUNT)
+            .from(HELP_MESSAGE_DAILY_COUNTS)
+            .orderBy(HELP_MESSAGE_DAILY_COUNTS.DAY, HELP_MESSAGE_DAILY_COUNTS.AUTHOR_ID)
+            .fetch(HELP_MESSAGE_DAILY_COUNTS.MESSAGE_COUNT)));
+        assertEquals(LocalDate.of(2021, 12, 24), database.read(context -> context
+            .select(DSL.min(HELP_MESSAGE_DAILY_COUNTS.DAY))
+            .from(HELP_MESSAGE_DAILY_COUNTS)
+            .fetchOne(0, LocalDate.class)));
+    }
+
+    private static void awaitUninterruptibly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package org.togetherjava.tjbot.metrics;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+final class MetricsRegistryTest {
+    private MetricsRegistry registry;
+
+    @BeforeEach
+    void setUp() {
+        registry = new MetricsRegistry();
+    }
+
+    @Test
+    void countersAreWrittenPerLabels() {
+        registry.counter("commands_total", "Executed commands", "command", "ping").increment();
+        registry.counter("commands_total", "Executed commands", "command", "ping").increment();
+        registry.counter("commands_total", "Executed commands", "command", "tag").increment();
+
+        assertEquals("""
+                # HELP commands_total Executed commands
+                # TYPE commands_total counter
+                commands_total{command="ping"} 2
+                commands_total{command="tag"} 1
+                """, registry.scrape());
+    }
+
+    @Test
+    void timersAreWrittenAsHistogram() {
+        Timer timer = registry.timer("duration_seconds", "Durations");
+        timer.record(Duration.ofMillis(3));
+        timer.record(Duration.ofMillis(500));
+
+        String scrape = registry.scrape();
+        assertTrue(scrape.contains("# TYPE duration_seconds histogram\n"));
+        assertTrue(scrape.contains("duration_seconds_bucket{le=\"0.002\"} 0\n"));
+        assertTrue(scrape.contains("duration_seconds_bucket{le=\"0.004\"} 1\n"));
+        assertTrue(scrape.contains("duration_seconds_bucket{le=\"0.512\"} 2\n"));
+        assertTrue(scrape.contains("duration_seconds_bucket{le=\"+Inf\"} 2\n"));
+        assertTrue(scrape.contains("duration_seconds_sum 0.503\n"));
+        assertTrue(scrape.contains("duration_seconds_count 2\n"));
+    }
+
+    @Test
+    void functionsAreQueriedOnScrape() {
+        long[] count = {1};
+        registry.counter("events_total", "Events", () -> count[0]);
+        registry.gauge("ratio", "Ratio", () -> 0.5, "result", "hit");
+
+        count[0] = 5;
+
+        String scrape = registry.scrape();
+        assertTrue(scrape.contains("events_total 5\n"));
+        assertTrue(scrape.contains("ratio{result=\"hit\"} 0.5\n"));
+    }
+
+    @Test
+    void failingFunctionIsLeftOut() {
+        registry.gauge("broken", "Broken", () -> {
+            throw new IllegalStateException("Broken gauge");
+        }, "kind", "broken");
+        registry.gauge("broken", "Broken", () -> 1, "kind", "working");
+
+        String scrape = registry.scrape();
+        assertFalse(scrape.contains("kind=\"broken\""));
+        assertTrue(scrape.contains("broken{kind=\"working\"} 1.0\n"));
+    }
+
+    @Test
+    void labelValuesAreEscaped() {
+        registry.counter("escaped_total", "Escaped", "value", "a\"b\\c\nd").increment();
+
+        assertTrue(registry.scrape().contains("escaped_total{value=\"a\\\"b\\\\c\\nd\"} 1\n"));
+    }
+
+    @Test
+    void invalidRegistrationsAreRejected() {
+        registry.counter("metric_total", "Metric");
+
+        assertThrows(IllegalArgumentException.class,
+                () -> registry.timer("metric_total", "Metric"));
+        assertThrows(IllegalArgumentException.class,
+                () -> registry.counter("invalid-name", "Invalid"));
+        assertThrows(IllegalArgumentException.class,
+                () -> registry.counter("odd_labels_total", "Odd", "key"));
+        assertThrows(IllegalArgumentException.class,
+                () -> registry.counter("metric_total", "Metric", () -> 1));
+    }
+}
@@ -0,0 +1,59 @@
+package org.togetherjava.tjbot.metrics;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+final class MetricsServerTest {
+    private final HttpClient client = HttpClient.newHttpClient();
+    private MetricsServer server;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        MetricsRegistry registry = new MetricsRegistry();
+        registry.counter("requests_total", "Requests").increment();
+
+        server = MetricsServer.start(registry,
+                new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.close();
+    }
+
+    @Test
+    void servesMetrics() throws IOException, InterruptedException {
+        HttpResponse<String> response = get("/metrics");
+
+        assertEquals(200, response.statusCode());
+        assertTrue(response.headers()
+            .firstValue("Content-Type")
+            .orElseThrow()
+            .startsWith("text/plain; version=0.0.4"));
+        assertTrue(response.body().contains("requests_total 1\n"));
+    }
+
+    @Test
+    void otherPathsAreNotFound() throws IOException, InterruptedException {
+        assertEquals(404, get("/metrics/other").statusCode());
+        assertEquals(404, get("/").statusCode());
+    }
+
+    private HttpResponse<String> get(String path) throws IOException, InterruptedException {
+        URI uri = URI.create("http://127.0.0.1:" + server.getPort() + path);
+        return client.send(HttpRequest.newBuilder(uri).build(),
+                HttpResponse.BodyHandlers.ofString());
+    }
+}
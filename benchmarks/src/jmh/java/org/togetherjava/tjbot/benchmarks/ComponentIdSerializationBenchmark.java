@@ -0,0 +1,62 @@
+package org.togetherjava.tjbot.benchmarks;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import org.openjdk.jmh.annotations.*;
+import org.togetherjava.tjbot.commands.componentids.ComponentId;
+import org.togetherjava.tjbot.commands.componentids.ComponentIdCodec;
+import org.togetherjava.tjbot.commands.componentids.ComponentIdStore;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the binary serialization of {@link ComponentIdCodec} against the CSV serialization that
+ * {@link ComponentIdStore} used before, which created a new schema, reader and writer per call.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ComponentIdSerializationBenchmark {
+    private static final CsvMapper CSV = new CsvMapper();
+
+    private ComponentId componentId;
+    private String csv;
+    private byte[] binary;
+
+    @Setup
+    public void setUp() throws JsonProcessingException {
+        componentId = Fixtures.COMPONENT_ID;
+        csv = encodeCsv();
+        binary = ComponentIdCodec.encode(componentId);
+    }
+
+    @Benchmark
+    public String encodeCsv() throws JsonProcessingException {
+        return CSV.writerFor(ComponentId.class)
+            .with(CSV.schemaFor(ComponentId.class))
+            .writeValueAsString(componentId);
+    }
+
+    @Benchmark
+    public ComponentId decodeCsv() throws JsonProcessingException {
+        return CSV.readerFor(ComponentId.class)
+            .with(CSV.schemaFor(ComponentId.class))
+            .readValue(csv);
+    }
+
+    @Benchmark
+    public ComponentId decodeLegacyCsvViaCodec() {
+        return ComponentIdCodec.decode(csv.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Benchmark
+    public byte[] encodeBinary() {
+        return ComponentIdCodec.encode(componentId);
+    }
+
+    @Benchmark
+    public ComponentId decodeBinary() {
+        return ComponentIdCodec.decode(binary);
+    }
+}
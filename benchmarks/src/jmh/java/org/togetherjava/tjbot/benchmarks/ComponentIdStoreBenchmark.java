@@ -0,0 +1,79 @@
+package org.togetherjava.tjbot.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.togetherjava.tjbot.commands.componentids.ComponentId;
+import org.togetherjava.tjbot.commands.componentids.ComponentIdStore;
+import org.togetherjava.tjbot.commands.componentids.Lifespan;
+import org.togetherjava.tjbot.commands.componentids.SignedComponentIdCodec;
+import org.togetherjava.tjbot.db.Database;
+
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks looking up component IDs, as done for every button click or selection menu event.
+ * Compares the store, backed by a database on a temporary file, with the stateless signed IDs.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ComponentIdStoreBenchmark {
+    private static final int STORED_COMPONENT_IDS = 500;
+
+    private Path databasePath;
+    private Database database;
+    private ComponentIdStore store;
+    private List<UUID> storedUuids;
+    private UUID unknownUuid;
+    private SignedComponentIdCodec signedCodec;
+    private String signedId;
+    private int nextIndex;
+
+    @Setup
+    public void setUp() throws SQLException {
+        databasePath = Fixtures.createTempDatabasePath();
+        database = new Database("jdbc:sqlite:" + databasePath.toAbsolutePath(), 4);
+        store = new ComponentIdStore(database);
+
+        Random random = new Random(Fixtures.SEED);
+        storedUuids = new ArrayList<>(STORED_COMPONENT_IDS);
+        for (int i = 0; i < STORED_COMPONENT_IDS; i++) {
+            UUID uuid = new UUID(random.nextLong(), random.nextLong());
+            store.putOrThrow(uuid, Fixtures.COMPONENT_ID, Lifespan.REGULAR);
+            storedUuids.add(uuid);
+        }
+        unknownUuid = new UUID(random.nextLong(), random.nextLong());
+
+        signedCodec = new SignedComponentIdCodec("benchmark-secret");
+        signedId = signedCodec.encode(Fixtures.COMPONENT_ID, Lifespan.REGULAR).orElseThrow();
+    }
+
+    @TearDown
+    public void tearDown() {
+        store.close();
+        database.close();
+        Fixtures.deleteTempDatabase(databasePath);
+    }
+
+    @Benchmark
+    public Optional<ComponentId> lookupCached() {
+        nextIndex = (nextIndex + 1) % storedUuids.size();
+        return store.get(storedUuids.get(nextIndex));
+    }
+
+    @Benchmark
+    public Optional<ComponentId> lookupUnknown() {
+        return store.get(unknownUuid);
+    }
+
+    @Benchmark
+    public Optional<ComponentId> decodeSigned() {
+        return signedCodec.decode(signedId);
+    }
+}
@@ -0,0 +1,98 @@
+package org.togetherjava.tjbot.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.togetherjava.tjbot.db.Database;
+import org.togetherjava.tjbot.db.generated.tables.Tags;
+import org.togetherjava.tjbot.db.generated.tables.records.TagsRecord;
+
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the throughput of reads and writes of the database, backed by a temporary file.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class DatabaseBenchmark {
+    private static final int TAG_COUNT = 1_000;
+    private static final int ASYNC_WRITES_PER_INVOCATION = 100;
+
+    @Param({"0", "4"})
+    private int readPoolSize;
+
+    private Path databasePath;
+    private Database database;
+    private List<String> tagIds;
+
+    @Setup
+    public void setUp() throws SQLException {
+        databasePath = Fixtures.createTempDatabasePath();
+        database = new Database("jdbc:sqlite:" + databasePath.toAbsolutePath(), readPoolSize);
+
+        tagIds = Fixtures.randomWords(TAG_COUNT, 5, 20);
+        database.writeTransaction(context -> tagIds.forEach(id -> context.newRecord(Tags.TAGS)
+            .setId(id)
+            .setContent("content of " + id)
+            .merge()));
+    }
+
+    @TearDown
+    public void tearDown() {
+        database.close();
+        Fixtures.deleteTempDatabase(databasePath);
+    }
+
+    @Benchmark
+    public TagsRecord read(TagCursor cursor) {
+        String id = cursor.next(tagIds);
+        return database
+            .read(context -> context.selectFrom(Tags.TAGS).where(Tags.TAGS.ID.eq(id)).fetchOne());
+    }
+
+    @Benchmark
+    @Threads(4)
+    public TagsRecord readConcurrently(TagCursor cursor) {
+        return read(cursor);
+    }
+
+    @Benchmark
+    public void write(TagCursor cursor) {
+        String id = cursor.next(tagIds);
+        database.write(context -> context.update(Tags.TAGS)
+            .set(Tags.TAGS.CONTENT, "updated content")
+            .where(Tags.TAGS.ID.eq(id))
+            .execute());
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ASYNC_WRITES_PER_INVOCATION)
+    public void writeAsync(TagCursor cursor) {
+        List<CompletableFuture<Void>> writes = new ArrayList<>(ASYNC_WRITES_PER_INVOCATION);
+        for (int i = 0; i < ASYNC_WRITES_PER_INVOCATION; i++) {
+            String id = cursor.next(tagIds);
+            writes.add(database.writeAsync(context -> context.update(Tags.TAGS)
+                .set(Tags.TAGS.CONTENT, "updated content")
+                .where(Tags.TAGS.ID.eq(id))
+                .execute()));
+        }
+        CompletableFuture.allOf(writes.toArray(CompletableFuture[]::new)).join();
+    }
+
+    /**
+     * Iterates the tags in a fixed order, separately for each benchmark thread.
+     */
+    @State(Scope.Thread)
+    public static class TagCursor {
+        private int index;
+
+        String next(List<String> tagIds) {
+            index = (index + 1) % tagIds.size();
+            return tagIds.get(index);
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package org.togetherjava.tjbot.benchmarks;
+
+import org.togetherjava.tjbot.commands.componentids.ComponentId;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Reproducible fixtures shared by the benchmarks.
+ * <p>
+ * All randomized data is generated from a fixed seed, so that every run of a benchmark operates on
+ * exactly the same input and results can be compared against each other.
+ */
+public enum Fixtures {
+    ;
+
+    /**
+     * Seed used for all randomized fixtures.
+     */
+    public static final long SEED = 42;
+
+    /**
+     * A typical component ID payload, as used by moderation commands.
+     */
+    public static final ComponentId COMPONENT_ID =
+            new ComponentId("audit", List.of("123456789012345678", "876543210987654321", "2"));
+
+    private static final String ALPHABET = "abcdefghijklmnopqrstuvwxyz";
+
+    /**
+     * Loads the fixture with the given name from the resources.
+     *
+     * @param name the name of the fixture file, relative to the fixture directory
+     * @return the content of the fixture
+     */
+    public static String loadResource(String name) {
+        try (InputStream input = Fixtures.class.getResourceAsStream("/fixtures/" + name)) {
+            if (input == null) {
+                throw new IllegalArgumentException("There is no fixture named " + name);
+            }
+            return new String(input.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Creates a list of random lowercase words, always the same for the same arguments.
+     *
+     * @param count the amount of words to create
+     * @param minLength the minimal length of a word, inclusive
+     * @param maxLength the maximal length of a word, inclusive
+     * @return the created words
+     */
+    public static List<String> randomWords(int count, int minLength, int maxLength) {
+        Random random = new Random(SEED);
+        List<String> words = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int length = minLength + random.nextInt(maxLength - minLength + 1);
+            StringBuilder word = new StringBuilder(length);
+            for (int j = 0; j < length; j++) {
+                word.append(ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+            }
+            words.add(word.toString());
+        }
+        return words;
+    }
+
+    /**
+     * Creates the path to a new database file in a temporary directory. The file itself does not
+     * exist yet.
+     *
+     * @return the path to the database file
+     */
+    public static Path createTempDatabasePath() {
+        try {
+            return Files.createTempDirectory("tjbot-benchmark").resolve("database.db");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Deletes a database file created by {@link #createTempDatabasePath()}, including the files
+     * SQLite places next to it.
+     *
+     * @param databasePath the path to the database file
+     */
+    public static void deleteTempDatabase(Path databasePath) {
+        Path directory = databasePath.getParent();
+        try (var files = Files.list(directory)) {
+            for (Path file : files.toList()) {
+                Files.delete(file);
+            }
+            Files.delete(directory);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package org.togetherjava.tjbot.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.togetherjava.tjbot.formatter.Formatter;
+import org.togetherjava.tjbot.formatter.tokenizer.Lexer;
+import org.togetherjava.tjbot.formatter.tokenizer.Token;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks tokenizing and formatting a typical help request, consisting of text and unformatted
+ * Java code.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class FormatterBenchmark {
+    private final Lexer lexer = new Lexer();
+    private final Formatter formatter = new Formatter();
+
+    private String input;
+    private List<Token> tokens;
+
+    @Setup
+    public void setUp() {
+        input = Fixtures.loadResource("code-sample.txt");
+        tokens = lexer.tokenize(input);
+    }
+
+    @Benchmark
+    public List<Token> tokenize() {
+        return lexer.tokenize(input);
+    }
+
+    @Benchmark
+    public String formatTokens() {
+        return formatter.format(tokens);
+    }
+
+    @Benchmark
+    public String tokenizeAndFormat() {
+        return formatter.format(input, lexer);
+    }
+}
@@ -0,0 +1,87 @@
+package org.togetherjava.tjbot.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.togetherjava.tjbot.commands.MessageReceiver;
+import org.togetherjava.tjbot.commands.MessageReceiverAdapter;
+import org.togetherjava.tjbot.commands.system.MessageReceiverRouter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Benchmarks routing a message to the receivers subscribed to its channel, as done by the bot core
+ * for every message sent in a guild. Messages are spread over all channels of a guild, routed once
+ * by matching the patterns of all receivers and once using the cache of the router.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class MessageReceiverRoutingBenchmark {
+    /**
+     * Channel name patterns similar to the ones used by the actual message receivers.
+     */
+    private static final List<String> CHANNEL_NAME_PATTERNS =
+            List.of("([a-zA-Z_]+_)?help(_\\d+)?", "tj_suggestions", ".*", "mod_audit_log",
+                    "(free|busy)_help_\\d+", "[a-z]+_questions", "[a-z]+_showcase",
+                    "(java|kotlin)_.*", "general", "off_topic(_\\d+)?", "bot_.+",
+                    "[a-z_]*(announcements|news)");
+    private static final int HELP_CHANNELS = 50;
+
+    @Param({"300"})
+    private int channelCount;
+
+    private MessageReceiverRouter router;
+    private long[] channelIds;
+    private String[] channelNames;
+
+    @Setup
+    public void setUp() {
+        List<MessageReceiver> receivers = CHANNEL_NAME_PATTERNS.stream()
+            .map(Pattern::compile)
+            .<MessageReceiver>map(pattern -> new MessageReceiverAdapter(pattern) {})
+            .toList();
+        router = new MessageReceiverRouter(receivers);
+
+        List<String> names = new ArrayList<>();
+        for (int i = 0; i < HELP_CHANNELS; i++) {
+            names.add("help_" + i);
+        }
+        Fixtures.randomWords(channelCount - HELP_CHANNELS, 4, 12)
+            .forEach(word -> names.add(word + "_questions"));
+
+        channelNames = names.toArray(String[]::new);
+        channelIds = new long[channelNames.length];
+        for (int i = 0; i < channelIds.length; i++) {
+            channelIds[i] = 900_000_000_000_000_000L + i;
+        }
+    }
+
+    @Benchmark
+    public void routeUncached(ChannelCursor cursor, Blackhole blackhole) {
+        int channel = cursor.next(channelNames.length);
+        router.getReceiversSubscribedTo(channelNames[channel]).forEach(blackhole::consume);
+    }
+
+    @Benchmark
+    public void routeCached(ChannelCursor cursor, Blackhole blackhole) {
+        int channel = cursor.next(channelNames.length);
+        router.getReceiversSubscribedTo(channelIds[channel], channelNames[channel])
+            .forEach(blackhole::consume);
+    }
+
+    /**
+     * Cycles through the channels, so that messages are spread over all of them.
+     */
+    @State(Scope.Thread)
+    public static class ChannelCursor {
+        private int position;
+
+        int next(int channelCount) {
+            position = (position + 1) % channelCount;
+            return position;
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package org.togetherjava.tjbot.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.togetherjava.tjbot.commands.utils.StringDistances;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the string distances used to suggest tags and commands, for example when a user made
+ * a typo.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class StringDistancesBenchmark {
+    @Param({"10", "100", "1000"})
+    private int candidateCount;
+
+    private List<String> candidates;
+    private String query;
+    private String source;
+    private String destination;
+
+    @Setup
+    public void setUp() {
+        candidates = Fixtures.randomWords(candidateCount, 3, 16);
+        // A typo of one of the candidates
+        query = candidates.get(candidateCount / 2).substring(1) + "x";
+
+        List<String> pair = Fixtures.randomWords(2, 10, 10);
+        source = pair.get(0);
+        destination = pair.get(1);
+    }
+
+    @Benchmark
+    public int editDistance() {
+        return StringDistances.editDistance(source, destination);
+    }
+
+    @Benchmark
+    public Optional<String> closestMatch() {
+        return StringDistances.closestMatch(query, candidates);
+    }
+
+    @Benchmark
+    public Optional<String> autocomplete() {
+        return StringDistances.autocomplete(query.substring(0, 2), candidates);
+    }
+}
@@ -0,0 +1,33 @@
+package org.togetherjava.tjbot.db;
+
+import java.time.Duration;
+
+/**
+ * Snapshot of the usage statistics of a connection pool, as maintained by {@link Database}. Can be
+ * used to detect contention, for example when most acquisitions had to wait for a connection.
+ *
+ * @param connections the total amount of connections in the pool
+ * @param idleConnections the amount of connections that were not in use at the time the snapshot
+ *        was taken
+ * @param acquisitions the total amount of times a connection has been acquired from the pool
+ * @param contendedAcquisitions the amount of acquisitions that had to wait for a connection to
+ *        become available, since all of them were in use
+ * @param totalWaitTime the accumulated time spent waiting for connections, over all acquisitions
+ * @param maxWaitTime the longest time a single acquisition had to wait for a connection
+ */
+public record ConnectionPoolStatistics(int connections, int idleConnections, long acquisitions,
+        long contendedAcquisitions, Duration totalWaitTime, Duration maxWaitTime) {
+
+    /**
+     * Gets the average time an acquisition had to wait for a connection, including acquisitions
+     * that did not have to wait at all.
+     *
+     * @return the average wait time, zero if there were no acquisitions yet
+     */
+    public Duration averageWaitTime() {
+        if (acquisitions == 0) {
+            return Duration.ZERO;
+        }
+        return totalWaitTime.dividedBy(acquisitions);
+    }
+}
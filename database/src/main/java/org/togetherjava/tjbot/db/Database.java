@@ -11,9 +11,10 @@ import org.sqlite.SQLiteDataSource;
 import org.togetherjava.tjbot.db.util.CheckedConsumer;
 import org.togetherjava.tjbot.db.util.CheckedFunction;
 
+import java.sql.Connection;
 import java.sql.SQLException;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * The main database class used by the application.
@@ -21,24 +22,85 @@ import java.util.concurrent.locks.ReentrantLock;
  * Create an instance using {@link #Database(String)} and prefer to re-use it. The underlying
  * connections are handled automatically by the system.
  * <p>
+ * By default, all reads and writes share a single connection, hence reads wait for running writes.
+ * Use {@link #Database(String, int)} instead to serve reads from a pool of read-only connections,
+ * so that they can run concurrently with each other and with writes. Writes always go through a
+ * single dedicated connection.
+ * <p>
+ * Writes that do not have to be visible immediately can be queued using
+ * {@link #writeAsync(CheckedConsumer)}. They are coalesced by a single writer thread and committed
+ * together in one transaction, see {@link WriteBatchPolicy}. This avoids paying the cost of a
+ * separate commit for each small write.
+ * <p>
  * Instances of this class are thread-safe and can be used to concurrently write to the database.
  */
-public final class Database {
+public final class Database implements AutoCloseable {
+    private static final String JDBC_URL_PREFIX = "jdbc:sqlite:";
 
+    private final Connection writeConnection;
     private final DSLContext dslContext;
+    /**
+     * Pool of read-only connections, {@code null} if reads are supposed to share the connection
+     * used for writing.
+     */
+    private final ReadConnectionPool readPool;
     /**
      * Lock used to implement thread-safety across this class. Any database modifying method must
-     * use this lock.
+     * use this lock, as well as reads if they share the connection used for writing.
      */
-    private final Lock writeLock = new ReentrantLock();
+    private final TimedWriteLock writeLock = new TimedWriteLock();
+    private final WriteBatcher writeBatcher;
+    private final OperationTimer reads = new OperationTimer();
 
     /**
-     * Creates an instance of a new database.
+     * Creates an instance of a new database, where reads and writes share a single connection.
      *
      * @param jdbcUrl the url to the database in the format expected by JDBC
      * @throws SQLException if no connection could be established
      */
     public Database(String jdbcUrl) throws SQLException {
+        this(jdbcUrl, 0);
+    }
+
+    /**
+     * Creates an instance of a new database, which serves reads from a pool of read-only
+     * connections.
+     * <p>
+     * Databases that are hold in memory can not share their content across connections, hence they
+     * never use a pool and always fall back to a single connection.
+     *
+     * @param jdbcUrl the url to the database in the format expected by JDBC
+     * @param readPoolSize the amount of read-only connections to open, in addition to the
+     *        connection used for writing. If {@code 0}, reads share the connection used for
+     *        writing.
+     * @throws SQLException if no connection could be established
+     */
+    public Database(String jdbcUrl, int readPoolSize) throws SQLException {
+        this(jdbcUrl, readPoolSize, WriteBatchPolicy.DEFAULT);
+    }
+
+    /**
+     * Creates an instance of a new database, which serves reads from a pool of read-only
+     * connections and coalesces asynchronous writes as dictated by the given policy.
+     * <p>
+     * Databases that are hold in memory can not share their content across connections, hence they
+     * never use a pool and always fall back to a single connection.
+     *
+     * @param jdbcUrl the url to the database in the format expected by JDBC
+     * @param readPoolSize the amount of read-only connections to open, in addition to the
+     *        connection used for writing. If {@code 0}, reads share the connection used for
+     *        writing.
+     * @param writeBatchPolicy the policy used to coalesce writes submitted by
+     *        {@link #writeAsync(CheckedConsumer)}
+     * @throws SQLException if no connection could be established
+     */
+    public Database(String jdbcUrl, int readPoolSize, WriteBatchPolicy writeBatchPolicy)
+            throws SQLException {
+        if (readPoolSize < 0) {
+            throw new IllegalArgumentException(
+                    "The read pool size must not be negative, but was " + readPoolSize);
+        }
+
         SQLiteConfig sqliteConfig = new SQLiteConfig();
         sqliteConfig.enforceForeignKeys(true);
         // In WAL mode only concurrent writes pose a problem, so we synchronize those
@@ -51,7 +113,30 @@ public final class Database {
                 Flyway.configure().dataSource(dataSource).locations("classpath:/db/").load();
         flyway.migrate();
 
-        dslContext = DSL.using(dataSource.getConnection(), SQLDialect.SQLITE);
+        writeConnection = dataSource.getConnection();
+        dslContext = DSL.using(writeConnection, SQLDialect.SQLITE);
+        writeBatcher = new WriteBatcher(dslContext, writeLock, writeBatchPolicy);
+
+        if (readPoolSize == 0 || isMemoryDatabase(jdbcUrl)) {
+            readPool = null;
+            return;
+        }
+
+        SQLiteConfig readConfig = new SQLiteConfig();
+        readConfig.setReadOnly(true);
+
+        SQLiteDataSource readDataSource = new SQLiteDataSource(readConfig);
+        readDataSource.setUrl(jdbcUrl);
+
+        readPool = new ReadConnectionPool(readDataSource, readPoolSize);
+    }
+
+    private static boolean isMemoryDatabase(String jdbcUrl) {
+        String location = jdbcUrl.startsWith(JDBC_URL_PREFIX)
+                ? jdbcUrl.substring(JDBC_URL_PREFIX.length())
+                : jdbcUrl;
+        return location.isEmpty() || location.contains(":memory:")
+                || location.contains("mode=memory");
     }
 
     /**
@@ -62,7 +147,7 @@ public final class Database {
      */
     public static Database createMemoryDatabase(Table<?>... tables) {
         try {
-            Database database = new Database("jdbc:sqlite:");
+            Database database = new Database(JDBC_URL_PREFIX);
             database.write(context -> context.ddl(tables).executeBatch());
             return database;
         } catch (SQLException e) {
@@ -81,7 +166,7 @@ public final class Database {
     public <T> T read(
             CheckedFunction<? super DSLContext, T, ? extends DataAccessException> action) {
         try {
-            return action.accept(getDslContext());
+            return withReadContext(action);
         } catch (DataAccessException e) {
             throw new DatabaseException(e);
         }
@@ -112,13 +197,16 @@ public final class Database {
      */
     public <T> T writeAndProvide(
             CheckedFunction<? super DSLContext, T, ? extends DataAccessException> action) {
-        writeLock.lock();
+        DatabaseOperationEvent event = new DatabaseOperationEvent();
+        event.begin();
+        long lockWaitNanos = writeLock.lock();
         try {
             return action.accept(getDslContext());
         } catch (DataAccessException e) {
             throw new DatabaseException(e);
         } finally {
             writeLock.unlock();
+            event.finish(DatabaseOperationEvent.WRITE, lockWaitNanos);
         }
     }
 
@@ -136,6 +224,48 @@ public final class Database {
         });
     }
 
+    /**
+     * Queues a write to the database, which is committed asynchronously by a single writer thread,
+     * together with other queued writes.
+     * <p>
+     * Writes are committed in the order they have been queued, but there is no guarantee about
+     * their order relative to synchronous writes. Each write runs in its own nested transaction, a
+     * failing write does not affect the other writes it is committed with.
+     * <p>
+     * Dependent actions of the returned future run on the writer thread unless they are executed
+     * asynchronously, so they should be kept short.
+     *
+     * @param action the action to apply to the DSL context, e.g. a query
+     * @param <T> the type returned by the given action
+     * @return a future that completes with the result returned by the given action once it has
+     *         been committed. It completes exceptionally with a {@link DatabaseException} if an
+     *         error occurs in the given action.
+     * @throws IllegalStateException if the database has already been closed
+     */
+    public <T> CompletableFuture<T> writeAsyncAndProvide(
+            CheckedFunction<? super DSLContext, T, ? extends DataAccessException> action) {
+        return writeBatcher.submit(action);
+    }
+
+    /**
+     * Queues a write to the database, which is committed asynchronously by a single writer thread,
+     * together with other queued writes. See {@link #writeAsyncAndProvide(CheckedFunction)} for
+     * details.
+     *
+     * @param action the action to apply to the DSL context, e.g. a query
+     * @return a future that completes once the write has been committed. It completes
+     *         exceptionally with a {@link DatabaseException} if an error occurs in the given action.
+     * @throws IllegalStateException if the database has already been closed
+     */
+    public CompletableFuture<Void> writeAsync(
+            CheckedConsumer<? super DSLContext, ? extends DataAccessException> action) {
+        return writeAsyncAndProvide(context -> {
+            action.accept(context);
+            // noinspection ReturnOfNull
+            return null;
+        });
+    }
+
     /**
      * Acquires a transaction that can only read from the database.
      *
@@ -150,7 +280,11 @@ public final class Database {
         var holder = new ResultHolder<T>();
 
         try {
-            getDslContext().transaction(config -> holder.result = handler.accept(config.dsl()));
+            withReadContext(context -> {
+                context.transaction(config -> holder.result = handler.accept(config.dsl()));
+                // noinspection ReturnOfNull
+                return null;
+            });
         } catch (DataAccessException e) {
             throw new DatabaseException(e);
         }
@@ -188,13 +322,16 @@ public final class Database {
             CheckedFunction<? super DSLContext, T, DataAccessException> handler) {
         var holder = new ResultHolder<T>();
 
-        writeLock.lock();
+        DatabaseOperationEvent event = new DatabaseOperationEvent();
+        event.begin();
+        long lockWaitNanos = writeLock.lock();
         try {
             getDslContext().transaction(config -> holder.result = handler.accept(config.dsl()));
         } catch (DataAccessException e) {
             throw new DatabaseException(e);
         } finally {
             writeLock.unlock();
+            event.finish(DatabaseOperationEvent.WRITE, lockWaitNanos);
         }
 
         return holder.result;
@@ -216,10 +353,94 @@ public final class Database {
         });
     }
 
+    /**
+     * Gets the usage statistics of the pool of read-only connections, for example to detect
+     * contention.
+     *
+     * @return the statistics of the read pool, empty if this database does not use a pool and reads
+     *         share the connection used for writing
+     */
+    public Optional<ConnectionPoolStatistics> getReadPoolStatistics() {
+        return Optional.ofNullable(readPool).map(ReadConnectionPool::getStatistics);
+    }
+
+    /**
+     * Gets the timings of the operations of this database, for example to detect slow queries or
+     * contention on the write lock.
+     *
+     * @return the current statistics
+     */
+    public DatabaseStatistics getStatistics() {
+        return new DatabaseStatistics(reads.getStatistics(), writeLock.getHoldStatistics(),
+                writeLock.getWaitStatistics());
+    }
+
+    /**
+     * Closes all connections to the database. The database can not be used anymore afterwards.
+     * <p>
+     * Blocks until all writes queued by {@link #writeAsync(CheckedConsumer)} have been committed.
+     *
+     * @throws DatabaseException if a connection could not be closed
+     */
+    @Override
+    public void close() {
+        writeBatcher.close();
+
+        try (writeConnection) {
+            if (readPool != null) {
+                readPool.close();
+            }
+        } catch (SQLException e) {
+            throw new DatabaseException(e);
+        }
+    }
+
     private DSLContext getDslContext() {
         return dslContext;
     }
 
+    /**
+     * Applies the given action to a read-only context. Either borrowed from the read pool, or the
+     * context used for writing if this database does not use a pool. In the latter case, the read
+     * holds the write lock, so that it does not interleave with writes on the same connection.
+     *
+     * @param action the action to apply to the context
+     * @param <T> the type returned by the given action
+     * @param <E> the type of exception the action may throw
+     * @return the result returned by the given action
+     * @throws E if an error occurs in the given action
+     */
+    private <T, E extends Exception> T withReadContext(
+            CheckedFunction<? super DSLContext, T, E> action) throws E {
+        DatabaseOperationEvent event = new DatabaseOperationEvent();
+        event.begin();
+        long readStart = System.nanoTime();
+        long waitNanos = 0;
+        try {
+            if (readPool == null) {
+                // The connection is shared with writes, including the batches of the writer
+                // thread, which must not interleave with reads
+                waitNanos = writeLock.lockForRead();
+                try {
+                    return action.accept(getDslContext());
+                } finally {
+                    writeLock.unlock();
+                }
+            }
+
+            DSLContext context = readPool.acquire();
+            waitNanos = System.nanoTime() - readStart;
+            try {
+                return action.accept(context);
+            } finally {
+                readPool.release(context);
+            }
+        } finally {
+            reads.record(System.nanoTime() - readStart);
+            event.finish(DatabaseOperationEvent.READ, waitNanos);
+        }
+    }
+
     /**
      * Utility classed used to wrap a result, for example to bypass <i>effectively final</i>
      * restrictions.
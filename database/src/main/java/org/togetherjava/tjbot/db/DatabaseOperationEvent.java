@@ -0,0 +1,56 @@
+package org.togetherjava.tjbot.db;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * JDK Flight Recorder event of an operation of {@link Database}. The duration of the event covers
+ * the whole operation, including waiting for a connection or the write lock.
+ * <p>
+ * The event carries no command or guild. Reads and synchronous writes run on the thread that
+ * requested them, so they nest under the event of the command on that thread. Batches of
+ * asynchronous writes however run on the {@code database-writer} thread and can not be attributed
+ * to a command.
+ * <p>
+ * The event is only committed while a recording is running, otherwise it is nearly free.
+ */
+@Name("org.togetherjava.tjbot.DatabaseOperation")
+@Label("Database Operation")
+@Category({"TJ-Bot", "Database"})
+@Description("A read or write of the database")
+final class DatabaseOperationEvent extends Event {
+    static final String READ = "read";
+    static final String WRITE = "write";
+    static final String WRITE_BATCH = "write batch";
+
+    @Label("Operation")
+    @Description("The kind of operation, either a read, a write or a batch of asynchronous writes")
+    private String operation;
+
+    @Label("Wait Time")
+    @Description("Time spent waiting for a connection of the read pool or for the write lock")
+    @Timespan
+    private long waitTime;
+
+    /**
+     * Ends the event and commits it, if it is recorded.
+     *
+     * @param eventOperation the kind of operation, for example {@link #READ}
+     * @param waitNanos the time the operation waited for a connection or the write lock, in
+     *        nanoseconds
+     */
+    void finish(String eventOperation, long waitNanos) {
+        end();
+        if (!shouldCommit()) {
+            return;
+        }
+
+        operation = eventOperation;
+        waitTime = waitNanos;
+        commit();
+    }
+}
@@ -0,0 +1,15 @@
+package org.togetherjava.tjbot.db;
+
+/**
+ * Snapshot of the timings of the operations of a {@link Database}. Can be used to tell slow
+ * queries apart from contention, for example when writes spend most of their time waiting for the
+ * write lock.
+ *
+ * @param reads the reads, including the time spent waiting for a connection of the read pool
+ * @param writes the writes, i.e. the time the write lock was held, including asynchronous writes
+ *        which are committed in batches
+ * @param writeLockWaits the time spent waiting for the write lock before writing
+ */
+public record DatabaseStatistics(OperationStatistics reads, OperationStatistics writes,
+        OperationStatistics writeLockWaits) {
+}
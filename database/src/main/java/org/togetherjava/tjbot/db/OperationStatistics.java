@@ -0,0 +1,26 @@
+package org.togetherjava.tjbot.db;
+
+import java.time.Duration;
+
+/**
+ * Snapshot of the timings of a kind of database operation, for example reads, as maintained by
+ * {@link Database}.
+ *
+ * @param count the total amount of operations
+ * @param totalTime the accumulated time spent in the operations
+ * @param maxTime the longest time a single operation took
+ */
+public record OperationStatistics(long count, Duration totalTime, Duration maxTime) {
+
+    /**
+     * Gets the average time an operation took.
+     *
+     * @return the average time, zero if there were no operations yet
+     */
+    public Duration averageTime() {
+        if (count == 0) {
+            return Duration.ZERO;
+        }
+        return totalTime.dividedBy(count);
+    }
+}
@@ -0,0 +1,37 @@
+package org.togetherjava.tjbot.db;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Records the timings of a kind of database operation, see {@link OperationStatistics}.
+ * <p>
+ * The timer is thread-safe.
+ */
+final class OperationTimer {
+    private final LongAdder count = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+
+    /**
+     * Records an operation that took the given time.
+     *
+     * @param nanos the time the operation took, in nanoseconds
+     */
+    void record(long nanos) {
+        count.increment();
+        totalNanos.add(nanos);
+        maxNanos.accumulate(nanos);
+    }
+
+    /**
+     * Takes a snapshot of the timings recorded so far.
+     *
+     * @return the current statistics
+     */
+    OperationStatistics getStatistics() {
+        return new OperationStatistics(count.sum(), Duration.ofNanos(totalNanos.sum()),
+                Duration.ofNanos(maxNanos.get()));
+    }
+}
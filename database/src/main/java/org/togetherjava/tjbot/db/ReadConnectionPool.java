@@ -0,0 +1,136 @@
+package org.togetherjava.tjbot.db;
+
+import org.jooq.DSLContext;
+import org.jooq.SQLDialect;
+import org.jooq.impl.DSL;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded pool of read-only connections, used by {@link Database} to serve reads concurrently.
+ * <p>
+ * All connections are opened eagerly during construction. A context has to be borrowed using
+ * {@link #acquire()} and must be given back afterwards using {@link #release(DSLContext)}. If all
+ * connections are in use, acquiring blocks until one is released again. The time spent waiting is
+ * recorded and can be inspected using {@link #getStatistics()}.
+ * <p>
+ * The pool is thread-safe.
+ */
+final class ReadConnectionPool implements AutoCloseable {
+    private final List<Connection> connections;
+    private final BlockingQueue<DSLContext> idleContexts;
+
+    private final LongAdder acquisitions = new LongAdder();
+    private final LongAdder contendedAcquisitions = new LongAdder();
+    private final LongAdder totalWaitNanos = new LongAdder();
+    private final LongAccumulator maxWaitNanos = new LongAccumulator(Math::max, 0);
+
+    /**
+     * Creates a new pool and opens all its connections.
+     *
+     * @param dataSource the source to open the connections from, should be configured to only
+     *        allow reading
+     * @param size the amount of connections to open, must be positive
+     * @throws SQLException if a connection could not be established
+     */
+    ReadConnectionPool(DataSource dataSource, int size) throws SQLException {
+        if (size <= 0) {
+            throw new IllegalArgumentException("The pool size must be positive, but was " + size);
+        }
+
+        connections = new ArrayList<>(size);
+        idleContexts = new ArrayBlockingQueue<>(size);
+        try {
+            for (int i = 0; i < size; i++) {
+                Connection connection = dataSource.getConnection();
+                connections.add(connection);
+                idleContexts.add(DSL.using(connection, SQLDialect.SQLITE));
+            }
+        } catch (SQLException e) {
+            close();
+            throw e;
+        }
+    }
+
+    /**
+     * Borrows a context from the pool, waiting for one to become available if necessary. The
+     * context must be given back using {@link #release(DSLContext)} once it is not needed anymore.
+     *
+     * @return the borrowed context, bound to a read-only connection
+     * @throws DatabaseException if the thread was interrupted while waiting
+     */
+    DSLContext acquire() {
+        acquisitions.increment();
+
+        DSLContext context = idleContexts.poll();
+        if (context != null) {
+            return context;
+        }
+
+        contendedAcquisitions.increment();
+        long waitStart = System.nanoTime();
+        try {
+            context = idleContexts.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DatabaseException(e);
+        }
+        long waitNanos = System.nanoTime() - waitStart;
+        totalWaitNanos.add(waitNanos);
+        maxWaitNanos.accumulate(waitNanos);
+
+        return context;
+    }
+
+    /**
+     * Gives back a context that was previously borrowed using {@link #acquire()}.
+     *
+     * @param context the context to give back
+     */
+    void release(DSLContext context) {
+        if (!idleContexts.offer(context)) {
+            throw new IllegalStateException(
+                    "Released more contexts than have been acquired from the pool");
+        }
+    }
+
+    /**
+     * Takes a snapshot of the usage statistics of this pool.
+     *
+     * @return the current statistics
+     */
+    ConnectionPoolStatistics getStatistics() {
+        return new ConnectionPoolStatistics(connections.size(), idleContexts.size(),
+                acquisitions.sum(), contendedAcquisitions.sum(),
+                Duration.ofNanos(totalWaitNanos.sum()), Duration.ofNanos(maxWaitNanos.get()));
+    }
+
+    @Override
+    public void close() throws SQLException {
+        SQLException closeFailure = null;
+        for (Connection connection : connections) {
+            try {
+                connection.close();
+            } catch (SQLException e) {
+                if (closeFailure == null) {
+                    closeFailure = e;
+                } else {
+                    closeFailure.addSuppressed(e);
+                }
+            }
+        }
+
+        if (closeFailure != null) {
+            throw closeFailure;
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package org.togetherjava.tjbot.db;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * The lock guarding writes to a {@link Database}, which records how long writers waited for it and
+ * how long they held it.
+ * <p>
+ * The lock is reentrant, only the outermost acquisition of a thread is recorded.
+ */
+final class TimedWriteLock {
+    private final ReentrantLock lock = new ReentrantLock();
+    private final OperationTimer waits = new OperationTimer();
+    private final OperationTimer holds = new OperationTimer();
+    /**
+     * The time the lock was acquired by its current owner, as given by {@link System#nanoTime()}.
+     * Guarded by the lock itself.
+     */
+    private long acquiredAt;
+    /**
+     * Whether the current owner acquired the lock to write, as opposed to read. Only writes are
+     * recorded. Guarded by the lock itself.
+     */
+    private boolean isWriting;
+
+    /**
+     * Acquires the lock, blocking until it is available.
+     *
+     * @return the time spent waiting for the lock, in nanoseconds, {@code 0} if the current thread
+     *         already held it
+     */
+    long lock() {
+        return lock(true);
+    }
+
+    /**
+     * Acquires the lock to read from a connection that is shared with writers, blocking until it
+     * is available. Neither the wait nor the hold is recorded.
+     *
+     * @return the time spent waiting for the lock, in nanoseconds, {@code 0} if the current thread
+     *         already held it
+     */
+    long lockForRead() {
+        return lock(false);
+    }
+
+    private long lock(boolean isWrite) {
+        long waitStart = System.nanoTime();
+        lock.lock();
+        if (lock.getHoldCount() > 1) {
+            return 0;
+        }
+
+        acquiredAt = System.nanoTime();
+        isWriting = isWrite;
+        long waitNanos = acquiredAt - waitStart;
+        if (isWrite) {
+            waits.record(waitNanos);
+        }
+        return waitNanos;
+    }
+
+    /**
+     * Releases the lock.
+     */
+    void unlock() {
+        if (lock.getHoldCount() == 1 && isWriting) {
+            holds.record(System.nanoTime() - acquiredAt);
+        }
+        lock.unlock();
+    }
+
+    /**
+     * Takes a snapshot of how long writers waited for the lock.
+     *
+     * @return the current wait statistics
+     */
+    OperationStatistics getWaitStatistics() {
+        return waits.getStatistics();
+    }
+
+    /**
+     * Takes a snapshot of how long writers held the lock, i.e. how long the writes took.
+     *
+     * @return the current hold statistics
+     */
+    OperationStatistics getHoldStatistics() {
+        return holds.getStatistics();
+    }
+}
@@ -0,0 +1,44 @@
+package org.togetherjava.tjbot.db;
+
+import java.time.Duration;
+import java.util.Objects;
+
+/**
+ * Policy that controls how {@link Database} coalesces asynchronous writes, see
+ * {@link Database#writeAsync(org.togetherjava.tjbot.db.util.CheckedConsumer)}.
+ * <p>
+ * Queued writes are committed together in a single transaction. A batch is committed once it
+ * reached its maximal size, or once the linger time elapsed since its first write was picked up,
+ * whatever happens first.
+ *
+ * @param maxBatchSize the maximal amount of writes committed in a single transaction, must be
+ *        positive
+ * @param linger the maximal time to wait for further writes to join a batch, before it is
+ *        committed. Zero to only join writes that are already queued.
+ */
+public record WriteBatchPolicy(int maxBatchSize, Duration linger) {
+    /**
+     * Policy used if nothing else was configured. Commits up to 100 writes at once and waits at
+     * most 10 milliseconds for further writes to arrive.
+     */
+    public static final WriteBatchPolicy DEFAULT = new WriteBatchPolicy(100, Duration.ofMillis(10));
+
+    /**
+     * Creates a new policy.
+     *
+     * @param maxBatchSize the maximal amount of writes committed in a single transaction, must be
+     *        positive
+     * @param linger the maximal time to wait for further writes to join a batch, before it is
+     *        committed. Zero to only join writes that are already queued.
+     */
+    public WriteBatchPolicy {
+        if (maxBatchSize <= 0) {
+            throw new IllegalArgumentException(
+                    "The maximal batch size must be positive, but was " + maxBatchSize);
+        }
+        Objects.requireNonNull(linger);
+        if (linger.isNegative()) {
+            throw new IllegalArgumentException("The linger time must not be negative");
+        }
+    }
+}
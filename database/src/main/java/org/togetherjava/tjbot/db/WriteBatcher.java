@@ -0,0 +1,267 @@
+package org.togetherjava.tjbot.db;
+
+import org.jooq.DSLContext;
+import org.jooq.exception.DataAccessException;
+import org.togetherjava.tjbot.db.util.CheckedFunction;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Single writer thread that coalesces queued writes into one transaction per batch, used by
+ * {@link Database} to implement its asynchronous writes.
+ * <p>
+ * Writes are submitted using {@link #submit(CheckedFunction)} and committed in the order they have
+ * been submitted. Batches are formed as dictated by the given {@link WriteBatchPolicy}. Every write
+ * runs in its own nested transaction, so a failing write only rolls back its own changes and does
+ * not affect the other writes of its batch.
+ * <p>
+ * The writer thread is started lazily with the first submitted write. {@link #close()} commits all
+ * writes that have been submitted until then, before it returns. A batch that fails, even with an
+ * {@link Error}, fails the futures of its writes, the writer thread keeps running regardless.
+ * <p>
+ * The batcher is thread-safe.
+ */
+final class WriteBatcher implements AutoCloseable {
+    /**
+     * Marker that is queued on shutdown, the writer thread stops once it encounters it.
+     */
+    private static final PendingWrite<?> SHUTDOWN = new PendingWrite<>(null);
+
+    private final DSLContext context;
+    private final TimedWriteLock writeLock;
+    private final WriteBatchPolicy policy;
+    private final BlockingQueue<PendingWrite<?>> queue = new LinkedBlockingQueue<>();
+    /**
+     * Guards the lifecycle of the writer thread, i.e. {@link #writerThread} and {@link #isClosed}.
+     */
+    private final Object lifecycleLock = new Object();
+    private Thread writerThread;
+    private boolean isClosed;
+
+    /**
+     * Creates a new batcher, the writer thread is not started yet.
+     *
+     * @param context the context to write to
+     * @param writeLock the lock that has to be held while writing to the context, shared with the
+     *        synchronous writes
+     * @param policy the policy that controls how writes are coalesced
+     */
+    WriteBatcher(DSLContext context, TimedWriteLock writeLock, WriteBatchPolicy policy) {
+        this.context = context;
+        this.writeLock = writeLock;
+        this.policy = policy;
+    }
+
+    /**
+     * Queues the given write, to be committed by the writer thread together with other writes.
+     *
+     * @param action the action to apply to the DSL context, e.g. a query
+     * @param <T> the type returned by the given action
+     * @return a future that completes with the result of the action once it has been committed. It
+     *         completes exceptionally with a {@link DatabaseException} if the write failed.
+     * @throws IllegalStateException if the batcher has already been closed
+     */
+    <T> CompletableFuture<T> submit(
+            CheckedFunction<? super DSLContext, T, ? extends DataAccessException> action) {
+        PendingWrite<T> write = new PendingWrite<>(action);
+
+        synchronized (lifecycleLock) {
+            if (isClosed) {
+                throw new IllegalStateException(
+                        "Unable to write asynchronously, the database has already been closed");
+            }
+            if (writerThread == null) {
+                writerThread = new Thread(this::runWriter, "database-writer");
+                writerThread.setDaemon(true);
+                writerThread.start();
+            }
+            queue.add(write);
+        }
+
+        return write.future;
+    }
+
+    /**
+     * Stops accepting further writes and blocks until all writes that have been submitted until
+     * now are committed.
+     */
+    @Override
+    public void close() {
+        Thread threadToAwait;
+        synchronized (lifecycleLock) {
+            if (isClosed) {
+                return;
+            }
+            isClosed = true;
+            threadToAwait = writerThread;
+            queue.add(SHUTDOWN);
+        }
+
+        if (threadToAwait == null) {
+            return;
+        }
+
+        boolean wasInterrupted = false;
+        while (threadToAwait.isAlive()) {
+            try {
+                threadToAwait.join();
+            } catch (InterruptedException e) {
+                // Pending writes must not be lost, finish waiting and restore the flag afterwards
+                wasInterrupted = true;
+            }
+        }
+        if (wasInterrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void runWriter() {
+        boolean isShutdown = false;
+        try {
+            while (!isShutdown) {
+                List<PendingWrite<?>> batch = new ArrayList<>(policy.maxBatchSize());
+                isShutdown = collectBatch(batch);
+
+                if (!batch.isEmpty()) {
+                    commitBatch(batch);
+                }
+            }
+        } finally {
+            if (!isShutdown) {
+                abandonQueuedWrites();
+            }
+        }
+    }
+
+    /**
+     * Closes the batcher after the writer thread stopped unexpectedly and fails all writes that are
+     * still queued, since nobody would commit them anymore.
+     */
+    private void abandonQueuedWrites() {
+        synchronized (lifecycleLock) {
+            isClosed = true;
+        }
+
+        List<PendingWrite<?>> abandonedWrites = new ArrayList<>();
+        queue.drainTo(abandonedWrites);
+        IllegalStateException failure =
+                new IllegalStateException("The database writer stopped unexpectedly");
+        abandonedWrites.stream()
+            .filter(write -> write != SHUTDOWN)
+            .forEach(write -> write.fail(failure));
+    }
+
+    /**
+     * Collects the next batch of writes, blocking until at least one write is available.
+     *
+     * @param batch the list to add the collected writes to
+     * @return whether the shutdown marker has been encountered, no further writes will follow
+     */
+    private boolean collectBatch(List<PendingWrite<?>> batch) {
+        try {
+            PendingWrite<?> first = queue.take();
+            if (first == SHUTDOWN) {
+                return true;
+            }
+            batch.add(first);
+
+            long lingerDeadline = System.nanoTime() + policy.linger().toNanos();
+            while (batch.size() < policy.maxBatchSize()) {
+                long remainingNanos = lingerDeadline - System.nanoTime();
+                PendingWrite<?> next = remainingNanos > 0
+                        ? queue.poll(remainingNanos, TimeUnit.NANOSECONDS)
+                        : queue.poll();
+
+                if (next == null) {
+                    break;
+                }
+                if (next == SHUTDOWN) {
+                    return true;
+                }
+                batch.add(next);
+            }
+        } catch (InterruptedException e) {
+            // The writer thread is only stopped by the shutdown marker, an interrupt just ends
+            // lingering and commits what has been collected so far
+        }
+        return false;
+    }
+
+    private void commitBatch(List<PendingWrite<?>> batch) {
+        DatabaseOperationEvent event = new DatabaseOperationEvent();
+        event.begin();
+        long lockWaitNanos = writeLock.lock();
+        try {
+            context.transaction(config -> {
+                DSLContext transactionContext = config.dsl();
+                batch.forEach(write -> write.runIn(transactionContext));
+            });
+        } catch (Throwable e) {
+            // Also errors, a write that overflows the stack must not take down the writer thread
+            // and with it all writes queued after it
+            batch.forEach(write -> write.fail(e));
+            return;
+        } finally {
+            writeLock.unlock();
+            event.finish(DatabaseOperationEvent.WRITE_BATCH, lockWaitNanos);
+        }
+
+        // Complete outside of the lock, dependent actions of the futures run on this thread
+        batch.forEach(PendingWrite::complete);
+    }
+
+    private static Throwable wrapFailure(Throwable failure) {
+        return failure instanceof DataAccessException dataAccessFailure
+                ? new DatabaseException(dataAccessFailure)
+                : failure;
+    }
+
+    /**
+     * A write that has been submitted but not committed yet.
+     *
+     * @param <T> the type returned by the write
+     */
+    private static final class PendingWrite<T> {
+        private final CheckedFunction<? super DSLContext, T, ? extends DataAccessException> action;
+        private final CompletableFuture<T> future = new CompletableFuture<>();
+        private T result;
+        private RuntimeException failure;
+
+        private PendingWrite(
+                CheckedFunction<? super DSLContext, T, ? extends DataAccessException> action) {
+            this.action = action;
+        }
+
+        /**
+         * Runs the write in a nested transaction of the given context, so that a failure only
+         * rolls back the changes of this write.
+         *
+         * @param transactionContext the context of the transaction of the current batch
+         */
+        void runIn(DSLContext transactionContext) {
+            try {
+                transactionContext
+                    .transaction(config -> result = action.accept(config.dsl()));
+            } catch (RuntimeException e) {
+                failure = e;
+            }
+        }
+
+        void complete() {
+            if (failure == null) {
+                future.complete(result);
+            } else {
+                future.completeExceptionally(wrapFailure(failure));
+            }
+        }
+
+        void fail(Throwable batchFailure) {
+            future.completeExceptionally(wrapFailure(batchFailure));
+        }
+    }
+}
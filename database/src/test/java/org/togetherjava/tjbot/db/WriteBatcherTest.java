@@ -0,0 +1,90 @@
+package org.togetherjava.tjbot.db;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+final class WriteBatcherTest {
+    // Lingering long enough that all writes of a test join the same batch
+    private static final WriteBatchPolicy POLICY =
+            new WriteBatchPolicy(100, Duration.ofMillis(50));
+
+    private Database database;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        database = new Database("jdbc:sqlite:", 0, POLICY);
+        database.write(context -> context.execute("CREATE TABLE numbers (number INTEGER UNIQUE)"));
+    }
+
+    @AfterEach
+    void tearDown() {
+        database.close();
+    }
+
+    private CompletableFuture<Void> insertAsync(int number) {
+        return database.writeAsync(
+                context -> context.execute("INSERT INTO numbers VALUES (?)", number));
+    }
+
+    private List<Integer> getNumbers() {
+        return database.read(context -> context
+            .fetch("SELECT number FROM numbers ORDER BY rowid")
+            .getValues(0, Integer.class));
+    }
+
+    @Test
+    void writesAreCommittedInOrder() {
+        List<CompletableFuture<Void>> writes =
+                IntStream.range(0, 10).mapToObj(this::insertAsync).toList();
+        writes.forEach(CompletableFuture::join);
+
+        assertEquals(IntStream.range(0, 10).boxed().toList(), getNumbers());
+    }
+
+    @Test
+    void failingWriteDoesNotAffectItsBatch() {
+        CompletableFuture<Void> first = insertAsync(1);
+        CompletableFuture<Void> duplicate = insertAsync(1);
+        CompletableFuture<Void> second = insertAsync(2);
+
+        CompletionException failure = assertThrows(CompletionException.class, duplicate::join);
+        assertInstanceOf(DatabaseException.class, failure.getCause());
+        first.join();
+        second.join();
+        assertEquals(List.of(1, 2), getNumbers());
+    }
+
+    @Test
+    void errorDoesNotStopTheWriter() {
+        CompletableFuture<Void> error = database.writeAsync(context -> {
+            throw new AssertionError("Simulated error");
+        });
+
+        CompletionException failure = assertThrows(CompletionException.class, error::join);
+        assertInstanceOf(AssertionError.class, failure.getCause());
+        insertAsync(1).join();
+        assertEquals(List.of(1), getNumbers());
+    }
+
+    @Test
+    void closeCommitsQueuedWrites() {
+        List<CompletableFuture<Void>> writes =
+                IntStream.range(0, 10).mapToObj(this::insertAsync).toList();
+
+        database.close();
+
+        assertTrue(writes.stream()
+            .allMatch(write -> write.isDone() && !write.isCompletedExceptionally()));
+        assertThrows(IllegalStateException.class, () -> insertAsync(10));
+    }
+}
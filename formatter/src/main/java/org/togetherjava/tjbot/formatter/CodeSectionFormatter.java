@@ -3,7 +3,6 @@ package org.togetherjava.tjbot.formatter;
 import org.togetherjava.tjbot.formatter.tokenizer.Token;
 import org.togetherjava.tjbot.formatter.tokenizer.TokenType;
 import org.togetherjava.tjbot.formatter.util.LookaheadQueue;
-import org.togetherjava.tjbot.formatter.util.SkippableLookaheadArrayDeque;
 import org.togetherjava.tjbot.formatter.util.SkippableLookaheadQueue;
 
 import java.util.*;
@@ -13,7 +12,7 @@ import java.util.function.Predicate;
  * Formatter which specifically formats code tokens (that are part of a section)
  */
 class CodeSectionFormatter {
-    private final StringBuilder result = new StringBuilder();
+    private final FormatterOutput result;
     private final SkippableLookaheadQueue<Token> queue;
 
     private int indentation;
@@ -21,12 +20,15 @@ class CodeSectionFormatter {
     private int forLevel;
     private int genericDepth;
 
-    CodeSectionFormatter(List<Token> tokens) {
-        this(new SkippableLookaheadArrayDeque<>(tokens));
-    }
-
-    CodeSectionFormatter(SkippableLookaheadQueue<Token> queue) {
+    /**
+     * Creates a formatter for the tokens of the given queue, which are consumed while formatting
+     *
+     * @param queue tokens to format
+     * @param result output to write the formatted code to
+     */
+    CodeSectionFormatter(SkippableLookaheadQueue<Token> queue, FormatterOutput result) {
         this.queue = queue;
+        this.result = result;
 
         purgeWhitespaces(this.queue);
     }
@@ -341,8 +343,4 @@ class CodeSectionFormatter {
             applyIndentation = false;
         }
     }
-
-    StringBuilder result() {
-        return result;
-    }
 }
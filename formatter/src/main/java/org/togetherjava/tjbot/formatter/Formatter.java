@@ -3,15 +3,34 @@ package org.togetherjava.tjbot.formatter;
 import org.togetherjava.tjbot.formatter.tokenizer.Lexer;
 import org.togetherjava.tjbot.formatter.tokenizer.Token;
 import org.togetherjava.tjbot.formatter.tokenizer.TokenType;
+import org.togetherjava.tjbot.formatter.util.SkippableLookaheadArrayQueue;
+import org.togetherjava.tjbot.formatter.util.SkippableLookaheadQueue;
 
-import java.util.ArrayList;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
 import java.util.List;
-import java.util.stream.Collectors;
 
 /**
  * Formatter which can format a given string into a string which contains code blocks etc
+ * <p>
+ * Tokens are consumed one by one and written straight into the output, only the tokens of the
+ * current code section are buffered. Formatting can be limited to a maximal output length, such as
+ * {@link #MESSAGE_LENGTH_LIMIT}, in which case it is aborted as soon as the limit is exceeded.
  */
 public class Formatter {
+    /**
+     * Maximal length of the content of a Discord message
+     */
+    public static final int MESSAGE_LENGTH_LIMIT = 2000;
+    /**
+     * Maximal length of the description of a Discord embed
+     */
+    public static final int EMBED_DESCRIPTION_LENGTH_LIMIT = 4096;
+
+    private static final String CODE_SECTION_START = "```java\n";
+    private static final String CODE_SECTION_END = "\n```";
+
     /**
      * Formats the given tokens
      *
@@ -19,18 +38,9 @@ public class Formatter {
      * @return resulting code
      */
     public String format(List<Token> tokens) {
-        List<Section> sections = sectionize(indexTokens(tokens));
         StringBuilder result = new StringBuilder();
 
-        for (Section section : sections) {
-            if (section.isCodeSection()) {
-                result.append("```java\n")
-                    .append(writeCodeSection(section.tokens()))
-                    .append("\n```");
-            } else {
-                result.append(joinTokens(section.tokens()));
-            }
-        }
+        format(tokens.iterator(), new FormatterOutput(result, Integer.MAX_VALUE));
 
         return result.toString();
     }
@@ -43,96 +53,116 @@ public class Formatter {
      * @return resulting code
      */
     public String format(String input, Lexer lexer) {
-        return format(lexer.tokenize(input));
-    }
-
-    /**
-     * Joins given tokens together and normalizes whitespaces
-     *
-     * @param tokens tokens to join
-     * @return joined form of the tokens
-     */
-    private String joinTokens(List<Token> tokens) {
-        return tokens.stream().map(Token::content).collect(Collectors.joining());
-    }
-
-    /**
-     * Writes and formats a given code section (in form of a list of tokens) into a StringBuilder
-     * using a {@link CodeSectionFormatter}
-     *
-     * @param tokens tokens to write
-     * @return written code sections
-     */
-    private StringBuilder writeCodeSection(List<Token> tokens) {
-        CodeSectionFormatter formatter = new CodeSectionFormatter(tokens);
+        StringBuilder result = new StringBuilder();
 
-        formatter.format();
+        format(lexer.tokenizeLazily(input), new FormatterOutput(result, Integer.MAX_VALUE));
 
-        return formatter.result();
+        return result.toString();
     }
 
     /**
-     * Indexes tokens to contain information about whether they are code tokens or not
+     * Formats the given input into the given output, tokenizing it lazily using the given lexer
      *
-     * @param tokens not-indexed tokens
-     * @return indexed tokens
+     * @param input input to format
+     * @param lexer lexer to use
+     * @param output output to write the resulting code to
+     * @param maxLength maximal amount of characters to write into the output
+     * @return true if the input was formatted completely, false if formatting was aborted because
+     *         the result would exceed the maximal length. In that case, the output contains an
+     *         incomplete result and the rest of the input has not been processed.
+     * @throws IOException if writing to the output failed
      */
-    private List<CheckedToken> indexTokens(List<Token> tokens) {
-        return tokens.stream()
-            .map(token -> new CheckedToken(token, isTokenPartOfCode(token)))
-            .toList();
+    public boolean format(CharSequence input, Lexer lexer, Appendable output, int maxLength)
+            throws IOException {
+        return format(lexer.tokenizeLazily(input), output, maxLength);
     }
 
     /**
-     * Checks if a given token could be part of code
+     * Formats the given tokens into the given output, consuming them only as far as needed
      *
-     * @param token token to check
-     * @return true if it's a code token, false if not
+     * @param tokens tokens to format
+     * @param output output to write the resulting code to
+     * @param maxLength maximal amount of characters to write into the output
+     * @return true if the tokens were formatted completely, false if formatting was aborted because
+     *         the result would exceed the maximal length. In that case, the output contains an
+     *         incomplete result and the remaining tokens have not been consumed.
+     * @throws IOException if writing to the output failed
      */
-    private boolean isTokenPartOfCode(Token token) {
-        return token.type() != TokenType.UNKNOWN;
+    public boolean format(Iterator<Token> tokens, Appendable output, int maxLength)
+            throws IOException {
+        try {
+            format(tokens, new FormatterOutput(output, maxLength));
+
+            return true;
+        } catch (FormatterOutput.OutputLimitReachedException e) {
+            return false;
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
     }
 
     /**
-     * Sectionizes a given list of tokens into sections who are either code sections or non-code
-     * sections. It decides so by using the internal {@code isTokenPartOfCode} method.
+     * Formats the given tokens by splitting them into sections who are either code sections or
+     * non-code sections on the fly. It decides so by using the internal {@code isTokenPartOfCode}
+     * method.
      *
-     * @param checkedTokens checked tokens
-     * @return list of sections
+     * @param tokens tokens to format
+     * @param output output to write the resulting code to
      */
-    private List<Section> sectionize(List<CheckedToken> checkedTokens) {
-        CheckedToken first = checkedTokens.get(0);
-        Section currentSection = new Section(new ArrayList<>(), first.isCode());
-        List<Section> result = new ArrayList<>();
-
-        currentSection.tokens().add(first.token());
-
-        for (int i = 1; i < checkedTokens.size(); i++) {
-            CheckedToken next = checkedTokens.get(i);
-
-            if (currentSection.isCodeSection() != next.isCode()) {
-                result.add(currentSection);
+    private void format(Iterator<Token> tokens, FormatterOutput output) {
+        SkippableLookaheadQueue<Token> codeSection = new SkippableLookaheadArrayQueue<>();
+        long minCodeSectionLength = 0;
+
+        while (tokens.hasNext()) {
+            Token token = tokens.next();
+
+            if (isTokenPartOfCode(token)) {
+                codeSection.add(token);
+
+                // all tokens except whitespaces end up in the formatted code, abort early if
+                // that alone does not fit anymore
+                if (token.type() != TokenType.WHITESPACE) {
+                    minCodeSectionLength += token.content().length();
+                }
+                output.ensureRemaining(CODE_SECTION_START.length() + minCodeSectionLength
+                        + CODE_SECTION_END.length());
+            } else {
+                if (!codeSection.isEmpty()) {
+                    writeCodeSection(codeSection, output);
+                    minCodeSectionLength = 0;
+                }
 
-                currentSection = new Section(new ArrayList<>(), next.isCode());
+                output.append(token.content());
             }
-
-            currentSection.tokens().add(next.token());
         }
 
-        result.add(currentSection);
-
-        return result;
+        if (!codeSection.isEmpty()) {
+            writeCodeSection(codeSection, output);
+        }
     }
 
     /**
-     * Section POJR
+     * Writes and formats a given code section (in form of a queue of tokens) into the output using
+     * a {@link CodeSectionFormatter}, consuming the tokens
+     *
+     * @param tokens tokens to write
+     * @param output output to write to
      */
-    private static record Section(List<Token> tokens, boolean isCodeSection) {
+    private void writeCodeSection(SkippableLookaheadQueue<Token> tokens, FormatterOutput output) {
+        output.append(CODE_SECTION_START);
+
+        new CodeSectionFormatter(tokens, output).format();
+
+        output.append(CODE_SECTION_END);
     }
 
     /**
-     * CheckedToken POJR
+     * Checks if a given token could be part of code
+     *
+     * @param token token to check
+     * @return true if it's a code token, false if not
      */
-    private static record CheckedToken(Token token, boolean isCode) {
+    private boolean isTokenPartOfCode(Token token) {
+        return token.type() != TokenType.UNKNOWN;
     }
 }
@@ -0,0 +1,84 @@
+package org.togetherjava.tjbot.formatter;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * Output of the {@link Formatter}, which writes into an {@link Appendable} until a maximal length
+ * is reached
+ */
+final class FormatterOutput {
+    private final Appendable target;
+    private final int maxLength;
+    private int length;
+
+    FormatterOutput(Appendable target, int maxLength) {
+        this.target = target;
+        this.maxLength = maxLength;
+    }
+
+    /**
+     * Appends the given character
+     *
+     * @param c character to append
+     * @throws OutputLimitReachedException if the character would exceed the maximal length
+     */
+    void append(char c) {
+        ensureRemaining(1);
+
+        try {
+            target.append(c);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        length++;
+    }
+
+    /**
+     * Appends the given text. If it does not fit entirely, the part that fits is appended.
+     *
+     * @param text text to append
+     * @throws OutputLimitReachedException if the text would exceed the maximal length
+     */
+    void append(CharSequence text) {
+        int fitting = Math.min(text.length(), remaining());
+
+        try {
+            target.append(text, 0, fitting);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        length += fitting;
+        ensureRemaining(text.length() - fitting);
+    }
+
+    /**
+     * Ensures that at least the given amount of characters can still be appended, to abort before
+     * doing work whose output would not fit anyway
+     *
+     * @param amount amount of characters
+     * @throws OutputLimitReachedException if there is not enough space left
+     */
+    void ensureRemaining(long amount) {
+        if (amount > remaining()) {
+            throw new OutputLimitReachedException();
+        }
+    }
+
+    private int remaining() {
+        return maxLength - length;
+    }
+
+    /**
+     * Thrown when the output reached its maximal length, to abort formatting
+     */
+    static final class OutputLimitReachedException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        OutputLimitReachedException() {
+            super(null, null, false, false);
+        }
+    }
+}
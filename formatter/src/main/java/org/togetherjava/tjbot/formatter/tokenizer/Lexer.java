@@ -1,90 +1,403 @@
 package org.togetherjava.tjbot.formatter.tokenizer;
 
 import java.util.ArrayList;
-import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.NoSuchElementException;
 
 /**
  * Tokenizer that can turn a list of strings (or a string) into a list of tokens
+ * <p>
+ * The input is scanned in a single pass, deciding on the token type by its first character. Block
+ * comments and text blocks may span multiple lines, all other tokens end at a line break. Line
+ * breaks themselves do not produce tokens. Within a line, the produced tokens are the same as if
+ * the regex of each {@link TokenType} would be tried in declaration order, which
+ * {@link TokenType#getRegex()} still documents.
  */
 public class Lexer {
+    private static final String TEXT_BLOCK_DELIMITER = "\"\"\"";
+
     /**
-     * Regex to match multi-line Java comments (including Javadoc)
+     * Token types with a fixed content (keywords, operators, ...) by their first ASCII character,
+     * in declaration order
      */
-    private static final Pattern commentPatcherRegex =
-            Pattern.compile("(/\\*[^*]*\\*+(?:[^/*][^*]*\\*+)*/)");
+    private static final TokenType[][] literalsByFirstChar = createLiteralTable();
 
     /**
-     * Tokenizes the given input by tokenizing each line individually (splitting by \n)
+     * Tokenizes the given input
      *
      * @param input input to tokenize
      * @return resulting tokens
      */
-    public List<Token> tokenize(String input) {
-        return tokenize(Arrays.asList(patchComments(input).split("\n")));
+    public List<Token> tokenize(CharSequence input) {
+        List<Token> tokens = new ArrayList<>();
+
+        tokenizeLazily(input).forEachRemaining(tokens::add);
+
+        return Collections.unmodifiableList(tokens);
     }
 
     /**
-     * Tokenizes the given input line by line
+     * Tokenizes the given input lazily, scanning the next token only when it is requested. Stopping
+     * the iteration early leaves the rest of the input unscanned.
      *
-     * @param lines input to tokenize
-     * @return resulting tokens
+     * @param input input to tokenize, must not be modified during the iteration
+     * @return iterator over the resulting tokens, throwing {@link TokenizationException} from
+     *         {@link Iterator#hasNext()} if the input can not be tokenized
      */
-    public List<Token> tokenize(List<String> lines) {
-        return lines.stream().map(this::tokenizeLine).flatMap(List::stream).toList();
+    public Iterator<Token> tokenizeLazily(CharSequence input) {
+        return new Scanner(input, 0, input.length());
     }
 
     /**
-     * Tokenizes a single line using regex
+     * Tokenizes the given input line by line
      *
-     * @param line input to tokenize
+     * @param lines input to tokenize
      * @return resulting tokens
      */
-    private List<Token> tokenizeLine(String line) {
+    public List<Token> tokenize(List<String> lines) {
         List<Token> tokens = new ArrayList<>();
-        int index = 0;
-        String content;
 
-        while (!(content = line.substring(index)).isEmpty()) {
-            Token token = findToken(content);
-
-            index += token.content().length();
-
-            tokens.add(token);
+        for (String line : lines) {
+            new Scanner(line, 0, line.length()).forEachRemaining(tokens::add);
         }
 
-        return tokens;
+        return Collections.unmodifiableList(tokens);
     }
 
-    private Token findToken(String content) {
-        for (TokenType type : TokenType.values()) {
-            Matcher matcher = type.getRegex().matcher(content);
+    private static TokenType[][] createLiteralTable() {
+        List<List<TokenType>> table = new ArrayList<>();
+        for (int i = 0; i < 128; i++) {
+            table.add(new ArrayList<>());
+        }
 
-            if (matcher.find()) {
-                return new Token(matcher.group(1), type);
+        for (TokenType type : TokenType.values()) {
+            if (type.getLiteral() != null) {
+                table.get(type.getLiteral().charAt(0)).add(type);
             }
         }
 
-        throw new TokenizationException("Token not found for '" + content + "'");
+        return table.stream()
+            .map(types -> types.toArray(TokenType[]::new))
+            .toArray(TokenType[][]::new);
     }
 
     /**
-     * Replaces multi-line comments in a given string by single-line comments
-     *
-     * @param input input to patch
-     * @return resulting string
+     * Scans a region of the input into tokens, working on offsets only
      */
-    private String patchComments(String input) { // fix this, you shouldn't need this!
-        Matcher matcher = commentPatcherRegex.matcher(input);
+    private static final class Scanner implements Iterator<Token> {
+        private final CharSequence input;
+        private final int end;
+        private int position;
+        private Token next;
+        /**
+         * Position from which on the region is known to contain no end of a block comment, so that
+         * unterminated comments do not get searched over and over again
+         */
+        private int noCommentEndFrom;
+        /**
+         * Same as {@link #noCommentEndFrom}, but for the end of a text block
+         */
+        private int noTextBlockEndFrom;
+
+        Scanner(CharSequence input, int start, int end) {
+            this.input = input;
+            this.position = start;
+            this.end = end;
+            this.noCommentEndFrom = end;
+            this.noTextBlockEndFrom = end;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (next == null && position < end) {
+                scanToken();
+            }
+
+            return next != null;
+        }
+
+        @Override
+        public Token next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+
+            Token result = next;
+            next = null;
+
+            return result;
+        }
+
+        /**
+         * Scans the token at the current position into {@link #next}, or skips it if it is a line
+         * break
+         */
+        private void scanToken() {
+            char current = input.charAt(position);
+            int closingQuote;
+
+            if (current == '\n') {
+                position++;
+                return;
+            }
+
+            if (current == '"' && scanTextBlock()) {
+                return;
+            }
+
+            // "/=" can not start a comment, so trying comments before the literals does not
+            // change the result
+            if (current == '/' && scanComment()) {
+                return;
+            }
+
+            if (current < literalsByFirstChar.length) {
+                for (TokenType type : literalsByFirstChar[current]) {
+                    if (scanLiteral(type)) {
+                        return;
+                    }
+                }
+            }
+
+            if (current == '@' && isLetter(charAt(position + 1))) {
+                add(TokenType.ANNOTATION, skipIdentifierPart(position + 2));
+            } else if (isDigit(current) || current == '_') {
+                add(TokenType.NUMBER, scanNumber());
+            } else if (current == '"' && (closingQuote = indexOfInLine('"', position + 1)) != -1) {
+                add(TokenType.STRING, closingQuote + 1);
+            } else if (isLetter(current)) {
+                add(TokenType.IDENTIFIER, skipIdentifierPart(position + 1));
+            } else if (current == ' ') {
+                int whitespaceEnd = position + 1;
+                while (charAt(whitespaceEnd) == ' ') {
+                    whitespaceEnd++;
+                }
+                add(TokenType.WHITESPACE, whitespaceEnd);
+            } else if (isLineTerminator(current)) {
+                throw new TokenizationException("Token not found for '"
+                        + input.subSequence(position, indexOfLineEnd(position)) + "'");
+            } else if (Character.isHighSurrogate(current)
+                    && Character.isLowSurrogate(charAt(position + 1))) {
+                add(TokenType.UNKNOWN, position + 2);
+            } else {
+                add(TokenType.UNKNOWN, position + 1);
+            }
+        }
+
+        private boolean scanLiteral(TokenType type) {
+            String literal = type.getLiteral();
+            int literalEnd = position + literal.length();
+
+            if (!regionMatches(position, literal)
+                    || (type.isKeyword() && isLetter(charAt(literalEnd)))) {
+                return false;
+            }
+
+            next = new Token(literal, type);
+            position = literalEnd;
+            return true;
+        }
+
+        private boolean scanComment() {
+            char next = charAt(position + 1);
+
+            if (next == '/') {
+                int commentEnd = position + 2;
+                while (commentEnd < end && !isLineTerminator(input.charAt(commentEnd))) {
+                    commentEnd++;
+                }
+                add(TokenType.COMMENT, commentEnd);
+                return true;
+            }
+
+            if (next == '*') {
+                int closing = indexOfCommentEnd(position + 2);
+                if (closing != -1) {
+                    add(TokenType.COMMENT, closing + 2);
+                    return true;
+                }
+            }
+
+            return false;
+        }
+
+        /**
+         * Scans a text block, which opens with {@code \"\"\"} and a line break and closes with the
+         * next {@code \"\"\"} that is not escaped. If there is none, the quotes are regular tokens.
+         */
+        private boolean scanTextBlock() {
+            if (!regionMatches(position, TEXT_BLOCK_DELIMITER)) {
+                return false;
+            }
+
+            int contentStart = position + TEXT_BLOCK_DELIMITER.length();
+            while (charAt(contentStart) == ' ') {
+                contentStart++;
+            }
+            if (charAt(contentStart) != '\n') {
+                return false;
+            }
+
+            int closing = indexOfTextBlockEnd(contentStart + 1);
+            if (closing == -1) {
+                return false;
+            }
+
+            add(TokenType.STRING, closing + TEXT_BLOCK_DELIMITER.length());
+            return true;
+        }
+
+        /**
+         * Scans a number literal, mirroring the regex of {@link TokenType#NUMBER}: an optional
+         * {@code 0x} or {@code 0b} prefix, followed by either digits or a fraction, and an optional
+         * type suffix. The prefix is only taken if something valid follows it.
+         */
+        private int scanNumber() {
+            char next = charAt(position + 1);
+
+            if (input.charAt(position) == '0' && (next == 'x' || next == 'b')) {
+                int prefixedEnd = scanNumberBody(position + 2);
+                if (prefixedEnd != -1) {
+                    return prefixedEnd;
+                }
+            }
+
+            return scanNumberBody(position);
+        }
+
+        private int scanNumberBody(int from) {
+            int bodyEnd;
+            char first = charAt(from);
+
+            if (isDigit(first) || first == '_') {
+                bodyEnd = from + 1;
+                while (isDigit(charAt(bodyEnd)) || charAt(bodyEnd) == '_') {
+                    bodyEnd++;
+                }
+            } else if (first == '.') {
+                bodyEnd = from + 1;
+                while (isDigit(charAt(bodyEnd))) {
+                    bodyEnd++;
+                }
+            } else {
+                return -1;
+            }
 
-        while (matcher.find()) {
-            String s = matcher.group();
+            return "dDfFlL".indexOf(charAt(bodyEnd)) == -1 ? bodyEnd : bodyEnd + 1;
+        }
+
+        private int skipIdentifierPart(int from) {
+            int identifierEnd = from;
+            char current;
+
+            while (isLetter(current = charAt(identifierEnd)) || isDigit(current)
+                    || current == '_') {
+                identifierEnd++;
+            }
+
+            return identifierEnd;
+        }
+
+        private int indexOfCommentEnd(int from) {
+            if (from >= noCommentEndFrom) {
+                return -1;
+            }
+
+            for (int i = from; i < end - 1; i++) {
+                if (input.charAt(i) == '*' && input.charAt(i + 1) == '/') {
+                    return i;
+                }
+            }
 
-            input = input.replace(s, s.replace("\n", " "));
+            noCommentEndFrom = from;
+            return -1;
         }
 
-        return input;
+        private int indexOfTextBlockEnd(int from) {
+            if (from >= noTextBlockEndFrom) {
+                return -1;
+            }
+
+            for (int i = from; i < end; i++) {
+                char current = input.charAt(i);
+
+                if (current == '\\') {
+                    i++;
+                } else if (current == '"' && regionMatches(i, TEXT_BLOCK_DELIMITER)) {
+                    return i;
+                }
+            }
+
+            noTextBlockEndFrom = from;
+            return -1;
+        }
+
+        private int indexOfInLine(char target, int from) {
+            for (int i = from; i < end; i++) {
+                char current = input.charAt(i);
+
+                if (current == target) {
+                    return i;
+                }
+                if (current == '\n') {
+                    return -1;
+                }
+            }
+
+            return -1;
+        }
+
+        private int indexOfLineEnd(int from) {
+            int lineEnd = from;
+            while (lineEnd < end && input.charAt(lineEnd) != '\n') {
+                lineEnd++;
+            }
+
+            return lineEnd;
+        }
+
+        private boolean regionMatches(int from, String literal) {
+            if (from + literal.length() > end) {
+                return false;
+            }
+
+            for (int i = 0; i < literal.length(); i++) {
+                if (input.charAt(from + i) != literal.charAt(i)) {
+                    return false;
+                }
+            }
+
+            return true;
+        }
+
+        private void add(TokenType type, int tokenEnd) {
+            next = new Token(input.subSequence(position, tokenEnd).toString(), type);
+            position = tokenEnd;
+        }
+
+        /**
+         * Gets the character at the given position, or {@code '\0'} if it is past the input
+         */
+        private char charAt(int index) {
+            return index < end ? input.charAt(index) : '\0';
+        }
+
+        private static boolean isLetter(char c) {
+            return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+        }
+
+        private static boolean isDigit(char c) {
+            return c >= '0' && c <= '9';
+        }
+
+        /**
+         * Whether the given character is a line terminator, which is not matched by {@code .} in a
+         * regex
+         */
+        private static boolean isLineTerminator(char c) {
+            return c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029';
+        }
     }
 }
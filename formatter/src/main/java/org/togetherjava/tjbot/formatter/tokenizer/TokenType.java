@@ -99,6 +99,7 @@ public enum TokenType {
     UNKNOWN(Pattern.compile("^(.)"));
 
     private final Pattern regex;
+    private final String literal;
     private final boolean isKeyword;
     private final boolean isOperator;
 
@@ -109,12 +110,14 @@ public enum TokenType {
             this.regex = Pattern.compile("^(" + Pattern.quote(pattern) + ")(?![a-zA-Z])");
         }
 
+        this.literal = pattern;
         this.isKeyword = isKeyword;
         this.isOperator = isOperator;
     }
 
     TokenType(Pattern regex) {
         this.regex = regex;
+        this.literal = null;
         this.isKeyword = false;
         this.isOperator = false;
     }
@@ -127,6 +130,15 @@ public enum TokenType {
         return regex;
     }
 
+    /**
+     * Gets the fixed content of tokens of this type, such as {@code "class"} or {@code "+="}
+     *
+     * @return the fixed content, or null if the content of tokens of this type varies
+     */
+    String getLiteral() {
+        return literal;
+    }
+
     public boolean isKeyword() {
         return isKeyword;
     }
@@ -0,0 +1,197 @@
+package org.togetherjava.tjbot.formatter.util;
+
+import java.util.AbstractQueue;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.function.Predicate;
+
+/**
+ * A {@link LookaheadQueue} implementation that is based on a growable ring buffer, so that
+ * {@link #peek(int)} is a constant-time index access. Does not permit null elements.
+ */
+public class LookaheadArrayQueue<E> extends AbstractQueue<E> implements LookaheadQueue<E> {
+    private static final int DEFAULT_CAPACITY = 16;
+
+    private Object[] elements;
+    private int head;
+    private int size;
+
+    public LookaheadArrayQueue() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public LookaheadArrayQueue(int numElements) {
+        elements = new Object[capacityFor(numElements)];
+    }
+
+    public LookaheadArrayQueue(Collection<? extends E> c) {
+        this(c.size());
+
+        addAll(c);
+    }
+
+    @Override
+    public boolean offer(E e) {
+        Objects.requireNonNull(e);
+
+        if (size == elements.length) {
+            grow();
+        }
+
+        elements[indexOf(size)] = e;
+        size++;
+
+        return true;
+    }
+
+    @Override
+    public E poll() {
+        if (size == 0) {
+            return null;
+        }
+
+        E result = elementAt(0);
+
+        elements[head] = null;
+        head = indexOf(1);
+        size--;
+
+        return result;
+    }
+
+    @Override
+    public E peek() {
+        return peek(0);
+    }
+
+    @Override
+    public E peek(int n) {
+        if (n < 0 || n >= size) {
+            return null;
+        }
+
+        return elementAt(n);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public void clear() {
+        for (int i = 0; i < size; i++) {
+            elements[indexOf(i)] = null;
+        }
+
+        head = 0;
+        size = 0;
+    }
+
+    @Override
+    public boolean removeIf(Predicate<? super E> filter) {
+        Objects.requireNonNull(filter);
+
+        int kept = 0;
+
+        for (int i = 0; i < size; i++) {
+            E element = elementAt(i);
+
+            if (!filter.test(element)) {
+                elements[indexOf(kept)] = element;
+                kept++;
+            }
+        }
+
+        for (int i = kept; i < size; i++) {
+            elements[indexOf(i)] = null;
+        }
+
+        boolean modified = kept != size;
+        size = kept;
+
+        return modified;
+    }
+
+    @Override
+    public Iterator<E> iterator() {
+        return new Iterator<>() {
+            private int next;
+            private int last = -1;
+
+            @Override
+            public boolean hasNext() {
+                return next < size;
+            }
+
+            @Override
+            public E next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+
+                last = next;
+                next++;
+
+                return elementAt(last);
+            }
+
+            @Override
+            public void remove() {
+                if (last == -1) {
+                    throw new IllegalStateException();
+                }
+
+                removeAt(last);
+                next = last;
+                last = -1;
+            }
+        };
+    }
+
+    /**
+     * Removes the element at the given position by shifting all elements after it
+     *
+     * @param position position of the element, counted from the head
+     */
+    private void removeAt(int position) {
+        for (int i = position; i < size - 1; i++) {
+            elements[indexOf(i)] = elements[indexOf(i + 1)];
+        }
+
+        elements[indexOf(size - 1)] = null;
+        size--;
+    }
+
+    @SuppressWarnings("unchecked")
+    private E elementAt(int position) {
+        return (E) elements[indexOf(position)];
+    }
+
+    private int indexOf(int position) {
+        return (head + position) & (elements.length - 1);
+    }
+
+    private void grow() {
+        Object[] grown = new Object[elements.length * 2];
+
+        for (int i = 0; i < size; i++) {
+            grown[i] = elements[indexOf(i)];
+        }
+
+        elements = grown;
+        head = 0;
+    }
+
+    /**
+     * Gets the smallest power of two that can hold the given amount of elements, so that positions
+     * can be wrapped around with a bit mask
+     */
+    private static int capacityFor(int numElements) {
+        int capacity = Integer.highestOneBit(Math.max(numElements, 1));
+
+        return capacity < numElements ? capacity * 2 : capacity;
+    }
+}
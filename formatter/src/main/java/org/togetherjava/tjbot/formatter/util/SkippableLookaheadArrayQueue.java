@@ -0,0 +1,41 @@
+package org.togetherjava.tjbot.formatter.util;
+
+import java.util.Collection;
+import java.util.function.Predicate;
+
+/**
+ * A {@link SkippableLookaheadQueue} implementation that is based on a {@link LookaheadArrayQueue},
+ * skipping elements without modifying the queue
+ */
+public class SkippableLookaheadArrayQueue<E> extends LookaheadArrayQueue<E>
+        implements SkippableLookaheadQueue<E> {
+    public SkippableLookaheadArrayQueue() {}
+
+    public SkippableLookaheadArrayQueue(int numElements) {
+        super(numElements);
+    }
+
+    public SkippableLookaheadArrayQueue(Collection<? extends E> c) {
+        super(c);
+    }
+
+    @Override
+    public E peek(int n, Predicate<E> skip) {
+        if (n < 0) {
+            return null;
+        }
+
+        int position = 0;
+        int remaining = n;
+
+        while (remaining > 0 && position < size()) {
+            if (!skip.test(peek(position))) {
+                remaining--;
+            }
+
+            position++;
+        }
+
+        return peek(position);
+    }
+}
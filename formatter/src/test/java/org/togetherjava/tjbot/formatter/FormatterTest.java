@@ -7,6 +7,10 @@ import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.TestInstance;
 import org.togetherjava.tjbot.formatter.tokenizer.Lexer;
+import org.togetherjava.tjbot.formatter.tokenizer.Token;
+
+import java.io.IOException;
+import java.util.Iterator;
 
 @TestInstance(TestInstance.Lifecycle.PER_CLASS)
 class FormatterTest {
@@ -199,4 +203,25 @@ class FormatterTest {
                 ```""", formatter
             .format("(String s,Object b)->{System.out.println(\"Hello World\");};", lexer));
     }
+
+    @Test
+    @DisplayName("Formatting into an output within the limit writes the whole result")
+    void testFormatWithinLimit() throws IOException {
+        String input = "`void foo(){}`";
+        StringBuilder output = new StringBuilder();
+
+        assertTrue(formatter.format(input, lexer, output, Formatter.MESSAGE_LENGTH_LIMIT));
+        assertEquals(formatter.format(input, lexer), output.toString());
+    }
+
+    @Test
+    @DisplayName("Formatting aborts once the limit is exceeded")
+    void testFormatExceedingLimit() throws IOException {
+        StringBuilder output = new StringBuilder();
+        Iterator<Token> tokens = lexer.tokenizeLazily("void foo(){} ` " + "int x;".repeat(1000));
+
+        assertFalse(formatter.format(tokens, output, 30));
+        assertTrue(output.length() <= 30);
+        assertTrue(tokens.hasNext());
+    }
 }
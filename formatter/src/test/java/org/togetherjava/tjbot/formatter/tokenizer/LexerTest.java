@@ -9,6 +9,7 @@ import org.junit.jupiter.api.TestInstance;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.regex.Matcher;
 
 @TestInstance(TestInstance.Lifecycle.PER_CLASS)
 class LexerTest {
@@ -60,4 +61,65 @@ class LexerTest {
     void testIdentifierKeyword() {
         assertEquals(TokenType.IDENTIFIER, lexer.tokenize("format").get(0).type());
     }
+
+    @Test
+    @DisplayName("Block comments and text blocks span multiple lines")
+    void testMultiLineTokens() {
+        String comment = "/**\n * Javadoc\n */";
+        String textBlock = "\"\"\"\n    some \\\"\"\" text\n    \"\"\"";
+
+        assertEquals(
+                List.of(new Token(comment, TokenType.COMMENT), new Token("int", TokenType.INT)),
+                lexer.tokenize(comment + "\nint"));
+        assertEquals(List.of(new Token(textBlock, TokenType.STRING)), lexer.tokenize(textBlock));
+    }
+
+    @Test
+    @DisplayName("Line comments and strings end at the line break")
+    void testSingleLineTokens() {
+        List<TokenType> tokens =
+                lexer.tokenize("// /*\n*/ \"a\nb\"").stream().map(Token::type).toList();
+
+        assertEquals(List.of(TokenType.COMMENT, TokenType.MULTIPLY, TokenType.DIVIDE,
+                TokenType.WHITESPACE, TokenType.UNKNOWN, TokenType.IDENTIFIER,
+                TokenType.IDENTIFIER, TokenType.UNKNOWN), tokens);
+    }
+
+    @Test
+    @DisplayName("Tokens match the regex of their token type")
+    void testRegexConformance() {
+        List<String> inputs = List.of("int2 int_x interface else if else iffy non-sealed",
+                "0x1F 0xd 0x.5 0b_ 1.5f .5 1_000L __", "@Override @1 @ \"a\\\"b\" \"open",
+                "a /* b */ c /*/ d */ /* open", "x // comment", "/=/**/ ** /",
+                "\tx$y`\u00e9\uD83D\uDE00",
+                "a&&=b||c|d&e%=f%g^h~i::j:k->l...");
+
+        for (String input : inputs) {
+            assertEquals(tokenizeByRegex(input), lexer.tokenize(input), input);
+        }
+    }
+
+    private static List<Token> tokenizeByRegex(String line) {
+        List<Token> tokens = new ArrayList<>();
+        String content = line;
+
+        while (!content.isEmpty()) {
+            Token token = null;
+
+            for (TokenType type : TokenType.values()) {
+                Matcher matcher = type.getRegex().matcher(content);
+
+                if (matcher.find()) {
+                    token = new Token(matcher.group(1), type);
+                    break;
+                }
+            }
+
+            assertNotNull(token, content);
+            tokens.add(token);
+            content = content.substring(token.content().length());
+        }
+
+        return tokens;
+    }
 }
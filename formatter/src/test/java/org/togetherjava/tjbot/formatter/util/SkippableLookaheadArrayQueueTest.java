@@ -0,0 +1,60 @@
+package org.togetherjava.tjbot.formatter.util;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+class SkippableLookaheadArrayQueueTest {
+    @Test
+    @DisplayName("Peeking does not modify the queue")
+    void testPeek() {
+        SkippableLookaheadArrayQueue<Integer> queue =
+                new SkippableLookaheadArrayQueue<>(List.of(1, 2, 3));
+
+        assertEquals(1, queue.peek(0));
+        assertEquals(3, queue.peek(2));
+        assertNull(queue.peek(3));
+        assertNull(queue.peek(-1));
+        assertEquals(List.of(1, 2, 3), new ArrayList<>(queue));
+    }
+
+    @Test
+    @DisplayName("Peeking with skipping ignores skipped elements before the peeked one")
+    void testPeekSkipping() {
+        SkippableLookaheadArrayQueue<Integer> queue =
+                new SkippableLookaheadArrayQueue<>(List.of(1, 0, 2, 0, 0, 3));
+
+        assertEquals(1, queue.peek(0, i -> i == 0));
+        assertEquals(0, queue.peek(1, i -> i == 0));
+        assertEquals(0, queue.peek(2, i -> i == 0));
+        assertEquals(2, queue.peek(1, i -> i == 1));
+        assertNull(queue.peek(4, i -> i == 0));
+        assertEquals(6, queue.size());
+    }
+
+    @Test
+    @DisplayName("Elements keep their order when the buffer wraps around and grows")
+    void testWrapAround() {
+        SkippableLookaheadArrayQueue<Integer> queue = new SkippableLookaheadArrayQueue<>(4);
+        List<Integer> expected = new ArrayList<>();
+
+        for (int i = 0; i < 100; i++) {
+            queue.add(i);
+            expected.add(i);
+
+            if (i % 3 == 0) {
+                assertEquals(expected.remove(0), queue.remove());
+            }
+        }
+
+        queue.removeIf(i -> i % 2 == 0);
+        expected.removeIf(i -> i % 2 == 0);
+
+        assertEquals(expected, new ArrayList<>(queue));
+        assertEquals(expected.get(5), queue.peek(5));
+    }
+}